@@ -2,52 +2,114 @@
 create database prod;
 use prod;
 
+/* Chaque parking (LOT_ID) a ses propres numéros de places ; un parking est entièrement dans une base */
 create table parking(
-PARKING_NUMBER int PRIMARY KEY,
+LOT_ID int NOT NULL,
+PARKING_NUMBER int NOT NULL,
 AVAILABLE bool NOT NULL,
-TYPE varchar(10) NOT NULL
+TYPE varchar(10) NOT NULL,
+PRIMARY KEY (LOT_ID, PARKING_NUMBER)
 );
 
 create table ticket(
  ID int PRIMARY KEY AUTO_INCREMENT,
+ LOT_ID int NOT NULL,
  PARKING_NUMBER int NOT NULL,
  VEHICLE_REG_NUMBER varchar(10) NOT NULL,
  PRICE double,
  IN_TIME DATETIME NOT NULL,
  OUT_TIME DATETIME,
- FOREIGN KEY (PARKING_NUMBER)
- REFERENCES parking(PARKING_NUMBER));
-
-insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(1,true,'CAR');
-insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(2,true,'CAR');
-insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(3,true,'CAR');
-insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(4,true,'BIKE');
-insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(5,true,'BIKE');
+ FOREIGN KEY (LOT_ID, PARKING_NUMBER)
+ REFERENCES parking(LOT_ID, PARKING_NUMBER));
+
+/* Tickets : recherche du dernier ticket d'un véhicule et chargement des tickets en cours sans tri */
+create index TICKET_VEHICLE_IN_TIME on ticket(LOT_ID, VEHICLE_REG_NUMBER, IN_TIME);
+create index TICKET_OUT_TIME on ticket(LOT_ID, OUT_TIME);
+
+/* Tickets sortis depuis longtemps, déplacés par l'archivage ; l'ID est propre à l'archive */
+create table ticket_archive(
+ ID int PRIMARY KEY AUTO_INCREMENT,
+ LOT_ID int NOT NULL,
+ PARKING_NUMBER int NOT NULL,
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ PRICE double,
+ IN_TIME DATETIME NOT NULL,
+ OUT_TIME DATETIME NOT NULL);
+create index TICKET_ARCHIVE_VEHICLE_IN_TIME on ticket_archive(LOT_ID, VEHICLE_REG_NUMBER, IN_TIME);
+create index TICKET_ARCHIVE_OUT_TIME on ticket_archive(LOT_ID, OUT_TIME);
+
+/* Nombre de passages par véhicule et par parking, tenu à jour à chaque ticket enregistré */
+create table vehicle_visit(
+ LOT_ID int NOT NULL,
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ NB_VISIT int NOT NULL,
+ PRIMARY KEY (LOT_ID, VEHICLE_REG_NUMBER));
+
+/* Parkings en cours de déplacement vers une autre base : leurs guichets n'obtiennent plus de connexion */
+create table lot_freeze(
+ LOT_ID int PRIMARY KEY);
+
+insert into parking(LOT_ID,PARKING_NUMBER,AVAILABLE,TYPE) values(1,1,true,'CAR');
+insert into parking(LOT_ID,PARKING_NUMBER,AVAILABLE,TYPE) values(1,2,true,'CAR');
+insert into parking(LOT_ID,PARKING_NUMBER,AVAILABLE,TYPE) values(1,3,true,'CAR');
+insert into parking(LOT_ID,PARKING_NUMBER,AVAILABLE,TYPE) values(1,4,true,'BIKE');
+insert into parking(LOT_ID,PARKING_NUMBER,AVAILABLE,TYPE) values(1,5,true,'BIKE');
 commit;
 
 /* Setting up TEST DB */
 create database test;
 use test;
 
+/* Chaque parking (LOT_ID) a ses propres numéros de places ; un parking est entièrement dans une base */
 create table parking(
-PARKING_NUMBER int PRIMARY KEY,
+LOT_ID int NOT NULL,
+PARKING_NUMBER int NOT NULL,
 AVAILABLE bool NOT NULL,
-TYPE varchar(10) NOT NULL
+TYPE varchar(10) NOT NULL,
+PRIMARY KEY (LOT_ID, PARKING_NUMBER)
 );
 
 create table ticket(
  ID int PRIMARY KEY AUTO_INCREMENT,
+ LOT_ID int NOT NULL,
  PARKING_NUMBER int NOT NULL,
  VEHICLE_REG_NUMBER varchar(10) NOT NULL,
  PRICE double,
  IN_TIME DATETIME NOT NULL,
  OUT_TIME DATETIME,
- FOREIGN KEY (PARKING_NUMBER)
- REFERENCES parking(PARKING_NUMBER));
-
-insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(1,true,'CAR');
-insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(2,true,'CAR');
-insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(3,true,'CAR');
-insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(4,true,'BIKE');
-insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(5,true,'BIKE');
+ FOREIGN KEY (LOT_ID, PARKING_NUMBER)
+ REFERENCES parking(LOT_ID, PARKING_NUMBER));
+
+/* Tickets : recherche du dernier ticket d'un véhicule et chargement des tickets en cours sans tri */
+create index TICKET_VEHICLE_IN_TIME on ticket(LOT_ID, VEHICLE_REG_NUMBER, IN_TIME);
+create index TICKET_OUT_TIME on ticket(LOT_ID, OUT_TIME);
+
+/* Tickets sortis depuis longtemps, déplacés par l'archivage ; l'ID est propre à l'archive */
+create table ticket_archive(
+ ID int PRIMARY KEY AUTO_INCREMENT,
+ LOT_ID int NOT NULL,
+ PARKING_NUMBER int NOT NULL,
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ PRICE double,
+ IN_TIME DATETIME NOT NULL,
+ OUT_TIME DATETIME NOT NULL);
+create index TICKET_ARCHIVE_VEHICLE_IN_TIME on ticket_archive(LOT_ID, VEHICLE_REG_NUMBER, IN_TIME);
+create index TICKET_ARCHIVE_OUT_TIME on ticket_archive(LOT_ID, OUT_TIME);
+
+/* Nombre de passages par véhicule et par parking, tenu à jour à chaque ticket enregistré */
+create table vehicle_visit(
+ LOT_ID int NOT NULL,
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ NB_VISIT int NOT NULL,
+ PRIMARY KEY (LOT_ID, VEHICLE_REG_NUMBER));
+
+/* Parkings en cours de déplacement vers une autre base : leurs guichets n'obtiennent plus de connexion */
+create table lot_freeze(
+ LOT_ID int PRIMARY KEY);
+
+insert into parking(LOT_ID,PARKING_NUMBER,AVAILABLE,TYPE) values(1,1,true,'CAR');
+insert into parking(LOT_ID,PARKING_NUMBER,AVAILABLE,TYPE) values(1,2,true,'CAR');
+insert into parking(LOT_ID,PARKING_NUMBER,AVAILABLE,TYPE) values(1,3,true,'CAR');
+insert into parking(LOT_ID,PARKING_NUMBER,AVAILABLE,TYPE) values(1,4,true,'BIKE');
+insert into parking(LOT_ID,PARKING_NUMBER,AVAILABLE,TYPE) values(1,5,true,'BIKE');
 commit;
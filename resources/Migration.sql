@@ -0,0 +1,93 @@
+/* Migration des bases existantes (prod puis test) vers le schéma de Data.sql */
+/* A exécuter une seule fois, chaque bloc dans l'ordre */
+
+/* Compteurs de passages par véhicule, initialisés à partir de l'historique */
+use prod;
+create table vehicle_visit(
+ VEHICLE_REG_NUMBER varchar(10) PRIMARY KEY,
+ NB_VISIT int NOT NULL);
+insert into vehicle_visit(VEHICLE_REG_NUMBER, NB_VISIT)
+ select VEHICLE_REG_NUMBER, count(*) from ticket group by VEHICLE_REG_NUMBER;
+commit;
+
+use test;
+create table vehicle_visit(
+ VEHICLE_REG_NUMBER varchar(10) PRIMARY KEY,
+ NB_VISIT int NOT NULL);
+insert into vehicle_visit(VEHICLE_REG_NUMBER, NB_VISIT)
+ select VEHICLE_REG_NUMBER, count(*) from ticket group by VEHICLE_REG_NUMBER;
+commit;
+
+/* Index des tickets : dernier ticket d'un véhicule et tickets en cours */
+use prod;
+create index TICKET_VEHICLE_IN_TIME on ticket(VEHICLE_REG_NUMBER, IN_TIME);
+create index TICKET_OUT_TIME on ticket(OUT_TIME);
+
+use test;
+create index TICKET_VEHICLE_IN_TIME on ticket(VEHICLE_REG_NUMBER, IN_TIME);
+create index TICKET_OUT_TIME on ticket(OUT_TIME);
+
+/* Découpage par parking : LOT_ID dans les clés, les données existantes vont dans le parking 1 */
+use prod;
+alter table ticket drop foreign key ticket_ibfk_1;
+drop index TICKET_VEHICLE_IN_TIME on ticket;
+drop index TICKET_OUT_TIME on ticket;
+alter table parking add column LOT_ID int NOT NULL DEFAULT 1 FIRST, drop primary key, add primary key (LOT_ID, PARKING_NUMBER);
+alter table parking alter column LOT_ID drop default;
+alter table ticket add column LOT_ID int NOT NULL DEFAULT 1 AFTER ID;
+alter table ticket alter column LOT_ID drop default;
+alter table ticket add foreign key (LOT_ID, PARKING_NUMBER) references parking(LOT_ID, PARKING_NUMBER);
+create index TICKET_VEHICLE_IN_TIME on ticket(LOT_ID, VEHICLE_REG_NUMBER, IN_TIME);
+create index TICKET_OUT_TIME on ticket(LOT_ID, OUT_TIME);
+alter table vehicle_visit add column LOT_ID int NOT NULL DEFAULT 1 FIRST, drop primary key, add primary key (LOT_ID, VEHICLE_REG_NUMBER);
+alter table vehicle_visit alter column LOT_ID drop default;
+commit;
+
+use test;
+alter table ticket drop foreign key ticket_ibfk_1;
+drop index TICKET_VEHICLE_IN_TIME on ticket;
+drop index TICKET_OUT_TIME on ticket;
+alter table parking add column LOT_ID int NOT NULL DEFAULT 1 FIRST, drop primary key, add primary key (LOT_ID, PARKING_NUMBER);
+alter table parking alter column LOT_ID drop default;
+alter table ticket add column LOT_ID int NOT NULL DEFAULT 1 AFTER ID;
+alter table ticket alter column LOT_ID drop default;
+alter table ticket add foreign key (LOT_ID, PARKING_NUMBER) references parking(LOT_ID, PARKING_NUMBER);
+create index TICKET_VEHICLE_IN_TIME on ticket(LOT_ID, VEHICLE_REG_NUMBER, IN_TIME);
+create index TICKET_OUT_TIME on ticket(LOT_ID, OUT_TIME);
+alter table vehicle_visit add column LOT_ID int NOT NULL DEFAULT 1 FIRST, drop primary key, add primary key (LOT_ID, VEHICLE_REG_NUMBER);
+alter table vehicle_visit alter column LOT_ID drop default;
+commit;
+
+/* Archive des tickets sortis depuis longtemps */
+use prod;
+create table ticket_archive(
+ ID int PRIMARY KEY AUTO_INCREMENT,
+ LOT_ID int NOT NULL,
+ PARKING_NUMBER int NOT NULL,
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ PRICE double,
+ IN_TIME DATETIME NOT NULL,
+ OUT_TIME DATETIME NOT NULL);
+create index TICKET_ARCHIVE_VEHICLE_IN_TIME on ticket_archive(LOT_ID, VEHICLE_REG_NUMBER, IN_TIME);
+create index TICKET_ARCHIVE_OUT_TIME on ticket_archive(LOT_ID, OUT_TIME);
+
+use test;
+create table ticket_archive(
+ ID int PRIMARY KEY AUTO_INCREMENT,
+ LOT_ID int NOT NULL,
+ PARKING_NUMBER int NOT NULL,
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ PRICE double,
+ IN_TIME DATETIME NOT NULL,
+ OUT_TIME DATETIME NOT NULL);
+create index TICKET_ARCHIVE_VEHICLE_IN_TIME on ticket_archive(LOT_ID, VEHICLE_REG_NUMBER, IN_TIME);
+create index TICKET_ARCHIVE_OUT_TIME on ticket_archive(LOT_ID, OUT_TIME);
+
+/* Gel des parkings en cours de déplacement, visible de tous les processus */
+use prod;
+create table lot_freeze(
+ LOT_ID int PRIMARY KEY);
+
+use test;
+create table lot_freeze(
+ LOT_ID int PRIMARY KEY);
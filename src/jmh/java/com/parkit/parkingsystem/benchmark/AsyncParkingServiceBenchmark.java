@@ -0,0 +1,93 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.AsyncParkingService;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rafale de BURST entrées puis sorties : traitement une à une (comme la console)
+ * contre AsyncParkingService. Les DAO simulent dbLatencyMillis d'attente par requête.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AsyncParkingServiceBenchmark {
+
+    private static final int BURST = 200;
+
+    @Param({"0", "1"})
+    public long dbLatencyMillis;
+
+    private ParkingService parkingService;
+    private AsyncParkingService asyncParkingService;
+    private String[] vehicleRegNumbers;
+
+    @Setup
+    public void setUp() {
+        parkingService = new ParkingService(null, new StubParkingSpotDAO(dbLatencyMillis), new StubTicketDAO(dbLatencyMillis));
+        asyncParkingService = new AsyncParkingService(parkingService);
+        vehicleRegNumbers = new String[BURST];
+        for (int i = 0; i < BURST; i++) {
+            vehicleRegNumbers[i] = "CAR" + i;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        asyncParkingService.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public double blocking() throws Exception {
+        double total = 0;
+        for (String vehicleRegNumber : vehicleRegNumbers) {
+            parkingService.enterVehicle(ParkingType.CAR, vehicleRegNumber, new Date());
+        }
+        for (String vehicleRegNumber : vehicleRegNumbers) {
+            total += parkingService.exitVehicle(vehicleRegNumber, new Date()).getPrice();
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public double async() {
+        CompletableFuture<?>[] entries = new CompletableFuture<?>[BURST];
+        for (int i = 0; i < BURST; i++) {
+            entries[i] = asyncParkingService.enterVehicle(ParkingType.CAR, vehicleRegNumbers[i]);
+        }
+        CompletableFuture.allOf(entries).join();
+        @SuppressWarnings("unchecked")
+        CompletableFuture<Ticket>[] exits = new CompletableFuture[BURST];
+        for (int i = 0; i < BURST; i++) {
+            exits[i] = asyncParkingService.exitVehicle(vehicleRegNumbers[i]);
+        }
+        double total = 0;
+        for (CompletableFuture<Ticket> exit : exits) {
+            total += exit.join().getPrice();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,146 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.JdbcUnitOfWork;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.InMemoryDataBaseTestConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DAO sur une base H2 en mémoire (mode MySQL) : mesure le coût JDBC et des index en mémoire, hors réseau.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DaoBenchmark {
+
+    private InMemoryDataBaseTestConfig dataBaseConfig;
+    private ParkingSpotDAO parkingSpotDAO;
+    private TicketDAO ticketDAO;
+    private ParkingService parkingService;
+    private ParkingService unitOfWorkParkingService;
+
+    @Setup
+    public void setUp() throws Exception {
+        dataBaseConfig = new InMemoryDataBaseTestConfig("benchmark");
+        dataBaseConfig.createParkingLot(1000, 100);
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.reconcileFreeSpots();
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO.loadOpenTickets();
+        parkingService = new ParkingService(null, parkingSpotDAO, ticketDAO);
+        unitOfWorkParkingService = new ParkingService(null, parkingSpotDAO, ticketDAO);
+        unitOfWorkParkingService.setUnitOfWorkFactory(() -> new JdbcUnitOfWork(parkingSpotDAO, ticketDAO));
+
+        // un véhicule garé, un véhicule déjà reparti
+        ticketDAO.saveTicket(newTicket("OPEN"));
+        Ticket closedTicket = newTicket("CLOSED");
+        ticketDAO.saveTicket(closedTicket);
+        closedTicket.setOutTime(new Date());
+        ticketDAO.updateTicket(closedTicket);
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataBaseConfig.closePool();
+    }
+
+    @Benchmark
+    public ParkingSpot claimAndReleaseParkingSpot() {
+        ParkingSpot parkingSpot = parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR);
+        parkingSpot.setAvailable(true);
+        parkingSpotDAO.updateParking(parkingSpot);
+        return parkingSpot;
+    }
+
+    @Benchmark
+    public ParkingSpot getParkingSpotById() {
+        return parkingSpotDAO.getParkingSpotById(1);
+    }
+
+    /**
+     * Lecture en base à chaque appel, pour comparer avec le cache des places.
+     */
+    @Benchmark
+    public ParkingSpot getParkingSpotByIdUncached() {
+        parkingSpotDAO.parkingSpotCache.invalidate(1);
+        return parkingSpotDAO.getParkingSpotById(1);
+    }
+
+    @Benchmark
+    public boolean saveAndCloseTicket() {
+        Ticket ticket = newTicket("BENCH");
+        ticketDAO.saveTicket(ticket);
+        ticket.setOutTime(new Date());
+        return ticketDAO.updateTicket(ticket);
+    }
+
+    /**
+     * Entrée puis sortie par ParkingService, un appel de DAO (et une connexion) à la fois.
+     */
+    @Benchmark
+    public Ticket enterAndExitVehicle() throws Exception {
+        parkingService.enterVehicle(ParkingType.CAR, "BENCH", new Date());
+        return parkingService.exitVehicle("BENCH", new Date());
+    }
+
+    /**
+     * Même chose avec une transaction par opération.
+     */
+    @Benchmark
+    public Ticket enterAndExitVehicleInUnitOfWork() throws Exception {
+        unitOfWorkParkingService.enterVehicle(ParkingType.CAR, "BENCH", new Date());
+        return unitOfWorkParkingService.exitVehicle("BENCH", new Date());
+    }
+
+    @Benchmark
+    public Ticket getOpenTicket() {
+        return ticketDAO.getTicket("OPEN");
+    }
+
+    @Benchmark
+    public Ticket getClosedTicket() {
+        return ticketDAO.getTicket("CLOSED");
+    }
+
+    @Benchmark
+    public int getNbTicketCached() {
+        return ticketDAO.getNbTicket("OPEN");
+    }
+
+    @Benchmark
+    public int getNbTicketFromDataBase() {
+        ticketDAO.visitCounterCache.invalidate("CLOSED");
+        return ticketDAO.getNbTicket("CLOSED");
+    }
+
+    private static Ticket newTicket(String vehicleRegNumber) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date(System.currentTimeMillis() - (60 * 60 * 1000)));
+        return ticket;
+    }
+}
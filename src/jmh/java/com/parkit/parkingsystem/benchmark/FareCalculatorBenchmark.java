@@ -0,0 +1,110 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.tariff.Tariff;
+import com.parkit.parkingsystem.tariff.TariffSchedule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FareCalculatorBenchmark {
+
+    private static final int NB_TICKETS = 10_000;
+
+    private FareCalculatorService fareCalculatorService;
+    private Tariff schedule;
+    private Ticket ticket;
+    private long inTime;
+    private long outTime;
+    private long[] inTimes;
+    private long[] outTimes;
+    private byte[] parkingTypes;
+    private boolean[] discounts;
+    private long[] fares;
+
+    @Setup
+    public void setUp() {
+        fareCalculatorService = new FareCalculatorService();
+        schedule = new TariffSchedule("bench", 30, 5)
+                .addBand(ParkingType.CAR, false, LocalTime.of(7, 0), 200)
+                .addBand(ParkingType.CAR, false, LocalTime.of(19, 0), 100)
+                .addBand(ParkingType.CAR, true, LocalTime.MIDNIGHT, 80)
+                .setDailyMaxCents(ParkingType.CAR, 1500)
+                .compile(ZoneId.systemDefault());
+        ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setInTime(new Date(System.currentTimeMillis() - (75 * 60 * 1000)));
+        ticket.setOutTime(new Date());
+        inTime = ticket.getInTime().getTime();
+        outTime = ticket.getOutTime().getTime();
+
+        inTimes = new long[NB_TICKETS];
+        outTimes = new long[NB_TICKETS];
+        parkingTypes = new byte[NB_TICKETS];
+        discounts = new boolean[NB_TICKETS];
+        fares = new long[NB_TICKETS];
+        for (int i = 0; i < NB_TICKETS; i++) {
+            outTimes[i] = outTime;
+            inTimes[i] = outTime - (i % 1000) * 60_000L;
+            parkingTypes[i] = (byte) (i % ParkingType.values().length);
+            discounts[i] = (i % 3) == 0;
+        }
+    }
+
+    @Benchmark
+    public double calculateFare() {
+        fareCalculatorService.calculateFare(ticket);
+        return ticket.getPrice();
+    }
+
+    @Benchmark
+    public double calculateFareWithDiscount() {
+        fareCalculatorService.calculateFare(ticket, true);
+        return ticket.getPrice();
+    }
+
+    @Benchmark
+    public long calculateFareInCents() {
+        return fareCalculatorService.calculateFareInCents(inTime, outTime, ParkingType.CAR, true);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NB_TICKETS)
+    public long[] calculateFares() {
+        fareCalculatorService.calculateFares(inTimes, outTimes, parkingTypes, discounts, fares);
+        return fares;
+    }
+
+    @Benchmark
+    public long scheduleFareInCents() {
+        return schedule.fareInCents(inTime, outTime, ParkingType.CAR.ordinal(), true);
+    }
+
+    // 90 jours : même coût qu'un stationnement d'une heure
+    @Benchmark
+    public long scheduleFareInCentsLongStay() {
+        return schedule.fareInCents(outTime - 90L * 24 * 60 * 60 * 1000, outTime, ParkingType.CAR.ordinal(), true);
+    }
+}
@@ -0,0 +1,19 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.util.InputReaderUtil;
+
+/**
+ * Saisie simulée : une voiture immatriculée ABCDEF.
+ */
+public class StubInputReaderUtil extends InputReaderUtil {
+
+    @Override
+    public int readSelection() {
+        return 1;
+    }
+
+    @Override
+    public String readVehicleRegistrationNumber() {
+        return "ABCDEF";
+    }
+}
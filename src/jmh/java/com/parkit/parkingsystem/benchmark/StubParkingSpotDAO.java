@@ -0,0 +1,40 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+/**
+ * ParkingSpotDAO sans base : la place n°1 est toujours libre.
+ * Chaque appel peut simuler l'aller-retour en base par une attente de latencyMillis.
+ */
+public class StubParkingSpotDAO extends ParkingSpotDAO {
+
+    private final long latencyMillis;
+
+    public StubParkingSpotDAO() {
+        this(0);
+    }
+
+    public StubParkingSpotDAO(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    @Override
+    public int getNextAvailableSlot(ParkingType parkingType) {
+        StubTicketDAO.simulateLatency(latencyMillis);
+        return 1;
+    }
+
+    @Override
+    public ParkingSpot claimNextAvailableSlot(ParkingType parkingType) {
+        StubTicketDAO.simulateLatency(latencyMillis);
+        return new ParkingSpot(1, parkingType, false);
+    }
+
+    @Override
+    public boolean updateParking(ParkingSpot parkingSpot) {
+        StubTicketDAO.simulateLatency(latencyMillis);
+        return true;
+    }
+}
@@ -0,0 +1,64 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.util.Date;
+
+/**
+ * TicketDAO sans base : chaque véhicule a un ticket en cours d'une heure et deux passages.
+ * Chaque appel peut simuler l'aller-retour en base par une attente de latencyMillis.
+ */
+public class StubTicketDAO extends TicketDAO {
+
+    private final long latencyMillis;
+
+    public StubTicketDAO() {
+        this(0);
+    }
+
+    public StubTicketDAO(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    @Override
+    public boolean saveTicket(Ticket ticket) {
+        simulateLatency(latencyMillis);
+        return true;
+    }
+
+    @Override
+    public Ticket getTicket(String vehicleRegNumber) {
+        simulateLatency(latencyMillis);
+        Ticket ticket = new Ticket();
+        ticket.setId(1);
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date(System.currentTimeMillis() - (60 * 60 * 1000)));
+        return ticket;
+    }
+
+    @Override
+    public boolean updateTicket(Ticket ticket) {
+        simulateLatency(latencyMillis);
+        return true;
+    }
+
+    @Override
+    public int getNbTicket(String vehicleRegNumber) {
+        simulateLatency(latencyMillis);
+        return 2;
+    }
+
+    static void simulateLatency(long latencyMillis) {
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -1,6 +1,11 @@
 package com.parkit.parkingsystem;
 
+import com.parkit.parkingsystem.metrics.MetricsReporter;
+import com.parkit.parkingsystem.report.TariffSimulationService;
+import com.parkit.parkingsystem.report.TicketReportService;
 import com.parkit.parkingsystem.service.InteractiveShell;
+import com.parkit.parkingsystem.service.LoadTestService;
+import com.parkit.parkingsystem.service.ReplayService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -8,6 +13,25 @@ public class App {
     private static final Logger logger = LogManager.getLogger("App");
     public static void main(String[] args){
         logger.info("Initializing Parking System");
-        InteractiveShell.loadInterface();
+        // Dump des métriques dans logs/metrics.log, désactivé avec -Dmetrics.report.seconds=0
+        long reportSeconds = Long.getLong("metrics.report.seconds", 60);
+        MetricsReporter metricsReporter = (reportSeconds > 0) ? new MetricsReporter(reportSeconds) : null;
+        try {
+            if (args.length == 2 && "--replay".equals(args[0])) {
+                ReplayService.replayFile(args[1]);
+            } else if (args.length == 3 && "--report".equals(args[0])) {
+                TicketReportService.printReport(args[1], args[2]);
+            } else if ((args.length == 4 || args.length == 5) && "--simulate".equals(args[0])) {
+                TariffSimulationService.printSimulation(args[1], args[2], args[3], (args.length == 5) ? args[4] : null);
+            } else if (args.length == 1 && "--load".equals(args[0])) {
+                LoadTestService.runLoadTest();
+            } else {
+                InteractiveShell.loadInterface();
+            }
+        } finally {
+            if (metricsReporter != null) {
+                metricsReporter.close();
+            }
+        }
     }
 }
@@ -0,0 +1,185 @@
+package com.parkit.parkingsystem.cache;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Index en mémoire des places libres, un ensemble de bits par type de véhicule.
+ * La plus petite place libre est trouvée sans aller en base, comme le faisait le min(PARKING_NUMBER).
+ */
+public class FreeSpotAllocator {
+
+    private final OccupancyCounters occupancyCounters = new OccupancyCounters();
+    private volatile Map<ParkingType, FreeSpotSet> freeSpots = newSets(occupancyCounters);
+    private volatile boolean loaded;
+
+    /**
+     * Reconstruit l'index à partir de l'état complet de la table parking.
+     */
+    public void load(Iterable<ParkingSpot> parkingSpots) {
+        // les nouveaux ensembles ne touchent pas aux compteurs avant d'être publiés
+        Map<ParkingType, FreeSpotSet> sets = newSets(null);
+        int[] nbSpots = new int[ParkingType.values().length];
+        for (ParkingSpot parkingSpot : parkingSpots) {
+            sets.get(parkingSpot.getParkingType()).set(parkingSpot.getId(), parkingSpot.isAvailable());
+            nbSpots[parkingSpot.getParkingType().ordinal()]++;
+        }
+        for (FreeSpotSet set : sets.values()) {
+            set.occupancyCounters = occupancyCounters;
+        }
+        synchronized (this) {
+            Map<ParkingType, FreeSpotSet> previousSets = freeSpots;
+            freeSpots = sets;
+            for (ParkingType parkingType : ParkingType.values()) {
+                // une place changée dans l'ancien ensemble par un guichet en cours ne compte plus
+                FreeSpotSet previousSet = previousSets.get(parkingType);
+                synchronized (previousSet) {
+                    previousSet.occupancyCounters = null;
+                }
+                FreeSpotSet set = sets.get(parkingType);
+                synchronized (set) {
+                    occupancyCounters.reset(parkingType, set.count, nbSpots[parkingType.ordinal()] - set.count);
+                }
+            }
+        }
+        loaded = true;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @return la plus petite place libre pour ce type, ou 0 si le parking est complet
+     */
+    public int nextAvailable(ParkingType parkingType) {
+        return freeSpots.get(parkingType).first();
+    }
+
+    /**
+     * Retire atomiquement la plus petite place libre de l'index : deux guichets du même processus
+     * ne peuvent pas recevoir la même place.
+     *
+     * @return la place retirée, ou 0 si le parking est complet
+     */
+    public int claimNext(ParkingType parkingType) {
+        return freeSpots.get(parkingType).pollFirst();
+    }
+
+    public void update(ParkingSpot parkingSpot) {
+        freeSpots.get(parkingSpot.getParkingType()).set(parkingSpot.getId(), parkingSpot.isAvailable());
+    }
+
+    public int getAvailableCount(ParkingType parkingType) {
+        return freeSpots.get(parkingType).count();
+    }
+
+    /**
+     * Compteurs de places libres et occupées, à lire sans verrou.
+     */
+    public OccupancyCounters getOccupancyCounters() {
+        return occupancyCounters;
+    }
+
+    private static Map<ParkingType, FreeSpotSet> newSets(OccupancyCounters occupancyCounters) {
+        Map<ParkingType, FreeSpotSet> sets = new EnumMap<>(ParkingType.class);
+        for (ParkingType parkingType : ParkingType.values()) {
+            FreeSpotSet set = new FreeSpotSet(parkingType);
+            set.occupancyCounters = occupancyCounters;
+            sets.put(parkingType, set);
+        }
+        return sets;
+    }
+
+    /**
+     * Bitset à deux niveaux : un bit de résumé par mot de 64 places non vide,
+     * la recherche de la première place libre ne lit qu'un mot de résumé pour 4096 places.
+     */
+    static final class FreeSpotSet {
+        private final ParkingType parkingType;
+        private long[] words = new long[1];
+        private long[] summary = new long[1];
+        private int count;
+        // null pendant le chargement
+        private OccupancyCounters occupancyCounters;
+
+        FreeSpotSet(ParkingType parkingType) {
+            this.parkingType = parkingType;
+        }
+
+        synchronized void set(int number, boolean available) {
+            if (number <= 0) {
+                throw new IllegalArgumentException("Invalid parking number : " + number);
+            }
+            int wordIndex = number >>> 6;
+            if (wordIndex >= words.length) {
+                if (!available) {
+                    return;
+                }
+                grow(wordIndex);
+            }
+            long mask = 1L << number;
+            long word = words[wordIndex];
+            boolean wasAvailable = (word & mask) != 0;
+            if (wasAvailable == available) {
+                return;
+            }
+            if (available) {
+                word |= mask;
+                count++;
+                if (occupancyCounters != null) {
+                    occupancyCounters.release(parkingType);
+                }
+            } else {
+                word &= ~mask;
+                count--;
+                if (occupancyCounters != null) {
+                    occupancyCounters.occupy(parkingType);
+                }
+            }
+            words[wordIndex] = word;
+            long summaryMask = 1L << wordIndex;
+            if (word == 0) {
+                summary[wordIndex >>> 6] &= ~summaryMask;
+            } else {
+                summary[wordIndex >>> 6] |= summaryMask;
+            }
+        }
+
+        synchronized int first() {
+            for (int s = 0; s < summary.length; s++) {
+                long summaryWord = summary[s];
+                if (summaryWord != 0) {
+                    int wordIndex = (s << 6) + Long.numberOfTrailingZeros(summaryWord);
+                    return (wordIndex << 6) + Long.numberOfTrailingZeros(words[wordIndex]);
+                }
+            }
+            return 0;
+        }
+
+        synchronized int pollFirst() {
+            int number = first();
+            if (number > 0) {
+                set(number, false);
+            }
+            return number;
+        }
+
+        synchronized int count() {
+            return count;
+        }
+
+        private void grow(int wordIndex) {
+            int length = Math.max(words.length * 2, wordIndex + 1);
+            long[] newWords = new long[length];
+            System.arraycopy(words, 0, newWords, 0, words.length);
+            words = newWords;
+            long[] newSummary = new long[(length + 63) >>> 6];
+            System.arraycopy(summary, 0, newSummary, 0, summary.length);
+            summary = newSummary;
+        }
+    }
+}
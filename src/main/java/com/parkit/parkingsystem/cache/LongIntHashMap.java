@@ -0,0 +1,159 @@
+package com.parkit.parkingsystem.cache;
+
+import java.util.Arrays;
+
+/**
+ * Compteurs int à clés long positives ou nulles, même adressage ouvert que {@link LongObjectHashMap} :
+ * ni clé ni valeur boxée. Pour les nombres de passages par code de plaque. Non synchronisée.
+ */
+public class LongIntHashMap {
+
+    private static final long FREE = -1L;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int resizeAt;
+    private int size;
+
+    public LongIntHashMap() {
+        this(16);
+    }
+
+    public LongIntHashMap(int expectedSize) {
+        allocate(LongObjectHashMap.capacityFor(expectedSize));
+    }
+
+    /**
+     * @return la valeur de la clé, ou missingValue si elle est absente
+     */
+    public int get(long key, int missingValue) {
+        int slot = find(key);
+        return (slot < 0) ? missingValue : values[slot];
+    }
+
+    public void put(long key, int value) {
+        int slot = insertionSlot(key);
+        if (keys[slot] == key) {
+            values[slot] = value;
+            return;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        grow();
+    }
+
+    /**
+     * Ajoute delta à la valeur de la clé, 0 si elle est absente.
+     *
+     * @return la nouvelle valeur
+     */
+    public int addTo(long key, int delta) {
+        int slot = insertionSlot(key);
+        if (keys[slot] == key) {
+            return values[slot] += delta;
+        }
+        keys[slot] = key;
+        values[slot] = delta;
+        grow();
+        return delta;
+    }
+
+    public boolean remove(long key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return false;
+        }
+        int hole = slot;
+        while (true) {
+            slot = (slot + 1) & mask;
+            long next = keys[slot];
+            if (next == FREE) {
+                break;
+            }
+            if (((slot - slot(next)) & mask) >= ((slot - hole) & mask)) {
+                keys[hole] = next;
+                values[hole] = values[slot];
+                hole = slot;
+            }
+        }
+        keys[hole] = FREE;
+        size--;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        size = 0;
+    }
+
+    private int find(long key) {
+        if (key < 0) {
+            return -1;
+        }
+        int slot = slot(key);
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * @return la place de la clé, ou la place libre où l'insérer
+     */
+    private int insertionSlot(long key) {
+        LongObjectHashMap.checkKey(key);
+        int slot = slot(key);
+        while (keys[slot] != FREE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        if (++size <= resizeAt) {
+            return;
+        }
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(keys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int slot = slot(oldKeys[i]);
+                while (keys[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, FREE);
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private int slot(long key) {
+        return mix(key) & mask;
+    }
+
+    /**
+     * Les codes de plaque se suivent souvent (mêmes premiers caractères) : les bits sont mélangés avant le masque.
+     */
+    static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
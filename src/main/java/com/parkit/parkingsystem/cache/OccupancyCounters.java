@@ -0,0 +1,61 @@
+package com.parkit.parkingsystem.cache;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Nombre de places libres et occupées par type, pour les panneaux d'entrée.
+ * Les deux nombres d'un type sont dans un seul long (libres dans les 32 bits de poids fort, occupées dans
+ * ceux de poids faible) : une entrée ou une sortie les modifie en une seule opération atomique, et une lecture
+ * est une simple lecture volatile, sans verrou, toujours cohérente (libres + occupées = capacité).
+ * Tenu à jour par {@link FreeSpotAllocator} à chaque changement de disponibilité d'une place.
+ */
+public class OccupancyCounters {
+
+    private static final long ONE_FREE = 1L << 32;
+    private static final long ONE_OCCUPIED = 1L;
+
+    // indexé par ParkingType.ordinal()
+    private final AtomicLongArray counts = new AtomicLongArray(ParkingType.values().length);
+
+    public int getFreeCount(ParkingType parkingType) {
+        return free(counts.get(parkingType.ordinal()));
+    }
+
+    public int getOccupiedCount(ParkingType parkingType) {
+        return occupied(counts.get(parkingType.ordinal()));
+    }
+
+    /**
+     * @return {libres, occupées}, lus ensemble
+     */
+    public int[] get(ParkingType parkingType) {
+        long count = counts.get(parkingType.ordinal());
+        return new int[]{free(count), occupied(count)};
+    }
+
+    void occupy(ParkingType parkingType) {
+        counts.addAndGet(parkingType.ordinal(), ONE_OCCUPIED - ONE_FREE);
+    }
+
+    void release(ParkingType parkingType) {
+        counts.addAndGet(parkingType.ordinal(), ONE_FREE - ONE_OCCUPIED);
+    }
+
+    void reset(ParkingType parkingType, int free, int occupied) {
+        counts.set(parkingType.ordinal(), free * ONE_FREE + occupied);
+    }
+
+    /**
+     * Les deltas sont ajoutés au long entier : un nombre d'occupées négatif (dérive) a emprunté
+     * aux libres, qu'on lui rend au décodage.
+     */
+    private static int occupied(long count) {
+        return (int) count;
+    }
+
+    private static int free(long count) {
+        return (int) ((count - occupied(count)) >> 32);
+    }
+}
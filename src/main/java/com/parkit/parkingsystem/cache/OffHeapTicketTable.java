@@ -0,0 +1,176 @@
+package com.parkit.parkingsystem.cache;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Date;
+
+/**
+ * Tickets en cours hors du tas Java : un enregistrement de taille fixe par ticket dans un ByteBuffer direct,
+ * rangé par code de plaque ({@link PlateCodec}) en adressage ouvert. Le ramasse-miettes ne voit qu'un objet,
+ * quel que soit le nombre de véhicules garés ; les Ticket ne sont créés qu'à la lecture.
+ * Non synchronisée.
+ * <p>
+ * Enregistrement de 32 octets : code de plaque (-1 pour une case libre), heure d'entrée en millisecondes, prix,
+ * ID du ticket, puis numéro de place avec le type de véhicule dans les 4 bits de poids fort.
+ */
+public class OffHeapTicketTable {
+
+    static final int RECORD_SIZE = 32;
+
+    private static final int CODE = 0;
+    private static final int IN_TIME = 8;
+    private static final int PRICE = 16;
+    private static final int ID = 24;
+    private static final int SPOT = 28;
+
+    private static final int TYPE_SHIFT = 28;
+    private static final int MAX_PARKING_NUMBER = (1 << TYPE_SHIFT) - 1;
+    private static final ParkingType[] PARKING_TYPES = ParkingType.values();
+
+    private static final long FREE = -1L;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private ByteBuffer records;
+    private int mask;
+    private int resizeAt;
+    private int size;
+
+    public OffHeapTicketTable(int expectedTickets) {
+        allocate(LongObjectHashMap.capacityFor(expectedTickets));
+    }
+
+    /**
+     * @return le ticket en cours de cette plaque, ou null
+     */
+    public Ticket get(long code) {
+        int slot = find(code);
+        if (slot < 0) {
+            return null;
+        }
+        int offset = slot * RECORD_SIZE;
+        int spot = records.getInt(offset + SPOT);
+        Ticket ticket = new Ticket();
+        ticket.setId(records.getInt(offset + ID));
+        ticket.setParkingSpot(new ParkingSpot(spot & MAX_PARKING_NUMBER, PARKING_TYPES[spot >>> TYPE_SHIFT], false));
+        ticket.setVehicleRegNumber(PlateCodec.decode(code));
+        ticket.setPrice(records.getDouble(offset + PRICE));
+        ticket.setInTime(new Date(records.getLong(offset + IN_TIME)));
+        return ticket;
+    }
+
+    /**
+     * Enregistre le ticket en cours de la plaque, à la place du précédent.
+     */
+    public void put(long code, Ticket ticket) {
+        LongObjectHashMap.checkKey(code);
+        int parkingNumber = ticket.getParkingSpot().getId();
+        if (parkingNumber < 0 || parkingNumber > MAX_PARKING_NUMBER) {
+            throw new IllegalArgumentException("Parking number out of range : " + parkingNumber);
+        }
+        int slot = slot(code);
+        long current;
+        while ((current = records.getLong(slot * RECORD_SIZE + CODE)) != FREE && current != code) {
+            slot = (slot + 1) & mask;
+        }
+        int offset = slot * RECORD_SIZE;
+        records.putLong(offset + CODE, code);
+        records.putLong(offset + IN_TIME, ticket.getInTime().getTime());
+        records.putDouble(offset + PRICE, ticket.getPrice());
+        records.putInt(offset + ID, ticket.getId());
+        records.putInt(offset + SPOT, (ticket.getParkingSpot().getParkingType().ordinal() << TYPE_SHIFT) | parkingNumber);
+        if (current == FREE && ++size > resizeAt) {
+            rehash(records.capacity() / RECORD_SIZE * 2);
+        }
+    }
+
+    public boolean remove(long code) {
+        int slot = find(code);
+        if (slot < 0) {
+            return false;
+        }
+        // même suppression sans marque de tombe que LongObjectHashMap
+        int hole = slot;
+        while (true) {
+            slot = (slot + 1) & mask;
+            long next = records.getLong(slot * RECORD_SIZE + CODE);
+            if (next == FREE) {
+                break;
+            }
+            if (((slot - slot(next)) & mask) >= ((slot - hole) & mask)) {
+                copyRecord(records, slot, records, hole);
+                hole = slot;
+            }
+        }
+        records.putLong(hole * RECORD_SIZE + CODE, FREE);
+        size--;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return la mémoire réservée hors du tas, en octets
+     */
+    public long getOffHeapBytes() {
+        return records.capacity();
+    }
+
+    private int find(long code) {
+        if (code < 0) {
+            return -1;
+        }
+        int slot = slot(code);
+        long current;
+        while ((current = records.getLong(slot * RECORD_SIZE + CODE)) != FREE) {
+            if (current == code) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void rehash(int capacity) {
+        ByteBuffer oldRecords = records;
+        int oldCapacity = oldRecords.capacity() / RECORD_SIZE;
+        allocate(capacity);
+        for (int oldSlot = 0; oldSlot < oldCapacity; oldSlot++) {
+            long code = oldRecords.getLong(oldSlot * RECORD_SIZE + CODE);
+            if (code != FREE) {
+                int slot = slot(code);
+                while (records.getLong(slot * RECORD_SIZE + CODE) != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                copyRecord(oldRecords, oldSlot, records, slot);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        if (capacity > Integer.MAX_VALUE / RECORD_SIZE) {
+            throw new IllegalStateException("Too many open tickets for one table : " + capacity);
+        }
+        records = ByteBuffer.allocateDirect(capacity * RECORD_SIZE).order(ByteOrder.nativeOrder());
+        for (int slot = 0; slot < capacity; slot++) {
+            records.putLong(slot * RECORD_SIZE + CODE, FREE);
+        }
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private int slot(long code) {
+        return LongIntHashMap.mix(code) & mask;
+    }
+
+    private static void copyRecord(ByteBuffer from, int fromSlot, ByteBuffer to, int toSlot) {
+        for (int i = 0; i < RECORD_SIZE; i += Long.BYTES) {
+            to.putLong(toSlot * RECORD_SIZE + i, from.getLong(fromSlot * RECORD_SIZE + i));
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.parkit.parkingsystem.cache;
+
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * Tickets en cours (OUT_TIME null) par plaque d'immatriculation.
+ * Reconstruit au démarrage depuis la table ticket puis tenu à jour par TicketDAO,
+ * il rend la recherche du ticket à la sortie directe, sans trier l'historique.
+ * Les plaques sont rangées par leur code ({@link PlateMap}) : pas de chaîne ni d'entrée de HashMap par véhicule garé.
+ * Créé par {@link #offHeap(int)}, il garde les tickets des plaques codables hors du tas ({@link OffHeapTicketTable}),
+ * pour les très grands parkings : les tickets en cours ne pèsent plus sur les pauses du ramasse-miettes.
+ */
+public class OpenTicketIndex {
+
+    private final int offHeapExpectedTickets;
+    private PlateMap<Ticket> openTickets = new PlateMap<>();
+    private OffHeapTicketTable offHeapTickets;
+    private volatile boolean loaded;
+
+    public OpenTicketIndex() {
+        this.offHeapExpectedTickets = 0;
+    }
+
+    private OpenTicketIndex(int offHeapExpectedTickets) {
+        this.offHeapExpectedTickets = offHeapExpectedTickets;
+        this.offHeapTickets = new OffHeapTicketTable(offHeapExpectedTickets);
+    }
+
+    /**
+     * @param expectedTickets taille initiale de la table, par exemple le nombre de places du parking ; elle grandit au besoin
+     */
+    public static OpenTicketIndex offHeap(int expectedTickets) {
+        return new OpenTicketIndex(Math.max(1, expectedTickets));
+    }
+
+    public boolean isOffHeap() {
+        return offHeapExpectedTickets > 0;
+    }
+
+    public void load(Iterable<Ticket> tickets) {
+        PlateMap<Ticket> index = new PlateMap<>();
+        OffHeapTicketTable offHeapIndex = isOffHeap() ? new OffHeapTicketTable(offHeapExpectedTickets) : null;
+        for (Ticket ticket : tickets) {
+            Ticket current = find(index, offHeapIndex, ticket.getVehicleRegNumber());
+            if (current == null || !current.getInTime().after(ticket.getInTime())) {
+                store(index, offHeapIndex, ticket);
+            }
+        }
+        synchronized (this) {
+            openTickets = index;
+            offHeapTickets = offHeapIndex;
+        }
+        loaded = true;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @return une copie du ticket en cours pour ce véhicule, ou null
+     */
+    public synchronized Ticket get(String vehicleRegNumber) {
+        return find(openTickets, offHeapTickets, vehicleRegNumber);
+    }
+
+    /**
+     * Enregistre un ticket qui vient d'être créé, ou le retire s'il est clôturé.
+     */
+    public synchronized void update(Ticket ticket) {
+        if (ticket.getOutTime() == null) {
+            store(openTickets, offHeapTickets, ticket);
+        } else {
+            Ticket current = find(openTickets, offHeapTickets, ticket.getVehicleRegNumber());
+            if (current != null && isSameTicket(current, ticket)) {
+                remove(openTickets, offHeapTickets, ticket.getVehicleRegNumber());
+            }
+        }
+    }
+
+    /**
+     * Renseigne l'ID d'un ticket en cours qui a été indexé avant son insertion en base.
+     */
+    public synchronized void resolveId(Ticket ticket) {
+        Ticket current = find(openTickets, offHeapTickets, ticket.getVehicleRegNumber());
+        if (current != null && current.getId() == 0 && current.getInTime().getTime() == ticket.getInTime().getTime()) {
+            current.setId(ticket.getId());
+            store(openTickets, offHeapTickets, current);
+        }
+    }
+
+    private static boolean isSameTicket(Ticket current, Ticket ticket) {
+        if (current.getId() != 0 && ticket.getId() != 0) {
+            return current.getId() == ticket.getId();
+        }
+        return current.getInTime().getTime() == ticket.getInTime().getTime();
+    }
+
+    public synchronized int size() {
+        return openTickets.size() + ((offHeapTickets == null) ? 0 : offHeapTickets.size());
+    }
+
+    /**
+     * @return une copie du ticket rangé, ou null
+     */
+    private static Ticket find(PlateMap<Ticket> heapTickets, OffHeapTicketTable offHeapTickets, String vehicleRegNumber) {
+        if (offHeapTickets != null) {
+            long code = PlateCodec.encode(vehicleRegNumber);
+            if (code != PlateCodec.NOT_ENCODABLE) {
+                return offHeapTickets.get(code);
+            }
+        }
+        Ticket ticket = heapTickets.get(vehicleRegNumber);
+        return (ticket == null) ? null : new Ticket(ticket);
+    }
+
+    private static void store(PlateMap<Ticket> heapTickets, OffHeapTicketTable offHeapTickets, Ticket ticket) {
+        if (offHeapTickets != null) {
+            long code = PlateCodec.encode(ticket.getVehicleRegNumber());
+            if (code != PlateCodec.NOT_ENCODABLE) {
+                offHeapTickets.put(code, ticket);
+                return;
+            }
+        }
+        heapTickets.put(ticket.getVehicleRegNumber(), new Ticket(ticket));
+    }
+
+    private static void remove(PlateMap<Ticket> heapTickets, OffHeapTicketTable offHeapTickets, String vehicleRegNumber) {
+        if (offHeapTickets != null) {
+            long code = PlateCodec.encode(vehicleRegNumber);
+            if (code != PlateCodec.NOT_ENCODABLE) {
+                offHeapTickets.remove(code);
+                return;
+            }
+        }
+        heapTickets.remove(vehicleRegNumber);
+    }
+}
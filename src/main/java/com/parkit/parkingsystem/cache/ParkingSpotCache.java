@@ -0,0 +1,133 @@
+package com.parkit.parkingsystem.cache;
+
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache LRU borné des places de parking lues par numéro.
+ * Le type d'une place ne change jamais ; sa disponibilité est tenue à jour par les écritures de ce processus
+ * (update), et rafraîchie à chaque rechargement de la table parking (refresh).
+ * Les places sont copiées à l'entrée et à la sortie : un appelant qui modifie sa place ne modifie pas le cache.
+ */
+public class ParkingSpotCache {
+
+    private static final Counter HITS = Metrics.counter("ParkingSpotCache.hits");
+    private static final Counter MISSES = Metrics.counter("ParkingSpotCache.misses");
+
+    private final int maxSize;
+    private final Map<Integer, ParkingSpot> parkingSpots;
+    private long hits;
+    private long misses;
+    private long version;
+
+    public ParkingSpotCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive : " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.parkingSpots = new LinkedHashMap<Integer, ParkingSpot>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, ParkingSpot> eldest) {
+                return size() > ParkingSpotCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * @return une copie de la place en cache, ou null si elle n'est pas en cache
+     */
+    public synchronized ParkingSpot get(int parkingNumber) {
+        ParkingSpot parkingSpot = parkingSpots.get(parkingNumber);
+        if (parkingSpot == null) {
+            misses++;
+            MISSES.increment();
+            return null;
+        }
+        hits++;
+        HITS.increment();
+        return copy(parkingSpot);
+    }
+
+    /**
+     * @return la version du cache, à prendre avant de lire une place en base (voir {@link #put(ParkingSpot, long)})
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Ajoute une place lue en base, sauf si une écriture a eu lieu depuis la version donnée :
+     * la lecture a alors pu voir une disponibilité déjà dépassée.
+     */
+    public synchronized void put(ParkingSpot parkingSpot, long readVersion) {
+        if (readVersion == version) {
+            parkingSpots.put(parkingSpot.getId(), copy(parkingSpot));
+        }
+    }
+
+    /**
+     * Reporte une disponibilité écrite en base, uniquement si la place est déjà en cache.
+     */
+    public synchronized void update(int parkingNumber, boolean available) {
+        version++;
+        ParkingSpot parkingSpot = parkingSpots.get(parkingNumber);
+        if (parkingSpot != null) {
+            parkingSpot.setAvailable(available);
+        }
+    }
+
+    /**
+     * Met à jour les places déjà en cache d'après une lecture complète de la table parking.
+     */
+    public synchronized void refresh(List<ParkingSpot> allParkingSpots) {
+        version++;
+        for (ParkingSpot parkingSpot : allParkingSpots) {
+            ParkingSpot cached = parkingSpots.get(parkingSpot.getId());
+            if (cached != null) {
+                cached.setAvailable(parkingSpot.isAvailable());
+            }
+        }
+    }
+
+    /**
+     * Préchauffe le cache : les places sont ajoutées dans l'ordre, jusqu'à la taille maximale.
+     */
+    public synchronized void load(List<ParkingSpot> allParkingSpots) {
+        version++;
+        parkingSpots.clear();
+        for (ParkingSpot parkingSpot : allParkingSpots) {
+            if (parkingSpots.size() == maxSize) {
+                break;
+            }
+            parkingSpots.put(parkingSpot.getId(), copy(parkingSpot));
+        }
+    }
+
+    public synchronized void invalidate(int parkingNumber) {
+        version++;
+        parkingSpots.remove(parkingNumber);
+    }
+
+    public synchronized void clear() {
+        version++;
+        parkingSpots.clear();
+    }
+
+    public synchronized int size() {
+        return parkingSpots.size();
+    }
+
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    private static ParkingSpot copy(ParkingSpot parkingSpot) {
+        return new ParkingSpot(parkingSpot.getId(), parkingSpot.getParkingType(), parkingSpot.isAvailable());
+    }
+}
@@ -0,0 +1,205 @@
+package com.parkit.parkingsystem.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtre de Bloom des plaques déjà venues dans un parking : « jamais venue » est une réponse sûre,
+ * « peut-être venue » se trompe avec une probabilité choisie à la création.
+ * Ajouts et lectures sans verrou depuis plusieurs guichets.
+ * <p>
+ * Le filtre retient aussi l'ID du dernier ticket lu en base ({@link #getHighestTicketId()}) : après un redémarrage,
+ * seuls les tickets plus récents que le fichier sauvegardé sont relus.
+ */
+public class PlateBloomFilter {
+
+    private static final int MAGIC = 0x50424632;
+    // format précédent, haché en tenant compte de la casse : reconstruit
+    private static final int MAGIC_CASE_SENSITIVE = 0x50424631;
+
+    private final AtomicLongArray words;
+    private final long nbBits;
+    private final int nbHashes;
+    private final long expectedPlates;
+    private final AtomicLong nbPlates = new AtomicLong();
+    private final AtomicLong highestTicketId = new AtomicLong();
+
+    /**
+     * @param expectedPlates    nombre de plaques au-delà duquel le taux de faux positifs dépasse falsePositiveRate
+     * @param falsePositiveRate probabilité de « peut-être venue » pour une plaque jamais vue, entre 0 et 1 exclus
+     */
+    public PlateBloomFilter(long expectedPlates, double falsePositiveRate) {
+        if (expectedPlates <= 0) {
+            throw new IllegalArgumentException("Expected plates must be positive : " + expectedPlates);
+        }
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1 : " + falsePositiveRate);
+        }
+        long bits = (long) Math.ceil(-expectedPlates * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int nbWords = (int) Math.min(Integer.MAX_VALUE - 8, (bits + 63) / 64);
+        this.words = new AtomicLongArray(nbWords);
+        this.nbBits = nbWords * 64L;
+        this.nbHashes = Math.max(1, (int) Math.round((double) nbBits / expectedPlates * Math.log(2)));
+        this.expectedPlates = expectedPlates;
+    }
+
+    private PlateBloomFilter(long[] words, int nbHashes, long expectedPlates, long nbPlates, long highestTicketId) {
+        this.words = new AtomicLongArray(words);
+        this.nbBits = words.length * 64L;
+        this.nbHashes = nbHashes;
+        this.expectedPlates = expectedPlates;
+        this.nbPlates.set(nbPlates);
+        this.highestTicketId.set(highestTicketId);
+    }
+
+    public void add(String vehicleRegNumber) {
+        long hash = hash(vehicleRegNumber);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        boolean changed = false;
+        for (int i = 0; i < nbHashes; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, nbBits);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long value = words.get(word);
+            while ((value & mask) == 0) {
+                if (words.compareAndSet(word, value, value | mask)) {
+                    changed = true;
+                    break;
+                }
+                value = words.get(word);
+            }
+        }
+        if (changed) {
+            // une plaque déjà présente ne change aucun bit : le compte est celui des plaques distinctes, à peu près
+            nbPlates.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return false si la plaque n'a jamais été ajoutée ; true si elle l'a peut-être été
+     */
+    public boolean mightContain(String vehicleRegNumber) {
+        long hash = hash(vehicleRegNumber);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < nbHashes; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, nbBits);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true si le filtre contient plus de plaques que prévu : il faut le reconstruire plus grand
+     */
+    public boolean isSaturated() {
+        return nbPlates.get() > expectedPlates;
+    }
+
+    public long getNbPlates() {
+        return nbPlates.get();
+    }
+
+    public long getExpectedPlates() {
+        return expectedPlates;
+    }
+
+    public long getHighestTicketId() {
+        return highestTicketId.get();
+    }
+
+    /**
+     * Ne fait qu'avancer : tous les tickets d'ID inférieur ou égal ont été ajoutés.
+     */
+    public void advanceHighestTicketId(long ticketId) {
+        highestTicketId.accumulateAndGet(ticketId, Math::max);
+    }
+
+    /**
+     * Écrit le filtre dans un fichier temporaire renommé ensuite : un arrêt pendant l'écriture laisse l'ancien fichier.
+     */
+    public void save(Path file, int lotId) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        // l'ID lu avant les bits : les bits copiés contiennent au moins tous les tickets jusqu'à cet ID
+        long savedTicketId = highestTicketId.get();
+        try (OutputStream os = Files.newOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os))) {
+            out.writeInt(MAGIC);
+            out.writeInt(lotId);
+            out.writeInt(nbHashes);
+            out.writeLong(expectedPlates);
+            out.writeLong(nbPlates.get());
+            out.writeLong(savedTicketId);
+            out.writeInt(words.length());
+            for (int i = 0; i < words.length(); i++) {
+                out.writeLong(words.get(i));
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return le filtre sauvegardé pour ce parking, ou null si le fichier n'existe pas, est celui d'un autre parking
+     * ou d'un format précédent
+     * @throws IOException si le fichier est illisible ou n'est pas un filtre
+     */
+    public static PlateBloomFilter load(Path file, int lotId) throws IOException {
+        try (InputStream is = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(is))) {
+            int magic = in.readInt();
+            if (magic == MAGIC_CASE_SENSITIVE) {
+                return null;
+            }
+            if (magic != MAGIC) {
+                throw new IOException("Not a plate filter : " + file);
+            }
+            if (in.readInt() != lotId) {
+                return null;
+            }
+            int nbHashes = in.readInt();
+            long expectedPlates = in.readLong();
+            long nbPlates = in.readLong();
+            long highestTicketId = in.readLong();
+            int nbWords = in.readInt();
+            if (nbHashes <= 0 || expectedPlates <= 0 || nbWords <= 0) {
+                throw new IOException("Corrupted plate filter : " + file);
+            }
+            long[] words = new long[nbWords];
+            for (int i = 0; i < nbWords; i++) {
+                words[i] = in.readLong();
+            }
+            return new PlateBloomFilter(words, nbHashes, expectedPlates, nbPlates, highestTicketId);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Hachage 64 bits des caractères de la plaque en majuscules (FNV-1a), puis mélangé : comme les colonnes
+     * VEHICLE_REG_NUMBER, le filtre ne distingue pas « ab-123 » de « AB-123 », même pour des lignes saisies avant
+     * {@link PlateCodec#normalize(String)}.
+     */
+    private static long hash(String vehicleRegNumber) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < vehicleRegNumber.length(); i++) {
+            h = (h ^ Character.toUpperCase(vehicleRegNumber.charAt(i))) * 0x100000001b3L;
+        }
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+}
@@ -0,0 +1,80 @@
+package com.parkit.parkingsystem.cache;
+
+import java.util.Locale;
+
+/**
+ * Code une plaque d'immatriculation (VEHICLE_REG_NUMBER, 10 caractères au plus) dans un long, sans perte :
+ * 6 bits par caractère, le premier caractère dans les bits de poids fort, 0 après le dernier.
+ * Alphabet : chiffres, lettres majuscules et minuscules, tiret. Les autres plaques (espace, accents, trop longues)
+ * ne sont pas codables : les index les gardent alors sous forme de chaîne.
+ * Les codes sont positifs ou nuls, et deux plaques différentes ont deux codes différents.
+ */
+public final class PlateCodec {
+
+    /**
+     * Renvoyé par {@link #encode(String)} pour une plaque hors alphabet ou trop longue.
+     */
+    public static final long NOT_ENCODABLE = -1L;
+
+    public static final int MAX_LENGTH = 10;
+
+    private static final String ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz-";
+    private static final int BITS = 6;
+    private static final byte[] CODES = new byte[128];
+
+    static {
+        for (int i = 0; i < ALPHABET.length(); i++) {
+            // 0 est réservé à la fin de plaque
+            CODES[ALPHABET.charAt(i)] = (byte) (i + 1);
+        }
+    }
+
+    private PlateCodec() {
+    }
+
+    /**
+     * Forme unique d'une plaque saisie, sans espaces autour et en majuscules : les colonnes VEHICLE_REG_NUMBER
+     * comparent sans tenir compte de la casse, les index en mémoire et le filtre des plaques doivent faire de même.
+     */
+    public static String normalize(String vehicleRegNumber) {
+        return (vehicleRegNumber == null) ? null : vehicleRegNumber.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * @return le code de la plaque, ou {@link #NOT_ENCODABLE}
+     */
+    public static long encode(String vehicleRegNumber) {
+        int length = vehicleRegNumber.length();
+        if (length > MAX_LENGTH) {
+            return NOT_ENCODABLE;
+        }
+        long code = 0;
+        for (int i = 0; i < MAX_LENGTH; i++) {
+            int symbol = 0;
+            if (i < length) {
+                char c = vehicleRegNumber.charAt(i);
+                symbol = (c < CODES.length) ? CODES[c] : 0;
+                if (symbol == 0) {
+                    return NOT_ENCODABLE;
+                }
+            }
+            code = (code << BITS) | symbol;
+        }
+        return code;
+    }
+
+    public static String decode(long code) {
+        if (code < 0) {
+            throw new IllegalArgumentException("Not a plate code : " + code);
+        }
+        StringBuilder vehicleRegNumber = new StringBuilder(MAX_LENGTH);
+        for (int i = MAX_LENGTH - 1; i >= 0; i--) {
+            int symbol = (int) (code >>> (i * BITS)) & ((1 << BITS) - 1);
+            if (symbol == 0) {
+                break;
+            }
+            vehicleRegNumber.append(ALPHABET.charAt(symbol - 1));
+        }
+        return vehicleRegNumber.toString();
+    }
+}
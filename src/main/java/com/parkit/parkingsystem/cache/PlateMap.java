@@ -0,0 +1,53 @@
+package com.parkit.parkingsystem.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Valeurs par plaque d'immatriculation : les plaques codables ({@link PlateCodec}) sont rangées par leur code
+ * dans une {@link LongObjectHashMap}, sans chaîne ni entrée de HashMap par véhicule ; les autres dans une HashMap.
+ * Non synchronisée.
+ */
+public class PlateMap<V> {
+
+    private final LongObjectHashMap<V> byCode;
+    private final Map<String, V> byPlate = new HashMap<>();
+
+    public PlateMap() {
+        this(16);
+    }
+
+    public PlateMap(int expectedSize) {
+        byCode = new LongObjectHashMap<>(expectedSize);
+    }
+
+    public V get(String vehicleRegNumber) {
+        long code = PlateCodec.encode(vehicleRegNumber);
+        return (code == PlateCodec.NOT_ENCODABLE) ? byPlate.get(vehicleRegNumber) : byCode.get(code);
+    }
+
+    /**
+     * @return la valeur remplacée, ou null
+     */
+    public V put(String vehicleRegNumber, V value) {
+        long code = PlateCodec.encode(vehicleRegNumber);
+        return (code == PlateCodec.NOT_ENCODABLE) ? byPlate.put(vehicleRegNumber, value) : byCode.put(code, value);
+    }
+
+    /**
+     * @return la valeur retirée, ou null
+     */
+    public V remove(String vehicleRegNumber) {
+        long code = PlateCodec.encode(vehicleRegNumber);
+        return (code == PlateCodec.NOT_ENCODABLE) ? byPlate.remove(vehicleRegNumber) : byCode.remove(code);
+    }
+
+    public int size() {
+        return byCode.size() + byPlate.size();
+    }
+
+    public void clear() {
+        byCode.clear();
+        byPlate.clear();
+    }
+}
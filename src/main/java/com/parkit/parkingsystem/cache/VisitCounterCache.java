@@ -0,0 +1,71 @@
+package com.parkit.parkingsystem.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache LRU borné du nombre de passages par plaque d'immatriculation.
+ * Les valeurs incluent les tickets enregistrés par ce processus depuis leur chargement.
+ */
+public class VisitCounterCache {
+
+    private final int maxSize;
+    private final Map<String, Integer> counters;
+    private long hits;
+    private long misses;
+
+    public VisitCounterCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive : " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.counters = new LinkedHashMap<String, Integer>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+                return size() > VisitCounterCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * @return le nombre de passages en cache, ou -1 si la plaque n'est pas en cache
+     */
+    public synchronized int get(String vehicleRegNumber) {
+        Integer nbVisit = counters.get(vehicleRegNumber);
+        if (nbVisit == null) {
+            misses++;
+            return -1;
+        }
+        hits++;
+        return nbVisit;
+    }
+
+    public synchronized void put(String vehicleRegNumber, int nbVisit) {
+        counters.put(vehicleRegNumber, nbVisit);
+    }
+
+    /**
+     * Compte un nouveau passage, uniquement si la plaque est déjà en cache :
+     * sinon la valeur sera lue en base au prochain accès.
+     */
+    public synchronized void increment(String vehicleRegNumber) {
+        counters.computeIfPresent(vehicleRegNumber, (plate, nbVisit) -> nbVisit + 1);
+    }
+
+    public synchronized void invalidate(String vehicleRegNumber) {
+        counters.remove(vehicleRegNumber);
+    }
+
+    public synchronized void clear() {
+        counters.clear();
+    }
+
+    public synchronized int size() {
+        return counters.size();
+    }
+
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
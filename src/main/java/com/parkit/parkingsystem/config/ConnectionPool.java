@@ -0,0 +1,351 @@
+package com.parkit.parkingsystem.config;
+
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pool de connexions JDBC borné.
+ * Les connexions rendues par {@link #borrow()} sont des proxys : l'appel à close() les remet dans le pool
+ * au lieu de fermer la connexion physique, les DAO n'ont donc rien à changer.
+ */
+public class ConnectionPool implements ConnectionPoolMXBean {
+
+    private static final Logger logger = LogManager.getLogger("ConnectionPool");
+
+    private static final LatencyHistogram ACQUIRE_LATENCY = Metrics.histogram("ConnectionPool.acquire");
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final long acquireTimeoutMillis;
+    private final long validationIdleMillis;
+    private final int validationTimeoutSeconds;
+
+    private final BlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong borrowed = new AtomicLong();
+    private final AtomicLong invalidated = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+
+    private volatile boolean closed;
+
+    /**
+     * @param maxSize                  nombre maximal de connexions physiques ouvertes
+     * @param acquireTimeoutMillis     attente maximale pour obtenir une connexion
+     * @param validationIdleMillis     une connexion inactive depuis plus longtemps est validée avant d'être prêtée
+     * @param validationTimeoutSeconds timeout passé à {@link Connection#isValid(int)}
+     */
+    public ConnectionPool(String url, String user, String password, int maxSize, long acquireTimeoutMillis,
+                          long validationIdleMillis, int validationTimeoutSeconds) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive : " + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.validationIdleMillis = validationIdleMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    public Connection borrow() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return acquire();
+        } finally {
+            ACQUIRE_LATENCY.recordSince(start);
+        }
+    }
+
+    private Connection acquire() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+        if (!acquired) {
+            timeouts.incrementAndGet();
+            throw new SQLException("Timeout after " + acquireTimeoutMillis + "ms waiting for a connection (" + getStats() + ")");
+        }
+        try {
+            PooledConnection pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (isUsable(pooled)) {
+                    break;
+                }
+                invalidated.incrementAndGet();
+                closeQuietly(pooled.physical);
+            }
+            if (pooled == null) {
+                pooled = new PooledConnection(openPhysicalConnection());
+                created.incrementAndGet();
+            }
+            borrowed.incrementAndGet();
+            return pooled.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    protected Connection openPhysicalConnection() throws SQLException {
+        return DriverManager.getConnection(url, user, password);
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        try {
+            if (pooled.physical.isClosed()) {
+                return false;
+            }
+            if (System.currentTimeMillis() - pooled.lastReleased < validationIdleMillis) {
+                return true;
+            }
+            return pooled.physical.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(PooledConnection pooled) {
+        boolean reusable = !closed;
+        try {
+            if (reusable && !pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            logger.error("Error while resetting pooled connection", e);
+            reusable = false;
+        }
+        if (reusable) {
+            pooled.lastReleased = System.currentTimeMillis();
+            idle.offerFirst(pooled);
+        } else {
+            invalidated.incrementAndGet();
+            closeQuietly(pooled.physical);
+        }
+        permits.release();
+    }
+
+    /**
+     * Ferme les connexions inactives ; les connexions prêtées seront fermées à leur restitution.
+     */
+    public void close() {
+        closed = true;
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            closeQuietly(pooled.physical);
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public Stats getStats() {
+        int available = permits.availablePermits();
+        return new Stats(maxSize, maxSize - available, idle.size(), permits.getQueueLength(),
+                created.get(), borrowed.get(), invalidated.get(), timeouts.get());
+    }
+
+    @Override
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    @Override
+    public int getActive() {
+        return maxSize - permits.availablePermits();
+    }
+
+    @Override
+    public int getIdle() {
+        return idle.size();
+    }
+
+    @Override
+    public int getWaiting() {
+        return permits.getQueueLength();
+    }
+
+    @Override
+    public long getCreated() {
+        return created.get();
+    }
+
+    @Override
+    public long getBorrowed() {
+        return borrowed.get();
+    }
+
+    @Override
+    public long getInvalidated() {
+        return invalidated.get();
+    }
+
+    @Override
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    @Override
+    public String toString() {
+        return getStats().toString();
+    }
+
+    private static void closeQuietly(Connection con) {
+        try {
+            con.close();
+        } catch (SQLException e) {
+            logger.error("Error while closing pooled connection", e);
+        }
+    }
+
+    private final class PooledConnection {
+        private final Connection physical;
+        private volatile long lastReleased = System.currentTimeMillis();
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        private Connection lease() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new Lease(this));
+        }
+    }
+
+    /**
+     * Vue d'une connexion pour un emprunt donné : une fois rendue, elle ne peut plus être utilisée.
+     * Pas de synchronized ici : un moniteur tenu pendant un appel JDBC bloquerait le thread porteur d'un thread virtuel.
+     */
+    private final class Lease implements InvocationHandler {
+        private final AtomicReference<PooledConnection> pooled;
+
+        private Lease(PooledConnection pooled) {
+            this.pooled = new AtomicReference<>(pooled);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    PooledConnection toRelease = pooled.getAndSet(null);
+                    if (toRelease != null) {
+                        release(toRelease);
+                    }
+                    return null;
+                case "isClosed":
+                    PooledConnection current = pooled.get();
+                    return current == null || current.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    PooledConnection leased = pooled.get();
+                    return "PooledConnection[" + (leased == null ? "released" : leased.physical) + "]";
+                default:
+                    PooledConnection target = pooled.get();
+                    if (target == null) {
+                        throw new SQLException("Connection already returned to the pool");
+                    }
+                    try {
+                        return method.invoke(target.physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+
+    /**
+     * Photo des compteurs du pool.
+     */
+    public static class Stats {
+        private final int maxSize;
+        private final int active;
+        private final int idle;
+        private final int waiting;
+        private final long created;
+        private final long borrowed;
+        private final long invalidated;
+        private final long timeouts;
+
+        public Stats(int maxSize, int active, int idle, int waiting, long created, long borrowed, long invalidated, long timeouts) {
+            this.maxSize = maxSize;
+            this.active = active;
+            this.idle = idle;
+            this.waiting = waiting;
+            this.created = created;
+            this.borrowed = borrowed;
+            this.invalidated = invalidated;
+            this.timeouts = timeouts;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public int getActive() {
+            return active;
+        }
+
+        public int getIdle() {
+            return idle;
+        }
+
+        public int getWaiting() {
+            return waiting;
+        }
+
+        public long getCreated() {
+            return created;
+        }
+
+        public long getBorrowed() {
+            return borrowed;
+        }
+
+        public long getInvalidated() {
+            return invalidated;
+        }
+
+        public long getTimeouts() {
+            return timeouts;
+        }
+
+        @Override
+        public String toString() {
+            return "max=" + maxSize + ", active=" + active + ", idle=" + idle + ", waiting=" + waiting
+                    + ", created=" + created + ", borrowed=" + borrowed
+                    + ", invalidated=" + invalidated + ", timeouts=" + timeouts;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.parkit.parkingsystem.config;
+
+/**
+ * Vue JMX d'un {@link ConnectionPool}.
+ */
+public interface ConnectionPoolMXBean {
+
+    int getMaxSize();
+
+    int getActive();
+
+    int getIdle();
+
+    int getWaiting();
+
+    long getCreated();
+
+    long getBorrowed();
+
+    long getInvalidated();
+
+    long getTimeouts();
+}
@@ -1,25 +1,122 @@
 package com.parkit.parkingsystem.config;
 
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.metrics.Metrics;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class DataBaseConfig {
 
     private static final Logger logger = LogManager.getLogger("DataBaseConfig");
 
+    /**
+     * Un pool par base : les DAO créent chacun leur DataBaseConfig mais partagent les connexions.
+     */
+    private static final Map<String, ConnectionPool> POOLS = new ConcurrentHashMap<>();
+
+    protected String getDriverClassName() {
+        return "com.mysql.cj.jdbc.Driver";
+    }
+
+    /**
+     * useCursorFetch : les requêtes avec un fetch size (rapports) sont lues par paquets au lieu d'être chargées en entier.
+     */
+    protected String getUrl() {
+        return "jdbc:mysql://localhost:3306/prod?useCursorFetch=true";
+    }
+
+    protected String getUser() {
+        return "root";
+    }
+
+    protected String getPassword() {
+        return "rootroot";
+    }
+
+    protected int getPoolMaxSize() {
+        return 10;
+    }
+
+    protected long getPoolAcquireTimeoutMillis() {
+        return 5000;
+    }
+
+    protected long getPoolValidationIdleMillis() {
+        return 30000;
+    }
+
+    protected int getPoolValidationTimeoutSeconds() {
+        return 2;
+    }
+
+    /**
+     * Parking dont les DAO qui utilisent cette configuration lisent et écrivent les données.
+     */
+    public int getLotId() {
+        return DBConstants.DEFAULT_LOT_ID;
+    }
+
     public Connection getConnection() throws ClassNotFoundException, SQLException {
-        logger.info("Create DB connection");
-        Class.forName("com.mysql.cj.jdbc.Driver");
-        return DriverManager.getConnection("jdbc:mysql://localhost:3306/prod", "root", "rootroot");
+        logger.info("Borrow DB connection");
+        return getPool().borrow();
+    }
+
+    /**
+     * @return true si une connexion valide peut être obtenue (attente bornée par le timeout du pool)
+     */
+    public boolean isReachable() {
+        Connection con = null;
+        try {
+            con = getConnection();
+            return con.isValid(getPoolValidationTimeoutSeconds());
+        } catch (Exception e) {
+            logger.error("Database is unreachable", e);
+            return false;
+        } finally {
+            closeConnection(con);
+        }
+    }
+
+    public ConnectionPool getPool() throws ClassNotFoundException {
+        ConnectionPool pool = POOLS.get(getUrl());
+        if (pool == null || pool.isClosed()) {
+            Class.forName(getDriverClassName());
+            pool = POOLS.compute(getUrl(), (url, existing) -> {
+                if (existing != null && !existing.isClosed()) {
+                    return existing;
+                }
+                ConnectionPool created = new ConnectionPool(url, getUser(), getPassword(), getPoolMaxSize(),
+                        getPoolAcquireTimeoutMillis(), getPoolValidationIdleMillis(), getPoolValidationTimeoutSeconds());
+                Metrics.register("ConnectionPool", url, created);
+                return created;
+            });
+        }
+        return pool;
+    }
+
+    public ConnectionPool.Stats getPoolStats() {
+        ConnectionPool pool = POOLS.get(getUrl());
+        return (pool == null) ? new ConnectionPool.Stats(getPoolMaxSize(), 0, 0, 0, 0, 0, 0, 0) : pool.getStats();
+    }
+
+    public void closePool() {
+        ConnectionPool pool = POOLS.remove(getUrl());
+        if (pool != null) {
+            logger.info("Closing DB connection pool : {}", pool.getStats());
+            Metrics.unregister("ConnectionPool", getUrl());
+            pool.close();
+        }
     }
 
     public void closeConnection(Connection con) {
         if (con != null) {
             try {
                 con.close();
-                logger.info("Closing DB connection");
+                logger.info("Releasing DB connection");
             } catch (SQLException e) {
                 logger.error("Error while closing connection", e);
             }
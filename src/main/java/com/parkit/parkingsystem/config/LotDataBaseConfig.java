@@ -0,0 +1,148 @@
+package com.parkit.parkingsystem.config;
+
+import com.parkit.parkingsystem.constants.DBConstants;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Configuration des DAO d'un parking : chaque connexion est prise dans la base qui contient le parking
+ * au moment de l'appel, d'après le {@link ShardResolver}.
+ * Pendant un déplacement, le parking est gelé : seul le thread qui le déplace obtient des connexions,
+ * les autres échouent comme si la base était injoignable.
+ * Le gel est aussi écrit dans la base (table lot_freeze) par le déplacement : les guichets des autres processus
+ * le relisent au plus toutes les {@link ShardResolver#getFreezeCheckMillis()}, au premier emprunt de connexion
+ * qui suit ; les autres emprunts ne font pas de requête de plus.
+ */
+public class LotDataBaseConfig extends DataBaseConfig {
+
+    private static final Logger logger = LogManager.getLogger("LotDataBaseConfig");
+
+    private final ShardResolver shardResolver;
+    private final int lotId;
+
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private volatile Thread mover;
+    // dernier gel lu en base, et quand (System.nanoTime), 0 avant la première lecture
+    private volatile boolean isFrozenInDataBase;
+    private volatile long freezeCheckedNanos;
+
+    LotDataBaseConfig(ShardResolver shardResolver, int lotId) {
+        this.shardResolver = shardResolver;
+        this.lotId = lotId;
+    }
+
+    @Override
+    public int getLotId() {
+        return lotId;
+    }
+
+    @Override
+    public Connection getConnection() throws ClassNotFoundException, SQLException {
+        // compté avant de tester le gel : freeze ne peut pas manquer une connexion en cours d'emprunt
+        activeConnections.incrementAndGet();
+        Connection con = null;
+        boolean isBorrowed = false;
+        try {
+            Thread currentMover = mover;
+            if (currentMover != null && currentMover != Thread.currentThread()) {
+                throw new SQLException("Parking lot " + lotId + " is moving to another shard");
+            }
+            con = shardResolver.resolve(lotId).getConnection();
+            if (currentMover == null && isFrozenInDataBase(con)) {
+                throw new SQLException("Parking lot " + lotId + " is moving to another shard");
+            }
+            isBorrowed = true;
+            return con;
+        } finally {
+            if (!isBorrowed) {
+                super.closeConnection(con);
+                activeConnections.decrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public void closeConnection(Connection con) {
+        if (con != null) {
+            super.closeConnection(con);
+            activeConnections.decrementAndGet();
+        }
+    }
+
+    @Override
+    public ConnectionPool getPool() throws ClassNotFoundException {
+        return shardResolver.resolve(lotId).getPool();
+    }
+
+    @Override
+    public ConnectionPool.Stats getPoolStats() {
+        return shardResolver.resolve(lotId).getPoolStats();
+    }
+
+    @Override
+    public void closePool() {
+        shardResolver.resolve(lotId).closePool();
+    }
+
+    /**
+     * Gèle le parking pour le thread appelant puis attend que les autres threads aient rendu leurs connexions.
+     *
+     * @return false si un autre déplacement est en cours ou si des connexions sont encore utilisées après timeoutMillis
+     */
+    public boolean freeze(long timeoutMillis) throws InterruptedException {
+        synchronized (this) {
+            if (mover != null) {
+                return false;
+            }
+            mover = Thread.currentThread();
+        }
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        boolean isDrained = false;
+        try {
+            while (activeConnections.get() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            isDrained = activeConnections.get() == 0;
+        } finally {
+            if (!isDrained) {
+                logger.error("Parking lot {} still has {} connections in use, not frozen", lotId, activeConnections.get());
+                mover = null;
+            }
+        }
+        return isDrained;
+    }
+
+    public void unfreeze() {
+        if (mover == Thread.currentThread()) {
+            mover = null;
+        }
+    }
+
+    public boolean isFrozen() {
+        return mover != null;
+    }
+
+    private boolean isFrozenInDataBase(Connection con) throws SQLException {
+        long now = System.nanoTime();
+        long checkedNanos = freezeCheckedNanos;
+        if (checkedNanos != 0 && now - checkedNanos < TimeUnit.MILLISECONDS.toNanos(shardResolver.getFreezeCheckMillis())) {
+            return isFrozenInDataBase;
+        }
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.IS_LOT_FROZEN)) {
+            ps.setInt(1, lotId);
+            try (ResultSet rs = ps.executeQuery()) {
+                boolean isFrozen = rs.next() && rs.getInt(1) > 0;
+                isFrozenInDataBase = isFrozen;
+                freezeCheckedNanos = (now == 0) ? 1 : now;
+                return isFrozen;
+            }
+        }
+    }
+}
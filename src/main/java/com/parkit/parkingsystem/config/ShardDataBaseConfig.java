@@ -0,0 +1,32 @@
+package com.parkit.parkingsystem.config;
+
+/**
+ * Base MySQL d'un shard, décrite dans la configuration de {@link ShardResolver}.
+ */
+public class ShardDataBaseConfig extends DataBaseConfig {
+
+    private final String url;
+    private final String user;
+    private final String password;
+
+    public ShardDataBaseConfig(String url, String user, String password) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+    }
+
+    @Override
+    protected String getUrl() {
+        return url;
+    }
+
+    @Override
+    protected String getUser() {
+        return user;
+    }
+
+    @Override
+    protected String getPassword() {
+        return password;
+    }
+}
@@ -0,0 +1,122 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Répartition des parkings entre plusieurs bases (shards) : chaque parking est entièrement dans une base.
+ * Les DAO d'un parking utilisent la configuration renvoyée par {@link #forLot(int)}, qui suit le parking
+ * quand il change de base.
+ * <p>
+ * Configuration par fichier de propriétés :
+ * <pre>
+ * shard.a.url=jdbc:mysql://db-a:3306/prod
+ * shard.a.user=root
+ * shard.a.password=rootroot
+ * lot.1=a
+ * lot.2=a
+ * </pre>
+ */
+public class ShardResolver {
+
+    private static final Logger logger = LogManager.getLogger("ShardResolver");
+
+    private final Map<String, DataBaseConfig> shards = new ConcurrentHashMap<>();
+    private final Map<Integer, String> lotShards = new ConcurrentHashMap<>();
+    private final Map<Integer, LotDataBaseConfig> lotConfigs = new ConcurrentHashMap<>();
+
+    private volatile long freezeCheckMillis = Long.getLong("lot.freeze.check.millis", 1000);
+
+    public static ShardResolver load(Properties properties) {
+        ShardResolver shardResolver = new ShardResolver();
+        for (String key : new TreeSet<>(properties.stringPropertyNames())) {
+            if (key.startsWith("shard.") && key.endsWith(".url")) {
+                String shardName = key.substring("shard.".length(), key.length() - ".url".length());
+                shardResolver.addShard(shardName, new ShardDataBaseConfig(properties.getProperty(key),
+                        properties.getProperty("shard." + shardName + ".user", "root"),
+                        properties.getProperty("shard." + shardName + ".password", "")));
+            }
+        }
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith("lot.")) {
+                shardResolver.assignLot(Integer.parseInt(key.substring("lot.".length())), properties.getProperty(key).trim());
+            }
+        }
+        return shardResolver;
+    }
+
+    public void addShard(String shardName, DataBaseConfig dataBaseConfig) {
+        shards.put(shardName, dataBaseConfig);
+    }
+
+    /**
+     * Rattache un parking à une base, sans déplacer ses données (voir LotMigrationService).
+     */
+    public void assignLot(int lotId, String shardName) {
+        getShard(shardName);
+        String previousShard = lotShards.put(lotId, shardName);
+        if (previousShard != null && !previousShard.equals(shardName)) {
+            logger.info("Parking lot {} moved from shard {} to shard {}", lotId, previousShard, shardName);
+        }
+    }
+
+    public DataBaseConfig getShard(String shardName) {
+        DataBaseConfig dataBaseConfig = shards.get(shardName);
+        if (dataBaseConfig == null) {
+            throw new IllegalArgumentException("Unknown shard : " + shardName);
+        }
+        return dataBaseConfig;
+    }
+
+    public String getShardName(int lotId) {
+        String shardName = lotShards.get(lotId);
+        if (shardName == null) {
+            throw new IllegalArgumentException("No shard for parking lot " + lotId);
+        }
+        return shardName;
+    }
+
+    /**
+     * @return la base qui contient actuellement le parking
+     */
+    public DataBaseConfig resolve(int lotId) {
+        return getShard(getShardName(lotId));
+    }
+
+    /**
+     * @return la configuration à donner aux DAO du parking, toujours la même instance pour un parking donné
+     */
+    public LotDataBaseConfig forLot(int lotId) {
+        getShardName(lotId);
+        return lotConfigs.computeIfAbsent(lotId, id -> new LotDataBaseConfig(this, id));
+    }
+
+    /**
+     * Durée pendant laquelle le gel d'un parking lu dans la base (table lot_freeze) est réutilisé sans la relire.
+     * Un déplacement attend cette durée après avoir gelé le parking : elle doit être la même dans tous les processus.
+     */
+    public long getFreezeCheckMillis() {
+        return freezeCheckMillis;
+    }
+
+    public void setFreezeCheckMillis(long freezeCheckMillis) {
+        if (freezeCheckMillis < 0) {
+            throw new IllegalArgumentException("Freeze check period must not be negative : " + freezeCheckMillis);
+        }
+        this.freezeCheckMillis = freezeCheckMillis;
+    }
+
+    public Set<Integer> getLotIds() {
+        return new TreeSet<>(lotShards.keySet());
+    }
+
+    public void closePools() {
+        shards.values().forEach(DataBaseConfig::closePool);
+    }
+}
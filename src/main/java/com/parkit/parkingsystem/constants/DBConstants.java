@@ -2,12 +2,69 @@ package com.parkit.parkingsystem.constants;
 
 public class DBConstants {
 
-    public static final String GET_NEXT_PARKING_SPOT = "select min(PARKING_NUMBER) from parking where AVAILABLE = true and TYPE = ?";
-    public static final String GET_PARKING_SPOT_BY_ID = "select PARKING_NUMBER, AVAILABLE,TYPE from parking where parking_number = ?";
-    public static final String UPDATE_PARKING_SPOT = "update parking set available = ? where PARKING_NUMBER = ?";
+    /**
+     * Parking unique des bases créées avant le découpage par parking.
+     */
+    public static final int DEFAULT_LOT_ID = 1;
 
-    public static final String SAVE_TICKET = "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?)";
+    public static final String GET_NEXT_PARKING_SPOT = "select min(PARKING_NUMBER) from parking where LOT_ID = ? and AVAILABLE = true and TYPE = ?";
+    public static final String GET_PARKING_SPOT_BY_ID = "select PARKING_NUMBER, AVAILABLE,TYPE from parking where LOT_ID = ? and parking_number = ?";
+    public static final String GET_ALL_PARKING_SPOTS = "select PARKING_NUMBER, AVAILABLE, TYPE from parking where LOT_ID = ?";
+    public static final String UPDATE_PARKING_SPOT = "update parking set available = ? where LOT_ID = ? and PARKING_NUMBER = ?";
+    public static final String CLAIM_PARKING_SPOT = "update parking set available = false where LOT_ID = ? and PARKING_NUMBER = ? and AVAILABLE = true";
+    /* Libère une place qu'aucun ticket en cours n'occupe, pour reprendre une sortie rejouée à moitié */
+    public static final String RELEASE_UNUSED_PARKING_SPOT = "update parking p set AVAILABLE = true where p.LOT_ID = ? and p.PARKING_NUMBER = ? and not exists (select 1 from ticket t where t.LOT_ID = p.LOT_ID and t.PARKING_NUMBER = p.PARKING_NUMBER and t.OUT_TIME is null)";
+    public static final String GET_OCCUPANCY = "select TYPE, AVAILABLE, count(*) from parking where LOT_ID = ? group by TYPE, AVAILABLE";
+
+    public static final String SAVE_TICKET = "insert into ticket(LOT_ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?,?)";
     public static final String UPDATE_TICKET = "update ticket set PRICE=?, OUT_TIME=? where ID=?";
-    public static final String GET_TICKET = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE from ticket t,parking p where p.parking_number = t.parking_number and t.VEHICLE_REG_NUMBER=? order by t.IN_TIME DESC limit 1";
-    public static final String GET_NB_TICKET = "select count(*) as nbTicket from ticket where VEHICLE_REG_NUMBER=?";
+    public static final String GET_TICKET = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE from ticket t,parking p where p.LOT_ID = t.LOT_ID and p.parking_number = t.parking_number and t.LOT_ID = ? and t.VEHICLE_REG_NUMBER=? order by t.IN_TIME DESC limit 1";
+    /* Dernier ticket d'un véhicule qui n'est plus dans la table ticket */
+    public static final String GET_ARCHIVED_TICKET = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE from ticket_archive t,parking p where p.LOT_ID = t.LOT_ID and p.parking_number = t.parking_number and t.LOT_ID = ? and t.VEHICLE_REG_NUMBER=? order by t.IN_TIME DESC limit 1";
+    public static final String GET_OPEN_TICKETS = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE, t.VEHICLE_REG_NUMBER from ticket t,parking p where p.LOT_ID = t.LOT_ID and p.parking_number = t.parking_number and t.LOT_ID = ? and t.OUT_TIME is null";
+
+    public static final String GET_NB_VISIT = "select NB_VISIT from vehicle_visit where LOT_ID = ? and VEHICLE_REG_NUMBER=?";
+    public static final String INCREMENT_NB_VISIT = "insert into vehicle_visit(LOT_ID, VEHICLE_REG_NUMBER, NB_VISIT) values(?,?,1) on duplicate key update NB_VISIT = NB_VISIT + 1";
+
+    /* Filtre des plaques déjà venues : construit depuis les compteurs de passages, puis complété par les tickets récents */
+    public static final String GET_NB_VISITED_PLATES = "select count(*) from vehicle_visit where LOT_ID = ?";
+    public static final String GET_VISITED_PLATES = "select VEHICLE_REG_NUMBER from vehicle_visit where LOT_ID = ?";
+    public static final String GET_MAX_TICKET_ID = "select coalesce(max(ID), 0) from ticket";
+    public static final String GET_TICKET_PLATES_SINCE = "select ID, VEHICLE_REG_NUMBER from ticket where ID > ? and LOT_ID = ?";
+
+    /* Archivage : tickets sortis depuis longtemps, les plus anciens d'abord par l'index TICKET_OUT_TIME, déplacés un par un par ID */
+    public static final String GET_ARCHIVABLE_TICKETS = "select ID from ticket where LOT_ID = ? and OUT_TIME < ? order by OUT_TIME limit ?";
+    public static final String ARCHIVE_TICKET = "insert into ticket_archive(LOT_ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) select LOT_ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME from ticket where ID = ?";
+    public static final String DELETE_TICKET = "delete from ticket where ID = ?";
+
+    /* Historique pour les rapports : tickets présents sur la période (entrés avant sa fin, pas sortis avant son début), archives comprises */
+    public static final String GET_TICKET_HISTORY = "select PARKING_NUMBER, IN_TIME, OUT_TIME, PRICE from ticket where LOT_ID = ? and IN_TIME < ? and (OUT_TIME is null or OUT_TIME >= ?)"
+            + " union all select PARKING_NUMBER, IN_TIME, OUT_TIME, PRICE from ticket_archive where LOT_ID = ? and IN_TIME < ? and OUT_TIME >= ?";
+    /* Passages de chaque véhicule dans l'ordre, archives comprises : pour retrouver les remises */
+    public static final String GET_TICKETS_BY_VEHICLE = "select VEHICLE_REG_NUMBER, PARKING_NUMBER, IN_TIME, OUT_TIME from ticket where LOT_ID = ? and IN_TIME < ?"
+            + " union all select VEHICLE_REG_NUMBER, PARKING_NUMBER, IN_TIME, OUT_TIME from ticket_archive where LOT_ID = ? and IN_TIME < ?"
+            + " order by VEHICLE_REG_NUMBER, IN_TIME";
+
+    /* Déplacement d'un parking entre deux bases : les tickets sont recopiés sans leur ID, renuméroté par la base cible */
+    public static final String GET_LOT_PARKING_SPOTS = "select PARKING_NUMBER, AVAILABLE, TYPE from parking where LOT_ID = ? order by PARKING_NUMBER";
+    public static final String GET_LOT_TICKETS = "select PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME from ticket where LOT_ID = ? order by ID";
+    public static final String GET_LOT_ARCHIVED_TICKETS = "select PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME from ticket_archive where LOT_ID = ? order by ID";
+    public static final String GET_LOT_VISITS = "select VEHICLE_REG_NUMBER, NB_VISIT from vehicle_visit where LOT_ID = ?";
+    public static final String SAVE_PARKING_SPOT = "insert into parking(LOT_ID, PARKING_NUMBER, AVAILABLE, TYPE) values(?,?,?,?)";
+    public static final String SAVE_ARCHIVED_TICKET = "insert into ticket_archive(LOT_ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?,?)";
+    public static final String SAVE_VISIT = "insert into vehicle_visit(LOT_ID, VEHICLE_REG_NUMBER, NB_VISIT) values(?,?,?)";
+    public static final String DELETE_LOT_TICKETS = "delete from ticket where LOT_ID = ?";
+    public static final String DELETE_LOT_ARCHIVED_TICKETS = "delete from ticket_archive where LOT_ID = ?";
+    public static final String DELETE_LOT_VISITS = "delete from vehicle_visit where LOT_ID = ?";
+    public static final String DELETE_LOT_PARKING_SPOTS = "delete from parking where LOT_ID = ?";
+
+    /* Gel d'un parking pendant son déplacement, visible des guichets de tous les processus */
+    public static final String FREEZE_LOT = "insert into lot_freeze(LOT_ID) values(?)";
+    public static final String UNFREEZE_LOT = "delete from lot_freeze where LOT_ID = ?";
+    public static final String IS_LOT_FROZEN = "select count(*) from lot_freeze where LOT_ID = ?";
+    /* Empreinte d'un parking, relue avant de le supprimer de la base d'origine : toute entrée, sortie ou archivage la change */
+    public static final String GET_LOT_SUMMARY = "select (select count(*) from parking where LOT_ID = ?), (select count(*) from parking where LOT_ID = ? and AVAILABLE = true),"
+            + " (select count(*) from ticket where LOT_ID = ?), (select count(OUT_TIME) from ticket where LOT_ID = ?),"
+            + " (select count(*) from ticket_archive where LOT_ID = ?),"
+            + " (select count(*) from vehicle_visit where LOT_ID = ?), (select coalesce(sum(NB_VISIT), 0) from vehicle_visit where LOT_ID = ?)";
 }
@@ -4,4 +4,11 @@ public class Fare {
     public static final double BIKE_RATE_PER_HOUR = 1.00;
     public static final double CAR_RATE_PER_HOUR = 1.50;
 
+    // Mêmes tarifs en centimes, pour le calcul en virgule fixe
+    public static final long BIKE_RATE_CENTS_PER_HOUR = 100;
+    public static final long CAR_RATE_CENTS_PER_HOUR = 150;
+
+    public static final int FREE_DURATION_MINUTES = 30;
+    public static final int DISCOUNT_PERCENT = 5;
+
 }
@@ -0,0 +1,121 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.cache.FreeSpotAllocator;
+import com.parkit.parkingsystem.cache.OccupancyCounters;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Places d'un parking en mémoire, sans base de données : pour un parking isolé ou les tests de charge
+ * du service. Même comportement que {@link ParkingSpotDAO} : la place libre est choisie par le même
+ * {@link FreeSpotAllocator}, et une place ne peut être réservée qu'une fois.
+ * Les places sont copiées à l'entrée et à la sortie. Rien n'est conservé à l'arrêt.
+ */
+public class InMemoryParkingSpotStore implements ParkingSpotStore {
+
+    private static final Logger logger = LogManager.getLogger("InMemoryParkingSpotStore");
+
+    // par numéro ; ConcurrentHashMap applique compute une seule fois, sous verrou, ce que demande la mise à jour de l'index
+    private final Map<Integer, ParkingSpot> parkingSpots = new ConcurrentHashMap<>();
+    private final FreeSpotAllocator freeSpotAllocator = new FreeSpotAllocator();
+
+    public InMemoryParkingSpotStore() {
+        freeSpotAllocator.load(parkingSpots.values());
+    }
+
+    /**
+     * Parking libre numéroté comme Data.sql : les places de voiture d'abord, puis celles de moto.
+     */
+    public static InMemoryParkingSpotStore withLot(int nbCarSpots, int nbBikeSpots) {
+        List<ParkingSpot> parkingSpots = new ArrayList<>();
+        for (int number = 1; number <= nbCarSpots + nbBikeSpots; number++) {
+            parkingSpots.add(new ParkingSpot(number, (number <= nbCarSpots) ? ParkingType.CAR : ParkingType.BIKE, true));
+        }
+        InMemoryParkingSpotStore parkingSpotStore = new InMemoryParkingSpotStore();
+        parkingSpotStore.addParkingSpots(parkingSpots);
+        return parkingSpotStore;
+    }
+
+    /**
+     * Ajoute des places, ou remplace celles dont le numéro existe déjà. L'index des places libres et les
+     * compteurs sont reconstruits : à faire à l'installation du parking, pas pendant que les guichets tournent.
+     */
+    public synchronized void addParkingSpots(List<ParkingSpot> newParkingSpots) {
+        for (ParkingSpot parkingSpot : newParkingSpots) {
+            parkingSpots.put(parkingSpot.getId(), copy(parkingSpot));
+        }
+        freeSpotAllocator.load(parkingSpots.values());
+    }
+
+    @Override
+    public int getNextAvailableSlot(ParkingType parkingType) {
+        return freeSpotAllocator.nextAvailable(parkingType);
+    }
+
+    @Override
+    public ParkingSpot claimNextAvailableSlot(ParkingType parkingType) {
+        int parkingNumber = freeSpotAllocator.claimNext(parkingType);
+        if (parkingNumber <= 0) {
+            return null;
+        }
+        parkingSpots.computeIfPresent(parkingNumber, (number, parkingSpot) -> new ParkingSpot(number, parkingType, false));
+        return new ParkingSpot(parkingNumber, parkingType, false);
+    }
+
+    @Override
+    public boolean updateParking(ParkingSpot parkingSpot) {
+        // la disponibilité et l'index changent ensemble, comme dans une transaction : une réservation de la
+        // même place attend la fin de la mise à jour
+        ParkingSpot updated = parkingSpots.computeIfPresent(parkingSpot.getId(), (number, current) -> {
+            ParkingSpot next = new ParkingSpot(number, current.getParkingType(), parkingSpot.isAvailable());
+            freeSpotAllocator.update(next);
+            return next;
+        });
+        if (updated == null) {
+            logger.error("Error updating parking info : unknown parking spot {}", parkingSpot.getId());
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public ParkingSpot getParkingSpotById(int parkingId) {
+        ParkingSpot parkingSpot = parkingSpots.get(parkingId);
+        return (parkingSpot == null) ? null : copy(parkingSpot);
+    }
+
+    @Override
+    public List<ParkingSpot> getAllParkingSpots() {
+        List<ParkingSpot> result = new ArrayList<>(parkingSpots.size());
+        for (ParkingSpot parkingSpot : parkingSpots.values()) {
+            result.add(copy(parkingSpot));
+        }
+        result.sort(Comparator.comparingInt(ParkingSpot::getId));
+        return result;
+    }
+
+    @Override
+    public OccupancyCounters getOccupancyCounters() {
+        return freeSpotAllocator.getOccupancyCounters();
+    }
+
+    /**
+     * Toujours 0 : la place est retirée de l'index libre de façon atomique, sans tentative perdue.
+     */
+    @Override
+    public long getClaimConflicts() {
+        return 0;
+    }
+
+    private static ParkingSpot copy(ParkingSpot parkingSpot) {
+        return new ParkingSpot(parkingSpot.getId(), parkingSpot.getParkingType(), parkingSpot.isAvailable());
+    }
+}
@@ -0,0 +1,91 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.cache.LongIntHashMap;
+import com.parkit.parkingsystem.cache.PlateCodec;
+import com.parkit.parkingsystem.cache.PlateMap;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tickets d'un parking en mémoire, sans base de données : même comportement que {@link TicketDAO}
+ * pour ParkingService. Seuls le dernier ticket et le nombre de passages de chaque véhicule sont gardés :
+ * la mémoire dépend du nombre de véhicules, pas du nombre de passages. Pas d'historique pour les rapports.
+ * Les tickets sont copiés à l'entrée et à la sortie. Rien n'est conservé à l'arrêt.
+ * Les véhicules sont rangés par code de plaque ({@link PlateCodec}), dans des tables sans objet par entrée.
+ */
+public class InMemoryTicketStore implements TicketStore {
+
+    private static final Logger logger = LogManager.getLogger("InMemoryTicketStore");
+
+    private int lastId;
+    private final PlateMap<Ticket> lastTickets = new PlateMap<>();
+    private final LongIntHashMap nbVisits = new LongIntHashMap();
+    // plaques hors de l'alphabet de PlateCodec
+    private final Map<String, Integer> nbVisitsByPlate = new HashMap<>();
+
+    @Override
+    public synchronized boolean saveTicket(Ticket ticket) {
+        // mêmes colonnes obligatoires que la table ticket
+        if (ticket.getParkingSpot() == null || ticket.getVehicleRegNumber() == null || ticket.getInTime() == null) {
+            logger.error("Error saving Ticket : parking spot, vehicle and in time are required");
+            return false;
+        }
+        ticket.setId(++lastId);
+        Ticket current = lastTickets.get(ticket.getVehicleRegNumber());
+        if (current == null || !current.getInTime().after(ticket.getInTime())) {
+            lastTickets.put(ticket.getVehicleRegNumber(), copy(ticket));
+        }
+        long code = PlateCodec.encode(ticket.getVehicleRegNumber());
+        if (code == PlateCodec.NOT_ENCODABLE) {
+            nbVisitsByPlate.merge(ticket.getVehicleRegNumber(), 1, Integer::sum);
+        } else {
+            nbVisits.addTo(code, 1);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized Ticket getTicket(String vehicleRegNumber) {
+        Ticket ticket = lastTickets.get(vehicleRegNumber);
+        return (ticket == null) ? null : copy(ticket);
+    }
+
+    /**
+     * Comme l'update SQL par ID, un ticket qui n'est plus le dernier du véhicule n'est pas une erreur.
+     */
+    @Override
+    public synchronized boolean updateTicket(Ticket ticket) {
+        if (ticket.getOutTime() == null) {
+            logger.error("Error updating Ticket : out time is required");
+            return false;
+        }
+        Ticket current = lastTickets.get(ticket.getVehicleRegNumber());
+        if (current != null && current.getId() == ticket.getId()) {
+            Ticket updated = copy(current);
+            updated.setPrice(ticket.getPrice());
+            updated.setOutTime(ticket.getOutTime());
+            lastTickets.put(ticket.getVehicleRegNumber(), updated);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized int getNbTicket(String vehicleRegNumber) {
+        long code = PlateCodec.encode(vehicleRegNumber);
+        return (code == PlateCodec.NOT_ENCODABLE) ? nbVisitsByPlate.getOrDefault(vehicleRegNumber, 0) : nbVisits.get(code, 0);
+    }
+
+    /**
+     * La place est copiée aussi, non disponible comme à la lecture d'un ticket en base.
+     */
+    private static Ticket copy(Ticket ticket) {
+        Ticket copy = new Ticket(ticket);
+        copy.setParkingSpot(new ParkingSpot(ticket.getParkingSpot().getId(), ticket.getParkingSpot().getParkingType(), false));
+        return copy;
+    }
+}
@@ -0,0 +1,379 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unité de travail en base : une seule connexion, empruntée au premier ordre SQL, en transaction,
+ * et chaque requête préparée une seule fois par unité (une réservation qui recommence réutilise la sienne).
+ * Une entrée ou une sortie ne fait plus qu'un aller-retour de commit, au lieu d'un par appel de DAO,
+ * et un arrêt brutal ne peut plus laisser un ticket clôturé sur une place encore occupée.
+ * <p>
+ * Les index en mémoire des DAO (places libres, cache des places, tickets en cours, compteurs de passages)
+ * ne sont mis à jour qu'après le commit ; une place réservée puis annulée redevient libre dans l'index.
+ */
+public class JdbcUnitOfWork implements UnitOfWork {
+
+    private static final Logger logger = LogManager.getLogger("JdbcUnitOfWork");
+
+    private static final LatencyHistogram COMMIT_LATENCY = Metrics.histogram("JdbcUnitOfWork.commit");
+
+    private final ParkingSpotDAO parkingSpotDAO;
+    private final TicketDAO ticketDAO;
+    private final DataBaseConfig dataBaseConfig;
+
+    private Connection con;
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+    private final List<Runnable> afterCommit = new ArrayList<>();
+    private final List<Runnable> afterRollback = new ArrayList<>();
+    private boolean failed;
+    private boolean done;
+
+    /**
+     * Les deux DAO doivent partager la même base ; celle de ticketDAO est utilisée.
+     */
+    public JdbcUnitOfWork(ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO) {
+        this.parkingSpotDAO = parkingSpotDAO;
+        this.ticketDAO = ticketDAO;
+        this.dataBaseConfig = ticketDAO.dataBaseConfig;
+    }
+
+    /**
+     * Fabrique pour ParkingService.setUnitOfWorkFactory. Pas d'unité quand TicketDAO est en write-behind :
+     * ses écritures passent par la file. -Dunit.of.work=false revient aux appels de DAO un par un (renvoie null).
+     */
+    public static UnitOfWorkFactory factory(ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO) {
+        if (!Boolean.parseBoolean(System.getProperty("unit.of.work", "true"))) {
+            return null;
+        }
+        return () -> ticketDAO.isWriteBehindEnabled() ? null : new JdbcUnitOfWork(parkingSpotDAO, ticketDAO);
+    }
+
+    @Override
+    public ParkingSpot claimNextAvailableSlot(ParkingType parkingType) {
+        if (failed) {
+            return null;
+        }
+        ParkingSpot parkingSpot = parkingSpotDAO.claimNextAvailableSlot(parkingType, this::claimParkingSpot);
+        if (parkingSpot != null) {
+            int parkingNumber = parkingSpot.getId();
+            afterRollback.add(() -> {
+                parkingSpotDAO.parkingSpotCache.update(parkingNumber, true);
+                if (parkingSpotDAO.freeSpotAllocator.isLoaded()) {
+                    parkingSpotDAO.freeSpotAllocator.update(new ParkingSpot(parkingNumber, parkingType, true));
+                }
+            });
+        }
+        return parkingSpot;
+    }
+
+    /**
+     * Réserve une place donnée, pour le rejeu d'une entrée journalisée hors ligne : un autre guichet a pu la prendre entre-temps.
+     *
+     * @return 1 si la place a été prise, 0 si elle n'était plus libre, -1 en cas d'erreur
+     */
+    public int claimParkingSpot(ParkingSpot parkingSpot) {
+        if (failed) {
+            return -1;
+        }
+        int updateRowCount = claimParkingSpot(parkingSpot.getId());
+        if (updateRowCount == 1) {
+            ParkingSpot claimed = new ParkingSpot(parkingSpot.getId(), parkingSpot.getParkingType(), false);
+            afterCommit.add(() -> {
+                if (parkingSpotDAO.freeSpotAllocator.isLoaded()) {
+                    parkingSpotDAO.freeSpotAllocator.update(claimed);
+                }
+            });
+            afterRollback.add(() -> parkingSpotDAO.parkingSpotCache.update(claimed.getId(), true));
+        }
+        return updateRowCount;
+    }
+
+    /**
+     * Rend disponible une place qu'aucun ticket en cours n'occupe plus, sans toucher à une place reprise depuis.
+     *
+     * @return false en cas d'erreur
+     */
+    public boolean releaseUnusedParkingSpot(ParkingSpot parkingSpot) {
+        if (failed) {
+            return false;
+        }
+        try {
+            PreparedStatement ps = prepare(DBConstants.RELEASE_UNUSED_PARKING_SPOT);
+            ps.setInt(1, dataBaseConfig.getLotId());
+            ps.setInt(2, parkingSpot.getId());
+            if (ps.executeUpdate() == 1) {
+                ParkingSpot released = new ParkingSpot(parkingSpot.getId(), parkingSpot.getParkingType(), true);
+                afterCommit.add(() -> {
+                    parkingSpotDAO.parkingSpotCache.update(released.getId(), true);
+                    if (parkingSpotDAO.freeSpotAllocator.isLoaded()) {
+                        parkingSpotDAO.freeSpotAllocator.update(released);
+                    }
+                });
+            }
+            return true;
+        } catch (Exception ex) {
+            fail("Error releasing parking spot : " + parkingSpot.getId(), ex);
+            return false;
+        }
+    }
+
+    /**
+     * @return 1 si la place a été prise, 0 si elle n'était plus libre, -1 en cas d'erreur
+     */
+    private int claimParkingSpot(int parkingNumber) {
+        try {
+            PreparedStatement ps = prepare(DBConstants.CLAIM_PARKING_SPOT);
+            ps.setInt(1, dataBaseConfig.getLotId());
+            ps.setInt(2, parkingNumber);
+            int updateRowCount = ps.executeUpdate();
+            // occupée dans les deux cas ; rendue après un rollback si c'est ce guichet qui l'a prise
+            parkingSpotDAO.parkingSpotCache.update(parkingNumber, false);
+            return updateRowCount;
+        } catch (Exception ex) {
+            fail("Error claiming parking spot : " + parkingNumber, ex);
+            return -1;
+        }
+    }
+
+    @Override
+    public boolean saveTicket(Ticket ticket) {
+        if (failed) {
+            return false;
+        }
+        ticketDAO.addToPlateFilter(ticket.getVehicleRegNumber());
+        ResultSet rs = null;
+        try {
+            PreparedStatement ps = prepare(DBConstants.SAVE_TICKET);
+            ps.setInt(1, dataBaseConfig.getLotId());
+            ps.setInt(2, ticket.getParkingSpot().getId());
+            ps.setString(3, ticket.getVehicleRegNumber());
+            ps.setDouble(4, ticket.getPrice());
+            ps.setTimestamp(5, new Timestamp(ticket.getInTime().getTime()));
+            ps.setTimestamp(6, (ticket.getOutTime() == null) ? null : (new Timestamp(ticket.getOutTime().getTime())));
+            ps.execute();
+            rs = ps.getGeneratedKeys();
+            if (rs.next()) {
+                ticket.setId(rs.getInt(1));
+            }
+            PreparedStatement visitPs = prepare(DBConstants.INCREMENT_NB_VISIT);
+            visitPs.setInt(1, dataBaseConfig.getLotId());
+            visitPs.setString(2, ticket.getVehicleRegNumber());
+            visitPs.execute();
+            afterCommit.add(() -> {
+                ticketDAO.visitCounterCache.increment(ticket.getVehicleRegNumber());
+                ticketDAO.openTicketIndex.update(ticket);
+            });
+            return true;
+        } catch (Exception ex) {
+            fail("Error saving Ticket in DB", ex);
+            return false;
+        } finally {
+            dataBaseConfig.closeResultSet(rs);
+        }
+    }
+
+    /**
+     * Dans l'index des tickets en cours, sinon en base sur la connexion de l'unité, puis dans les archives.
+     */
+    @Override
+    public Ticket getTicket(String vehicleRegNumber) {
+        if (failed) {
+            return null;
+        }
+        Ticket openTicket = ticketDAO.openTicketIndex.get(vehicleRegNumber);
+        if (openTicket != null) {
+            return openTicket;
+        }
+        ResultSet rs = null;
+        try {
+            PreparedStatement ps = prepare(DBConstants.GET_TICKET);
+            ps.setInt(1, dataBaseConfig.getLotId());
+            ps.setString(2, vehicleRegNumber);
+            rs = ps.executeQuery();
+            if (rs.next()) {
+                return TicketDAO.readTicket(rs, vehicleRegNumber);
+            }
+            dataBaseConfig.closeResultSet(rs);
+            ps = prepare(DBConstants.GET_ARCHIVED_TICKET);
+            ps.setInt(1, dataBaseConfig.getLotId());
+            ps.setString(2, vehicleRegNumber);
+            rs = ps.executeQuery();
+            return rs.next() ? TicketDAO.readTicket(rs, vehicleRegNumber) : null;
+        } catch (Exception ex) {
+            fail("Error getting Ticket from DB", ex);
+            return null;
+        } finally {
+            dataBaseConfig.closeResultSet(rs);
+        }
+    }
+
+    /**
+     * Dans le cache des compteurs, 0 pour une plaque absente du filtre des plaques, sinon en base ;
+     * le compteur lu n'est mis en cache qu'après le commit.
+     */
+    @Override
+    public int getNbTicket(String vehicleRegNumber) {
+        if (failed) {
+            return 0;
+        }
+        int cachedNbTicket = ticketDAO.visitCounterCache.get(vehicleRegNumber);
+        if (cachedNbTicket >= 0) {
+            return cachedNbTicket;
+        }
+        if (ticketDAO.isNewPlate(vehicleRegNumber)) {
+            return 0;
+        }
+        ResultSet rs = null;
+        try {
+            PreparedStatement ps = prepare(DBConstants.GET_NB_VISIT);
+            ps.setInt(1, dataBaseConfig.getLotId());
+            ps.setString(2, vehicleRegNumber);
+            rs = ps.executeQuery();
+            int nbTicket = rs.next() ? rs.getInt(1) : 0;
+            afterCommit.add(() -> ticketDAO.visitCounterCache.put(vehicleRegNumber, nbTicket));
+            return nbTicket;
+        } catch (Exception ex) {
+            fail("Error getting number of tickets from DB", ex);
+            return 0;
+        } finally {
+            dataBaseConfig.closeResultSet(rs);
+        }
+    }
+
+    @Override
+    public boolean updateTicket(Ticket ticket) {
+        if (failed) {
+            return false;
+        }
+        try {
+            PreparedStatement ps = prepare(DBConstants.UPDATE_TICKET);
+            ps.setDouble(1, ticket.getPrice());
+            ps.setTimestamp(2, new Timestamp(ticket.getOutTime().getTime()));
+            ps.setInt(3, ticket.getId());
+            ps.execute();
+            afterCommit.add(() -> ticketDAO.openTicketIndex.update(ticket));
+            return true;
+        } catch (Exception ex) {
+            fail("Error updating Ticket into DB", ex);
+            return false;
+        }
+    }
+
+    @Override
+    public boolean updateParking(ParkingSpot parkingSpot) {
+        if (failed) {
+            return false;
+        }
+        try {
+            PreparedStatement ps = prepare(DBConstants.UPDATE_PARKING_SPOT);
+            ps.setBoolean(1, parkingSpot.isAvailable());
+            ps.setInt(2, dataBaseConfig.getLotId());
+            ps.setInt(3, parkingSpot.getId());
+            if (ps.executeUpdate() != 1) {
+                failed = true;
+                logger.error("Error updating parking info : unknown parking spot {}", parkingSpot.getId());
+                return false;
+            }
+            ParkingSpot updated = new ParkingSpot(parkingSpot.getId(), parkingSpot.getParkingType(), parkingSpot.isAvailable());
+            afterCommit.add(() -> {
+                parkingSpotDAO.parkingSpotCache.update(updated.getId(), updated.isAvailable());
+                if (parkingSpotDAO.freeSpotAllocator.isLoaded()) {
+                    parkingSpotDAO.freeSpotAllocator.update(updated);
+                }
+            });
+            return true;
+        } catch (Exception ex) {
+            fail("Error updating parking info", ex);
+            return false;
+        }
+    }
+
+    @Override
+    public boolean commit() {
+        long start = System.nanoTime();
+        try {
+            if (done) {
+                logger.error("Unit of work already committed or rolled back");
+                return false;
+            }
+            if (failed) {
+                rollback();
+                return false;
+            }
+            if (con != null) {
+                con.commit();
+            }
+            done = true;
+            afterCommit.forEach(Runnable::run);
+            return true;
+        } catch (Exception ex) {
+            logger.error("Error committing unit of work", ex);
+            rollback();
+            return false;
+        } finally {
+            COMMIT_LATENCY.recordSince(start);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!done) {
+            rollback();
+        }
+        for (PreparedStatement ps : statements.values()) {
+            dataBaseConfig.closePreparedStatement(ps);
+        }
+        statements.clear();
+        dataBaseConfig.closeConnection(con);
+        con = null;
+    }
+
+    private void rollback() {
+        done = true;
+        if (con != null) {
+            try {
+                con.rollback();
+            } catch (SQLException ex) {
+                logger.error("Error rolling back unit of work", ex);
+            }
+        }
+        afterRollback.forEach(Runnable::run);
+    }
+
+    private PreparedStatement prepare(String sql) throws ClassNotFoundException, SQLException {
+        PreparedStatement ps = statements.get(sql);
+        if (ps == null) {
+            if (con == null) {
+                con = dataBaseConfig.getConnection();
+                con.setAutoCommit(false);
+            }
+            ps = DBConstants.SAVE_TICKET.equals(sql) ? con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS) : con.prepareStatement(sql);
+            statements.put(sql, ps);
+        }
+        return ps;
+    }
+
+    private void fail(String message, Exception ex) {
+        failed = true;
+        logger.error(message, ex);
+    }
+}
@@ -0,0 +1,215 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * Copie et suppression de toutes les données d'un parking (places, tickets, tickets archivés, passages) dans une base donnée.
+ */
+public class LotTransferDAO {
+
+    private static final Logger logger = LogManager.getLogger("LotTransferDAO");
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int SUMMARY_SIZE = 7;
+
+    /**
+     * Recopie le parking de la base source vers la base cible, en une seule transaction sur la cible.
+     * Les données que le parking aurait déjà dans la cible (déplacement interrompu) sont remplacées, et il y est dégelé.
+     * Les tickets, archivés ou non, reçoivent de nouveaux ID dans la base cible.
+     */
+    public boolean copyLot(DataBaseConfig source, DataBaseConfig target, int lotId) {
+        Connection sourceCon = null;
+        Connection targetCon = null;
+        boolean isCopied = false;
+        try {
+            sourceCon = source.getConnection();
+            targetCon = target.getConnection();
+            targetCon.setAutoCommit(false);
+            try {
+                deleteLot(targetCon, lotId);
+                // gel laissé par un déplacement précédent hors de cette base
+                try (PreparedStatement ps = targetCon.prepareStatement(DBConstants.UNFREEZE_LOT)) {
+                    ps.setInt(1, lotId);
+                    ps.executeUpdate();
+                }
+                int nbSpots = copyRows(sourceCon, DBConstants.GET_LOT_PARKING_SPOTS, targetCon, DBConstants.SAVE_PARKING_SPOT, lotId);
+                int nbTickets = copyRows(sourceCon, DBConstants.GET_LOT_TICKETS, targetCon, DBConstants.SAVE_TICKET, lotId);
+                int nbArchivedTickets = copyRows(sourceCon, DBConstants.GET_LOT_ARCHIVED_TICKETS, targetCon, DBConstants.SAVE_ARCHIVED_TICKET, lotId);
+                int nbVisits = copyRows(sourceCon, DBConstants.GET_LOT_VISITS, targetCon, DBConstants.SAVE_VISIT, lotId);
+                targetCon.commit();
+                isCopied = true;
+                logger.info("Parking lot {} copied : {} parking spots, {} tickets, {} archived tickets, {} vehicles",
+                        lotId, nbSpots, nbTickets, nbArchivedTickets, nbVisits);
+            } finally {
+                if (!isCopied) {
+                    targetCon.rollback();
+                }
+            }
+        } catch (Exception ex) {
+            logger.error("Error copying parking lot {}", lotId, ex);
+        } finally {
+            source.closeConnection(sourceCon);
+            target.closeConnection(targetCon);
+        }
+        return isCopied;
+    }
+
+    /**
+     * Gèle le parking dans la base : tant que la ligne existe, {@link com.parkit.parkingsystem.config.LotDataBaseConfig}
+     * refuse les connexions du parking, dans tous les processus.
+     *
+     * @return false si le parking est déjà gelé (autre déplacement en cours) ou en cas d'erreur
+     */
+    public boolean freezeLot(DataBaseConfig dataBaseConfig, int lotId) {
+        return executeUpdate(dataBaseConfig, DBConstants.FREEZE_LOT, lotId, "Error freezing parking lot {}");
+    }
+
+    public boolean unfreezeLot(DataBaseConfig dataBaseConfig, int lotId) {
+        return executeUpdate(dataBaseConfig, DBConstants.UNFREEZE_LOT, lotId, "Error unfreezing parking lot {}");
+    }
+
+    /**
+     * Empreinte du parking : places, places libres, tickets, tickets sortis, tickets archivés, véhicules, passages.
+     *
+     * @return null en cas d'erreur
+     */
+    public long[] getLotSummary(DataBaseConfig dataBaseConfig, int lotId) {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            return getLotSummary(con, lotId);
+        } catch (Exception ex) {
+            logger.error("Error reading parking lot {} summary", lotId, ex);
+            return null;
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    /**
+     * Supprime le parking de la base, en une transaction, seulement s'il n'a pas changé depuis expectedSummary :
+     * une écriture d'un guichet qui aurait échappé au gel n'est jamais perdue.
+     *
+     * @return false si le parking a changé ou en cas d'erreur ; ses données sont alors intactes
+     */
+    public boolean deleteLot(DataBaseConfig dataBaseConfig, int lotId, long[] expectedSummary) {
+        Connection con = null;
+        boolean isDeleted = false;
+        try {
+            con = dataBaseConfig.getConnection();
+            con.setAutoCommit(false);
+            try {
+                long[] summary = getLotSummary(con, lotId);
+                int[] nbDeletedRows = deleteLot(con, lotId);
+                // les lignes supprimées sont relues par la suppression : une insertion après l'empreinte est vue aussi
+                boolean isUnchanged = Arrays.equals(expectedSummary, summary)
+                        && nbDeletedRows[0] == expectedSummary[2] && nbDeletedRows[1] == expectedSummary[4]
+                        && nbDeletedRows[2] == expectedSummary[5] && nbDeletedRows[3] == expectedSummary[0];
+                if (!isUnchanged) {
+                    logger.error("Parking lot {} changed since it was copied, not deleted : {} instead of {}",
+                            lotId, Arrays.toString(summary), Arrays.toString(expectedSummary));
+                    return false;
+                }
+                con.commit();
+                isDeleted = true;
+            } finally {
+                if (!isDeleted) {
+                    con.rollback();
+                }
+            }
+        } catch (Exception ex) {
+            logger.error("Error deleting parking lot {}", lotId, ex);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return isDeleted;
+    }
+
+    private boolean executeUpdate(DataBaseConfig dataBaseConfig, String sql, int lotId, String errorMessage) {
+        Connection con = null;
+        PreparedStatement ps = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            ps = con.prepareStatement(sql);
+            ps.setInt(1, lotId);
+            ps.executeUpdate();
+            return true;
+        } catch (Exception ex) {
+            logger.error(errorMessage, lotId, ex);
+            return false;
+        } finally {
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private static long[] getLotSummary(Connection con, int lotId) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_LOT_SUMMARY)) {
+            // un paramètre LOT_ID par colonne
+            for (int parameter = 1; parameter <= SUMMARY_SIZE; parameter++) {
+                ps.setInt(parameter, lotId);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                long[] summary = new long[SUMMARY_SIZE];
+                for (int column = 1; column <= SUMMARY_SIZE; column++) {
+                    summary[column - 1] = rs.getLong(column);
+                }
+                return summary;
+            }
+        }
+    }
+
+    /**
+     * @return le nombre de lignes supprimées : tickets, tickets archivés, véhicules, places
+     */
+    private static int[] deleteLot(Connection con, int lotId) throws SQLException {
+        String[] deletes = {DBConstants.DELETE_LOT_TICKETS, DBConstants.DELETE_LOT_ARCHIVED_TICKETS, DBConstants.DELETE_LOT_VISITS, DBConstants.DELETE_LOT_PARKING_SPOTS};
+        int[] nbDeletedRows = new int[deletes.length];
+        // les tickets référencent les places : supprimés en premier
+        for (int i = 0; i < deletes.length; i++) {
+            try (PreparedStatement ps = con.prepareStatement(deletes[i])) {
+                ps.setInt(1, lotId);
+                nbDeletedRows[i] = ps.executeUpdate();
+            }
+        }
+        return nbDeletedRows;
+    }
+
+    /**
+     * Les colonnes lues sont insérées dans le même ordre, après le LOT_ID.
+     *
+     * @return le nombre de lignes copiées
+     */
+    private static int copyRows(Connection sourceCon, String select, Connection targetCon, String insert, int lotId) throws SQLException {
+        int nbRows = 0;
+        try (PreparedStatement selectPs = sourceCon.prepareStatement(select);
+             PreparedStatement insertPs = targetCon.prepareStatement(insert)) {
+            selectPs.setInt(1, lotId);
+            try (ResultSet rs = selectPs.executeQuery()) {
+                int nbColumns = rs.getMetaData().getColumnCount();
+                while (rs.next()) {
+                    insertPs.setInt(1, lotId);
+                    for (int column = 1; column <= nbColumns; column++) {
+                        insertPs.setObject(column + 1, rs.getObject(column));
+                    }
+                    insertPs.addBatch();
+                    if (++nbRows % BATCH_SIZE == 0) {
+                        insertPs.executeBatch();
+                    }
+                }
+            }
+            insertPs.executeBatch();
+        }
+        return nbRows;
+    }
+}
@@ -1,8 +1,13 @@
 package com.parkit.parkingsystem.dao;
 
+import com.parkit.parkingsystem.cache.FreeSpotAllocator;
+import com.parkit.parkingsystem.cache.OccupancyCounters;
+import com.parkit.parkingsystem.cache.ParkingSpotCache;
 import com.parkit.parkingsystem.config.DataBaseConfig;
 import com.parkit.parkingsystem.constants.DBConstants;
 import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -10,80 +15,352 @@ import org.apache.logging.log4j.Logger;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntUnaryOperator;
 
-public class ParkingSpotDAO {
+public class ParkingSpotDAO implements ParkingSpotStore {
     private static final Logger logger = LogManager.getLogger("ParkingSpotDAO");
 
+    private static final LatencyHistogram GET_NEXT_AVAILABLE_SLOT_LATENCY = Metrics.histogram("ParkingSpotDAO.getNextAvailableSlot");
+    private static final LatencyHistogram CLAIM_NEXT_AVAILABLE_SLOT_LATENCY = Metrics.histogram("ParkingSpotDAO.claimNextAvailableSlot");
+    private static final LatencyHistogram UPDATE_PARKING_LATENCY = Metrics.histogram("ParkingSpotDAO.updateParking");
+    private static final LatencyHistogram GET_PARKING_SPOT_BY_ID_LATENCY = Metrics.histogram("ParkingSpotDAO.getParkingSpotById");
+    private static final LatencyHistogram RECONCILE_FREE_SPOTS_LATENCY = Metrics.histogram("ParkingSpotDAO.reconcileFreeSpots");
+    private static final LatencyHistogram GET_ALL_PARKING_SPOTS_LATENCY = Metrics.histogram("ParkingSpotDAO.getAllParkingSpots");
+    private static final LatencyHistogram WARM_PARKING_SPOT_CACHE_LATENCY = Metrics.histogram("ParkingSpotDAO.warmParkingSpotCache");
+    private static final LatencyHistogram GET_OCCUPANCY_LATENCY = Metrics.histogram("ParkingSpotDAO.getOccupancy");
+
+    private static final int MAX_CLAIM_ATTEMPTS = 32;
+
     public DataBaseConfig dataBaseConfig = new DataBaseConfig();
 
+    public FreeSpotAllocator freeSpotAllocator = new FreeSpotAllocator();
+
+    public ParkingSpotCache parkingSpotCache = new ParkingSpotCache(10000);
+
+    private final AtomicLong claimConflicts = new AtomicLong();
+
+    /**
+     * La place est prise dans l'index en mémoire, chargé au premier appel ;
+     * la requête min(PARKING_NUMBER) ne sert plus que si le chargement a échoué.
+     */
+    @Override
     public int getNextAvailableSlot(ParkingType parkingType) {
-        Connection con = null;
-        int result = -1;
-        ResultSet rs = null;
-        PreparedStatement ps = null;
+        long start = System.nanoTime();
         try {
-            con = dataBaseConfig.getConnection();
-            ps = con.prepareStatement(DBConstants.GET_NEXT_PARKING_SPOT);
-            ps.setString(1, parkingType.toString());
-            rs = ps.executeQuery();
-            if (rs.next()) {
-                result = rs.getInt(1);
+            if (isFreeSpotIndexReady()) {
+                return freeSpotAllocator.nextAvailable(parkingType);
             }
-        } catch (Exception ex) {
-            logger.error("Error fetching next available slot", ex);
+            Connection con = null;
+            int result = -1;
+            ResultSet rs = null;
+            PreparedStatement ps = null;
+            try {
+                con = dataBaseConfig.getConnection();
+                ps = con.prepareStatement(DBConstants.GET_NEXT_PARKING_SPOT);
+                ps.setInt(1, dataBaseConfig.getLotId());
+                ps.setString(2, parkingType.toString());
+                rs = ps.executeQuery();
+                if (rs.next()) {
+                    result = rs.getInt(1);
+                }
+            } catch (Exception ex) {
+                logger.error("Error fetching next available slot", ex);
+            } finally {
+                dataBaseConfig.closeResultSet(rs);
+                dataBaseConfig.closePreparedStatement(ps);
+                dataBaseConfig.closeConnection(con);
+            }
+            return result;
         } finally {
-            dataBaseConfig.closeResultSet(rs);
-            dataBaseConfig.closePreparedStatement(ps);
-            dataBaseConfig.closeConnection(con);
+            GET_NEXT_AVAILABLE_SLOT_LATENCY.recordSince(start);
         }
-        return result;
     }
 
-    public boolean updateParking(ParkingSpot parkingSpot) {
+    /**
+     * Réserve la prochaine place libre de façon atomique : la place candidate n'est prise que si
+     * l'update conditionnel (AVAILABLE = true) la trouve encore libre en base. Si un autre guichet
+     * l'a prise entre-temps, on recommence avec la suivante.
+     *
+     * @return la place réservée (non disponible), ou null si le parking est complet ou en cas d'erreur
+     */
+    @Override
+    public ParkingSpot claimNextAvailableSlot(ParkingType parkingType) {
+        long start = System.nanoTime();
+        try {
+            return claimNextAvailableSlot(parkingType, this::claimParkingSpot);
+        } finally {
+            CLAIM_NEXT_AVAILABLE_SLOT_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * Boucle de réservation, partagée avec {@link JdbcUnitOfWork} qui réserve sur sa propre connexion.
+     *
+     * @param claimer update conditionnel de la place : 1 si elle a été prise, 0 si elle n'était plus libre,
+     *                -1 en cas d'erreur
+     */
+    ParkingSpot claimNextAvailableSlot(ParkingType parkingType, IntUnaryOperator claimer) {
+        boolean fromIndex = isFreeSpotIndexReady();
+        for (int attempt = 0; attempt < MAX_CLAIM_ATTEMPTS; attempt++) {
+            int parkingNumber = fromIndex ? freeSpotAllocator.claimNext(parkingType) : getNextAvailableSlot(parkingType);
+            if (parkingNumber <= 0) {
+                return null;
+            }
+            ParkingSpot parkingSpot = new ParkingSpot(parkingNumber, parkingType, false);
+            int updateRowCount = claimer.applyAsInt(parkingNumber);
+            if (updateRowCount == 1) {
+                return parkingSpot;
+            }
+            if (updateRowCount < 0) {
+                if (fromIndex) {
+                    // la place n'a pas été prise en base, elle redevient disponible dans l'index
+                    parkingSpot.setAvailable(true);
+                    freeSpotAllocator.update(parkingSpot);
+                }
+                return null;
+            }
+            // déjà prise par un autre guichet : l'index en mémoire la garde comme occupée
+            claimConflicts.incrementAndGet();
+            logger.info("Parking spot {} already taken, retrying", parkingNumber);
+            if (fromIndex && attempt == MAX_CLAIM_ATTEMPTS / 2) {
+                // trop de conflits : l'index est très en retard sur la base, on le recharge
+                reconcileFreeSpots();
+            }
+        }
+        logger.error("Unable to claim a {} parking spot after {} attempts", parkingType, MAX_CLAIM_ATTEMPTS);
+        return null;
+    }
+
+    /**
+     * @return 1 si la place a été prise, 0 si elle n'était plus libre, -1 en cas d'erreur
+     */
+    private int claimParkingSpot(int parkingNumber) {
         Connection con = null;
         PreparedStatement ps = null;
-        boolean isUpdated = false;
+        int updateRowCount = -1;
         try {
             con = dataBaseConfig.getConnection();
-            ps = con.prepareStatement(DBConstants.UPDATE_PARKING_SPOT);
-            ps.setBoolean(1, parkingSpot.isAvailable());
-            ps.setInt(2, parkingSpot.getId());
-            int updateRowCount = ps.executeUpdate();
-            isUpdated = (updateRowCount == 1);
+            ps = con.prepareStatement(DBConstants.CLAIM_PARKING_SPOT);
+            ps.setInt(1, dataBaseConfig.getLotId());
+            ps.setInt(2, parkingNumber);
+            updateRowCount = ps.executeUpdate();
+            // prise par ce guichet ou déjà prise par un autre : dans les deux cas occupée
+            parkingSpotCache.update(parkingNumber, false);
         } catch (Exception ex) {
-            logger.error("Error updating parking info", ex);
+            logger.error("Error claiming parking spot : {}", parkingNumber, ex);
         } finally {
             dataBaseConfig.closePreparedStatement(ps);
             dataBaseConfig.closeConnection(con);
         }
-        return isUpdated;
+        return updateRowCount;
+    }
+
+    @Override
+    public long getClaimConflicts() {
+        return claimConflicts.get();
     }
 
+    @Override
+    public boolean updateParking(ParkingSpot parkingSpot) {
+        long start = System.nanoTime();
+        try {
+            Connection con = null;
+            PreparedStatement ps = null;
+            boolean isUpdated = false;
+            try {
+                con = dataBaseConfig.getConnection();
+                ps = con.prepareStatement(DBConstants.UPDATE_PARKING_SPOT);
+                ps.setBoolean(1, parkingSpot.isAvailable());
+                ps.setInt(2, dataBaseConfig.getLotId());
+                ps.setInt(3, parkingSpot.getId());
+                int updateRowCount = ps.executeUpdate();
+                isUpdated = (updateRowCount == 1);
+                if (isUpdated) {
+                    parkingSpotCache.update(parkingSpot.getId(), parkingSpot.isAvailable());
+                    if (freeSpotAllocator.isLoaded()) {
+                        freeSpotAllocator.update(parkingSpot);
+                    }
+                }
+            } catch (Exception ex) {
+                logger.error("Error updating parking info", ex);
+            } finally {
+                dataBaseConfig.closePreparedStatement(ps);
+                dataBaseConfig.closeConnection(con);
+            }
+            return isUpdated;
+        } finally {
+            UPDATE_PARKING_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * Lue dans le cache des places, sinon en base (et alors mise en cache).
+     */
+    @Override
     public ParkingSpot getParkingSpotById(int parkingId) {
-        Connection con = null;
-        ParkingSpot parkingSpot = null;
-        ResultSet rs = null;
-        PreparedStatement ps = null;
+        long start = System.nanoTime();
         try {
-            con = dataBaseConfig.getConnection();
-            ps = con.prepareStatement(DBConstants.GET_PARKING_SPOT_BY_ID);
-            ps.setInt(1, parkingId);
-            rs = ps.executeQuery();
-            if (rs.next()) {
-                parkingSpot = new ParkingSpot(
-                        rs.getInt(1),
-                        ParkingType.valueOf(rs.getString(3)),
-                        rs.getBoolean(2)
-                );
+            ParkingSpot cachedParkingSpot = parkingSpotCache.get(parkingId);
+            if (cachedParkingSpot != null) {
+                return cachedParkingSpot;
             }
-        } catch (Exception ex) {
-            logger.error("Error fetching parking slot id : {}", parkingId, ex);
+            long cacheVersion = parkingSpotCache.getVersion();
+            Connection con = null;
+            ParkingSpot parkingSpot = null;
+            ResultSet rs = null;
+            PreparedStatement ps = null;
+            try {
+                con = dataBaseConfig.getConnection();
+                ps = con.prepareStatement(DBConstants.GET_PARKING_SPOT_BY_ID);
+                ps.setInt(1, dataBaseConfig.getLotId());
+                ps.setInt(2, parkingId);
+                rs = ps.executeQuery();
+                if (rs.next()) {
+                    parkingSpot = new ParkingSpot(
+                            rs.getInt(1),
+                            ParkingType.valueOf(rs.getString(3)),
+                            rs.getBoolean(2)
+                    );
+                    parkingSpotCache.put(parkingSpot, cacheVersion);
+                }
+            } catch (Exception ex) {
+                logger.error("Error fetching parking slot id : {}", parkingId, ex);
+            } finally {
+                dataBaseConfig.closeResultSet(rs);
+                dataBaseConfig.closePreparedStatement(ps);
+                dataBaseConfig.closeConnection(con);
+            }
+            return parkingSpot;
         } finally {
-            dataBaseConfig.closeResultSet(rs);
-            dataBaseConfig.closePreparedStatement(ps);
-            dataBaseConfig.closeConnection(con);
+            GET_PARKING_SPOT_BY_ID_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * Charge l'index au premier appel ; un seul guichet fait le chargement, les autres l'attendent.
+     */
+    private boolean isFreeSpotIndexReady() {
+        if (freeSpotAllocator.isLoaded()) {
+            return true;
+        }
+        synchronized (freeSpotAllocator) {
+            return freeSpotAllocator.isLoaded() || reconcileFreeSpots();
         }
-        return parkingSpot;
     }
 
+    /**
+     * Recharge l'index des places libres depuis la table parking (démarrage, ou à la demande si
+     * la base a été modifiée par un autre processus).
+     */
+    public boolean reconcileFreeSpots() {
+        long start = System.nanoTime();
+        try {
+            List<ParkingSpot> parkingSpots = getAllParkingSpots();
+            if (parkingSpots == null) {
+                return false;
+            }
+            freeSpotAllocator.load(parkingSpots);
+            parkingSpotCache.refresh(parkingSpots);
+            logger.info("Free spot index loaded with {} parking spots", parkingSpots.size());
+            return true;
+        } finally {
+            RECONCILE_FREE_SPOTS_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * Remplit le cache des places depuis la table parking (démarrage), pour que les premières lectures n'aillent pas en base.
+     */
+    public boolean warmParkingSpotCache() {
+        long start = System.nanoTime();
+        try {
+            List<ParkingSpot> parkingSpots = getAllParkingSpots();
+            if (parkingSpots == null) {
+                return false;
+            }
+            parkingSpotCache.load(parkingSpots);
+            logger.info("Parking spot cache warmed with {} parking spots", parkingSpotCache.size());
+            return true;
+        } finally {
+            WARM_PARKING_SPOT_CACHE_LATENCY.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<ParkingSpot> getAllParkingSpots() {
+        long start = System.nanoTime();
+        try {
+            Connection con = null;
+            List<ParkingSpot> parkingSpots = null;
+            ResultSet rs = null;
+            PreparedStatement ps = null;
+            try {
+                con = dataBaseConfig.getConnection();
+                ps = con.prepareStatement(DBConstants.GET_ALL_PARKING_SPOTS);
+                ps.setInt(1, dataBaseConfig.getLotId());
+                rs = ps.executeQuery();
+                List<ParkingSpot> result = new ArrayList<>();
+                while (rs.next()) {
+                    result.add(new ParkingSpot(
+                            rs.getInt(1),
+                            ParkingType.valueOf(rs.getString(3)),
+                            rs.getBoolean(2)
+                    ));
+                }
+                parkingSpots = result;
+            } catch (Exception ex) {
+                logger.error("Error fetching parking slots", ex);
+            } finally {
+                dataBaseConfig.closeResultSet(rs);
+                dataBaseConfig.closePreparedStatement(ps);
+                dataBaseConfig.closeConnection(con);
+            }
+            return parkingSpots;
+        } finally {
+            GET_ALL_PARKING_SPOTS_LATENCY.recordSince(start);
+        }
+    }
+
+    @Override
+    public OccupancyCounters getOccupancyCounters() {
+        return freeSpotAllocator.getOccupancyCounters();
+    }
+
+    /**
+     * Compte en base les places libres et occupées, sans lire toute la table.
+     *
+     * @return {libres, occupées} indexé par ParkingType.ordinal(), ou null en cas d'erreur
+     */
+    public int[][] getOccupancy() {
+        long start = System.nanoTime();
+        try {
+            Connection con = null;
+            int[][] occupancy = null;
+            ResultSet rs = null;
+            PreparedStatement ps = null;
+            try {
+                con = dataBaseConfig.getConnection();
+                ps = con.prepareStatement(DBConstants.GET_OCCUPANCY);
+                ps.setInt(1, dataBaseConfig.getLotId());
+                rs = ps.executeQuery();
+                int[][] result = new int[ParkingType.values().length][2];
+                while (rs.next()) {
+                    result[ParkingType.valueOf(rs.getString(1)).ordinal()][rs.getBoolean(2) ? 0 : 1] = rs.getInt(3);
+                }
+                occupancy = result;
+            } catch (Exception ex) {
+                logger.error("Error counting parking slots", ex);
+            } finally {
+                dataBaseConfig.closeResultSet(rs);
+                dataBaseConfig.closePreparedStatement(ps);
+                dataBaseConfig.closeConnection(con);
+            }
+            return occupancy;
+        } finally {
+            GET_OCCUPANCY_LATENCY.recordSince(start);
+        }
+    }
 }
@@ -0,0 +1,55 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.cache.OccupancyCounters;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+import java.util.List;
+
+/**
+ * Stockage des places d'un parking, tel que l'utilise ParkingService.
+ * Deux implémentations : {@link ParkingSpotDAO} (base de données) et {@link InMemoryParkingSpotStore}.
+ * Les erreurs de stockage ne sont pas levées : elles sont loguées et signalées par la valeur de retour.
+ */
+public interface ParkingSpotStore {
+
+    /**
+     * @return la plus petite place libre pour ce type, 0 si le parking est complet, -1 en cas d'erreur
+     */
+    int getNextAvailableSlot(ParkingType parkingType);
+
+    /**
+     * Réserve la prochaine place libre : deux guichets ne peuvent pas obtenir la même place.
+     *
+     * @return la place réservée (non disponible), ou null si le parking est complet ou en cas d'erreur
+     */
+    ParkingSpot claimNextAvailableSlot(ParkingType parkingType);
+
+    /**
+     * Enregistre la disponibilité de la place.
+     *
+     * @return false si la place n'existe pas ou en cas d'erreur
+     */
+    boolean updateParking(ParkingSpot parkingSpot);
+
+    /**
+     * @return la place, ou null si elle n'existe pas ou en cas d'erreur
+     */
+    ParkingSpot getParkingSpotById(int parkingId);
+
+    /**
+     * @return toutes les places du parking, ou null en cas d'erreur
+     */
+    List<ParkingSpot> getAllParkingSpots();
+
+    /**
+     * Compteurs de places libres et occupées par type, à lire sans verrou.
+     */
+    OccupancyCounters getOccupancyCounters();
+
+    /**
+     * Nombre de places candidates déjà prises par un autre guichet depuis le démarrage, chaque conflit
+     * ayant coûté une nouvelle tentative de réservation.
+     */
+    long getClaimConflicts();
+}
@@ -0,0 +1,81 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+
+/**
+ * Déplacement des tickets sortis depuis longtemps de la table ticket vers ticket_archive.
+ * Les tickets sont choisis puis déplacés un par un par leur ID : seules leurs lignes sont verrouillées,
+ * jamais les tickets en cours ni les places, et les guichets ne sont pas bloqués.
+ */
+public class TicketArchiveDAO {
+
+    private static final Logger logger = LogManager.getLogger("TicketArchiveDAO");
+
+    private static final LatencyHistogram ARCHIVE_BATCH_LATENCY = Metrics.histogram("TicketArchiveDAO.archiveBatch");
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    /**
+     * Archive, en une transaction, au plus batchSize tickets du parking sortis avant closedBefore, les plus anciens d'abord.
+     *
+     * @return le nombre de tickets archivés, -1 en cas d'erreur (rien n'est alors déplacé)
+     */
+    public int archiveBatch(long closedBefore, int batchSize) {
+        long start = System.nanoTime();
+        try {
+            Connection con = null;
+            PreparedStatement selectPs = null;
+            PreparedStatement archivePs = null;
+            PreparedStatement deletePs = null;
+            ResultSet rs = null;
+            int nbArchived = -1;
+            try {
+                con = dataBaseConfig.getConnection();
+                con.setAutoCommit(false);
+                selectPs = con.prepareStatement(DBConstants.GET_ARCHIVABLE_TICKETS);
+                selectPs.setInt(1, dataBaseConfig.getLotId());
+                selectPs.setTimestamp(2, new Timestamp(closedBefore));
+                selectPs.setInt(3, batchSize);
+                archivePs = con.prepareStatement(DBConstants.ARCHIVE_TICKET);
+                deletePs = con.prepareStatement(DBConstants.DELETE_TICKET);
+                int nbSelected = 0;
+                rs = selectPs.executeQuery();
+                while (rs.next()) {
+                    archivePs.setInt(1, rs.getInt(1));
+                    archivePs.addBatch();
+                    deletePs.setInt(1, rs.getInt(1));
+                    deletePs.addBatch();
+                    nbSelected++;
+                }
+                if (nbSelected > 0) {
+                    archivePs.executeBatch();
+                    deletePs.executeBatch();
+                }
+                con.commit();
+                nbArchived = nbSelected;
+            } catch (Exception ex) {
+                logger.error("Error archiving tickets", ex);
+            } finally {
+                dataBaseConfig.closeResultSet(rs);
+                dataBaseConfig.closePreparedStatement(selectPs);
+                dataBaseConfig.closePreparedStatement(archivePs);
+                dataBaseConfig.closePreparedStatement(deletePs);
+                // la connexion rendue au pool est annulée si le commit n'a pas eu lieu
+                dataBaseConfig.closeConnection(con);
+            }
+            return nbArchived;
+        } finally {
+            ARCHIVE_BATCH_LATENCY.recordSince(start);
+        }
+    }
+}
@@ -1,48 +1,213 @@
 package com.parkit.parkingsystem.dao;
 
+import com.parkit.parkingsystem.cache.OpenTicketIndex;
+import com.parkit.parkingsystem.cache.PlateBloomFilter;
+import com.parkit.parkingsystem.cache.VisitCounterCache;
 import com.parkit.parkingsystem.config.DataBaseConfig;
 import com.parkit.parkingsystem.constants.DBConstants;
 import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
 
-public class TicketDAO {
+public class TicketDAO implements TicketStore {
 
     private static final Logger logger = LogManager.getLogger("TicketDAO");
 
+    private static final LatencyHistogram SAVE_TICKET_LATENCY = Metrics.histogram("TicketDAO.saveTicket");
+    private static final LatencyHistogram GET_TICKET_LATENCY = Metrics.histogram("TicketDAO.getTicket");
+    private static final LatencyHistogram UPDATE_TICKET_LATENCY = Metrics.histogram("TicketDAO.updateTicket");
+    private static final LatencyHistogram GET_NB_TICKET_LATENCY = Metrics.histogram("TicketDAO.getNbTicket");
+    private static final LatencyHistogram LOAD_OPEN_TICKETS_LATENCY = Metrics.histogram("TicketDAO.loadOpenTickets");
+    private static final LatencyHistogram FLUSH_WRITE_BEHIND_LATENCY = Metrics.histogram("TicketDAO.flushWriteBehind");
+    private static final LatencyHistogram LOAD_PLATE_FILTER_LATENCY = Metrics.histogram("TicketDAO.loadPlateFilter");
+    private static final LatencyHistogram REFRESH_PLATE_FILTER_LATENCY = Metrics.histogram("TicketDAO.refreshPlateFilter");
+    private static final LatencyHistogram SAVE_PLATE_FILTER_LATENCY = Metrics.histogram("TicketDAO.savePlateFilter");
+
+    static final Counter NEW_PLATES = Metrics.counter("TicketDAO.newPlates");
+
+    /**
+     * Taux de faux positifs du filtre des plaques, et marge prise sur le nombre de plaques connues à sa construction.
+     */
+    static final double PLATE_FILTER_FALSE_POSITIVE_RATE = 0.01;
+    static final long PLATE_FILTER_MIN_PLATES = 100_000;
+
+    /**
+     * Les ID sont attribués à l'insertion mais visibles au commit, pas forcément dans l'ordre :
+     * les derniers tickets déjà lus sont relus à chaque rafraîchissement du filtre.
+     */
+    static final int PLATE_FILTER_ID_OVERLAP = 1000;
+
     public DataBaseConfig dataBaseConfig = new DataBaseConfig();
 
+    public VisitCounterCache visitCounterCache = new VisitCounterCache(10000);
+
+    public OpenTicketIndex openTicketIndex = new OpenTicketIndex();
+
+    private volatile TicketWriteBehindQueue writeBehindQueue;
+
+    private volatile PlateBloomFilter plateFilter;
+
+    /**
+     * Active le mode write-behind : saveTicket et updateTicket mettent les écritures en file et rendent la main,
+     * la file est écrite par lots JDBC dès qu'elle atteint batchSize ou toutes les flushIntervalMillis.
+     * getTicket et getNbTicket voient les tickets en attente.
+     *
+     * @param listener notifié après chaque lot, commité ou en échec, et des écritures refusées par la base (peut être null)
+     */
+    public synchronized void enableWriteBehind(int batchSize, long flushIntervalMillis, TicketFlushListener listener) {
+        disableWriteBehind();
+        writeBehindQueue = new TicketWriteBehindQueue(dataBaseConfig, batchSize, flushIntervalMillis, new TicketFlushListener() {
+            @Override
+            public void onFlush(List<Ticket> tickets, Exception error) {
+                if (error == null) {
+                    // les tickets en cours ont été indexés avant d'avoir un ID
+                    tickets.forEach(openTicketIndex::resolveId);
+                }
+                if (listener != null) {
+                    listener.onFlush(tickets, error);
+                }
+            }
+
+            @Override
+            public void onReject(List<Ticket> tickets, Exception error) {
+                // le compteur de passages a été incrémenté à la mise en file
+                tickets.forEach(ticket -> visitCounterCache.invalidate(ticket.getVehicleRegNumber()));
+                if (listener != null) {
+                    listener.onReject(tickets, error);
+                }
+            }
+        });
+    }
+
+    /**
+     * Écrit ce qui reste en file puis repasse en écriture directe.
+     */
+    public synchronized void disableWriteBehind() {
+        TicketWriteBehindQueue queue = writeBehindQueue;
+        if (queue != null) {
+            writeBehindQueue = null;
+            queue.close();
+        }
+    }
+
+    public boolean isWriteBehindEnabled() {
+        return writeBehindQueue != null;
+    }
+
+    public void flushWriteBehind() {
+        long start = System.nanoTime();
+        try {
+            TicketWriteBehindQueue queue = writeBehindQueue;
+            if (queue != null) {
+                queue.flush();
+            }
+        } finally {
+            FLUSH_WRITE_BEHIND_LATENCY.recordSince(start);
+        }
+    }
+
+    @Override
     public boolean saveTicket(Ticket ticket) {
-        Connection con = null;
-        boolean isSaved = false;
-        PreparedStatement ps = null;
+        long start = System.nanoTime();
         try {
-            con = dataBaseConfig.getConnection();
-            ps = con.prepareStatement(DBConstants.SAVE_TICKET);
-            ps.setInt(1, ticket.getParkingSpot().getId());
-            ps.setString(2, ticket.getVehicleRegNumber());
-            ps.setDouble(3, ticket.getPrice());
-            ps.setTimestamp(4, new Timestamp(ticket.getInTime().getTime()));
-            ps.setTimestamp(5, (ticket.getOutTime() == null) ? null : (new Timestamp(ticket.getOutTime().getTime())));
-            ps.execute();
-            isSaved = true;
-        } catch (Exception ex) {
-            logger.error("Error saving Ticket in DB", ex);
+            addToPlateFilter(ticket.getVehicleRegNumber());
+            TicketWriteBehindQueue queue = writeBehindQueue;
+            if (queue != null) {
+                try {
+                    queue.enqueueInsert(ticket);
+                } catch (IllegalStateException ex) {
+                    logger.error("Error saving Ticket : {}", ex.getMessage());
+                    return false;
+                }
+                visitCounterCache.increment(ticket.getVehicleRegNumber());
+                openTicketIndex.update(ticket);
+                return true;
+            }
+            Connection con = null;
+            boolean isSaved = false;
+            PreparedStatement ps = null;
+            PreparedStatement visitPs = null;
+            ResultSet rs = null;
+            try {
+                con = dataBaseConfig.getConnection();
+                // le ticket et le compteur de passages sont écrits dans la même transaction
+                con.setAutoCommit(false);
+                ps = con.prepareStatement(DBConstants.SAVE_TICKET, Statement.RETURN_GENERATED_KEYS);
+                ps.setInt(1, dataBaseConfig.getLotId());
+                ps.setInt(2, ticket.getParkingSpot().getId());
+                ps.setString(3, ticket.getVehicleRegNumber());
+                ps.setDouble(4, ticket.getPrice());
+                ps.setTimestamp(5, new Timestamp(ticket.getInTime().getTime()));
+                ps.setTimestamp(6, (ticket.getOutTime() == null) ? null : (new Timestamp(ticket.getOutTime().getTime())));
+                ps.execute();
+                rs = ps.getGeneratedKeys();
+                if (rs.next()) {
+                    ticket.setId(rs.getInt(1));
+                }
+                visitPs = con.prepareStatement(DBConstants.INCREMENT_NB_VISIT);
+                visitPs.setInt(1, dataBaseConfig.getLotId());
+                visitPs.setString(2, ticket.getVehicleRegNumber());
+                visitPs.execute();
+                con.commit();
+                isSaved = true;
+                visitCounterCache.increment(ticket.getVehicleRegNumber());
+                openTicketIndex.update(ticket);
+            } catch (Exception ex) {
+                logger.error("Error saving Ticket in DB", ex);
+            } finally {
+                dataBaseConfig.closeResultSet(rs);
+                dataBaseConfig.closePreparedStatement(visitPs);
+                dataBaseConfig.closePreparedStatement(ps);
+                dataBaseConfig.closeConnection(con);
+            }
+            return isSaved;
         } finally {
-            dataBaseConfig.closePreparedStatement(ps);
-            dataBaseConfig.closeConnection(con);
+            SAVE_TICKET_LATENCY.recordSince(start);
         }
-        return isSaved;
     }
 
+    /**
+     * Renvoie le dernier ticket du véhicule : d'abord les écritures en attente, puis l'index des tickets en cours,
+     * et seulement pour un véhicule sans ticket en cours l'historique en base.
+     */
+    @Override
     public Ticket getTicket(String vehicleRegNumber) {
+        long start = System.nanoTime();
+        try {
+            TicketWriteBehindQueue queue = writeBehindQueue;
+            if (queue != null) {
+                Ticket pendingTicket = queue.getPendingTicket(vehicleRegNumber);
+                if (pendingTicket != null) {
+                    return pendingTicket;
+                }
+            }
+            Ticket openTicket = openTicketIndex.get(vehicleRegNumber);
+            if (openTicket != null) {
+                return openTicket;
+            }
+            return getLastTicketFromDB(vehicleRegNumber);
+        } finally {
+            GET_TICKET_LATENCY.recordSince(start);
+        }
+    }
+
+    private Ticket getLastTicketFromDB(String vehicleRegNumber) {
         Connection con = null;
         Ticket ticket = null;
         ResultSet rs = null;
@@ -50,17 +215,22 @@ public class TicketDAO {
         try {
             con = dataBaseConfig.getConnection();
             ps = con.prepareStatement(DBConstants.GET_TICKET);
-            ps.setString(1, vehicleRegNumber);
+            ps.setInt(1, dataBaseConfig.getLotId());
+            ps.setString(2, vehicleRegNumber);
             rs = ps.executeQuery();
             if (rs.next()) {
-                ticket = new Ticket();
-                ParkingSpot parkingSpot = new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(6)), false);
-                ticket.setParkingSpot(parkingSpot);
-                ticket.setId(rs.getInt(2));
-                ticket.setVehicleRegNumber(vehicleRegNumber);
-                ticket.setPrice(rs.getDouble(3));
-                ticket.setInTime(rs.getTimestamp(4));
-                ticket.setOutTime(rs.getTimestamp(5));
+                ticket = readTicket(rs, vehicleRegNumber);
+            } else {
+                // tous les tickets du véhicule ont pu être archivés
+                dataBaseConfig.closeResultSet(rs);
+                dataBaseConfig.closePreparedStatement(ps);
+                ps = con.prepareStatement(DBConstants.GET_ARCHIVED_TICKET);
+                ps.setInt(1, dataBaseConfig.getLotId());
+                ps.setString(2, vehicleRegNumber);
+                rs = ps.executeQuery();
+                if (rs.next()) {
+                    ticket = readTicket(rs, vehicleRegNumber);
+                }
             }
         } catch (Exception ex) {
             logger.error("Error getting Ticket from DB", ex);
@@ -72,52 +242,377 @@ public class TicketDAO {
         return ticket;
     }
 
+    /**
+     * Ticket de la ligne courante d'un résultat de GET_TICKET ou GET_ARCHIVED_TICKET.
+     */
+    static Ticket readTicket(ResultSet rs, String vehicleRegNumber) throws SQLException {
+        Ticket ticket = new Ticket();
+        ParkingSpot parkingSpot = new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(6)), false);
+        ticket.setParkingSpot(parkingSpot);
+        ticket.setId(rs.getInt(2));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setPrice(rs.getDouble(3));
+        ticket.setInTime(rs.getTimestamp(4));
+        ticket.setOutTime(rs.getTimestamp(5));
+        return ticket;
+    }
+
+    @Override
     public boolean updateTicket(Ticket ticket) {
+        long start = System.nanoTime();
+        try {
+            TicketWriteBehindQueue queue = writeBehindQueue;
+            if (queue != null) {
+                try {
+                    boolean isQueued = queue.enqueueUpdate(ticket);
+                    if (!isQueued) {
+                        // ticket sans ID déjà sorti de la file : on retrouve son ID en base
+                        Ticket ticketInDB = getLastTicketFromDB(ticket.getVehicleRegNumber());
+                        if (ticketInDB == null || ticketInDB.getId() == 0) {
+                            logger.error("Unable to find queued Ticket for vehicle {}", ticket.getVehicleRegNumber());
+                            return false;
+                        }
+                        ticket.setId(ticketInDB.getId());
+                        isQueued = queue.enqueueUpdate(ticket);
+                    }
+                    if (isQueued) {
+                        openTicketIndex.update(ticket);
+                    }
+                    return isQueued;
+                } catch (IllegalStateException ex) {
+                    logger.error("Error updating Ticket : {}", ex.getMessage());
+                    return false;
+                }
+            }
+            Connection con = null;
+            boolean isUpdated = false;
+            PreparedStatement ps = null;
+            try {
+                con = dataBaseConfig.getConnection();
+                ps = con.prepareStatement(DBConstants.UPDATE_TICKET);
+                ps.setDouble(1, ticket.getPrice());
+                ps.setTimestamp(2, new Timestamp(ticket.getOutTime().getTime()));
+                ps.setInt(3, ticket.getId());
+                ps.execute();
+                isUpdated = true;
+                openTicketIndex.update(ticket);
+            } catch (Exception ex) {
+                logger.error("Error updating Ticket into DB", ex);
+            } finally {
+                dataBaseConfig.closePreparedStatement(ps);
+                dataBaseConfig.closeConnection(con);
+            }
+            return isUpdated;
+        } finally {
+            UPDATE_TICKET_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * Etape #4 : Renvoi le nombre de Tickets pour un véhicule donné
+     * Lu dans le cache, sinon dans le compteur vehicle_visit tenu à jour par saveTicket (plus de count(*) sur l'historique)
+     * Une plaque absente du filtre des plaques n'est jamais venue : 0 sans requête.
+     */
+    @Override
+    public int getNbTicket(String vehicleRegNumber) {
+        long start = System.nanoTime();
+        try {
+            int cachedNbTicket = visitCounterCache.get(vehicleRegNumber);
+            if (cachedNbTicket >= 0) {
+                return cachedNbTicket;
+            }
+            if (isNewPlate(vehicleRegNumber)) {
+                return 0;
+            }
+            Connection con = null;
+            int nbTicket = 0;
+            PreparedStatement ps = null;
+            try {
+                con = dataBaseConfig.getConnection();
+                ps = con.prepareStatement(DBConstants.GET_NB_VISIT);
+                ps.setInt(1, dataBaseConfig.getLotId());
+                ps.setString(2, vehicleRegNumber);
+                PreparedStatement nbVisitPs = ps;
+                TicketWriteBehindQueue queue = writeBehindQueue;
+                nbTicket = (queue != null) ? queue.countVisits(vehicleRegNumber, () -> readNbVisit(nbVisitPs)) : readNbVisit(ps);
+                visitCounterCache.put(vehicleRegNumber, nbTicket);
+            } catch (Exception ex) {
+                logger.error("Error getting number of tickets from DB", ex);
+            } finally {
+                dataBaseConfig.closePreparedStatement(ps);
+                dataBaseConfig.closeConnection(con);
+            }
+            return nbTicket;
+        } finally {
+            GET_NB_TICKET_LATENCY.recordSince(start);
+        }
+    }
+
+    private int readNbVisit(PreparedStatement ps) throws SQLException {
+        ResultSet rs = ps.executeQuery();
+        try {
+            return rs.next() ? rs.getInt(1) : 0;
+        } finally {
+            dataBaseConfig.closeResultSet(rs);
+        }
+    }
+
+    /**
+     * Reconstruit l'index des tickets en cours depuis la base (démarrage, ou à la demande).
+     */
+    public boolean loadOpenTickets() {
+        long start = System.nanoTime();
+        try {
+            Connection con = null;
+            ResultSet rs = null;
+            PreparedStatement ps = null;
+            boolean isLoaded = false;
+            try {
+                con = dataBaseConfig.getConnection();
+                ps = con.prepareStatement(DBConstants.GET_OPEN_TICKETS);
+                ps.setInt(1, dataBaseConfig.getLotId());
+                rs = ps.executeQuery();
+                List<Ticket> openTickets = new ArrayList<>();
+                while (rs.next()) {
+                    Ticket ticket = new Ticket();
+                    ticket.setParkingSpot(new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(6)), false));
+                    ticket.setId(rs.getInt(2));
+                    ticket.setVehicleRegNumber(rs.getString(7));
+                    ticket.setPrice(rs.getDouble(3));
+                    ticket.setInTime(rs.getTimestamp(4));
+                    ticket.setOutTime(rs.getTimestamp(5));
+                    openTickets.add(ticket);
+                }
+                openTicketIndex.load(openTickets);
+                isLoaded = true;
+                logger.info("Open ticket index loaded with {} tickets", openTicketIndex.size());
+            } catch (Exception ex) {
+                logger.error("Error loading open Tickets from DB", ex);
+            } finally {
+                dataBaseConfig.closeResultSet(rs);
+                dataBaseConfig.closePreparedStatement(ps);
+                dataBaseConfig.closeConnection(con);
+            }
+            return isLoaded;
+        } finally {
+            LOAD_OPEN_TICKETS_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * Charge le filtre des plaques déjà venues depuis file, puis le complète avec les tickets enregistrés depuis sa sauvegarde.
+     * Sans fichier valide pour ce parking, si le filtre sauvegardé est trop plein, ou s'il a lu des tickets d'ID supérieur
+     * au plus grand de la base (base restaurée, parking déplacé), il est reconstruit depuis vehicle_visit.
+     * getNbTicket ne s'en sert qu'une fois chargé.
+     *
+     * @return false si la base n'a pas pu être lue : le filtre reste alors désactivé
+     */
+    public boolean loadPlateFilter(Path file) {
+        long start = System.nanoTime();
+        try {
+            PlateBloomFilter filter = null;
+            try {
+                filter = PlateBloomFilter.load(file, dataBaseConfig.getLotId());
+            } catch (IOException e) {
+                logger.error("Unable to read plate filter {}, rebuilding it", file, e);
+            }
+            if (filter != null && filter.isSaturated()) {
+                logger.info("Plate filter {} holds {} plates for {} expected, rebuilding it", file, filter.getNbPlates(), filter.getExpectedPlates());
+                filter = null;
+            }
+            if (filter != null) {
+                // base restaurée, remise à zéro ou parking déplacé avec de nouveaux ID : les tickets suivants seraient ignorés
+                long maxTicketId = getMaxTicketId();
+                if (maxTicketId < 0) {
+                    return false;
+                }
+                if (maxTicketId < filter.getHighestTicketId()) {
+                    logger.info("Plate filter {} is up to ticket {} but the database only up to {}, rebuilding it", file, filter.getHighestTicketId(), maxTicketId);
+                    filter = null;
+                }
+            }
+            if (filter == null) {
+                filter = buildPlateFilter();
+                if (filter == null) {
+                    return false;
+                }
+            }
+            // publié seulement une fois complété : il répondrait sinon « jamais venue » pour les derniers véhicules
+            if (!refreshPlateFilter(filter)) {
+                return false;
+            }
+            plateFilter = filter;
+            logger.info("Plate filter loaded with about {} plates, up to ticket {}", filter.getNbPlates(), filter.getHighestTicketId());
+            return true;
+        } finally {
+            LOAD_PLATE_FILTER_LATENCY.recordSince(start);
+        }
+    }
+
+    private PlateBloomFilter buildPlateFilter() {
         Connection con = null;
-        boolean isUpdated = false;
         PreparedStatement ps = null;
+        ResultSet rs = null;
         try {
             con = dataBaseConfig.getConnection();
-            ps = con.prepareStatement(DBConstants.UPDATE_TICKET);
-            ps.setDouble(1, ticket.getPrice());
-            ps.setTimestamp(2, new Timestamp(ticket.getOutTime().getTime()));
-            ps.setInt(3, ticket.getId());
-            ps.execute();
-            isUpdated = true;
+            // lu avant les plaques : un ticket d'ID inférieur a déjà son compteur de passages (même transaction)
+            ps = con.prepareStatement(DBConstants.GET_MAX_TICKET_ID);
+            rs = ps.executeQuery();
+            long highestTicketId = rs.next() ? rs.getLong(1) : 0;
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            ps = con.prepareStatement(DBConstants.GET_NB_VISITED_PLATES);
+            ps.setInt(1, dataBaseConfig.getLotId());
+            rs = ps.executeQuery();
+            long nbPlates = rs.next() ? rs.getLong(1) : 0;
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            PlateBloomFilter filter = new PlateBloomFilter(Math.max(PLATE_FILTER_MIN_PLATES, 2 * nbPlates), PLATE_FILTER_FALSE_POSITIVE_RATE);
+            ps = con.prepareStatement(DBConstants.GET_VISITED_PLATES, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(TicketHistoryDAO.FETCH_SIZE);
+            ps.setInt(1, dataBaseConfig.getLotId());
+            rs = ps.executeQuery();
+            while (rs.next()) {
+                filter.add(rs.getString(1));
+            }
+            filter.advanceHighestTicketId(highestTicketId);
+            return filter;
         } catch (Exception ex) {
-            logger.error("Error updating Ticket into DB", ex);
+            logger.error("Error building plate filter from DB", ex);
+            return null;
         } finally {
+            dataBaseConfig.closeResultSet(rs);
             dataBaseConfig.closePreparedStatement(ps);
             dataBaseConfig.closeConnection(con);
         }
-        return isUpdated;
     }
 
     /**
-     * Etape #4 : Renvoi le nombre de Tickets pour un véhicule donné
+     * Ajoute au filtre les plaques des tickets enregistrés en base depuis le dernier rafraîchissement,
+     * y compris par les autres guichets du parking. Reconstruit le filtre si la base est revenue en arrière.
      */
-    public int getNbTicket(String vehicleRegNumber) {
+    public boolean refreshPlateFilter() {
+        long start = System.nanoTime();
+        try {
+            PlateBloomFilter filter = plateFilter;
+            if (filter == null) {
+                return false;
+            }
+            long maxTicketId = getMaxTicketId();
+            if (maxTicketId < 0) {
+                return false;
+            }
+            if (maxTicketId < filter.getHighestTicketId()) {
+                logger.info("Plate filter is up to ticket {} but the database only up to {}, rebuilding it", filter.getHighestTicketId(), maxTicketId);
+                PlateBloomFilter rebuiltFilter = buildPlateFilter();
+                if (rebuiltFilter == null || !refreshPlateFilter(rebuiltFilter)) {
+                    return false;
+                }
+                plateFilter = rebuiltFilter;
+                return true;
+            }
+            return refreshPlateFilter(filter);
+        } finally {
+            REFRESH_PLATE_FILTER_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * @return le plus grand ID de ticket en base, ou -1 si la base n'a pas pu être lue
+     */
+    private long getMaxTicketId() {
         Connection con = null;
-        int nbTicket = 0;
+        PreparedStatement ps = null;
         ResultSet rs = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            ps = con.prepareStatement(DBConstants.GET_MAX_TICKET_ID);
+            rs = ps.executeQuery();
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (Exception ex) {
+            logger.error("Error reading highest ticket ID from DB", ex);
+            return -1;
+        } finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private boolean refreshPlateFilter(PlateBloomFilter filter) {
+        Connection con = null;
         PreparedStatement ps = null;
+        ResultSet rs = null;
+        boolean isRefreshed = false;
         try {
             con = dataBaseConfig.getConnection();
-            ps = con.prepareStatement(DBConstants.GET_NB_TICKET);
-            ps.setString(1, vehicleRegNumber);
+            ps = con.prepareStatement(DBConstants.GET_TICKET_PLATES_SINCE, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(TicketHistoryDAO.FETCH_SIZE);
+            ps.setLong(1, Math.max(0, filter.getHighestTicketId() - PLATE_FILTER_ID_OVERLAP));
+            ps.setInt(2, dataBaseConfig.getLotId());
             rs = ps.executeQuery();
-            if (rs.next()) {
-                nbTicket = rs.getInt(1);
+            long highestTicketId = 0;
+            while (rs.next()) {
+                highestTicketId = Math.max(highestTicketId, rs.getLong(1));
+                filter.add(rs.getString(2));
             }
+            filter.advanceHighestTicketId(highestTicketId);
+            isRefreshed = true;
         } catch (Exception ex) {
-            logger.error("Error getting number of tickets from DB", ex);
+            logger.error("Error refreshing plate filter from DB", ex);
         } finally {
-            dataBaseConfig.closePreparedStatement(ps);
             dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
             dataBaseConfig.closeConnection(con);
         }
-        return nbTicket;
+        return isRefreshed;
     }
 
+    /**
+     * Sauvegarde le filtre pour le prochain démarrage.
+     */
+    public boolean savePlateFilter(Path file) {
+        long start = System.nanoTime();
+        try {
+            PlateBloomFilter filter = plateFilter;
+            if (filter == null) {
+                return false;
+            }
+            try {
+                filter.save(file, dataBaseConfig.getLotId());
+                return true;
+            } catch (IOException e) {
+                logger.error("Unable to save plate filter {}", file, e);
+                return false;
+            }
+        } finally {
+            SAVE_PLATE_FILTER_LATENCY.recordSince(start);
+        }
+    }
+
+    public PlateBloomFilter getPlateFilter() {
+        return plateFilter;
+    }
 
+    /**
+     * Avant l'insertion : si elle échoue, la plaque n'est qu'un faux positif de plus.
+     */
+    void addToPlateFilter(String vehicleRegNumber) {
+        PlateBloomFilter filter = plateFilter;
+        if (filter != null) {
+            filter.add(vehicleRegNumber);
+        }
+    }
+
+    /**
+     * @return true si le filtre est chargé et que la plaque n'est jamais venue
+     */
+    boolean isNewPlate(String vehicleRegNumber) {
+        PlateBloomFilter filter = plateFilter;
+        if (filter != null && !filter.mightContain(vehicleRegNumber)) {
+            NEW_PLATES.increment();
+            return true;
+        }
+        return false;
+    }
 }
@@ -0,0 +1,26 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.util.List;
+
+/**
+ * Notifié après chaque écriture groupée du mode write-behind de {@link TicketDAO}.
+ */
+public interface TicketFlushListener {
+
+    /**
+     * @param tickets tickets concernés par le lot
+     * @param error   null si le lot est commité en base ; sinon l'erreur, et le lot sera retenté au prochain flush
+     */
+    void onFlush(List<Ticket> tickets, Exception error);
+
+    /**
+     * Écritures refusées par la base pour leurs valeurs (contrainte, donnée invalide) : elles ne seront pas retentées.
+     *
+     * @param tickets tickets non écrits
+     * @param error   la dernière erreur de la base
+     */
+    default void onReject(List<Ticket> tickets, Exception error) {
+    }
+}
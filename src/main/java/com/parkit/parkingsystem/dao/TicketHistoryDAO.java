@@ -0,0 +1,113 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+
+/**
+ * Lecture en flux de l'historique des tickets, pour les rapports : table ticket et tickets archivés.
+ * Les lignes sont lues par paquets de FETCH_SIZE et passées une à une au handler sans être gardées :
+ * la mémoire utilisée ne dépend pas de la taille de la table ticket.
+ * Avec MySQL, l'URL de la base doit contenir useCursorFetch=true, sinon le driver charge tout le résultat.
+ */
+public class TicketHistoryDAO {
+
+    private static final Logger logger = LogManager.getLogger("TicketHistoryDAO");
+
+    private static final LatencyHistogram SCAN_TICKETS_LATENCY = Metrics.histogram("TicketHistoryDAO.scanTickets");
+    private static final LatencyHistogram SCAN_TICKETS_BY_VEHICLE_LATENCY = Metrics.histogram("TicketHistoryDAO.scanTicketsByVehicle");
+
+    static final int FETCH_SIZE = 1000;
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    /**
+     * Parcourt les tickets du parking présents entre from et to : entrés avant to et pas sortis avant from.
+     *
+     * @return false en cas d'erreur, le handler a alors pu recevoir une partie des tickets
+     */
+    public boolean scanTickets(long from, long to, TicketRowHandler handler) {
+        long start = System.nanoTime();
+        try {
+            Connection con = null;
+            PreparedStatement ps = null;
+            ResultSet rs = null;
+            boolean isScanned = false;
+            try {
+                con = dataBaseConfig.getConnection();
+                ps = con.prepareStatement(DBConstants.GET_TICKET_HISTORY, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(FETCH_SIZE);
+                ps.setInt(1, dataBaseConfig.getLotId());
+                ps.setTimestamp(2, new Timestamp(to));
+                ps.setTimestamp(3, new Timestamp(from));
+                ps.setInt(4, dataBaseConfig.getLotId());
+                ps.setTimestamp(5, new Timestamp(to));
+                ps.setTimestamp(6, new Timestamp(from));
+                rs = ps.executeQuery();
+                while (rs.next()) {
+                    Timestamp outTime = rs.getTimestamp(3);
+                    handler.onTicket(rs.getInt(1), rs.getTimestamp(2).getTime(),
+                            (outTime == null) ? 0 : outTime.getTime(), rs.getDouble(4));
+                }
+                isScanned = true;
+            } catch (Exception ex) {
+                logger.error("Error reading ticket history", ex);
+            } finally {
+                dataBaseConfig.closeResultSet(rs);
+                dataBaseConfig.closePreparedStatement(ps);
+                dataBaseConfig.closeConnection(con);
+            }
+            return isScanned;
+        } finally {
+            SCAN_TICKETS_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * Parcourt les tickets du parking entrés avant to, véhicule par véhicule et dans l'ordre d'entrée.
+     *
+     * @return false en cas d'erreur, le handler a alors pu recevoir une partie des tickets
+     */
+    public boolean scanTicketsByVehicle(long to, VehicleTicketHandler handler) {
+        long start = System.nanoTime();
+        try {
+            Connection con = null;
+            PreparedStatement ps = null;
+            ResultSet rs = null;
+            boolean isScanned = false;
+            try {
+                con = dataBaseConfig.getConnection();
+                ps = con.prepareStatement(DBConstants.GET_TICKETS_BY_VEHICLE, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(FETCH_SIZE);
+                ps.setInt(1, dataBaseConfig.getLotId());
+                ps.setTimestamp(2, new Timestamp(to));
+                ps.setInt(3, dataBaseConfig.getLotId());
+                ps.setTimestamp(4, new Timestamp(to));
+                rs = ps.executeQuery();
+                while (rs.next()) {
+                    Timestamp outTime = rs.getTimestamp(4);
+                    handler.onTicket(rs.getString(1), rs.getInt(2), rs.getTimestamp(3).getTime(),
+                            (outTime == null) ? 0 : outTime.getTime());
+                }
+                isScanned = true;
+            } catch (Exception ex) {
+                logger.error("Error reading ticket history by vehicle", ex);
+            } finally {
+                dataBaseConfig.closeResultSet(rs);
+                dataBaseConfig.closePreparedStatement(ps);
+                dataBaseConfig.closeConnection(con);
+            }
+            return isScanned;
+        } finally {
+            SCAN_TICKETS_BY_VEHICLE_LATENCY.recordSince(start);
+        }
+    }
+}
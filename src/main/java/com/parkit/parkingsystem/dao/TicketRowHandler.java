@@ -0,0 +1,15 @@
+package com.parkit.parkingsystem.dao;
+
+/**
+ * Reçoit les tickets lus en flux par {@link TicketHistoryDAO}, sans objet créé par ticket.
+ */
+public interface TicketRowHandler {
+
+    /**
+     * @param inTime  heure d'entrée en millisecondes
+     * @param outTime heure de sortie en millisecondes, 0 pour un ticket en cours
+     * @param price   prix payé, 0 pour un ticket en cours
+     * @throws Exception pour interrompre la lecture
+     */
+    void onTicket(int parkingNumber, long inTime, long outTime, double price) throws Exception;
+}
@@ -0,0 +1,35 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * Stockage des tickets d'un parking, tel que l'utilise ParkingService.
+ * Deux implémentations : {@link TicketDAO} (base de données) et {@link InMemoryTicketStore}.
+ * Les erreurs de stockage ne sont pas levées : elles sont loguées et signalées par la valeur de retour.
+ */
+public interface TicketStore {
+
+    /**
+     * Enregistre un nouveau ticket, lui attribue son ID et compte un passage du véhicule.
+     *
+     * @return false en cas d'erreur
+     */
+    boolean saveTicket(Ticket ticket);
+
+    /**
+     * @return le dernier ticket du véhicule, en cours ou non, ou null
+     */
+    Ticket getTicket(String vehicleRegNumber);
+
+    /**
+     * Enregistre le prix et l'heure de sortie du ticket, retrouvé par son ID.
+     *
+     * @return false en cas d'erreur
+     */
+    boolean updateTicket(Ticket ticket);
+
+    /**
+     * @return le nombre de passages du véhicule dans le parking
+     */
+    int getNbTicket(String vehicleRegNumber);
+}
@@ -0,0 +1,507 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.DataTruncation;
+import java.sql.ResultSet;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * File d'écritures de tickets pour le mode write-behind de {@link TicketDAO}.
+ * Les insertions et mises à jour sont mises en attente puis écrites par lots JDBC, dans une seule transaction,
+ * dès que la file atteint batchSize ou toutes les flushIntervalMillis.
+ * Tant qu'un ticket n'est pas commité, il reste visible par {@link #getPendingTicket(String)}.
+ * <p>
+ * La file est bornée à {@link #MAX_QUEUED_BATCHES} lots, écritures en cours comprises : si la base ne répond plus,
+ * les nouvelles écritures sont refusées au lieu de remplir le tas. Une écriture que la base refuse pour ses valeurs
+ * est écartée, elle ne bloque pas la file.
+ */
+public class TicketWriteBehindQueue {
+
+    private static final Logger logger = LogManager.getLogger("TicketWriteBehindQueue");
+
+    static final int MAX_QUEUED_BATCHES = 10;
+
+    private final DataBaseConfig dataBaseConfig;
+    private final int batchSize;
+    private final int maxQueuedWrites;
+    private final TicketFlushListener listener;
+    private final ScheduledExecutorService flusher;
+
+    private final Object lock = new Object();
+    private final Object flushLock = new Object();
+    // pas de synchronized : la lecture en base de countVisits ne doit pas bloquer le thread porteur d'un thread virtuel
+    private final ReadWriteLock commitLock = new ReentrantReadWriteLock();
+    private List<PendingWrite> queue = new ArrayList<>();
+    private final Map<String, PendingTicket> pendingByPlate = new HashMap<>();
+    private final Map<String, Integer> pendingInsertsByPlate = new HashMap<>();
+    // écritures retirées de la file par le flush en cours, remises en file s'il échoue
+    private int flushingWrites;
+    private boolean flushRequested;
+
+    public TicketWriteBehindQueue(DataBaseConfig dataBaseConfig, int batchSize, long flushIntervalMillis, TicketFlushListener listener) {
+        if (batchSize <= 0 || flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Batch size and flush interval must be positive");
+        }
+        this.dataBaseConfig = dataBaseConfig;
+        this.batchSize = batchSize;
+        this.maxQueuedWrites = batchSize * MAX_QUEUED_BATCHES;
+        this.listener = listener;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ticket-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @throws IllegalStateException si la file est pleine
+     */
+    public void enqueueInsert(Ticket ticket) {
+        synchronized (lock) {
+            checkNotFull();
+            PendingTicket pendingTicket = new PendingTicket(ticket);
+            pendingTicket.insertQueued = true;
+            pendingTicket.pendingWrites++;
+            queue.add(new PendingWrite(pendingTicket, null));
+            pendingByPlate.put(ticket.getVehicleRegNumber(), pendingTicket);
+            pendingInsertsByPlate.merge(ticket.getVehicleRegNumber(), 1, Integer::sum);
+            triggerFlushIfFull();
+        }
+    }
+
+    /**
+     * @return false si le ticket n'a pas d'ID et ne correspond à aucun ticket en attente :
+     * l'appelant doit alors retrouver son ID en base
+     * @throws IllegalStateException si la file est pleine et que l'update ne peut pas rejoindre une insertion en attente
+     */
+    public boolean enqueueUpdate(Ticket ticket) {
+        synchronized (lock) {
+            PendingTicket pendingTicket = pendingByPlate.get(ticket.getVehicleRegNumber());
+            boolean samePendingTicket = pendingTicket != null && (ticket.getId() == 0
+                    ? pendingTicket.snapshot.getInTime().getTime() == ticket.getInTime().getTime()
+                    : pendingTicket.id == ticket.getId());
+            if (!samePendingTicket && ticket.getId() == 0) {
+                return false;
+            }
+            if (!samePendingTicket || !pendingTicket.insertQueued) {
+                // l'update ne rejoint pas une insertion en attente : il prend une place dans la file
+                checkNotFull();
+            }
+            if (!samePendingTicket) {
+                PendingTicket latest = pendingTicket;
+                pendingTicket = new PendingTicket(ticket);
+                if (latest == null || !latest.snapshot.getInTime().after(ticket.getInTime())) {
+                    pendingByPlate.put(ticket.getVehicleRegNumber(), pendingTicket);
+                }
+            }
+            pendingTicket.snapshot.setPrice(ticket.getPrice());
+            pendingTicket.snapshot.setOutTime(ticket.getOutTime());
+            if (!pendingTicket.insertQueued) {
+                // l'insertion est déjà partie (ou le ticket vient de la base) : il faut un update
+                queue.add(new PendingWrite(pendingTicket, new Ticket(pendingTicket.snapshot)));
+                pendingTicket.pendingWrites++;
+                triggerFlushIfFull();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * @return une copie du dernier état en attente du ticket de ce véhicule, ou null
+     */
+    public Ticket getPendingTicket(String vehicleRegNumber) {
+        synchronized (lock) {
+            PendingTicket pendingTicket = pendingByPlate.get(vehicleRegNumber);
+            if (pendingTicket == null) {
+                return null;
+            }
+            Ticket ticket = new Ticket(pendingTicket.snapshot);
+            ticket.setId(pendingTicket.id);
+            return ticket;
+        }
+    }
+
+    /**
+     * Nombre de passages d'un véhicule : ceux lus en base par committedCount, plus ses insertions en attente.
+     * Aucun flush ne peut commiter entre les deux lectures, une insertion est donc comptée une fois et une seule.
+     * committedCount doit déjà tenir sa connexion : un flush peut attendre la fin de la lecture.
+     */
+    public int countVisits(String vehicleRegNumber, Callable<Integer> committedCount) throws Exception {
+        commitLock.readLock().lock();
+        try {
+            int nbVisit = committedCount.call();
+            synchronized (lock) {
+                return nbVisit + pendingInsertsByPlate.getOrDefault(vehicleRegNumber, 0);
+            }
+        } finally {
+            commitLock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return queue.size();
+        }
+    }
+
+    /**
+     * Écrit en base tout ce qui est en attente. Les flushs sont sérialisés : les insertions d'un lot
+     * sont toujours commitées avant les updates qui en dépendent.
+     * Un lot refusé pour ses données (contrainte, valeur invalide) est repris écriture par écriture :
+     * celles que la base refuse sont écartées et signalées au listener, les autres sont commitées.
+     * Toute autre erreur (base injoignable) remet le lot en file pour le flush suivant.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            List<PendingWrite> batch;
+            synchronized (lock) {
+                flushRequested = false;
+                if (queue.isEmpty()) {
+                    return;
+                }
+                batch = queue;
+                queue = new ArrayList<>();
+                flushingWrites = batch.size();
+                for (PendingWrite write : batch) {
+                    if (write.isInsert()) {
+                        write.pendingTicket.insertQueued = false;
+                        write.inserted = new Ticket(write.pendingTicket.snapshot);
+                    }
+                }
+            }
+            List<Ticket> flushed = new ArrayList<>();
+            List<Ticket> rejected = new ArrayList<>();
+            Exception error = null;
+            Exception rejection = null;
+            try {
+                flushed.addAll(writeBatch(batch));
+            } catch (Exception ex) {
+                if (!isRejectedByDataBase(ex)) {
+                    logger.error("Error flushing {} queued ticket writes, will retry", batch.size(), ex);
+                    error = ex;
+                    flushed.addAll(requeue(batch));
+                } else {
+                    logger.error("Queued ticket writes rejected by DB, writing them one by one", ex);
+                    Map<PendingTicket, Boolean> rejectedTickets = new IdentityHashMap<>();
+                    for (int i = 0; i < batch.size() && error == null; i++) {
+                        PendingWrite write = batch.get(i);
+                        List<PendingWrite> single = batch.subList(i, i + 1);
+                        try {
+                            if (rejectedTickets.containsKey(write.pendingTicket)) {
+                                // l'update d'un ticket dont l'insertion a été refusée n'a pas d'ID
+                                rejected.addAll(discard(single));
+                                continue;
+                            }
+                            flushed.addAll(writeBatch(single));
+                        } catch (Exception writeEx) {
+                            if (isRejectedByDataBase(writeEx)) {
+                                logger.error("Ticket write of {} rejected by DB, discarded", write.ticket().getVehicleRegNumber(), writeEx);
+                                rejection = writeEx;
+                                rejectedTickets.put(write.pendingTicket, Boolean.TRUE);
+                                rejected.addAll(discard(single));
+                            } else {
+                                logger.error("Error flushing {} queued ticket writes, will retry", batch.size() - i, writeEx);
+                                error = writeEx;
+                                flushed.addAll(requeue(batch.subList(i, batch.size())));
+                            }
+                        }
+                    }
+                }
+            }
+            if (listener != null) {
+                try {
+                    if (!rejected.isEmpty()) {
+                        listener.onReject(rejected, rejection);
+                    }
+                    if (!flushed.isEmpty()) {
+                        listener.onFlush(flushed, error);
+                    }
+                } catch (RuntimeException ex) {
+                    logger.error("Ticket flush listener failed", ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Erreur due aux valeurs écrites (contrainte violée, donnée invalide ou trop longue) : réessayer n'y changera rien.
+     */
+    static boolean isRejectedByDataBase(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = nextCause(cause)) {
+            if (cause instanceof SQLIntegrityConstraintViolationException || cause instanceof SQLDataException
+                    || cause instanceof DataTruncation) {
+                return true;
+            }
+            if (cause instanceof SQLException) {
+                String sqlState = ((SQLException) cause).getSQLState();
+                if (sqlState != null && (sqlState.startsWith("22") || sqlState.startsWith("23"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static Throwable nextCause(Throwable ex) {
+        if (ex.getCause() != null) {
+            return ex.getCause();
+        }
+        // un lot JDBC en échec porte l'erreur de la requête fautive en exception suivante
+        return ex instanceof SQLException ? ((SQLException) ex).getNextException() : null;
+    }
+
+    /**
+     * Après le commit : IDs des tickets insérés, écritures retirées des tickets en attente.
+     *
+     * @return les tickets écrits
+     */
+    private List<Ticket> written(List<PendingWrite> writes) {
+        List<Ticket> flushed = new ArrayList<>();
+        synchronized (lock) {
+            flushingWrites -= writes.size();
+            for (PendingWrite write : writes) {
+                PendingTicket pendingTicket = write.pendingTicket;
+                Ticket written = write.ticket();
+                if (write.isInsert()) {
+                    pendingTicket.id = write.insertedId;
+                    pendingTicket.source.setId(pendingTicket.id);
+                    pendingInsertsByPlate.computeIfPresent(written.getVehicleRegNumber(), (plate, n) -> n > 1 ? n - 1 : null);
+                }
+                written.setId(pendingTicket.id);
+                flushed.add(written);
+                removeWrite(pendingTicket);
+            }
+        }
+        return flushed;
+    }
+
+    /**
+     * Écritures refusées par la base : elles ne sont plus en attente.
+     *
+     * @return les tickets écartés
+     */
+    private List<Ticket> discard(List<PendingWrite> writes) {
+        List<Ticket> discarded = new ArrayList<>();
+        synchronized (lock) {
+            flushingWrites -= writes.size();
+            for (PendingWrite write : writes) {
+                if (write.isInsert()) {
+                    pendingInsertsByPlate.computeIfPresent(write.inserted.getVehicleRegNumber(), (plate, n) -> n > 1 ? n - 1 : null);
+                }
+                discarded.add(write.ticket());
+                removeWrite(write.pendingTicket);
+            }
+        }
+        return discarded;
+    }
+
+    /**
+     * Remet les écritures en tête de file, pour le flush suivant.
+     *
+     * @return les tickets concernés
+     */
+    private List<Ticket> requeue(List<PendingWrite> writes) {
+        List<Ticket> requeued = new ArrayList<>();
+        synchronized (lock) {
+            for (PendingWrite write : writes) {
+                requeued.add(write.ticket());
+                if (write.isInsert()) {
+                    write.pendingTicket.insertQueued = true;
+                }
+            }
+            boolean hasNewWrites = !queue.isEmpty();
+            List<PendingWrite> retried = new ArrayList<>(writes);
+            retried.addAll(queue);
+            queue = retried;
+            flushingWrites -= writes.size();
+            if (hasNewWrites) {
+                // écritures arrivées pendant le flush : elles n'ont pas vu le lot, qui était hors de la file
+                triggerFlushIfFull();
+            }
+        }
+        return requeued;
+    }
+
+    private void removeWrite(PendingTicket pendingTicket) {
+        if (--pendingTicket.pendingWrites == 0 && !pendingTicket.insertQueued) {
+            pendingByPlate.remove(pendingTicket.snapshot.getVehicleRegNumber(), pendingTicket);
+        }
+    }
+
+    /**
+     * Arrête le flush périodique après une dernière écriture.
+     */
+    public void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * Écrit les écritures dans une transaction ; l'ID généré de chaque insertion est rangé dans son PendingWrite.
+     *
+     * @return les tickets écrits
+     */
+    private List<Ticket> writeBatch(List<PendingWrite> batch) throws Exception {
+        Connection con = null;
+        PreparedStatement insertPs = null;
+        PreparedStatement updatePs = null;
+        PreparedStatement visitPs = null;
+        ResultSet rs = null;
+        List<PendingWrite> inserts = new ArrayList<>();
+        for (PendingWrite write : batch) {
+            if (write.isInsert()) {
+                inserts.add(write);
+            }
+        }
+        Map<PendingTicket, Integer> insertedIds = new IdentityHashMap<>();
+        try {
+            con = dataBaseConfig.getConnection();
+            con.setAutoCommit(false);
+            if (!inserts.isEmpty()) {
+                insertPs = con.prepareStatement(DBConstants.SAVE_TICKET, Statement.RETURN_GENERATED_KEYS);
+                for (PendingWrite write : inserts) {
+                    Ticket ticket = write.inserted;
+                    insertPs.setInt(1, dataBaseConfig.getLotId());
+                    insertPs.setInt(2, ticket.getParkingSpot().getId());
+                    insertPs.setString(3, ticket.getVehicleRegNumber());
+                    insertPs.setDouble(4, ticket.getPrice());
+                    insertPs.setTimestamp(5, new Timestamp(ticket.getInTime().getTime()));
+                    insertPs.setTimestamp(6, (ticket.getOutTime() == null) ? null : (new Timestamp(ticket.getOutTime().getTime())));
+                    insertPs.addBatch();
+                }
+                insertPs.executeBatch();
+                rs = insertPs.getGeneratedKeys();
+                for (PendingWrite write : inserts) {
+                    write.insertedId = rs.next() ? rs.getInt(1) : 0;
+                    // les updates d'un ticket inséré dans ce même lot ont besoin de son ID
+                    insertedIds.put(write.pendingTicket, write.insertedId);
+                }
+                visitPs = con.prepareStatement(DBConstants.INCREMENT_NB_VISIT);
+                for (PendingWrite write : inserts) {
+                    visitPs.setInt(1, dataBaseConfig.getLotId());
+                    visitPs.setString(2, write.inserted.getVehicleRegNumber());
+                    visitPs.addBatch();
+                }
+                visitPs.executeBatch();
+            }
+            for (PendingWrite write : batch) {
+                if (write.isInsert()) {
+                    continue;
+                }
+                int id = insertedIds.getOrDefault(write.pendingTicket, write.pendingTicket.id);
+                if (updatePs == null) {
+                    updatePs = con.prepareStatement(DBConstants.UPDATE_TICKET);
+                }
+                updatePs.setDouble(1, write.values.getPrice());
+                updatePs.setTimestamp(2, new Timestamp(write.values.getOutTime().getTime()));
+                updatePs.setInt(3, id);
+                updatePs.addBatch();
+            }
+            if (updatePs != null) {
+                updatePs.executeBatch();
+            }
+            // les insertions quittent la file au moment où elles sont visibles en base, pas entre les deux
+            commitLock.writeLock().lock();
+            try {
+                con.commit();
+                return written(batch);
+            } finally {
+                commitLock.writeLock().unlock();
+            }
+        } catch (Exception ex) {
+            if (con != null) {
+                con.rollback();
+            }
+            throw ex;
+        } finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(insertPs);
+            dataBaseConfig.closePreparedStatement(updatePs);
+            dataBaseConfig.closePreparedStatement(visitPs);
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private void checkNotFull() {
+        if (queue.size() + flushingWrites >= maxQueuedWrites) {
+            throw new IllegalStateException("Ticket write-behind queue is full (" + maxQueuedWrites + " writes)");
+        }
+    }
+
+    private void triggerFlushIfFull() {
+        // >= : après un flush en échec, la file remise en attente dépasse déjà batchSize
+        if (queue.size() >= batchSize && !flushRequested) {
+            flushRequested = true;
+            flusher.execute(this::flush);
+        }
+    }
+
+    /**
+     * Dernier état connu d'un ticket, qu'il soit déjà en base ou non.
+     */
+    private static final class PendingTicket {
+        private final Ticket source;
+        private final Ticket snapshot;
+        private volatile int id;
+        private boolean insertQueued;
+        private int pendingWrites;
+
+        private PendingTicket(Ticket source) {
+            this.source = source;
+            this.snapshot = new Ticket(source);
+            this.id = source.getId();
+        }
+    }
+
+    private static final class PendingWrite {
+        private final PendingTicket pendingTicket;
+        private final Ticket values;
+        // insertion : valeurs prises au début du flush, puis ID généré
+        private Ticket inserted;
+        private int insertedId;
+
+        /**
+         * @param values valeurs de l'update, null pour une insertion
+         */
+        private PendingWrite(PendingTicket pendingTicket, Ticket values) {
+            this.pendingTicket = pendingTicket;
+            this.values = values;
+        }
+
+        private boolean isInsert() {
+            return values == null;
+        }
+
+        private Ticket ticket() {
+            return isInsert() ? inserted : values;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * Une entrée ou une sortie complète dans une seule transaction : tout est enregistré par {@link #commit()},
+ * ou rien si une opération échoue ou si l'unité est fermée sans commit.
+ * Mêmes opérations que {@link ParkingSpotStore} et {@link TicketStore}, erreurs signalées de la même façon.
+ * Une unité sert à un seul guichet, pour une seule opération.
+ */
+public interface UnitOfWork extends AutoCloseable {
+
+    /**
+     * @return la place réservée (non disponible), ou null si le parking est complet ou en cas d'erreur
+     */
+    ParkingSpot claimNextAvailableSlot(ParkingType parkingType);
+
+    boolean saveTicket(Ticket ticket);
+
+    /**
+     * @return le dernier ticket du véhicule, ou null
+     */
+    Ticket getTicket(String vehicleRegNumber);
+
+    int getNbTicket(String vehicleRegNumber);
+
+    boolean updateTicket(Ticket ticket);
+
+    boolean updateParking(ParkingSpot parkingSpot);
+
+    /**
+     * @return false si une opération de l'unité a échoué ou si le commit a échoué : rien n'est alors enregistré
+     */
+    boolean commit();
+
+    /**
+     * Annule ce qui n'a pas été commité.
+     */
+    @Override
+    void close();
+}
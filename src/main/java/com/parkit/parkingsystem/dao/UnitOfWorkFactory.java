@@ -0,0 +1,13 @@
+package com.parkit.parkingsystem.dao;
+
+/**
+ * Ouvre les {@link UnitOfWork} de ParkingService.
+ */
+@FunctionalInterface
+public interface UnitOfWorkFactory {
+
+    /**
+     * @return une nouvelle unité, ou null si les opérations doivent passer par les stores un appel à la fois
+     */
+    UnitOfWork begin();
+}
@@ -0,0 +1,15 @@
+package com.parkit.parkingsystem.dao;
+
+/**
+ * Reçoit les tickets lus en flux par {@link TicketHistoryDAO#scanTicketsByVehicle}, groupés par véhicule
+ * et dans l'ordre d'entrée.
+ */
+public interface VehicleTicketHandler {
+
+    /**
+     * @param inTime  heure d'entrée en millisecondes
+     * @param outTime heure de sortie en millisecondes, 0 pour un ticket en cours
+     * @throws Exception pour interrompre la lecture
+     */
+    void onTicket(String vehicleRegNumber, int parkingNumber, long inTime, long outTime) throws Exception;
+}
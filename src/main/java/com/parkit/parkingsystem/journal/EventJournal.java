@@ -0,0 +1,215 @@
+package com.parkit.parkingsystem.journal;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Journal append-only d'événements de guichet, projeté en mémoire (memory-mapped) sur un fichier local.
+ * Un ajout est une simple écriture en mémoire, sans appel système : le fichier survit à l'arrêt du processus,
+ * {@link #force()} le rend durable en cas de coupure de la machine.
+ * <p>
+ * Format : un en-tête de 64 octets (magic, version, checkpoint, séquence de départ) puis des enregistrements de 64 octets.
+ * Le numéro de séquence de l'enregistrement est écrit en dernier : un enregistrement à moitié écrit
+ * (séquence 0 ou non consécutive) marque la fin du journal.
+ * Le checkpoint est la séquence du dernier événement rejoué en base : le rejeu reprend juste après.
+ */
+public class EventJournal implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("EventJournal");
+
+    static final int HEADER_SIZE = 64;
+    static final int RECORD_SIZE = 64;
+
+    private static final int MAGIC = 0x504B4A31; // "PKJ1"
+    private static final int VERSION = 1;
+    private static final int HEADER_CHECKPOINT = 8;
+    private static final int HEADER_BASE_SEQUENCE = 16;
+
+    private static final int SEQUENCE = 0;
+    private static final int IN_TIME = 8;
+    private static final int OUT_TIME = 16;
+    private static final int PRICE = 24;
+    private static final int PARKING_NUMBER = 32;
+    private static final int TYPE = 36;
+    private static final int PARKING_TYPE = 37;
+    private static final int PLATE_LENGTH = 38;
+    private static final int PLATE = 39;
+
+    // la plaque occupe la fin de l'enregistrement
+    static final int MAX_PLATE_LENGTH = RECORD_SIZE - PLATE;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+
+    private int size;
+    private long baseSequence;
+    private long lastSequence;
+    private long checkpoint;
+
+    /**
+     * Ouvre le journal, ou le crée s'il n'existe pas.
+     *
+     * @param capacity nombre maximal d'événements en attente de rejeu
+     */
+    public EventJournal(Path file, int capacity) throws IOException {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Journal capacity must be positive : " + capacity);
+        }
+        this.capacity = capacity;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long fileSize = HEADER_SIZE + (long) capacity * RECORD_SIZE;
+        if (channel.size() > fileSize) {
+            channel.close();
+            throw new IllegalArgumentException("Journal " + file + " is larger than a capacity of " + capacity);
+        }
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+        if (buffer.getInt(0) == 0) {
+            buffer.putInt(4, VERSION);
+            buffer.putLong(HEADER_CHECKPOINT, 0);
+            buffer.putLong(HEADER_BASE_SEQUENCE, 0);
+            buffer.putInt(0, MAGIC);
+        } else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            channel.close();
+            throw new IllegalArgumentException("Unsupported journal file " + file);
+        }
+        checkpoint = buffer.getLong(HEADER_CHECKPOINT);
+        baseSequence = buffer.getLong(HEADER_BASE_SEQUENCE);
+        lastSequence = baseSequence;
+        // le premier enregistrement porte la séquence baseSequence + 1 : la fin est le premier trou
+        while (size < capacity && buffer.getLong(offset(size) + SEQUENCE) == lastSequence + 1) {
+            lastSequence++;
+            size++;
+        }
+        logger.info("Journal {} opened with {} events, {} to replay", file, size, lastSequence - checkpoint);
+    }
+
+    /**
+     * @return la séquence attribuée à l'événement
+     * @throws IllegalStateException si le journal est plein
+     */
+    public synchronized long append(JournalEvent event) {
+        byte[] plate = event.getVehicleRegNumber().getBytes(StandardCharsets.UTF_8);
+        if (plate.length > MAX_PLATE_LENGTH) {
+            throw new IllegalArgumentException("Vehicle registration number too long : " + event.getVehicleRegNumber());
+        }
+        if (size == capacity) {
+            throw new IllegalStateException("Event journal is full (" + capacity + " events)");
+        }
+        int offset = offset(size);
+        buffer.putLong(offset + IN_TIME, event.getInTime());
+        buffer.putLong(offset + OUT_TIME, event.getOutTime());
+        buffer.putLong(offset + PRICE, event.getPriceInCents());
+        buffer.putInt(offset + PARKING_NUMBER, event.getParkingNumber());
+        buffer.put(offset + TYPE, (byte) event.getType().ordinal());
+        buffer.put(offset + PARKING_TYPE, (byte) event.getParkingType().ordinal());
+        buffer.put(offset + PLATE_LENGTH, (byte) plate.length);
+        for (int i = 0; i < plate.length; i++) {
+            buffer.put(offset + PLATE + i, plate[i]);
+        }
+        buffer.putLong(offset + SEQUENCE, lastSequence + 1);
+        size++;
+        return ++lastSequence;
+    }
+
+    /**
+     * Rejoue dans l'ordre les événements postérieurs au checkpoint, qui avance après chaque événement appliqué.
+     * S'arrête au premier échec : l'événement sera représenté au prochain rejeu, le handler doit donc être idempotent.
+     *
+     * @return true si tout le journal a été rejoué
+     */
+    public boolean replay(JournalEventHandler handler) {
+        while (true) {
+            JournalEvent event;
+            synchronized (this) {
+                if (checkpoint == lastSequence) {
+                    return true;
+                }
+                event = read((int) (checkpoint - baseSequence));
+            }
+            try {
+                handler.apply(event);
+            } catch (Exception e) {
+                logger.error("Unable to replay journal event {}", event, e);
+                return false;
+            }
+            synchronized (this) {
+                checkpoint = event.getSequence();
+                buffer.putLong(HEADER_CHECKPOINT, checkpoint);
+            }
+        }
+    }
+
+    /**
+     * Vide un journal entièrement rejoué : les séquences continuent après le checkpoint.
+     *
+     * @return false s'il reste des événements à rejouer
+     */
+    public synchronized boolean clear() {
+        if (checkpoint != lastSequence) {
+            return false;
+        }
+        // la séquence de départ est écrite avant d'effacer : un vidage interrompu laisse un journal vide
+        baseSequence = lastSequence;
+        buffer.putLong(HEADER_BASE_SEQUENCE, baseSequence);
+        for (int i = 0; i < size; i++) {
+            buffer.putLong(offset(i) + SEQUENCE, 0);
+        }
+        size = 0;
+        force();
+        return true;
+    }
+
+    public synchronized long getPendingCount() {
+        return lastSequence - checkpoint;
+    }
+
+    public synchronized long getCheckpoint() {
+        return checkpoint;
+    }
+
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Écrit sur disque les pages modifiées.
+     */
+    public synchronized void force() {
+        buffer.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private JournalEvent read(int index) {
+        int offset = offset(index);
+        byte[] plate = new byte[buffer.get(offset + PLATE_LENGTH)];
+        for (int i = 0; i < plate.length; i++) {
+            plate[i] = buffer.get(offset + PLATE + i);
+        }
+        return new JournalEvent(buffer.getLong(offset + SEQUENCE),
+                JournalEvent.Type.values()[buffer.get(offset + TYPE)],
+                new String(plate, StandardCharsets.UTF_8),
+                buffer.getInt(offset + PARKING_NUMBER),
+                ParkingType.values()[buffer.get(offset + PARKING_TYPE)],
+                buffer.getLong(offset + IN_TIME),
+                buffer.getLong(offset + OUT_TIME),
+                buffer.getLong(offset + PRICE));
+    }
+
+    private static int offset(int index) {
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+}
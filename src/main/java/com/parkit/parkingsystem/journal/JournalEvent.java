@@ -0,0 +1,86 @@
+package com.parkit.parkingsystem.journal;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+/**
+ * Entrée ou sortie de véhicule enregistrée dans l'{@link EventJournal} pendant le mode hors ligne.
+ */
+public class JournalEvent {
+
+    public enum Type {
+        ENTRY, EXIT
+    }
+
+    private final long sequence;
+    private final Type type;
+    private final String vehicleRegNumber;
+    private final int parkingNumber;
+    private final ParkingType parkingType;
+    private final long inTime;
+    private final long outTime;
+    private final long priceInCents;
+
+    JournalEvent(long sequence, Type type, String vehicleRegNumber, int parkingNumber, ParkingType parkingType,
+                 long inTime, long outTime, long priceInCents) {
+        this.sequence = sequence;
+        this.type = type;
+        this.vehicleRegNumber = vehicleRegNumber;
+        this.parkingNumber = parkingNumber;
+        this.parkingType = parkingType;
+        this.inTime = inTime;
+        this.outTime = outTime;
+        this.priceInCents = priceInCents;
+    }
+
+    public static JournalEvent entry(String vehicleRegNumber, int parkingNumber, ParkingType parkingType, long inTime) {
+        return new JournalEvent(0, Type.ENTRY, vehicleRegNumber, parkingNumber, parkingType, inTime, 0, 0);
+    }
+
+    /**
+     * @param inTime heure d'entrée du ticket clôturé, qui l'identifie au rejeu
+     */
+    public static JournalEvent exit(String vehicleRegNumber, int parkingNumber, ParkingType parkingType,
+                                    long inTime, long outTime, long priceInCents) {
+        return new JournalEvent(0, Type.EXIT, vehicleRegNumber, parkingNumber, parkingType, inTime, outTime, priceInCents);
+    }
+
+    /**
+     * @return numéro d'ordre dans le journal, 0 pour un événement pas encore écrit
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    public int getParkingNumber() {
+        return parkingNumber;
+    }
+
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    public long getInTime() {
+        return inTime;
+    }
+
+    public long getOutTime() {
+        return outTime;
+    }
+
+    public long getPriceInCents() {
+        return priceInCents;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + sequence + " " + type + " " + vehicleRegNumber + " spot " + parkingNumber;
+    }
+}
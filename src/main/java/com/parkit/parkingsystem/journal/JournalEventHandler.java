@@ -0,0 +1,14 @@
+package com.parkit.parkingsystem.journal;
+
+/**
+ * Applique en base un événement rejoué depuis l'{@link EventJournal}.
+ */
+public interface JournalEventHandler {
+
+    /**
+     * Doit être idempotent : un événement appliqué juste avant un arrêt peut être représenté.
+     *
+     * @throws Exception pour interrompre le rejeu, qui reprendra à cet événement
+     */
+    void apply(JournalEvent event) throws Exception;
+}
@@ -0,0 +1,9 @@
+package com.parkit.parkingsystem.metrics;
+
+/**
+ * Vue JMX d'un {@link Counter}.
+ */
+public interface CounterMXBean {
+
+    long getCount();
+}
@@ -0,0 +1,19 @@
+package com.parkit.parkingsystem.metrics;
+
+/**
+ * Vue JMX d'un {@link LatencyHistogram}, en microsecondes.
+ */
+public interface LatencyHistogramMXBean {
+
+    long getCount();
+
+    double getMeanMicros();
+
+    double getMaxMicros();
+
+    double get50thPercentileMicros();
+
+    double get99thPercentileMicros();
+
+    double get999thPercentileMicros();
+}
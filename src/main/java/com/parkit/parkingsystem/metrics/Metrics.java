@@ -0,0 +1,126 @@
+package com.parkit.parkingsystem.metrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Registre des métriques de l'application, publiées en JMX sous le domaine com.parkit.parkingsystem.
+ * Les histogrammes et compteurs sont créés une fois puis gardés dans des champs static final :
+ * l'enregistrement d'une mesure ne passe pas par le registre.
+ */
+public final class Metrics {
+
+    private static final Logger logger = LogManager.getLogger("Metrics");
+
+    static final String DOMAIN = "com.parkit.parkingsystem";
+
+    private static final Map<String, LatencyHistogram> histograms = new ConcurrentSkipListMap<>();
+    private static final Map<String, Counter> counters = new ConcurrentSkipListMap<>();
+    private static final Map<String, Object> others = new ConcurrentSkipListMap<>();
+
+    private Metrics() {
+    }
+
+    public static LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> {
+            LatencyHistogram histogram = new LatencyHistogram(n);
+            registerMBean("Latency", n, histogram);
+            return histogram;
+        });
+    }
+
+    public static Counter counter(String name) {
+        return counters.computeIfAbsent(name, n -> {
+            Counter counter = new Counter(n);
+            registerMBean("Counter", n, counter);
+            return counter;
+        });
+    }
+
+    /**
+     * Publie un autre MBean (pool de connexions...) ; son toString() est repris dans {@link #dump()}.
+     */
+    public static void register(String type, String name, Object mbean) {
+        if (registerMBean(type, name, mbean)) {
+            others.put(type + "." + name, mbean);
+        }
+    }
+
+    public static void unregister(String type, String name) {
+        others.remove(type + "." + name);
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = objectName(type, name);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            logger.error("Unable to unregister MBean {} {}", type, name, e);
+        }
+    }
+
+    public static Map<String, LatencyHistogram> getHistograms() {
+        return histograms;
+    }
+
+    public static Map<String, Counter> getCounters() {
+        return counters;
+    }
+
+    /**
+     * Remet à zéro histogrammes et compteurs, sans les retirer du registre.
+     */
+    public static void reset() {
+        histograms.values().forEach(LatencyHistogram::reset);
+        counters.values().forEach(Counter::reset);
+    }
+
+    /**
+     * @return l'état de toutes les métriques, une ligne par métrique
+     */
+    public static String dump() {
+        StringBuilder sb = new StringBuilder();
+        for (LatencyHistogram histogram : histograms.values()) {
+            if (histogram.getCount() == 0) {
+                continue;
+            }
+            sb.append(String.format("%-40s count=%d mean=%.1fus p50=%.1fus p99=%.1fus p999=%.1fus max=%.1fus%n",
+                    histogram.getName(), histogram.getCount(), histogram.getMeanMicros(),
+                    histogram.get50thPercentileMicros(), histogram.get99thPercentileMicros(),
+                    histogram.get999thPercentileMicros(), histogram.getMaxMicros()));
+        }
+        for (Counter counter : counters.values()) {
+            sb.append(String.format("%-40s count=%d%n", counter.getName(), counter.getCount()));
+        }
+        for (Map.Entry<String, Object> other : others.entrySet()) {
+            sb.append(String.format("%-40s %s%n", other.getKey(), other.getValue()));
+        }
+        return sb.toString();
+    }
+
+    private static boolean registerMBean(String type, String name, Object mbean) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = objectName(type, name);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(mbean, objectName);
+            return true;
+        } catch (JMException e) {
+            logger.error("Unable to register MBean {} {}", type, name, e);
+            return false;
+        }
+    }
+
+    static ObjectName objectName(String type, String name) throws JMException {
+        return new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+    }
+}
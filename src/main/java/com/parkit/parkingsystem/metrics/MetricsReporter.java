@@ -0,0 +1,60 @@
+package com.parkit.parkingsystem.metrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Écrit périodiquement {@link Metrics#dump()} dans le log, avec le débit de chaque compteur depuis le dump précédent.
+ */
+public class MetricsReporter {
+
+    private static final Logger logger = LogManager.getLogger("MetricsReporter");
+
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, Long> previousCounts = new HashMap<>();
+    private long previousNanos = System.nanoTime();
+
+    public MetricsReporter(long periodSeconds) {
+        if (periodSeconds <= 0) {
+            throw new IllegalArgumentException("Report period must be positive : " + periodSeconds);
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::report, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    public synchronized void report() {
+        try {
+            long now = System.nanoTime();
+            double seconds = (now - previousNanos) / 1e9;
+            previousNanos = now;
+            StringBuilder sb = new StringBuilder("Metrics").append(System.lineSeparator()).append(Metrics.dump());
+            for (Counter counter : Metrics.getCounters().values()) {
+                long count = counter.getCount();
+                Long previous = previousCounts.put(counter.getName(), count);
+                long delta = count - ((previous == null) ? 0 : previous);
+                sb.append(String.format("%-40s %.1f/s%n", counter.getName() + ".rate", delta / seconds));
+            }
+            logger.info(sb.toString());
+        } catch (RuntimeException e) {
+            logger.error("Unable to report metrics", e);
+        }
+    }
+
+    /**
+     * Arrête le dump périodique après un dernier rapport.
+     */
+    public void close() {
+        scheduler.shutdown();
+        report();
+    }
+}
@@ -10,6 +10,21 @@ public class Ticket {
     private Date inTime;
     private Date outTime;
 
+    public Ticket() {
+    }
+
+    /**
+     * Copie du ticket ; la place de parking est partagée, les dates sont copiées.
+     */
+    public Ticket(Ticket ticket) {
+        this.id = ticket.id;
+        this.parkingSpot = ticket.parkingSpot;
+        this.vehicleRegNumber = ticket.vehicleRegNumber;
+        this.price = ticket.price;
+        this.inTime = (ticket.inTime == null) ? null : new Date(ticket.inTime.getTime());
+        this.outTime = (ticket.outTime == null) ? null : new Date(ticket.outTime.getTime());
+    }
+
     public int getId() {
         return id;
     }
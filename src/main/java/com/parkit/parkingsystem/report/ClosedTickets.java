@@ -0,0 +1,30 @@
+package com.parkit.parkingsystem.report;
+
+import java.util.Arrays;
+
+/**
+ * Stationnements terminés, en colonnes de types primitifs : la forme attendue par FareCalculatorService.sumFares.
+ */
+final class ClosedTickets {
+
+    long[] inTimes = new long[1024];
+    long[] outTimes = new long[1024];
+    byte[] parkingTypes = new byte[1024];
+    boolean[] discounts = new boolean[1024];
+    int size;
+
+    void add(int parkingType, long inTime, long outTime, boolean discount) {
+        if (size == inTimes.length) {
+            int capacity = size * 2;
+            inTimes = Arrays.copyOf(inTimes, capacity);
+            outTimes = Arrays.copyOf(outTimes, capacity);
+            parkingTypes = Arrays.copyOf(parkingTypes, capacity);
+            discounts = Arrays.copyOf(discounts, capacity);
+        }
+        inTimes[size] = inTime;
+        outTimes[size] = outTime;
+        parkingTypes[size] = (byte) parkingType;
+        discounts[size] = discount;
+        size++;
+    }
+}
@@ -0,0 +1,94 @@
+package com.parkit.parkingsystem.report;
+
+import java.util.Arrays;
+
+/**
+ * Agrégats d'un thread de calcul, en tableaux de types primitifs dimensionnés par la période du rapport
+ * (et non par le nombre de tickets). Les accumulateurs des threads sont fusionnés à la fin.
+ */
+final class ReportAccumulator {
+
+    static final long MINUTE = 60_000;
+
+    private final int nbTypes;
+    private final long from;
+    private final long to;
+    private final long openTicketEnd;
+    /**
+     * Début de chaque jour de la période, puis sa fin.
+     */
+    private final long[] dayStarts;
+    private final int nbMinutes;
+
+    /**
+     * Recette par jour de sortie et par type de place : [jour * nbTypes + type].
+     */
+    final long[] revenueInCents;
+    final long[] dwellMillis;
+    final long[] closedTickets;
+    /**
+     * Entrées (+1) et sorties (-1) par minute de la période et par type de place : [type * (nbMinutes + 1) + minute].
+     */
+    final int[] occupancyDeltas;
+    long tickets;
+
+    /**
+     * @param openTicketEnd fin d'occupation retenue pour les tickets en cours
+     */
+    ReportAccumulator(int nbTypes, long[] dayStarts, long openTicketEnd) {
+        this.nbTypes = nbTypes;
+        this.dayStarts = dayStarts;
+        this.from = dayStarts[0];
+        this.to = dayStarts[dayStarts.length - 1];
+        this.openTicketEnd = Math.min(openTicketEnd, to);
+        this.nbMinutes = (int) ((to - from + MINUTE - 1) / MINUTE);
+        int nbDays = dayStarts.length - 1;
+        revenueInCents = new long[nbDays * nbTypes];
+        dwellMillis = new long[nbTypes];
+        closedTickets = new long[nbTypes];
+        occupancyDeltas = new int[nbTypes * (nbMinutes + 1)];
+    }
+
+    void add(TicketBatch batch) {
+        for (int i = 0; i < batch.size; i++) {
+            int type = batch.parkingTypes[i];
+            long inTime = batch.inTimes[i];
+            long outTime = batch.outTimes[i];
+            tickets++;
+            if (outTime != 0 && outTime >= from && outTime < to) {
+                int day = Arrays.binarySearch(dayStarts, outTime);
+                day = (day >= 0) ? day : -day - 2;
+                revenueInCents[day * nbTypes + type] += batch.pricesInCents[i];
+                dwellMillis[type] += outTime - inTime;
+                closedTickets[type]++;
+            }
+            // occupation à la minute : le véhicule compte de la minute de son entrée à celle de sa sortie (exclue)
+            long occupiedUntil = (outTime == 0) ? openTicketEnd : Math.min(outTime, to);
+            int firstMinute = (int) ((Math.max(inTime, from) - from) / MINUTE);
+            int lastMinute = (int) ((occupiedUntil - from) / MINUTE);
+            if (lastMinute > firstMinute) {
+                int offset = type * (nbMinutes + 1);
+                occupancyDeltas[offset + firstMinute]++;
+                occupancyDeltas[offset + lastMinute]--;
+            }
+        }
+    }
+
+    void merge(ReportAccumulator other) {
+        for (int i = 0; i < revenueInCents.length; i++) {
+            revenueInCents[i] += other.revenueInCents[i];
+        }
+        for (int i = 0; i < nbTypes; i++) {
+            dwellMillis[i] += other.dwellMillis[i];
+            closedTickets[i] += other.closedTickets[i];
+        }
+        for (int i = 0; i < occupancyDeltas.length; i++) {
+            occupancyDeltas[i] += other.occupancyDeltas[i];
+        }
+        tickets += other.tickets;
+    }
+
+    int getNbMinutes() {
+        return nbMinutes;
+    }
+}
@@ -0,0 +1,107 @@
+package com.parkit.parkingsystem.report;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.tariff.Tariff;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Recette qu'auraient rapportée les stationnements d'une période avec chaque tarif.
+ * Le premier tarif est la référence : les écarts des autres sont calculés par rapport à lui.
+ */
+public final class TariffSimulation {
+
+    private static final ParkingType[] TYPES = ParkingType.values();
+
+    private final LocalDate firstDay;
+    private final LocalDate lastDay;
+    private final List<Tariff> tariffs;
+    // [tarif][ParkingType.ordinal()]
+    private final long[][] revenueInCents;
+    private final int ticketCount;
+    private final long elapsedNanos;
+
+    TariffSimulation(LocalDate firstDay, LocalDate lastDay, List<Tariff> tariffs, long[][] revenueInCents, int ticketCount, long elapsedNanos) {
+        this.firstDay = firstDay;
+        this.lastDay = lastDay;
+        this.tariffs = tariffs;
+        this.revenueInCents = revenueInCents;
+        this.ticketCount = ticketCount;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public List<Tariff> getTariffs() {
+        return tariffs;
+    }
+
+    /**
+     * @return le nombre de stationnements terminés pendant la période
+     */
+    public int getTicketCount() {
+        return ticketCount;
+    }
+
+    public long getRevenueInCents(int tariffIndex, ParkingType parkingType) {
+        return revenueInCents[tariffIndex][parkingType.ordinal()];
+    }
+
+    public long getRevenueInCents(int tariffIndex) {
+        long revenue = 0;
+        for (long typeRevenue : revenueInCents[tariffIndex]) {
+            revenue += typeRevenue;
+        }
+        return revenue;
+    }
+
+    /**
+     * @return l'écart de recette avec le tarif de référence
+     */
+    public long getDeltaInCents(int tariffIndex) {
+        return getRevenueInCents(tariffIndex) - getRevenueInCents(0);
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Une ligne par tarif, montants en euros avec deux décimales.
+     */
+    public void writeCsv(Appendable out) throws IOException {
+        out.append("tariff");
+        for (ParkingType parkingType : TYPES) {
+            out.append(',').append(parkingType.name().toLowerCase(Locale.ROOT)).append("_revenue");
+        }
+        out.append(",total_revenue,delta,delta_percent\n");
+        long baseline = getRevenueInCents(0);
+        for (int t = 0; t < tariffs.size(); t++) {
+            out.append(tariffs.get(t).getName());
+            for (int type = 0; type < TYPES.length; type++) {
+                out.append(',').append(toAmount(revenueInCents[t][type]));
+            }
+            long delta = getDeltaInCents(t);
+            out.append(',').append(toAmount(getRevenueInCents(t)))
+                    .append(',').append(toAmount(delta))
+                    .append(',').append((baseline == 0) ? "" : String.format(Locale.ROOT, "%.2f", delta * 100.0 / baseline))
+                    .append('\n');
+        }
+    }
+
+    private static String toAmount(long cents) {
+        return String.format(Locale.ROOT, "%s%d.%02d", (cents < 0) ? "-" : "", Math.abs(cents) / 100, Math.abs(cents) % 100);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Tariff simulation from %s to %s : %d tickets, %d tariffs computed in %d ms%n",
+                firstDay, lastDay, ticketCount, tariffs.size(), elapsedNanos / 1_000_000));
+        for (int t = 0; t < tariffs.size(); t++) {
+            sb.append(String.format("%-20s %12s %12s%n", tariffs.get(t).getName(), toAmount(getRevenueInCents(t)), toAmount(getDeltaInCents(t))));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,218 @@
+package com.parkit.parkingsystem.report;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketHistoryDAO;
+import com.parkit.parkingsystem.dao.VehicleTicketHandler;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.tariff.FlatTariff;
+import com.parkit.parkingsystem.tariff.Tariff;
+import com.parkit.parkingsystem.tariff.Tariffs;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Rejoue les stationnements terminés d'une période avec des tarifs candidats, pour comparer leur recette
+ * à celle du tarif courant avant de le changer.
+ * Les tickets sont lus une fois, en flux, dans des tableaux de types primitifs ; les prix sont recalculés
+ * par FareCalculatorService, par tranches réparties entre les coeurs (fork/join).
+ * La remise est celle de ParkingService : un véhicule déjà venu dans le parking en bénéficie.
+ */
+public class TariffSimulationService {
+
+    private static final Logger logger = LogManager.getLogger("TariffSimulationService");
+
+    private static final LatencyHistogram SIMULATE_LATENCY = Metrics.histogram("TariffSimulationService.simulate");
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private static final int NB_TYPES = ParkingType.values().length;
+
+    // une tranche plus petite n'est plus redivisée
+    static final int MIN_SLICE_SIZE = 1024;
+
+    private final ParkingSpotDAO parkingSpotDAO;
+    private final TicketHistoryDAO ticketHistoryDAO;
+    private final int parallelism;
+
+    public TariffSimulationService(ParkingSpotDAO parkingSpotDAO, TicketHistoryDAO ticketHistoryDAO) {
+        this(parkingSpotDAO, ticketHistoryDAO, Runtime.getRuntime().availableProcessors());
+    }
+
+    public TariffSimulationService(ParkingSpotDAO parkingSpotDAO, TicketHistoryDAO ticketHistoryDAO, int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive : " + parallelism);
+        }
+        this.parkingSpotDAO = parkingSpotDAO;
+        this.ticketHistoryDAO = ticketHistoryDAO;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Point d'entrée de App --simulate : lit les tarifs candidats, simule la période sur la base configurée
+     * et écrit le résultat en CSV dans le fichier donné, ou sur la sortie standard.
+     */
+    public static void printSimulation(String tariffsFile, String firstDay, String lastDay, String csvFile) {
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        TicketHistoryDAO ticketHistoryDAO = new TicketHistoryDAO();
+        try {
+            List<Tariff> tariffs = Tariffs.load(Paths.get(tariffsFile), ZONE);
+            TariffSimulation simulation = new TariffSimulationService(parkingSpotDAO, ticketHistoryDAO)
+                    .simulate(LocalDate.parse(firstDay), LocalDate.parse(lastDay), tariffs);
+            System.out.print(simulation);
+            if (csvFile == null) {
+                simulation.writeCsv(System.out);
+            } else {
+                try (Writer writer = Files.newBufferedWriter(Paths.get(csvFile), StandardCharsets.UTF_8)) {
+                    simulation.writeCsv(writer);
+                }
+            }
+        } catch (DateTimeException | IllegalArgumentException e) {
+            System.out.println("Invalid simulation, expected --simulate tariffs.properties yyyy-MM-dd yyyy-MM-dd [out.csv] : " + e.getMessage());
+        } catch (IOException e) {
+            logger.error("Unable to read tariffs or write simulation", e);
+            System.out.println("Unable to read tariffs or write simulation : " + e.getMessage());
+        } catch (Exception e) {
+            logger.error("Unable to simulate tariffs", e);
+            System.out.println("Unable to simulate tariffs. Error occurred");
+        } finally {
+            parkingSpotDAO.dataBaseConfig.closePool();
+        }
+    }
+
+    /**
+     * @param firstDay   premier jour de la période
+     * @param lastDay    dernier jour de la période, inclus
+     * @param candidates tarifs comparés au tarif courant, {@link FlatTariff#CURRENT}
+     * @return la simulation, le tarif courant en premier
+     */
+    public TariffSimulation simulate(LocalDate firstDay, LocalDate lastDay, List<Tariff> candidates) throws Exception {
+        if (lastDay.isBefore(firstDay)) {
+            throw new IllegalArgumentException("Last day " + lastDay + " is before first day " + firstDay);
+        }
+        long start = System.nanoTime();
+        try {
+            List<Tariff> tariffs = new ArrayList<>();
+            tariffs.add(FlatTariff.CURRENT);
+            tariffs.addAll(candidates);
+            long from = firstDay.atStartOfDay(ZONE).toInstant().toEpochMilli();
+            long to = lastDay.plusDays(1).atStartOfDay(ZONE).toInstant().toEpochMilli();
+
+            ClosedTicketLoader loader = new ClosedTicketLoader(TicketReportService.readSpotTypes(parkingSpotDAO), from, to);
+            if (!ticketHistoryDAO.scanTicketsByVehicle(to, loader)) {
+                throw new Exception("Unable to read ticket history");
+            }
+            ClosedTickets tickets = loader.tickets;
+
+            FareCalculatorService[] fareCalculatorServices = new FareCalculatorService[tariffs.size()];
+            for (int t = 0; t < fareCalculatorServices.length; t++) {
+                fareCalculatorServices[t] = new FareCalculatorService(tariffs.get(t));
+            }
+            // environ 4 tranches par thread, pour que les threads en avance prennent le travail des autres
+            int sliceSize = Math.max(MIN_SLICE_SIZE, tickets.size / (4 * parallelism));
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            long[][] revenueInCents;
+            try {
+                revenueInCents = pool.invoke(new FareTask(tickets, fareCalculatorServices, sliceSize, 0, tickets.size));
+            } finally {
+                pool.shutdown();
+            }
+            TariffSimulation simulation = new TariffSimulation(firstDay, lastDay, tariffs, revenueInCents, tickets.size, System.nanoTime() - start);
+            logger.info("Simulated {} tariffs over {} tickets in {} ms", tariffs.size(), tickets.size, simulation.getElapsedNanos() / 1_000_000);
+            return simulation;
+        } finally {
+            SIMULATE_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * Garde les tickets sortis pendant la période ; un ticket a droit à la remise s'il n'est pas
+     * le premier de son véhicule.
+     */
+    private static final class ClosedTicketLoader implements VehicleTicketHandler {
+        private final byte[] spotTypes;
+        private final long from;
+        private final long to;
+        private final ClosedTickets tickets = new ClosedTickets();
+        private String previousVehicle;
+
+        private ClosedTicketLoader(byte[] spotTypes, long from, long to) {
+            this.spotTypes = spotTypes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public void onTicket(String vehicleRegNumber, int parkingNumber, long inTime, long outTime) {
+            boolean discount = vehicleRegNumber.equals(previousVehicle);
+            previousVehicle = vehicleRegNumber;
+            if (outTime == 0 || outTime < from || outTime >= to) {
+                return;
+            }
+            int parkingType = (parkingNumber < spotTypes.length) ? spotTypes[parkingNumber] : -1;
+            if (parkingType < 0) {
+                throw new IllegalStateException("Ticket on unknown parking spot " + parkingNumber);
+            }
+            tickets.add(parkingType, inTime, outTime, discount);
+        }
+    }
+
+    /**
+     * Recette de chaque tarif sur les tickets de from (inclus) à to (exclu), par type de place.
+     */
+    private static final class FareTask extends RecursiveTask<long[][]> {
+        private static final long serialVersionUID = 1L;
+
+        private final ClosedTickets tickets;
+        private final FareCalculatorService[] fareCalculatorServices;
+        private final int sliceSize;
+        private final int from;
+        private final int to;
+
+        private FareTask(ClosedTickets tickets, FareCalculatorService[] fareCalculatorServices, int sliceSize, int from, int to) {
+            this.tickets = tickets;
+            this.fareCalculatorServices = fareCalculatorServices;
+            this.sliceSize = sliceSize;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[][] compute() {
+            if (to - from <= sliceSize) {
+                long[][] revenueInCents = new long[fareCalculatorServices.length][NB_TYPES];
+                for (int t = 0; t < fareCalculatorServices.length; t++) {
+                    fareCalculatorServices[t].sumFares(tickets.inTimes, tickets.outTimes, tickets.parkingTypes, tickets.discounts,
+                            from, to, revenueInCents[t]);
+                }
+                return revenueInCents;
+            }
+            int middle = (from + to) >>> 1;
+            FareTask left = new FareTask(tickets, fareCalculatorServices, sliceSize, from, middle);
+            left.fork();
+            long[][] revenueInCents = new FareTask(tickets, fareCalculatorServices, sliceSize, middle, to).compute();
+            long[][] leftRevenueInCents = left.join();
+            for (int t = 0; t < revenueInCents.length; t++) {
+                for (int type = 0; type < NB_TYPES; type++) {
+                    revenueInCents[t][type] += leftRevenueInCents[t][type];
+                }
+            }
+            return revenueInCents;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.parkit.parkingsystem.report;
+
+/**
+ * Paquet de tickets en colonnes de types primitifs, passé du thread de lecture aux threads de calcul
+ * puis réutilisé : aucune allocation par ticket.
+ */
+final class TicketBatch {
+
+    /**
+     * Marque la fin de la lecture pour un thread de calcul.
+     */
+    static final TicketBatch END = new TicketBatch(0);
+
+    final byte[] parkingTypes;
+    final long[] inTimes;
+    final long[] outTimes;
+    final long[] pricesInCents;
+    int size;
+
+    TicketBatch(int capacity) {
+        parkingTypes = new byte[capacity];
+        inTimes = new long[capacity];
+        outTimes = new long[capacity];
+        pricesInCents = new long[capacity];
+    }
+
+    void add(int parkingType, long inTime, long outTime, long priceInCents) {
+        parkingTypes[size] = (byte) parkingType;
+        inTimes[size] = inTime;
+        outTimes[size] = outTime;
+        pricesInCents[size] = priceInCents;
+        size++;
+    }
+
+    boolean isFull() {
+        return size == inTimes.length;
+    }
+}
@@ -0,0 +1,179 @@
+package com.parkit.parkingsystem.report;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Recette par jour et par type de place, durée moyenne de stationnement et pic d'occupation sur une période.
+ * La recette et la durée comptent les tickets sortis pendant la période, le jour de leur sortie ;
+ * l'occupation compte tous les véhicules présents, à la minute près.
+ */
+public final class TicketReport {
+
+    private static final ParkingType[] TYPES = ParkingType.values();
+
+    private final LocalDate firstDay;
+    private final int nbDays;
+    private final ZoneId zone;
+    private final long from;
+    private final long[] revenueInCents;
+    private final long[] dwellMillis;
+    private final long[] closedTickets;
+    private final long tickets;
+    private final int[] peakOccupancy = new int[TYPES.length];
+    private final int[] peakMinute = new int[TYPES.length];
+    private int peakTotalOccupancy;
+    private int peakTotalMinute;
+    private final long elapsedNanos;
+
+    TicketReport(LocalDate firstDay, int nbDays, ZoneId zone, long from, ReportAccumulator accumulator, long elapsedNanos) {
+        this.firstDay = firstDay;
+        this.nbDays = nbDays;
+        this.zone = zone;
+        this.from = from;
+        this.revenueInCents = accumulator.revenueInCents;
+        this.dwellMillis = accumulator.dwellMillis;
+        this.closedTickets = accumulator.closedTickets;
+        this.tickets = accumulator.tickets;
+        this.elapsedNanos = elapsedNanos;
+        computePeaks(accumulator.occupancyDeltas, accumulator.getNbMinutes());
+    }
+
+    /**
+     * Cumule les entrées et sorties minute par minute : le pic est le maximum atteint.
+     */
+    private void computePeaks(int[] occupancyDeltas, int nbMinutes) {
+        int[] occupancy = new int[TYPES.length];
+        for (int minute = 0; minute < nbMinutes; minute++) {
+            int total = 0;
+            for (int type = 0; type < TYPES.length; type++) {
+                occupancy[type] += occupancyDeltas[type * (nbMinutes + 1) + minute];
+                total += occupancy[type];
+                if (occupancy[type] > peakOccupancy[type]) {
+                    peakOccupancy[type] = occupancy[type];
+                    peakMinute[type] = minute;
+                }
+            }
+            if (total > peakTotalOccupancy) {
+                peakTotalOccupancy = total;
+                peakTotalMinute = minute;
+            }
+        }
+    }
+
+    public LocalDate getFirstDay() {
+        return firstDay;
+    }
+
+    public LocalDate getLastDay() {
+        return firstDay.plusDays(nbDays - 1);
+    }
+
+    /**
+     * @return le nombre de tickets lus : présents à un moment de la période
+     */
+    public long getTicketCount() {
+        return tickets;
+    }
+
+    public long getRevenueInCents(LocalDate day, ParkingType parkingType) {
+        int dayIndex = (int) (day.toEpochDay() - firstDay.toEpochDay());
+        if (dayIndex < 0 || dayIndex >= nbDays) {
+            throw new IllegalArgumentException("Day out of report range : " + day);
+        }
+        return revenueInCents[dayIndex * TYPES.length + parkingType.ordinal()];
+    }
+
+    public long getRevenueInCents(ParkingType parkingType) {
+        long revenue = 0;
+        for (int day = 0; day < nbDays; day++) {
+            revenue += revenueInCents[day * TYPES.length + parkingType.ordinal()];
+        }
+        return revenue;
+    }
+
+    public long getRevenueInCents() {
+        long revenue = 0;
+        for (long dayRevenue : revenueInCents) {
+            revenue += dayRevenue;
+        }
+        return revenue;
+    }
+
+    public long getClosedTickets(ParkingType parkingType) {
+        return closedTickets[parkingType.ordinal()];
+    }
+
+    public double getAverageDwellMinutes(ParkingType parkingType) {
+        int type = parkingType.ordinal();
+        return (closedTickets[type] == 0) ? 0 : dwellMillis[type] / 60_000.0 / closedTickets[type];
+    }
+
+    public double getAverageDwellMinutes() {
+        long totalDwellMillis = 0;
+        long totalClosedTickets = 0;
+        for (int type = 0; type < TYPES.length; type++) {
+            totalDwellMillis += dwellMillis[type];
+            totalClosedTickets += closedTickets[type];
+        }
+        return (totalClosedTickets == 0) ? 0 : totalDwellMillis / 60_000.0 / totalClosedTickets;
+    }
+
+    public int getPeakOccupancy(ParkingType parkingType) {
+        return peakOccupancy[parkingType.ordinal()];
+    }
+
+    public LocalDateTime getPeakOccupancyTime(ParkingType parkingType) {
+        return toTime(peakMinute[parkingType.ordinal()]);
+    }
+
+    public int getPeakOccupancy() {
+        return peakTotalOccupancy;
+    }
+
+    public LocalDateTime getPeakOccupancyTime() {
+        return toTime(peakTotalMinute);
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    private LocalDateTime toTime(int minute) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(from + minute * ReportAccumulator.MINUTE), zone);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Report from %s to %s : %d tickets read in %d ms%n", firstDay, getLastDay(), tickets, elapsedNanos / 1_000_000));
+        sb.append(String.format("%-10s", "Day"));
+        for (ParkingType parkingType : TYPES) {
+            sb.append(String.format(" %12s", parkingType));
+        }
+        sb.append(String.format(" %12s%n", "TOTAL"));
+        for (int day = 0; day < nbDays; day++) {
+            sb.append(firstDay.plusDays(day));
+            long dayRevenue = 0;
+            for (int type = 0; type < TYPES.length; type++) {
+                long revenue = revenueInCents[day * TYPES.length + type];
+                dayRevenue += revenue;
+                sb.append(String.format(" %9d.%02d", revenue / 100, revenue % 100));
+            }
+            sb.append(String.format(" %9d.%02d%n", dayRevenue / 100, dayRevenue % 100));
+        }
+        for (ParkingType parkingType : TYPES) {
+            sb.append(String.format("%s : %d tickets closed, average stay %.1f min, peak occupancy %d at %s%n", parkingType,
+                    getClosedTickets(parkingType), getAverageDwellMinutes(parkingType),
+                    getPeakOccupancy(parkingType), getPeakOccupancyTime(parkingType)));
+        }
+        long revenue = getRevenueInCents();
+        sb.append(String.format("Total revenue : %d.%02d, average stay %.1f min, peak occupancy %d at %s%n",
+                revenue / 100, revenue % 100, getAverageDwellMinutes(), peakTotalOccupancy, getPeakOccupancyTime()));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,216 @@
+package com.parkit.parkingsystem.report;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketHistoryDAO;
+import com.parkit.parkingsystem.dao.TicketRowHandler;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Calcule un {@link TicketReport} en une lecture en flux de l'historique des tickets.
+ * Le thread appelant lit les tickets dans des paquets réutilisés ; les threads de calcul les agrègent
+ * chacun de leur côté, sans verrou, puis leurs résultats sont fusionnés.
+ * Le nombre de paquets en circulation est fixe : la mémoire ne dépend que de la période du rapport.
+ */
+public class TicketReportService {
+
+    private static final Logger logger = LogManager.getLogger("TicketReportService");
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private static final int NB_TYPES = ParkingType.values().length;
+
+    static final int BATCH_SIZE = 4096;
+
+    private final ParkingSpotDAO parkingSpotDAO;
+    private final TicketHistoryDAO ticketHistoryDAO;
+    private final int nbWorkers;
+
+    public TicketReportService(ParkingSpotDAO parkingSpotDAO, TicketHistoryDAO ticketHistoryDAO) {
+        this(parkingSpotDAO, ticketHistoryDAO, Runtime.getRuntime().availableProcessors());
+    }
+
+    public TicketReportService(ParkingSpotDAO parkingSpotDAO, TicketHistoryDAO ticketHistoryDAO, int nbWorkers) {
+        if (nbWorkers <= 0) {
+            throw new IllegalArgumentException("Number of workers must be positive : " + nbWorkers);
+        }
+        this.parkingSpotDAO = parkingSpotDAO;
+        this.ticketHistoryDAO = ticketHistoryDAO;
+        this.nbWorkers = nbWorkers;
+    }
+
+    /**
+     * Point d'entrée de App --report : calcule le rapport sur la base configurée et l'affiche.
+     */
+    public static void printReport(String firstDay, String lastDay) {
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        TicketHistoryDAO ticketHistoryDAO = new TicketHistoryDAO();
+        try {
+            System.out.println(new TicketReportService(parkingSpotDAO, ticketHistoryDAO).build(LocalDate.parse(firstDay), LocalDate.parse(lastDay)));
+        } catch (DateTimeException | IllegalArgumentException e) {
+            System.out.println("Invalid report period, expected --report yyyy-MM-dd yyyy-MM-dd : " + e.getMessage());
+        } catch (Exception e) {
+            logger.error("Unable to build report", e);
+            System.out.println("Unable to build report. Error occurred");
+        } finally {
+            parkingSpotDAO.dataBaseConfig.closePool();
+        }
+    }
+
+    /**
+     * @param firstDay premier jour de la période
+     * @param lastDay  dernier jour de la période, inclus
+     */
+    public TicketReport build(LocalDate firstDay, LocalDate lastDay) throws Exception {
+        if (lastDay.isBefore(firstDay)) {
+            throw new IllegalArgumentException("Last day " + lastDay + " is before first day " + firstDay);
+        }
+        long start = System.nanoTime();
+        byte[] spotTypes = readSpotTypes(parkingSpotDAO);
+        int nbDays = (int) (lastDay.toEpochDay() - firstDay.toEpochDay()) + 1;
+        long[] dayStarts = new long[nbDays + 1];
+        for (int day = 0; day <= nbDays; day++) {
+            dayStarts[day] = firstDay.plusDays(day).atStartOfDay(ZONE).toInstant().toEpochMilli();
+        }
+        long now = System.currentTimeMillis();
+
+        // 2 paquets par thread de calcul : un en cours de lecture, un en cours d'agrégation
+        BlockingQueue<TicketBatch> freeBatches = new ArrayBlockingQueue<>(2 * nbWorkers);
+        for (int i = 0; i < 2 * nbWorkers; i++) {
+            freeBatches.add(new TicketBatch(BATCH_SIZE));
+        }
+        // tous les paquets plus une fin par thread : l'ajout ne bloque jamais
+        BlockingQueue<TicketBatch> fullBatches = new ArrayBlockingQueue<>(3 * nbWorkers);
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(nbWorkers, r -> {
+            Thread thread = new Thread(r, "ticket-report-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<ReportAccumulator>> accumulators = new ArrayList<>();
+        boolean isScanned;
+        try {
+            for (int i = 0; i < nbWorkers; i++) {
+                ReportAccumulator accumulator = new ReportAccumulator(NB_TYPES, dayStarts, now);
+                accumulators.add(workers.submit(() -> fold(accumulator, freeBatches, fullBatches)));
+            }
+            BatchFeeder feeder = new BatchFeeder(spotTypes, freeBatches, fullBatches);
+            isScanned = ticketHistoryDAO.scanTickets(dayStarts[0], dayStarts[nbDays], feeder);
+            feeder.flush();
+        } finally {
+            for (int i = 0; i < nbWorkers; i++) {
+                fullBatches.add(TicketBatch.END);
+            }
+            workers.shutdown();
+        }
+        ReportAccumulator total = accumulators.get(0).get();
+        for (int i = 1; i < nbWorkers; i++) {
+            total.merge(accumulators.get(i).get());
+        }
+        if (!isScanned) {
+            throw new Exception("Unable to read ticket history");
+        }
+        return new TicketReport(firstDay, nbDays, ZONE, dayStarts[0], total, System.nanoTime() - start);
+    }
+
+    /**
+     * @return le type de chaque place, par numéro de place, -1 pour un numéro sans place
+     */
+    static byte[] readSpotTypes(ParkingSpotDAO parkingSpotDAO) throws Exception {
+        List<ParkingSpot> parkingSpots = parkingSpotDAO.getAllParkingSpots();
+        if (parkingSpots == null) {
+            throw new Exception("Unable to read parking spots");
+        }
+        int maxNumber = 0;
+        for (ParkingSpot parkingSpot : parkingSpots) {
+            maxNumber = Math.max(maxNumber, parkingSpot.getId());
+        }
+        byte[] spotTypes = new byte[maxNumber + 1];
+        Arrays.fill(spotTypes, (byte) -1);
+        for (ParkingSpot parkingSpot : parkingSpots) {
+            spotTypes[parkingSpot.getId()] = (byte) parkingSpot.getParkingType().ordinal();
+        }
+        return spotTypes;
+    }
+
+    /**
+     * Agrège les paquets jusqu'à la fin de la lecture ; après une erreur, continue de rendre les paquets
+     * pour ne pas bloquer la lecture.
+     */
+    private static ReportAccumulator fold(ReportAccumulator accumulator, BlockingQueue<TicketBatch> freeBatches,
+                                          BlockingQueue<TicketBatch> fullBatches) throws InterruptedException {
+        RuntimeException failure = null;
+        TicketBatch batch;
+        while ((batch = fullBatches.take()) != TicketBatch.END) {
+            try {
+                if (failure == null) {
+                    accumulator.add(batch);
+                }
+            } catch (RuntimeException e) {
+                failure = e;
+            } finally {
+                batch.size = 0;
+                freeBatches.add(batch);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return accumulator;
+    }
+
+    /**
+     * Remplit les paquets avec les tickets lus et les passe aux threads de calcul.
+     * Attend un paquet libre quand les calculs sont en retard sur la lecture.
+     */
+    private static final class BatchFeeder implements TicketRowHandler {
+        private final byte[] spotTypes;
+        private final BlockingQueue<TicketBatch> freeBatches;
+        private final BlockingQueue<TicketBatch> fullBatches;
+        private TicketBatch batch;
+
+        private BatchFeeder(byte[] spotTypes, BlockingQueue<TicketBatch> freeBatches, BlockingQueue<TicketBatch> fullBatches) {
+            this.spotTypes = spotTypes;
+            this.freeBatches = freeBatches;
+            this.fullBatches = fullBatches;
+        }
+
+        @Override
+        public void onTicket(int parkingNumber, long inTime, long outTime, double price) throws Exception {
+            int parkingType = (parkingNumber < spotTypes.length) ? spotTypes[parkingNumber] : -1;
+            if (parkingType < 0) {
+                throw new IllegalStateException("Ticket on unknown parking spot " + parkingNumber);
+            }
+            if (batch == null) {
+                batch = freeBatches.take();
+            }
+            batch.add(parkingType, inTime, outTime, Math.round(price * 100));
+            if (batch.isFull()) {
+                fullBatches.add(batch);
+                batch = null;
+            }
+        }
+
+        private void flush() {
+            if (batch != null && batch.size > 0) {
+                fullBatches.add(batch);
+            }
+            batch = null;
+        }
+    }
+}
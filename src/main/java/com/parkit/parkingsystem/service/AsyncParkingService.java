@@ -0,0 +1,109 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Entrées et sorties de véhicules traitées en parallèle, sans console : chaque opération
+ * s'exécute sur l'executor et renvoie un CompletableFuture, complété en erreur si l'opération échoue.
+ * Par défaut un thread virtuel est utilisé par opération (Java 21+), sinon un pool de threads fixe.
+ * Le nombre d'opérations simultanées en base reste borné par le pool de connexions.
+ */
+public class AsyncParkingService implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("AsyncParkingService");
+
+    private static final int DEFAULT_POOL_SIZE = 32;
+
+    private final ParkingService parkingService;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+
+    /**
+     * Utilise des threads virtuels si la JVM les supporte, sinon un pool de DEFAULT_POOL_SIZE threads.
+     */
+    public AsyncParkingService(ParkingService parkingService) {
+        this(parkingService, newDefaultExecutor(), true);
+    }
+
+    /**
+     * @param executor executor fourni par l'appelant, qui reste responsable de son arrêt
+     */
+    public AsyncParkingService(ParkingService parkingService, ExecutorService executor) {
+        this(parkingService, executor, false);
+    }
+
+    private AsyncParkingService(ParkingService parkingService, ExecutorService executor, boolean ownsExecutor) {
+        this.parkingService = parkingService;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    public CompletableFuture<Ticket> enterVehicle(ParkingType parkingType, String vehicleRegNumber) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return parkingService.enterVehicle(parkingType, vehicleRegNumber, new Date());
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    public CompletableFuture<Ticket> exitVehicle(String vehicleRegNumber) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return parkingService.exitVehicle(vehicleRegNumber, new Date());
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Attend la fin des opérations en cours puis arrête l'executor, s'il a été créé par ce service.
+     */
+    @Override
+    public void close() {
+        if (!ownsExecutor) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                logger.error("Parking operations still running after 30 seconds, interrupting them");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() est appelé par réflexion : le code reste compilable
+     * et utilisable sur Java 17.
+     */
+    static ExecutorService newDefaultExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            logger.info("Virtual threads not available, using a pool of {} threads", DEFAULT_POOL_SIZE);
+            AtomicInteger threadNumber = new AtomicInteger();
+            return Executors.newFixedThreadPool(DEFAULT_POOL_SIZE, r -> {
+                Thread thread = new Thread(r, "parking-service-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -1,13 +1,31 @@
 package com.parkit.parkingsystem.service;
 
 import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.tariff.FlatTariff;
+import com.parkit.parkingsystem.tariff.Tariff;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 
 public class FareCalculatorService {
 
+    // Avec le tarif par défaut, calculateFare garde le calcul historique en double sur les constantes de Fare
+    private final Tariff tariff;
+
+    public FareCalculatorService() {
+        this(FlatTariff.CURRENT);
+    }
+
+    public FareCalculatorService(Tariff tariff) {
+        this.tariff = tariff;
+    }
+
+    public Tariff getTariff() {
+        return tariff;
+    }
+
     public void calculateFare(Ticket ticket) {
         calculateFare(ticket, false);
     }
@@ -20,6 +38,13 @@ public class FareCalculatorService {
             throw new IllegalArgumentException("Out time provided is incorrect : " + ticket.getOutTime().toString() + " < In time " + ticket.getInTime().toString());
         }
 
+        if (tariff != FlatTariff.CURRENT) {
+            long priceInCents = calculateFareInCents(ticket.getInTime().getTime(), ticket.getOutTime().getTime(),
+                    ticket.getParkingSpot().getParkingType(), discount);
+            ticket.setPrice(priceInCents / 100.0);
+            return;
+        }
+
         // Etape #2 : Correction du bug de la durée de stationnement, on utilise un calcul en millisecondes
         double inHour = ticket.getInTime().getTime();
         double outHour = ticket.getOutTime().getTime();
@@ -53,4 +78,42 @@ public class FareCalculatorService {
         ticket.setPrice(finalPrice);
 
     }
-}
\ No newline at end of file
+
+    /**
+     * Même calcul que calculateFare avec le tarif du service, en virgule fixe et sans allocation (voir {@link FlatTariff}).
+     *
+     * @return le prix en centimes
+     */
+    public long calculateFareInCents(long inTimeMillis, long outTimeMillis, ParkingType parkingType, boolean discount) {
+        if (parkingType == null) {
+            throw new IllegalArgumentException("Unknown Parking Type");
+        }
+        return tariff.fareInCents(inTimeMillis, outTimeMillis, parkingType.ordinal(), discount);
+    }
+
+    /**
+     * Calcul en masse, pour la refacturation : fareInCents[i] reçoit le prix du i-ème stationnement.
+     *
+     * @param parkingTypes ParkingType.ordinal() de chaque stationnement
+     */
+    public void calculateFares(long[] inTimeMillis, long[] outTimeMillis, byte[] parkingTypes, boolean[] discounts, long[] faresInCents) {
+        int length = inTimeMillis.length;
+        if (outTimeMillis.length != length || parkingTypes.length != length || discounts.length != length || faresInCents.length < length) {
+            throw new IllegalArgumentException("Fare arrays must have the same length");
+        }
+        for (int i = 0; i < length; i++) {
+            faresInCents[i] = tariff.fareInCents(inTimeMillis[i], outTimeMillis[i], parkingTypes[i], discounts[i]);
+        }
+    }
+
+    /**
+     * Recette des stationnements d'indice from (inclus) à to (exclu), ajoutée par type de place à revenueInCents,
+     * indexé par ParkingType.ordinal(). Sert aux simulations de tarifs, qui se partagent les tableaux par tranches.
+     */
+    public void sumFares(long[] inTimeMillis, long[] outTimeMillis, byte[] parkingTypes, boolean[] discounts,
+                         int from, int to, long[] revenueInCents) {
+        for (int i = from; i < to; i++) {
+            revenueInCents[parkingTypes[i]] += tariff.fareInCents(inTimeMillis[i], outTimeMillis[i], parkingTypes[i], discounts[i]);
+        }
+    }
+}
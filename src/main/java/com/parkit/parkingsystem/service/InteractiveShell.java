@@ -1,25 +1,102 @@
 package com.parkit.parkingsystem.service;
 
+import com.parkit.parkingsystem.cache.OccupancyCounters;
+import com.parkit.parkingsystem.cache.OpenTicketIndex;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.ShardResolver;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotStore;
+import com.parkit.parkingsystem.dao.InMemoryTicketStore;
+import com.parkit.parkingsystem.dao.JdbcUnitOfWork;
 import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketArchiveDAO;
 import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.journal.EventJournal;
+import com.parkit.parkingsystem.tariff.Tariff;
+import com.parkit.parkingsystem.tariff.Tariffs;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.ZoneId;
+import java.util.Properties;
+
 public class InteractiveShell {
 
     private static final Logger logger = LogManager.getLogger("InteractiveShell");
 
+    private static final int JOURNAL_CAPACITY = 100_000;
+
     public static void loadInterface(){
         logger.info("App initialized!!!");
         System.out.println("Welcome to Parking System!");
 
-        boolean continueApp = true;
         InputReaderUtil inputReaderUtil = new InputReaderUtil();
+        if ("memory".equals(System.getProperty("storage"))) {
+            // Parking sans base de données : tout est perdu à l'arrêt
+            ParkingService parkingService = new ParkingService(inputReaderUtil,
+                    InMemoryParkingSpotStore.withLot(Integer.getInteger("memory.car.spots", 3), Integer.getInteger("memory.bike.spots", 2)),
+                    new InMemoryTicketStore());
+            parkingService.setFareCalculatorService(loadTariff());
+            runMenu(inputReaderUtil, parkingService);
+            return;
+        }
+        int lotId = Integer.getInteger("lot.id", DBConstants.DEFAULT_LOT_ID);
+        ShardResolver shardResolver = loadShards(lotId);
+        DataBaseConfig dataBaseConfig = shardResolver.forLot(lotId);
         ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.reconcileFreeSpots();
+        if (Boolean.getBoolean("spot.cache.warm")) {
+            parkingSpotDAO.warmParkingSpotCache();
+        }
+        // Recalage des compteurs d'occupation sur la base, désactivé avec -Doccupancy.reconcile.seconds=0
+        long reconcileSeconds = Long.getLong("occupancy.reconcile.seconds", 60);
+        OccupancyReconciler occupancyReconciler = (reconcileSeconds > 0) ? new OccupancyReconciler(parkingSpotDAO, reconcileSeconds) : null;
         TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        if (Boolean.getBoolean("open.tickets.off.heap")) {
+            // au plus un ticket en cours par place
+            ticketDAO.openTicketIndex = OpenTicketIndex.offHeap(countParkingSpots(parkingSpotDAO));
+        }
+        ticketDAO.loadOpenTickets();
+        PlateFilterSync plateFilterSync = startPlateFilter(ticketDAO);
+        TicketArchiver ticketArchiver = startArchiver(dataBaseConfig);
         ParkingService parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
+        // une transaction par entrée ou sortie, désactivé avec -Dunit.of.work=false
+        parkingService.setUnitOfWorkFactory(JdbcUnitOfWork.factory(parkingSpotDAO, ticketDAO));
+        FareCalculatorService fareCalculatorService = loadTariff();
+        parkingService.setFareCalculatorService(fareCalculatorService);
+        EventJournal journal = openJournal();
+        if (journal != null) {
+            OfflineGate offlineGate = new OfflineGate(journal, parkingSpotDAO, ticketDAO);
+            offlineGate.setFareCalculatorService(fareCalculatorService);
+            parkingService.setOfflineGate(offlineGate);
+        }
 
+        runMenu(inputReaderUtil, parkingService);
+        if (occupancyReconciler != null) {
+            occupancyReconciler.close();
+        }
+        if (ticketArchiver != null) {
+            ticketArchiver.close();
+        }
+        if (plateFilterSync != null) {
+            plateFilterSync.close();
+        }
+        closeJournal(journal);
+        shardResolver.closePools();
+    }
+
+    private static void runMenu(InputReaderUtil inputReaderUtil, ParkingService parkingService) {
+        boolean continueApp = true;
         while(continueApp){
             loadMenu();
             int option = inputReaderUtil.readSelection();
@@ -42,6 +119,110 @@ public class InteractiveShell {
         }
     }
 
+    /**
+     * Bases des parkings décrites par -Dshards.file (voir ShardResolver) ;
+     * sans fichier, tous les parkings sont dans la base par défaut.
+     */
+    private static ShardResolver loadShards(int lotId) {
+        String fileName = System.getProperty("shards.file");
+        if (fileName != null) {
+            try (Reader reader = Files.newBufferedReader(Paths.get(fileName), StandardCharsets.UTF_8)) {
+                Properties properties = new Properties();
+                properties.load(reader);
+                return ShardResolver.load(properties);
+            } catch (IOException | RuntimeException e) {
+                logger.error("Unable to load shards from {}, using the default database", fileName, e);
+            }
+        }
+        ShardResolver shardResolver = new ShardResolver();
+        shardResolver.addShard("default", new DataBaseConfig());
+        shardResolver.assignLot(lotId, "default");
+        return shardResolver;
+    }
+
+    /**
+     * Tarif -Dtariff.name du fichier -Dtariff.file ; sans fichier, ou s'il est invalide, le tarif de Fare.
+     */
+    private static FareCalculatorService loadTariff() {
+        String fileName = System.getProperty("tariff.file");
+        if (fileName != null) {
+            String tariffName = System.getProperty("tariff.name");
+            try {
+                Tariff tariff = Tariffs.find(Tariffs.load(Paths.get(fileName), ZoneId.systemDefault()), tariffName);
+                logger.info("Using tariff {} from {}", tariff.getName(), fileName);
+                return new FareCalculatorService(tariff);
+            } catch (IOException | RuntimeException e) {
+                logger.error("Unable to load tariff {} from {}, using the default tariff", tariffName, fileName, e);
+            }
+        }
+        return new FareCalculatorService();
+    }
+
+    private static int countParkingSpots(ParkingSpotDAO parkingSpotDAO) {
+        OccupancyCounters occupancyCounters = parkingSpotDAO.getOccupancyCounters();
+        int nbSpots = 0;
+        for (ParkingType parkingType : ParkingType.values()) {
+            nbSpots += occupancyCounters.getFreeCount(parkingType) + occupancyCounters.getOccupiedCount(parkingType);
+        }
+        return nbSpots;
+    }
+
+    /**
+     * Filtre des plaques déjà venues, sauvegardé dans -Dplate.filter.file (plates.filter par défaut, vide pour désactiver)
+     * et recalé sur la base toutes les -Dplate.filter.sync.seconds.
+     */
+    private static PlateFilterSync startPlateFilter(TicketDAO ticketDAO) {
+        String fileName = System.getProperty("plate.filter.file", "plates.filter");
+        if (fileName.isEmpty()) {
+            return null;
+        }
+        Path file = Paths.get(fileName);
+        if (!ticketDAO.loadPlateFilter(file)) {
+            logger.error("Unable to load plate filter {}, every visit count will be read from the database", fileName);
+            return null;
+        }
+        return new PlateFilterSync(ticketDAO, file, Long.getLong("plate.filter.sync.seconds", 60));
+    }
+
+    /**
+     * Archivage des tickets sortis depuis -Darchive.age.days jours (90 par défaut, 0 pour désactiver),
+     * toutes les -Darchive.period.seconds, par lots de -Darchive.batch.size séparés de -Darchive.pause.millis.
+     */
+    private static TicketArchiver startArchiver(DataBaseConfig dataBaseConfig) {
+        long maxAgeDays = Long.getLong("archive.age.days", 90);
+        if (maxAgeDays <= 0) {
+            return null;
+        }
+        TicketArchiveDAO ticketArchiveDAO = new TicketArchiveDAO();
+        ticketArchiveDAO.dataBaseConfig = dataBaseConfig;
+        return new TicketArchiver(ticketArchiveDAO, maxAgeDays, Integer.getInteger("archive.batch.size", 200),
+                Long.getLong("archive.pause.millis", 100), Long.getLong("archive.period.seconds", 3600));
+    }
+
+    /**
+     * Journal du mode hors ligne, -Djournal.file pour changer son emplacement.
+     * Sans journal le guichet fonctionne uniquement en ligne.
+     */
+    private static EventJournal openJournal() {
+        String fileName = System.getProperty("journal.file", "parking.journal");
+        try {
+            return new EventJournal(Paths.get(fileName), JOURNAL_CAPACITY);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Unable to open event journal {}, offline mode disabled", fileName, e);
+            return null;
+        }
+    }
+
+    private static void closeJournal(EventJournal journal) {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                logger.error("Error while closing event journal", e);
+            }
+        }
+    }
+
     private static void loadMenu(){
         System.out.println("Please select an option. Simply enter the number to choose an action");
         System.out.println("1 New Vehicle Entering - Allocate Parking Space");
@@ -0,0 +1,173 @@
+package com.parkit.parkingsystem.service;
+
+/**
+ * Trafic simulé par {@link LoadTestService} : nombre de guichets, débits d'arrivée et de départ,
+ * part de motos et part de clients réguliers. Les débits sont pour l'ensemble des guichets.
+ * <p>
+ * En mode cadencé (par défaut) chaque guichet lance ses opérations à heure fixe, au débit demandé ;
+ * sinon les guichets enchaînent les opérations au plus vite et les débits ne fixent que la proportion
+ * d'entrées et de sorties.
+ */
+public class LoadProfile {
+
+    private int gates = 4;
+    private long durationMillis = 10_000;
+    private long operations;
+    private double arrivalsPerSecond = 500;
+    private double departuresPerSecond = 500;
+    private boolean paced = true;
+    private double bikeShare = 0.2;
+    private double returningShare = 0.3;
+    private long seed = 1;
+
+    /**
+     * Profil décrit par les propriétés système -Dload.gates, -Dload.seconds, -Dload.operations,
+     * -Dload.arrivals.per.second, -Dload.departures.per.second, -Dload.paced, -Dload.bike.share,
+     * -Dload.returning.share et -Dload.seed ; les propriétés absentes gardent leur valeur par défaut.
+     */
+    public static LoadProfile fromSystemProperties() {
+        LoadProfile profile = new LoadProfile();
+        profile.setGates(Integer.getInteger("load.gates", profile.gates));
+        profile.setDurationMillis(Long.getLong("load.seconds", profile.durationMillis / 1000) * 1000);
+        profile.setOperations(Long.getLong("load.operations", profile.operations));
+        profile.setRates(getDouble("load.arrivals.per.second", profile.arrivalsPerSecond),
+                getDouble("load.departures.per.second", profile.departuresPerSecond));
+        profile.setPaced(Boolean.parseBoolean(System.getProperty("load.paced", String.valueOf(profile.paced))));
+        profile.setBikeShare(getDouble("load.bike.share", profile.bikeShare));
+        profile.setReturningShare(getDouble("load.returning.share", profile.returningShare));
+        profile.setSeed(Long.getLong("load.seed", profile.seed));
+        return profile;
+    }
+
+    public int getGates() {
+        return gates;
+    }
+
+    public LoadProfile setGates(int gates) {
+        if (gates <= 0) {
+            throw new IllegalArgumentException("Number of gates must be positive : " + gates);
+        }
+        this.gates = gates;
+        return this;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * @param durationMillis durée maximale du test, 0 pour s'arrêter seulement au nombre d'opérations
+     */
+    public LoadProfile setDurationMillis(long durationMillis) {
+        if (durationMillis < 0) {
+            throw new IllegalArgumentException("Duration must not be negative : " + durationMillis);
+        }
+        this.durationMillis = durationMillis;
+        return this;
+    }
+
+    public long getOperations() {
+        return operations;
+    }
+
+    /**
+     * @param operations nombre maximal d'entrées et de sorties, tous guichets confondus, 0 pour s'arrêter
+     *                   seulement à la fin de la durée
+     */
+    public LoadProfile setOperations(long operations) {
+        if (operations < 0) {
+            throw new IllegalArgumentException("Number of operations must not be negative : " + operations);
+        }
+        this.operations = operations;
+        return this;
+    }
+
+    public double getArrivalsPerSecond() {
+        return arrivalsPerSecond;
+    }
+
+    public double getDeparturesPerSecond() {
+        return departuresPerSecond;
+    }
+
+    public LoadProfile setRates(double arrivalsPerSecond, double departuresPerSecond) {
+        if (!(arrivalsPerSecond > 0) || !(departuresPerSecond >= 0) || Double.isInfinite(arrivalsPerSecond + departuresPerSecond)) {
+            throw new IllegalArgumentException("Invalid rates : " + arrivalsPerSecond + " arrivals/s, " + departuresPerSecond + " departures/s");
+        }
+        this.arrivalsPerSecond = arrivalsPerSecond;
+        this.departuresPerSecond = departuresPerSecond;
+        return this;
+    }
+
+    public boolean isPaced() {
+        return paced;
+    }
+
+    public LoadProfile setPaced(boolean paced) {
+        this.paced = paced;
+        return this;
+    }
+
+    public double getBikeShare() {
+        return bikeShare;
+    }
+
+    public LoadProfile setBikeShare(double bikeShare) {
+        this.bikeShare = checkShare("Bike share", bikeShare);
+        return this;
+    }
+
+    public double getReturningShare() {
+        return returningShare;
+    }
+
+    /**
+     * @param returningShare part des entrées faites par un véhicule déjà sorti du parking pendant le test
+     *                       (remise de client régulier), quand il y en a
+     */
+    public LoadProfile setReturningShare(double returningShare) {
+        this.returningShare = checkShare("Returning share", returningShare);
+        return this;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public LoadProfile setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * @return probabilité qu'une opération soit une entrée, quand des véhicules du test sont garés
+     */
+    double getArrivalShare() {
+        return arrivalsPerSecond / (arrivalsPerSecond + departuresPerSecond);
+    }
+
+    /**
+     * @return intervalle entre deux opérations d'un même guichet en mode cadencé
+     */
+    long getIntervalNanos() {
+        return Math.max(1, Math.round(gates * 1_000_000_000.0 / (arrivalsPerSecond + departuresPerSecond)));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d gates, %.0f arrivals/s, %.0f departures/s%s, %.0f%% bikes, %.0f%% returning",
+                gates, arrivalsPerSecond, departuresPerSecond, paced ? "" : " (unpaced)", bikeShare * 100, returningShare * 100);
+    }
+
+    private static double checkShare(String name, double share) {
+        if (!(share >= 0 && share <= 1)) {
+            throw new IllegalArgumentException(name + " must be between 0 and 1 : " + share);
+        }
+        return share;
+    }
+
+    private static double getDouble(String key, double defaultValue) {
+        String value = System.getProperty(key);
+        return (value == null) ? defaultValue : Double.parseDouble(value);
+    }
+}
@@ -0,0 +1,441 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotStore;
+import com.parkit.parkingsystem.dao.InMemoryTicketStore;
+import com.parkit.parkingsystem.dao.JdbcUnitOfWork;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotStore;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Test de charge de ParkingService : plusieurs guichets simulés, un thread chacun, font entrer et sortir
+ * des véhicules selon un {@link LoadProfile}, sur la base configurée ou sur un parking en mémoire.
+ * <p>
+ * Le rapport donne le débit soutenu, les percentiles de latence des entrées et des sorties, et les conflits
+ * d'attribution de place : nouvelles tentatives de réservation (place déjà prise par un autre guichet) et
+ * places attribuées à deux véhicules à la fois, qui ne doivent jamais arriver.
+ * En mode cadencé, la latence est mesurée depuis l'heure prévue de l'opération : un guichet en retard
+ * compte son attente, comme un client dans la file.
+ * Les véhicules du test ont des immatriculations LD* ; ceux encore garés à la fin sont sortis, hors mesure.
+ * Les entrées refusées faute de place sont comptées à part des autres échecs.
+ */
+public class LoadTestService {
+
+    private static final Logger logger = LogManager.getLogger("LoadTestService");
+
+    // immatriculation : préfixe, guichet sur 2 caractères puis numéro du véhicule en base 36, 10 caractères au plus
+    static final String PLATE_PREFIX = "LD";
+    static final int MAX_GATES = 36 * 36;
+
+    // durée de stationnement simulée, pour le prix : de 15 minutes à 4 heures
+    private static final long MIN_STAY_MILLIS = TimeUnit.MINUTES.toMillis(15);
+    private static final long MAX_STAY_MILLIS = TimeUnit.HOURS.toMillis(4);
+
+    // véhicules sortis gardés pour revenir, au-delà ils ne reviennent plus
+    private static final int MAX_DEPARTED_VEHICLES = 100_000;
+
+    private final ParkingService parkingService;
+    private final ParkingSpotStore parkingSpotStore;
+
+    public LoadTestService(ParkingService parkingService, ParkingSpotStore parkingSpotStore) {
+        this.parkingService = parkingService;
+        this.parkingSpotStore = parkingSpotStore;
+    }
+
+    /**
+     * Point d'entrée de App --load : test décrit par les propriétés -Dload.* (voir {@link LoadProfile}),
+     * sur la base configurée ou, avec -Dstorage=memory, sur un parking en mémoire
+     * (-Dmemory.car.spots, -Dmemory.bike.spots).
+     */
+    public static void runLoadTest() {
+        LoadProfile profile;
+        try {
+            profile = LoadProfile.fromSystemProperties();
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid load profile : " + e.getMessage());
+            return;
+        }
+        logger.info("Running load test : {}", profile);
+        if ("memory".equals(System.getProperty("storage"))) {
+            InMemoryParkingSpotStore parkingSpotStore = InMemoryParkingSpotStore.withLot(
+                    Integer.getInteger("memory.car.spots", 3), Integer.getInteger("memory.bike.spots", 2));
+            runLoadTest(profile, new LoadTestService(new ParkingService(null, parkingSpotStore, new InMemoryTicketStore()), parkingSpotStore));
+            return;
+        }
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.reconcileFreeSpots();
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.loadOpenTickets();
+        try {
+            ParkingService parkingService = new ParkingService(null, parkingSpotDAO, ticketDAO);
+            parkingService.setUnitOfWorkFactory(JdbcUnitOfWork.factory(parkingSpotDAO, ticketDAO));
+            runLoadTest(profile, new LoadTestService(parkingService, parkingSpotDAO));
+        } finally {
+            parkingSpotDAO.dataBaseConfig.closePool();
+        }
+    }
+
+    private static void runLoadTest(LoadProfile profile, LoadTestService loadTestService) {
+        try {
+            System.out.println(loadTestService.run(profile));
+        } catch (Exception e) {
+            logger.error("Unable to run load test", e);
+            System.out.println("Unable to run load test. Error occurred");
+        }
+    }
+
+    public Report run(LoadProfile profile) throws InterruptedException, ExecutionException {
+        if (profile.getDurationMillis() == 0 && profile.getOperations() == 0) {
+            throw new IllegalArgumentException("Load test needs a duration or a number of operations");
+        }
+        if (profile.getGates() > MAX_GATES) {
+            throw new IllegalArgumentException("Load test supports at most " + MAX_GATES + " gates : " + profile.getGates());
+        }
+        Run run = new Run(profile, parkingSpotStore.getClaimConflicts());
+        CountDownLatch startSignal = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(profile.getGates());
+        try {
+            List<Future<?>> gates = new ArrayList<>();
+            for (int gate = 0; gate < profile.getGates(); gate++) {
+                int gateNumber = gate;
+                gates.add(executor.submit(() -> {
+                    startSignal.await();
+                    runGate(run, gateNumber);
+                    return null;
+                }));
+            }
+            run.startNanos = System.nanoTime();
+            startSignal.countDown();
+            for (Future<?> gate : gates) {
+                gate.get();
+            }
+            run.report.elapsedNanos = System.nanoTime() - run.startNanos;
+        } finally {
+            executor.shutdownNow();
+        }
+        drain(run);
+        return run.finish(parkingSpotStore.getClaimConflicts());
+    }
+
+    private void runGate(Run run, int gate) {
+        LoadProfile profile = run.profile;
+        SplittableRandom random = new SplittableRandom(profile.getSeed() * 31 + gate);
+        long intervalNanos = profile.getIntervalNanos();
+        // guichets décalés pour ne pas tous démarrer au même instant
+        long nextNanos = run.startNanos + intervalNanos * gate / profile.getGates();
+        long deadlineNanos = (profile.getDurationMillis() == 0) ? Long.MAX_VALUE
+                : run.startNanos + TimeUnit.MILLISECONDS.toNanos(profile.getDurationMillis());
+        int nbPlates = 0;
+        while (true) {
+            long scheduledNanos = System.nanoTime();
+            if (profile.isPaced()) {
+                scheduledNanos = nextNanos;
+                nextNanos += intervalNanos;
+            }
+            if (scheduledNanos - deadlineNanos >= 0 || (profile.getOperations() > 0 && run.remainingOperations.getAndDecrement() <= 0)) {
+                return;
+            }
+            long waitNanos = scheduledNanos - System.nanoTime();
+            while (waitNanos > 0) {
+                LockSupport.parkNanos(waitNanos);
+                waitNanos = scheduledNanos - System.nanoTime();
+            }
+            ParkedVehicle parkedVehicle = (random.nextDouble() < profile.getArrivalShare()) ? null : run.parkedVehicles.poll();
+            if (parkedVehicle == null) {
+                String vehicleRegNumber = (random.nextDouble() < profile.getReturningShare()) ? run.departedVehicles.poll() : null;
+                boolean returning = vehicleRegNumber != null;
+                if (returning) {
+                    run.nbDepartedVehicles.decrementAndGet();
+                } else {
+                    vehicleRegNumber = plate(gate, nbPlates++);
+                }
+                ParkingType parkingType = (random.nextDouble() < profile.getBikeShare()) ? ParkingType.BIKE : ParkingType.CAR;
+                enter(run, parkingType, vehicleRegNumber, returning, scheduledNanos);
+            } else {
+                long stayMillis = MIN_STAY_MILLIS + random.nextLong(MAX_STAY_MILLIS - MIN_STAY_MILLIS);
+                exit(run, parkedVehicle, stayMillis, scheduledNanos);
+            }
+        }
+    }
+
+    private void enter(Run run, ParkingType parkingType, String vehicleRegNumber, boolean returning, long scheduledNanos) {
+        Date inTime = new Date();
+        Ticket ticket;
+        try {
+            ticket = parkingService.enterVehicle(parkingType, vehicleRegNumber, inTime);
+        } catch (Exception e) {
+            run.entryLatency.recordSince(scheduledNanos);
+            if (e instanceof ParkingFullException) {
+                run.rejectedEntries.increment();
+            } else {
+                run.failedEntries.increment();
+                logger.debug("Entry failed for {} : {}", vehicleRegNumber, e.getMessage());
+            }
+            // le véhicule pourra revenir plus tard
+            if (returning) {
+                addDepartedVehicle(run, vehicleRegNumber);
+            }
+            return;
+        }
+        run.entryLatency.recordSince(scheduledNanos);
+        run.entries.increment();
+        if (returning) {
+            run.returningEntries.increment();
+        }
+        int parkingNumber = ticket.getParkingSpot().getId();
+        if (run.heldSpots.putIfAbsent(parkingNumber, vehicleRegNumber) != null) {
+            run.doubleAllocations.increment();
+            logger.error("Parking spot {} given to {} while still held by {}", parkingNumber, vehicleRegNumber, run.heldSpots.get(parkingNumber));
+        }
+        run.parkedVehicles.add(new ParkedVehicle(vehicleRegNumber, parkingNumber, inTime.getTime()));
+    }
+
+    private void exit(Run run, ParkedVehicle parkedVehicle, long stayMillis, long scheduledNanos) {
+        // la place est rendue avant la sortie : un autre guichet peut la prendre dès qu'elle est libérée
+        run.heldSpots.remove(parkedVehicle.parkingNumber, parkedVehicle.vehicleRegNumber);
+        Date outTime = new Date(Math.max(System.currentTimeMillis(), parkedVehicle.inTime + stayMillis));
+        try {
+            Ticket ticket = parkingService.exitVehicle(parkedVehicle.vehicleRegNumber, outTime);
+            run.exitLatency.recordSince(scheduledNanos);
+            run.exits.increment();
+            run.revenueInCents.add(Math.round(ticket.getPrice() * 100));
+            addDepartedVehicle(run, parkedVehicle.vehicleRegNumber);
+        } catch (Exception e) {
+            run.exitLatency.recordSince(scheduledNanos);
+            // le véhicule reste garé, et n'est plus proposé à la sortie
+            run.failedExits.increment();
+            run.heldSpots.putIfAbsent(parkedVehicle.parkingNumber, parkedVehicle.vehicleRegNumber);
+            logger.debug("Exit failed for {} : {}", parkedVehicle.vehicleRegNumber, e.getMessage());
+        }
+    }
+
+    /**
+     * Les entiers positifs tiennent sur 6 caractères en base 36 : la plaque ne dépasse jamais 10 caractères.
+     */
+    static String plate(int gate, int vehicleNumber) {
+        String gateCode = Integer.toString(gate, 36);
+        return (PLATE_PREFIX + (gateCode.length() == 1 ? "0" : "") + gateCode + Integer.toString(vehicleNumber, 36)).toUpperCase(Locale.ROOT);
+    }
+
+    private static void addDepartedVehicle(Run run, String vehicleRegNumber) {
+        if (run.nbDepartedVehicles.incrementAndGet() <= MAX_DEPARTED_VEHICLES) {
+            run.departedVehicles.add(vehicleRegNumber);
+        } else {
+            run.nbDepartedVehicles.decrementAndGet();
+        }
+    }
+
+    /**
+     * Sort les véhicules du test encore garés, pour rendre le parking dans son état de départ.
+     */
+    private void drain(Run run) {
+        ParkedVehicle parkedVehicle;
+        while ((parkedVehicle = run.parkedVehicles.poll()) != null) {
+            try {
+                parkingService.exitVehicle(parkedVehicle.vehicleRegNumber, new Date());
+                run.report.drained++;
+            } catch (Exception e) {
+                logger.error("Unable to drain vehicle {} : {}", parkedVehicle.vehicleRegNumber, e.getMessage());
+            }
+        }
+    }
+
+    private static final class ParkedVehicle {
+        private final String vehicleRegNumber;
+        private final int parkingNumber;
+        private final long inTime;
+
+        private ParkedVehicle(String vehicleRegNumber, int parkingNumber, long inTime) {
+            this.vehicleRegNumber = vehicleRegNumber;
+            this.parkingNumber = parkingNumber;
+            this.inTime = inTime;
+        }
+    }
+
+    /**
+     * État partagé par les guichets pendant un test.
+     */
+    private static final class Run {
+        private final LoadProfile profile;
+        private final long initialClaimConflicts;
+        private final Report report;
+        private final AtomicLong remainingOperations;
+        private final Queue<ParkedVehicle> parkedVehicles = new ConcurrentLinkedQueue<>();
+        private final Queue<String> departedVehicles = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger nbDepartedVehicles = new AtomicInteger();
+        // place -> véhicule garé par le test
+        private final Map<Integer, String> heldSpots = new ConcurrentHashMap<>();
+        private final LatencyHistogram entryLatency = new LatencyHistogram("LoadTestService.entry");
+        private final LatencyHistogram exitLatency = new LatencyHistogram("LoadTestService.exit");
+        private final LongAdder entries = new LongAdder();
+        private final LongAdder returningEntries = new LongAdder();
+        private final LongAdder rejectedEntries = new LongAdder();
+        private final LongAdder failedEntries = new LongAdder();
+        private final LongAdder exits = new LongAdder();
+        private final LongAdder failedExits = new LongAdder();
+        private final LongAdder doubleAllocations = new LongAdder();
+        private final LongAdder revenueInCents = new LongAdder();
+        private volatile long startNanos;
+
+        private Run(LoadProfile profile, long initialClaimConflicts) {
+            this.profile = profile;
+            this.initialClaimConflicts = initialClaimConflicts;
+            this.report = new Report(profile, entryLatency, exitLatency);
+            this.remainingOperations = new AtomicLong(profile.getOperations());
+        }
+
+        private Report finish(long claimConflicts) {
+            report.entries = entries.sum();
+            report.returningEntries = returningEntries.sum();
+            report.rejectedEntries = rejectedEntries.sum();
+            report.failedEntries = failedEntries.sum();
+            report.exits = exits.sum();
+            report.failedExits = failedExits.sum();
+            report.doubleAllocations = doubleAllocations.sum();
+            report.revenueInCents = revenueInCents.sum();
+            report.claimConflicts = claimConflicts - initialClaimConflicts;
+            return report;
+        }
+    }
+
+    /**
+     * Résultat d'un test de charge. Les latences sont celles de toutes les tentatives, réussies ou non.
+     */
+    public static final class Report {
+        private final LoadProfile profile;
+        private final LatencyHistogram entryLatency;
+        private final LatencyHistogram exitLatency;
+        private long entries;
+        private long returningEntries;
+        private long rejectedEntries;
+        private long failedEntries;
+        private long exits;
+        private long failedExits;
+        private long claimConflicts;
+        private long doubleAllocations;
+        private long revenueInCents;
+        private long drained;
+        private long elapsedNanos;
+
+        private Report(LoadProfile profile, LatencyHistogram entryLatency, LatencyHistogram exitLatency) {
+            this.profile = profile;
+            this.entryLatency = entryLatency;
+            this.exitLatency = exitLatency;
+        }
+
+        public LoadProfile getProfile() {
+            return profile;
+        }
+
+        public LatencyHistogram getEntryLatency() {
+            return entryLatency;
+        }
+
+        public LatencyHistogram getExitLatency() {
+            return exitLatency;
+        }
+
+        public long getEntries() {
+            return entries;
+        }
+
+        public long getReturningEntries() {
+            return returningEntries;
+        }
+
+        /**
+         * @return les entrées refusées faute de place
+         */
+        public long getRejectedEntries() {
+            return rejectedEntries;
+        }
+
+        /**
+         * @return les entrées en échec pour une autre raison (erreur de base, ticket non enregistré)
+         */
+        public long getFailedEntries() {
+            return failedEntries;
+        }
+
+        public long getExits() {
+            return exits;
+        }
+
+        public long getFailedExits() {
+            return failedExits;
+        }
+
+        public long getOperations() {
+            return entries + rejectedEntries + failedEntries + exits + failedExits;
+        }
+
+        public long getClaimConflicts() {
+            return claimConflicts;
+        }
+
+        public long getDoubleAllocations() {
+            return doubleAllocations;
+        }
+
+        public long getRevenueInCents() {
+            return revenueInCents;
+        }
+
+        public long getDrained() {
+            return drained;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getOperationsPerSecond() {
+            return (elapsedNanos == 0) ? 0 : getOperations() * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("Load test : %s%n", profile));
+            sb.append(String.format("%d operations in %d ms (%.0f operations/s)%n", getOperations(), elapsedNanos / 1_000_000, getOperationsPerSecond()));
+            sb.append(String.format("Entries : %d (%d returning), rejected (lot full) : %d, failed : %d%n", entries, returningEntries, rejectedEntries, failedEntries));
+            sb.append(String.format("Exits : %d, failed : %d%n", exits, failedExits));
+            appendLatency(sb, "Entry", entryLatency);
+            appendLatency(sb, "Exit", exitLatency);
+            sb.append(String.format("Spot claim conflicts : %d, spots given twice : %d%n", claimConflicts, doubleAllocations));
+            sb.append(String.format("Revenue : %d.%02d, vehicles left in the lot and taken out : %d%n", revenueInCents / 100, revenueInCents % 100, drained));
+            return sb.toString();
+        }
+
+        private static void appendLatency(StringBuilder sb, String operation, LatencyHistogram histogram) {
+            sb.append(String.format("%s latency : p50=%.1fus p99=%.1fus p999=%.1fus max=%.1fus%n", operation,
+                    histogram.get50thPercentileMicros(), histogram.get99thPercentileMicros(),
+                    histogram.get999thPercentileMicros(), histogram.getMaxMicros()));
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.LotDataBaseConfig;
+import com.parkit.parkingsystem.config.ShardResolver;
+import com.parkit.parkingsystem.dao.LotTransferDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Déplacement d'un parking d'une base à une autre, pour répartir la charge sur plusieurs serveurs.
+ * Le parking est gelé pendant la copie, dans ce processus et dans la base d'origine pour les guichets des autres processus :
+ * ses guichets échouent (ou passent hors ligne avec un {@link OfflineGate}) jusqu'à la fin du déplacement,
+ * les autres parkings ne sont pas touchés.
+ * Un guichet qui a obtenu sa connexion juste avant le gel peut encore écrire pendant la copie : le parking n'est alors
+ * pas supprimé de la base d'origine et le déplacement échoue, sans perte de données.
+ */
+public class LotMigrationService {
+
+    private static final Logger logger = LogManager.getLogger("LotMigrationService");
+
+    private static final LatencyHistogram MOVE_LOT_LATENCY = Metrics.histogram("LotMigrationService.moveLot");
+
+    private static final long FREEZE_TIMEOUT_MILLIS = 10_000;
+
+    private final ShardResolver shardResolver;
+    private final LotTransferDAO lotTransferDAO;
+
+    public LotMigrationService(ShardResolver shardResolver) {
+        this(shardResolver, new LotTransferDAO());
+    }
+
+    public LotMigrationService(ShardResolver shardResolver, LotTransferDAO lotTransferDAO) {
+        this.shardResolver = shardResolver;
+        this.lotTransferDAO = lotTransferDAO;
+    }
+
+    /**
+     * Copie le parking dans la base cible, le supprime de la base d'origine s'il n'y a pas changé pendant la copie,
+     * puis le rattache à la base cible.
+     * Les tickets changeant d'ID, les index en mémoire des DAO du parking sont rechargés avant le dégel.
+     *
+     * @param parkingSpotDAO DAO des places du parking en service dans ce processus, ou null
+     * @param ticketDAO      DAO des tickets du parking en service dans ce processus, ou null ; le mode write-behind doit être désactivé
+     * @return false si le parking n'a pas été déplacé : il reste servi par sa base d'origine
+     */
+    public boolean moveLot(int lotId, String targetShardName, ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO) throws InterruptedException {
+        long start = System.nanoTime();
+        try {
+            String sourceShardName = shardResolver.getShardName(lotId);
+            DataBaseConfig source = shardResolver.getShard(sourceShardName);
+            DataBaseConfig target = shardResolver.getShard(targetShardName);
+            if (sourceShardName.equals(targetShardName)) {
+                return true;
+            }
+            if (ticketDAO != null && ticketDAO.isWriteBehindEnabled()) {
+                // les mises à jour en file portent les ID de la base d'origine
+                logger.error("Write-behind must be disabled before moving parking lot {}", lotId);
+                return false;
+            }
+            LotDataBaseConfig lotDataBaseConfig = shardResolver.forLot(lotId);
+            if (!lotDataBaseConfig.freeze(FREEZE_TIMEOUT_MILLIS)) {
+                return false;
+            }
+            try {
+                if (!lotTransferDAO.freezeLot(source, lotId)) {
+                    return false;
+                }
+                boolean isMoved = false;
+                try {
+                    // les autres processus relisent le gel dans ce délai ; une écriture d'avant est vue par deleteLot
+                    Thread.sleep(shardResolver.getFreezeCheckMillis());
+                    long[] summary = lotTransferDAO.getLotSummary(source, lotId);
+                    if (summary == null || !lotTransferDAO.copyLot(source, target, lotId)) {
+                        return false;
+                    }
+                    if (!lotTransferDAO.deleteLot(source, lotId, summary)) {
+                        // la copie n'est pas lue : elle sera remplacée au prochain déplacement vers cette base
+                        logger.error("Parking lot {} not moved, it stays in shard {}", lotId, sourceShardName);
+                        return false;
+                    }
+                    shardResolver.assignLot(lotId, targetShardName);
+                    isMoved = true;
+                } finally {
+                    // une fois déplacé, le parking reste gelé dans la base d'origine pour les processus qui la servent encore
+                    if (!isMoved) {
+                        lotTransferDAO.unfreezeLot(source, lotId);
+                    }
+                }
+                if (parkingSpotDAO != null) {
+                    parkingSpotDAO.reconcileFreeSpots();
+                }
+                if (ticketDAO != null) {
+                    ticketDAO.loadOpenTickets();
+                }
+                logger.info("Parking lot {} moved from shard {} to shard {}", lotId, sourceShardName, targetShardName);
+                return true;
+            } finally {
+                lotDataBaseConfig.unfreeze();
+            }
+        } finally {
+            MOVE_LOT_LATENCY.recordSince(start);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.cache.OccupancyCounters;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.Metrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare périodiquement les compteurs d'occupation aux comptes de la table parking.
+ * Les compteurs ne voient que les entrées et sorties de ce processus : si un autre guichet a pris ou libéré
+ * des places, l'index des places libres est rechargé, ce qui remet aussi les compteurs à jour.
+ */
+public class OccupancyReconciler {
+
+    private static final Logger logger = LogManager.getLogger("OccupancyReconciler");
+
+    private static final Counter DRIFTS = Metrics.counter("OccupancyReconciler.drifts");
+
+    private final ParkingSpotDAO parkingSpotDAO;
+    private final ScheduledExecutorService scheduler;
+
+    public OccupancyReconciler(ParkingSpotDAO parkingSpotDAO, long periodSeconds) {
+        if (periodSeconds <= 0) {
+            throw new IllegalArgumentException("Reconcile period must be positive : " + periodSeconds);
+        }
+        this.parkingSpotDAO = parkingSpotDAO;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "occupancy-reconciler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::reconcile, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return true si les compteurs étaient justes ou ont été corrigés, false si la base n'a pas pu être lue
+     */
+    public boolean reconcile() {
+        try {
+            int[][] occupancy = parkingSpotDAO.getOccupancy();
+            if (occupancy == null) {
+                return false;
+            }
+            OccupancyCounters occupancyCounters = parkingSpotDAO.getOccupancyCounters();
+            for (ParkingType parkingType : ParkingType.values()) {
+                int[] counted = occupancyCounters.get(parkingType);
+                if (!Arrays.equals(counted, occupancy[parkingType.ordinal()])) {
+                    // une entrée en cours entre la lecture et la comparaison donne aussi un écart : le rechargement est sans risque
+                    DRIFTS.increment();
+                    logger.info("{} occupancy is {} free / {} occupied in database, {} / {} in memory : reloading free spots",
+                            parkingType, occupancy[parkingType.ordinal()][0], occupancy[parkingType.ordinal()][1], counted[0], counted[1]);
+                    return parkingSpotDAO.reconcileFreeSpots();
+                }
+            }
+            return true;
+        } catch (RuntimeException e) {
+            logger.error("Unable to reconcile occupancy", e);
+            return false;
+        }
+    }
+
+    public void close() {
+        scheduler.shutdown();
+    }
+}
@@ -0,0 +1,239 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.JdbcUnitOfWork;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.journal.EventJournal;
+import com.parkit.parkingsystem.journal.JournalEvent;
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Date;
+
+/**
+ * Mode hors ligne des guichets, quand la base est injoignable.
+ * Les entrées et sorties sont traitées sur l'état en mémoire des DAO (places libres, tickets en cours,
+ * compteurs de passages) et enregistrées dans l'{@link EventJournal}. Au retour de la base,
+ * le journal est rejoué dans l'ordre avant de repasser en ligne.
+ * L'état en mémoire doit avoir été chargé au moins une fois, sinon le parking est vu complet.
+ * Les opérations hors ligne et le rejeu sont exclusifs : les guichets attendent la fin du rejeu.
+ */
+public class OfflineGate {
+
+    private static final Logger logger = LogManager.getLogger("OfflineGate");
+
+    private static final Counter REPLAY_CONFLICTS = Metrics.counter("OfflineGate.replayConflicts");
+
+    private static final long ONLINE_PROBE_INTERVAL_MILLIS = 30_000;
+
+    private volatile FareCalculatorService fareCalculatorService = new FareCalculatorService();
+
+    private final EventJournal journal;
+    private final ParkingSpotDAO parkingSpotDAO;
+    private final TicketDAO ticketDAO;
+
+    private volatile boolean offline;
+    private volatile long lastProbeMillis;
+
+    /**
+     * Un journal qui contient encore des événements (arrêt pendant le mode hors ligne) démarre hors ligne.
+     */
+    public OfflineGate(EventJournal journal, ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO) {
+        this.journal = journal;
+        this.parkingSpotDAO = parkingSpotDAO;
+        this.ticketDAO = ticketDAO;
+        this.offline = journal.getPendingCount() > 0;
+    }
+
+    /**
+     * Tarif des sorties hors ligne, le même que celui du ParkingService.
+     */
+    public void setFareCalculatorService(FareCalculatorService fareCalculatorService) {
+        this.fareCalculatorService = fareCalculatorService;
+    }
+
+    public boolean isOffline() {
+        return offline;
+    }
+
+    /**
+     * Passe hors ligne si la base ne répond pas, après l'échec d'une opération en ligne.
+     *
+     * @return true si le guichet est désormais hors ligne
+     */
+    public boolean switchOfflineIfDatabaseDown() {
+        if (!offline && !isDatabaseReachable()) {
+            logger.error("Database unreachable, switching to offline mode");
+            lastProbeMillis = System.currentTimeMillis();
+            offline = true;
+        }
+        return offline;
+    }
+
+    /**
+     * Hors ligne, teste la base au plus toutes les ONLINE_PROBE_INTERVAL_MILLIS et repasse en ligne si elle répond.
+     *
+     * @return true si le guichet est (encore) hors ligne
+     */
+    public boolean stayOffline() {
+        if (offline && System.currentTimeMillis() - lastProbeMillis >= ONLINE_PROBE_INTERVAL_MILLIS) {
+            lastProbeMillis = System.currentTimeMillis();
+            goOnline();
+        }
+        return offline;
+    }
+
+    /**
+     * Rejoue le journal en base puis repasse en ligne, sans qu'aucun événement ne puisse être ajouté entre-temps.
+     *
+     * @return false si la base est toujours injoignable ou si le rejeu a échoué (le guichet reste hors ligne)
+     */
+    public synchronized boolean goOnline() {
+        if (!offline) {
+            return true;
+        }
+        if (!isDatabaseReachable()) {
+            return false;
+        }
+        long pending = journal.getPendingCount();
+        // l'index des tickets en cours est repris depuis la base : c'est lui qui rend le rejeu idempotent
+        if (pending > 0 && (!ticketDAO.loadOpenTickets() || !journal.replay(this::apply))) {
+            logger.error("Journal replay interrupted, {} events left", journal.getPendingCount());
+            return false;
+        }
+        journal.clear();
+        ticketDAO.visitCounterCache.clear();
+        parkingSpotDAO.reconcileFreeSpots();
+        ticketDAO.loadOpenTickets();
+        offline = false;
+        logger.info("Back online, {} journal events replayed", pending);
+        return true;
+    }
+
+    /**
+     * @return le ticket en cours, ou null si le guichet est repassé en ligne (l'entrée doit alors être traitée en base)
+     */
+    public synchronized Ticket enterVehicle(ParkingType parkingType, String vehicleRegNumber, Date inTime) throws Exception {
+        if (!offline) {
+            return null;
+        }
+        int parkingNumber = parkingSpotDAO.freeSpotAllocator.claimNext(parkingType);
+        if (parkingNumber <= 0) {
+            throw new Exception("No parking number available offline. Parking slots might be full");
+        }
+        ParkingSpot parkingSpot = new ParkingSpot(parkingNumber, parkingType, false);
+        try {
+            journal.append(JournalEvent.entry(vehicleRegNumber, parkingNumber, parkingType, inTime.getTime()));
+        } catch (RuntimeException e) {
+            parkingSpot.setAvailable(true);
+            parkingSpotDAO.freeSpotAllocator.update(parkingSpot);
+            throw e;
+        }
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(parkingSpot);
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setPrice(0);
+        ticket.setInTime(inTime);
+        ticket.setOutTime(null);
+        ticketDAO.openTicketIndex.update(ticket);
+        ticketDAO.visitCounterCache.increment(vehicleRegNumber);
+        return ticket;
+    }
+
+    /**
+     * La remise fidélité s'appuie sur le cache des passages : un véhicule absent du cache paie plein tarif.
+     *
+     * @return le ticket clôturé, ou null si le guichet est repassé en ligne (la sortie doit alors être traitée en base)
+     */
+    public synchronized Ticket exitVehicle(String vehicleRegNumber, Date outTime) throws Exception {
+        if (!offline) {
+            return null;
+        }
+        Ticket ticket = ticketDAO.openTicketIndex.get(vehicleRegNumber);
+        if (ticket == null) {
+            throw new Exception("No vehicle parked with registration number " + vehicleRegNumber);
+        }
+        ticket.setOutTime(outTime);
+        boolean discount = ticketDAO.visitCounterCache.get(vehicleRegNumber) > 1;
+        fareCalculatorService.calculateFare(ticket, discount);
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        journal.append(JournalEvent.exit(vehicleRegNumber, parkingSpot.getId(), parkingSpot.getParkingType(),
+                ticket.getInTime().getTime(), outTime.getTime(), Math.round(ticket.getPrice() * 100)));
+        ticketDAO.openTicketIndex.update(ticket);
+        parkingSpot.setAvailable(true);
+        parkingSpotDAO.freeSpotAllocator.update(parkingSpot);
+        return ticket;
+    }
+
+    /**
+     * Applique un événement du journal. Un ticket est reconnu par son heure d'entrée, à la seconde près
+     * (précision des colonnes DATETIME) : un événement déjà en base n'est pas réappliqué.
+     * Chaque événement est enregistré dans une seule transaction. Une place prise par un autre guichet pendant
+     * la coupure est remplacée par une autre ; s'il n'y en a plus, le rejeu s'arrête et sera repris plus tard.
+     */
+    private void apply(JournalEvent event) throws Exception {
+        Ticket ticket = ticketDAO.getTicket(event.getVehicleRegNumber());
+        boolean sameTicket = ticket != null && Math.abs(ticket.getInTime().getTime() - event.getInTime()) < 1000;
+        try (JdbcUnitOfWork unitOfWork = new JdbcUnitOfWork(parkingSpotDAO, ticketDAO)) {
+            if (event.getType() == JournalEvent.Type.ENTRY) {
+                if (sameTicket) {
+                    return;
+                }
+                ParkingSpot parkingSpot = new ParkingSpot(event.getParkingNumber(), event.getParkingType(), false);
+                int updateRowCount = unitOfWork.claimParkingSpot(parkingSpot);
+                if (updateRowCount < 0) {
+                    throw new Exception("Unable to claim parking spot of replayed entry");
+                }
+                if (updateRowCount == 0) {
+                    REPLAY_CONFLICTS.increment();
+                    parkingSpot = unitOfWork.claimNextAvailableSlot(event.getParkingType());
+                    if (parkingSpot == null) {
+                        throw new Exception("Parking spot " + event.getParkingNumber() + " of replayed entry taken by another gate, no other spot available");
+                    }
+                    logger.error("Parking spot {} taken by another gate while offline, {} moved to spot {}",
+                            event.getParkingNumber(), event.getVehicleRegNumber(), parkingSpot.getId());
+                }
+                ticket = new Ticket();
+                ticket.setParkingSpot(parkingSpot);
+                ticket.setVehicleRegNumber(event.getVehicleRegNumber());
+                ticket.setPrice(0);
+                ticket.setInTime(new Date(event.getInTime()));
+                if (!unitOfWork.saveTicket(ticket) || !unitOfWork.commit()) {
+                    throw new Exception("Unable to save replayed entry");
+                }
+            } else {
+                if (!sameTicket) {
+                    throw new Exception("No ticket in DB for replayed exit");
+                }
+                // la place du ticket en base : elle a pu changer au rejeu de l'entrée
+                ParkingSpot parkingSpot = new ParkingSpot(ticket.getParkingSpot().getId(), ticket.getParkingSpot().getParkingType(), true);
+                if (ticket.getOutTime() != null) {
+                    // déjà clôturé : la place est rendue si un rejeu précédent s'est arrêté avant de la libérer
+                    if (!unitOfWork.releaseUnusedParkingSpot(parkingSpot) || !unitOfWork.commit()) {
+                        throw new Exception("Unable to release parking spot of replayed exit");
+                    }
+                    return;
+                }
+                Ticket closedTicket = new Ticket();
+                closedTicket.setId(ticket.getId());
+                closedTicket.setParkingSpot(ticket.getParkingSpot());
+                closedTicket.setVehicleRegNumber(ticket.getVehicleRegNumber());
+                closedTicket.setInTime(ticket.getInTime());
+                closedTicket.setOutTime(new Date(event.getOutTime()));
+                closedTicket.setPrice(event.getPriceInCents() / 100.0);
+                if (!unitOfWork.updateTicket(closedTicket) || !unitOfWork.updateParking(parkingSpot) || !unitOfWork.commit()) {
+                    throw new Exception("Unable to save replayed exit");
+                }
+            }
+        }
+    }
+
+    private boolean isDatabaseReachable() {
+        return ticketDAO.dataBaseConfig.isReachable();
+    }
+}
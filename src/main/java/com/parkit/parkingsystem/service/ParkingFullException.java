@@ -0,0 +1,13 @@
+package com.parkit.parkingsystem.service;
+
+/**
+ * Entrée refusée par {@link ParkingService#enterVehicle} : aucune place libre pour ce type de véhicule.
+ */
+public class ParkingFullException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    public ParkingFullException(String message) {
+        super(message);
+    }
+}
@@ -1,8 +1,14 @@
 package com.parkit.parkingsystem.service;
 
+import com.parkit.parkingsystem.cache.PlateCodec;
 import com.parkit.parkingsystem.constants.ParkingType;
-import com.parkit.parkingsystem.dao.ParkingSpotDAO;
-import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotStore;
+import com.parkit.parkingsystem.dao.TicketStore;
+import com.parkit.parkingsystem.dao.UnitOfWork;
+import com.parkit.parkingsystem.dao.UnitOfWorkFactory;
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
 import com.parkit.parkingsystem.util.InputReaderUtil;
@@ -15,53 +21,366 @@ public class ParkingService {
 
     private static final Logger logger = LogManager.getLogger("ParkingService");
 
-    private static FareCalculatorService fareCalculatorService = new FareCalculatorService();
+    private static final Counter ENTRIES = Metrics.counter("ParkingService.entries");
+    private static final Counter ENTRY_ERRORS = Metrics.counter("ParkingService.entryErrors");
+    private static final Counter EXITS = Metrics.counter("ParkingService.exits");
+    private static final Counter EXIT_ERRORS = Metrics.counter("ParkingService.exitErrors");
+    private static final LatencyHistogram ENTER_VEHICLE_LATENCY = Metrics.histogram("ParkingService.enterVehicle");
+    private static final LatencyHistogram EXIT_VEHICLE_LATENCY = Metrics.histogram("ParkingService.exitVehicle");
+
+    private volatile FareCalculatorService fareCalculatorService = new FareCalculatorService();
 
     private InputReaderUtil inputReaderUtil;
-    private ParkingSpotDAO parkingSpotDAO;
-    private TicketDAO ticketDAO;
+    private ParkingSpotStore parkingSpotStore;
+    private TicketStore ticketStore;
+    private volatile OfflineGate offlineGate;
+    private volatile UnitOfWorkFactory unitOfWorkFactory;
 
-    public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO) {
+    public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotStore parkingSpotStore, TicketStore ticketStore) {
         this.inputReaderUtil = inputReaderUtil;
-        this.parkingSpotDAO = parkingSpotDAO;
-        this.ticketDAO = ticketDAO;
+        this.parkingSpotStore = parkingSpotStore;
+        this.ticketStore = ticketStore;
+    }
+
+    /**
+     * Active le mode hors ligne : si la base ne répond plus, les entrées et sorties sont journalisées localement
+     * puis rejouées à son retour.
+     */
+    public void setOfflineGate(OfflineGate offlineGate) {
+        this.offlineGate = offlineGate;
+    }
+
+    /**
+     * Change le tarif appliqué aux sorties ; par défaut celui de Fare.
+     */
+    public void setFareCalculatorService(FareCalculatorService fareCalculatorService) {
+        this.fareCalculatorService = fareCalculatorService;
+    }
+
+    /**
+     * Chaque entrée et chaque sortie en une seule transaction (voir {@link com.parkit.parkingsystem.dao.JdbcUnitOfWork}) ;
+     * sans fabrique, ou quand elle ne donne pas d'unité, les stores sont appelés un par un.
+     */
+    public void setUnitOfWorkFactory(UnitOfWorkFactory unitOfWorkFactory) {
+        this.unitOfWorkFactory = unitOfWorkFactory;
+    }
+
+    public boolean isOffline() {
+        OfflineGate gate = offlineGate;
+        return gate != null && gate.stayOffline();
     }
 
     public void processIncomingVehicle() {
         try {
-            ParkingSpot parkingSpot = getNextParkingNumberIfAvailable();
-            if (parkingSpot != null && parkingSpot.getId() > 0) {
+            if (isOffline()) {
+                ParkingType parkingType = getVehichleType();
                 String vehicleRegNumber = getVehichleRegNumber();
+                Ticket ticket = enterVehicle(parkingType, vehicleRegNumber, new Date());
+                System.out.println("Database unavailable : ticket recorded offline");
+                System.out.println("Please park your vehicle in spot number:" + ticket.getParkingSpot().getId());
+                System.out.println("Recorded in-time for vehicle number:" + vehicleRegNumber + " is:" + ticket.getInTime());
+                return;
+            }
+            UnitOfWork unitOfWork = beginUnitOfWork();
+            if (unitOfWork != null) {
+                processIncomingVehicle(unitOfWork);
+                return;
+            }
+            // La place est réservée en base dès maintenant : deux guichets ne peuvent pas obtenir la même
+            ParkingSpot parkingSpot = claimNextParkingNumberIfAvailable();
+            if (parkingSpot != null && parkingSpot.getId() > 0) {
+                String vehicleRegNumber;
+                try {
+                    vehicleRegNumber = getVehichleRegNumber();
+                } catch (Exception e) {
+                    releaseParkingSpot(parkingSpot);
+                    throw e;
+                }
 
                 // Etape #4 : Message de bienvenue pour les clients réguliers
-                int nbTicket = ticketDAO.getNbTicket(vehicleRegNumber);
+                int nbTicket = ticketStore.getNbTicket(vehicleRegNumber);
                 if (nbTicket >= 1) {
                     System.out.println("Heureux de vous revoir ! En tant qu’utilisateur régulier de notre parking, vous allez obtenir une remise de 5%");
                 }
 
-                parkingSpot.setAvailable(false);
-                parkingSpotDAO.updateParking(parkingSpot);
-
                 Date inTime = new Date();
-                Ticket ticket = new Ticket();
-                ticket.setParkingSpot(parkingSpot);
-                ticket.setVehicleRegNumber(vehicleRegNumber);
-                ticket.setPrice(0);
-                ticket.setInTime(inTime);
-                ticket.setOutTime(null);
-                ticketDAO.saveTicket(ticket);
+                if (openTicket(parkingSpot, vehicleRegNumber, inTime) == null) {
+                    System.out.println("Unable to save ticket information. Error occurred");
+                    printIfSwitchedOffline();
+                    return;
+                }
                 System.out.println("Generated Ticket and saved in DB");
                 System.out.println("Please park your vehicle in spot number:" + parkingSpot.getId());
                 System.out.println("Recorded in-time for vehicle number:" + vehicleRegNumber + " is:" + inTime);
+            } else {
+                printIfSwitchedOffline();
             }
         } catch (Exception e) {
+            ENTRY_ERRORS.increment();
             logger.error("Unable to process incoming vehicle", e);
         }
     }
 
+    /**
+     * Entrée console en une transaction : la saisie est faite avant le premier ordre SQL, la place n'est
+     * donc réservée qu'une fois l'immatriculation connue, et aucune connexion n'est gardée pendant la saisie.
+     */
+    private void processIncomingVehicle(UnitOfWork unitOfWork) throws Exception {
+        try (UnitOfWork uow = unitOfWork) {
+            ParkingType parkingType;
+            try {
+                parkingType = getVehichleType();
+            } catch (IllegalArgumentException ie) {
+                ENTRY_ERRORS.increment();
+                logger.error("Error parsing user input for type of vehicle", ie);
+                return;
+            }
+            String vehicleRegNumber = getVehichleRegNumber();
+
+            // Etape #4 : Message de bienvenue pour les clients réguliers
+            int nbTicket = uow.getNbTicket(vehicleRegNumber);
+            if (nbTicket >= 1) {
+                System.out.println("Heureux de vous revoir ! En tant qu’utilisateur régulier de notre parking, vous allez obtenir une remise de 5%");
+            }
+
+            ParkingSpot parkingSpot = uow.claimNextAvailableSlot(parkingType);
+            if (parkingSpot == null) {
+                ENTRY_ERRORS.increment();
+                logger.error("Error claiming parking number from DB. Parking slots might be full");
+                printIfSwitchedOffline();
+                return;
+            }
+            Date inTime = new Date();
+            if (openTicket(uow, parkingSpot, vehicleRegNumber, inTime) == null) {
+                System.out.println("Unable to save ticket information. Error occurred");
+                printIfSwitchedOffline();
+                return;
+            }
+            System.out.println("Generated Ticket and saved in DB");
+            System.out.println("Please park your vehicle in spot number:" + parkingSpot.getId());
+            System.out.println("Recorded in-time for vehicle number:" + vehicleRegNumber + " is:" + inTime);
+        }
+    }
+
+    /**
+     * Entrée d'un véhicule sans saisie console, pour les appels programmatiques (voir {@link AsyncParkingService}).
+     * La place est réservée puis le ticket enregistré ; en cas d'échec la place est rendue.
+     * Avec une unité de travail, les deux sont faits dans la même transaction.
+     * Si la base est injoignable et le mode hors ligne activé, l'entrée est journalisée localement.
+     *
+     * @return le ticket en cours du véhicule
+     * @throws ParkingFullException si aucune place n'est libre pour ce type
+     * @throws Exception             si le ticket n'a pas pu être enregistré
+     */
+    public Ticket enterVehicle(ParkingType parkingType, String vehicleRegNumber, Date inTime) throws Exception {
+        long start = System.nanoTime();
+        try {
+            if (vehicleRegNumber == null || vehicleRegNumber.trim().isEmpty()) {
+                ENTRY_ERRORS.increment();
+                throw new IllegalArgumentException("Invalid input provided");
+            }
+            vehicleRegNumber = PlateCodec.normalize(vehicleRegNumber);
+            Ticket ticket = enterVehicleOffline(parkingType, vehicleRegNumber, inTime, false);
+            if (ticket != null) {
+                return ticket;
+            }
+            ParkingSpot parkingSpot;
+            try (UnitOfWork unitOfWork = beginUnitOfWork()) {
+                parkingSpot = (unitOfWork != null) ? unitOfWork.claimNextAvailableSlot(parkingType) : parkingSpotStore.claimNextAvailableSlot(parkingType);
+                if (parkingSpot != null) {
+                    ticket = (unitOfWork != null) ? openTicket(unitOfWork, parkingSpot, vehicleRegNumber, inTime) : openTicket(parkingSpot, vehicleRegNumber, inTime);
+                } else {
+                    ENTRY_ERRORS.increment();
+                }
+            }
+            if (ticket == null) {
+                ticket = enterVehicleOffline(parkingType, vehicleRegNumber, inTime, true);
+            }
+            if (ticket == null && parkingSpot == null) {
+                throw new ParkingFullException("Error claiming parking number from DB. Parking slots might be full");
+            }
+            if (ticket == null) {
+                throw new Exception("Unable to save ticket information for vehicle " + vehicleRegNumber);
+            }
+            return ticket;
+        } finally {
+            ENTER_VEHICLE_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * Sortie d'un véhicule sans saisie console : le ticket en cours est clôturé et la place libérée.
+     *
+     * @return le ticket clôturé, avec son prix
+     * @throws Exception si le véhicule n'a pas de ticket en cours ou si le ticket n'a pas pu être mis à jour
+     */
+    public Ticket exitVehicle(String vehicleRegNumber, Date outTime) throws Exception {
+        long start = System.nanoTime();
+        try {
+            vehicleRegNumber = PlateCodec.normalize(vehicleRegNumber);
+            Ticket closedTicket = exitVehicleOffline(vehicleRegNumber, outTime, false);
+            if (closedTicket != null) {
+                return closedTicket;
+            }
+            Ticket ticket;
+            boolean isClosed;
+            try (UnitOfWork unitOfWork = beginUnitOfWork()) {
+                ticket = (unitOfWork != null) ? unitOfWork.getTicket(vehicleRegNumber) : ticketStore.getTicket(vehicleRegNumber);
+                if (ticket == null || ticket.getOutTime() != null) {
+                    EXIT_ERRORS.increment();
+                    throw new Exception("No vehicle parked with registration number " + vehicleRegNumber);
+                }
+                isClosed = (unitOfWork != null) ? closeTicket(unitOfWork, ticket, outTime) : closeTicket(ticket, outTime);
+            }
+            if (!isClosed) {
+                closedTicket = exitVehicleOffline(vehicleRegNumber, outTime, true);
+                if (closedTicket != null) {
+                    return closedTicket;
+                }
+                throw new Exception("Unable to update ticket information for vehicle " + vehicleRegNumber);
+            }
+            return ticket;
+        } finally {
+            EXIT_VEHICLE_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * @param afterFailure true après l'échec de l'opération en ligne : la base est alors testée
+     * @return le ticket traité hors ligne, ou null si le guichet est en ligne
+     */
+    private Ticket enterVehicleOffline(ParkingType parkingType, String vehicleRegNumber, Date inTime, boolean afterFailure) throws Exception {
+        OfflineGate gate = offlineGate;
+        if (gate == null || !(afterFailure ? gate.switchOfflineIfDatabaseDown() : gate.stayOffline())) {
+            return null;
+        }
+        Ticket ticket = gate.enterVehicle(parkingType, vehicleRegNumber, inTime);
+        if (ticket != null) {
+            ENTRIES.increment();
+        }
+        return ticket;
+    }
+
+    private Ticket exitVehicleOffline(String vehicleRegNumber, Date outTime, boolean afterFailure) throws Exception {
+        OfflineGate gate = offlineGate;
+        if (gate == null || !(afterFailure ? gate.switchOfflineIfDatabaseDown() : gate.stayOffline())) {
+            return null;
+        }
+        Ticket ticket = gate.exitVehicle(vehicleRegNumber, outTime);
+        if (ticket != null) {
+            EXITS.increment();
+        }
+        return ticket;
+    }
+
+    private void printIfSwitchedOffline() {
+        OfflineGate gate = offlineGate;
+        if (gate != null && gate.switchOfflineIfDatabaseDown()) {
+            System.out.println("Database unavailable : the gate is now offline, please try again");
+        }
+    }
+
+    /**
+     * Enregistre le ticket d'entrée sur une place déjà réservée, et rend la place si l'enregistrement échoue.
+     *
+     * @return le ticket enregistré, ou null
+     */
+    private Ticket openTicket(ParkingSpot parkingSpot, String vehicleRegNumber, Date inTime) {
+        Ticket ticket = newTicket(parkingSpot, vehicleRegNumber, inTime);
+        if (!ticketStore.saveTicket(ticket)) {
+            ENTRY_ERRORS.increment();
+            releaseParkingSpot(parkingSpot);
+            return null;
+        }
+        ENTRIES.increment();
+        return ticket;
+    }
+
+    /**
+     * Enregistre le ticket et commite l'unité ; si l'un échoue, la réservation de la place est annulée avec elle.
+     *
+     * @return le ticket enregistré, ou null
+     */
+    private Ticket openTicket(UnitOfWork unitOfWork, ParkingSpot parkingSpot, String vehicleRegNumber, Date inTime) {
+        Ticket ticket = newTicket(parkingSpot, vehicleRegNumber, inTime);
+        if (!unitOfWork.saveTicket(ticket) || !unitOfWork.commit()) {
+            ENTRY_ERRORS.increment();
+            return null;
+        }
+        ENTRIES.increment();
+        return ticket;
+    }
+
+    private static Ticket newTicket(ParkingSpot parkingSpot, String vehicleRegNumber, Date inTime) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(parkingSpot);
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setPrice(0);
+        ticket.setInTime(inTime);
+        ticket.setOutTime(null);
+        return ticket;
+    }
+
+    /**
+     * Calcule le prix du ticket, l'enregistre puis libère la place.
+     *
+     * @return false si le ticket n'a pas pu être mis à jour (la place reste alors occupée)
+     */
+    private boolean closeTicket(Ticket ticket, Date outTime) {
+        ticket.setOutTime(outTime);
+
+        // Etape #4 : Vérifie si le client est régulier
+        int nbTicket = ticketStore.getNbTicket(ticket.getVehicleRegNumber());
+        boolean discount = nbTicket > 1;
+
+        // Calcul du prix du ticket
+        fareCalculatorService.calculateFare(ticket, discount);
+
+        if (!ticketStore.updateTicket(ticket)) {
+            EXIT_ERRORS.increment();
+            return false;
+        }
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        parkingSpot.setAvailable(true);
+        parkingSpotStore.updateParking(parkingSpot);
+        EXITS.increment();
+        return true;
+    }
+
+    /**
+     * Comme closeTicket, mais le ticket clôturé et la place libérée sont commités ensemble, ou pas du tout.
+     *
+     * @return false si l'unité n'a pas pu être commitée (le ticket reste alors ouvert et la place occupée)
+     */
+    private boolean closeTicket(UnitOfWork unitOfWork, Ticket ticket, Date outTime) {
+        ticket.setOutTime(outTime);
+
+        // Etape #4 : Vérifie si le client est régulier
+        int nbTicket = unitOfWork.getNbTicket(ticket.getVehicleRegNumber());
+        boolean discount = nbTicket > 1;
+
+        // Calcul du prix du ticket
+        fareCalculatorService.calculateFare(ticket, discount);
+
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        ParkingSpot releasedParkingSpot = new ParkingSpot(parkingSpot.getId(), parkingSpot.getParkingType(), true);
+        if (!unitOfWork.updateTicket(ticket) || !unitOfWork.updateParking(releasedParkingSpot) || !unitOfWork.commit()) {
+            EXIT_ERRORS.increment();
+            return false;
+        }
+        parkingSpot.setAvailable(true);
+        EXITS.increment();
+        return true;
+    }
+
+    private UnitOfWork beginUnitOfWork() {
+        UnitOfWorkFactory factory = unitOfWorkFactory;
+        return (factory == null) ? null : factory.begin();
+    }
+
     private String getVehichleRegNumber() throws Exception {
         System.out.println("Please type the vehicle registration number and press enter key");
-        return inputReaderUtil.readVehicleRegistrationNumber();
+        return PlateCodec.normalize(inputReaderUtil.readVehicleRegistrationNumber());
     }
 
     public ParkingSpot getNextParkingNumberIfAvailable() {
@@ -69,7 +388,7 @@ public class ParkingService {
         ParkingSpot parkingSpot = null;
         try {
             ParkingType parkingType = getVehichleType();
-            parkingNumber = parkingSpotDAO.getNextAvailableSlot(parkingType);
+            parkingNumber = parkingSpotStore.getNextAvailableSlot(parkingType);
             if (parkingNumber > 0) {
                 parkingSpot = new ParkingSpot(parkingNumber, parkingType, true);
             } else {
@@ -83,6 +402,34 @@ public class ParkingService {
         return parkingSpot;
     }
 
+    /**
+     * Comme getNextParkingNumberIfAvailable, mais la place renvoyée est déjà réservée (non disponible).
+     */
+    private ParkingSpot claimNextParkingNumberIfAvailable() {
+        ParkingSpot parkingSpot = null;
+        try {
+            ParkingType parkingType = getVehichleType();
+            parkingSpot = parkingSpotStore.claimNextAvailableSlot(parkingType);
+            if (parkingSpot == null) {
+                throw new Exception("Error claiming parking number from DB. Parking slots might be full");
+            }
+        } catch (IllegalArgumentException ie) {
+            ENTRY_ERRORS.increment();
+            logger.error("Error parsing user input for type of vehicle", ie);
+        } catch (Exception e) {
+            ENTRY_ERRORS.increment();
+            logger.error("Error fetching next available parking slot", e);
+        }
+        return parkingSpot;
+    }
+
+    private void releaseParkingSpot(ParkingSpot parkingSpot) {
+        parkingSpot.setAvailable(true);
+        if (!parkingSpotStore.updateParking(parkingSpot)) {
+            logger.error("Unable to release parking spot {}", parkingSpot.getId());
+        }
+    }
+
     private ParkingType getVehichleType() {
         System.out.println("Please select vehicle type from menu");
         System.out.println("1 CAR");
@@ -105,27 +452,29 @@ public class ParkingService {
     public void processExitingVehicle() {
         try {
             String vehicleRegNumber = getVehichleRegNumber();
-            Ticket ticket = ticketDAO.getTicket(vehicleRegNumber);
+            if (isOffline()) {
+                Ticket ticket = exitVehicle(vehicleRegNumber, new Date());
+                System.out.println("Database unavailable : exit recorded offline");
+                System.out.println("Please pay the parking fare : " + ticket.getPrice());
+                System.out.println("Recorded out-time for vehicle number : " + vehicleRegNumber + " is : " + ticket.getOutTime());
+                return;
+            }
+            Ticket ticket;
             Date outTime = new Date();
-            ticket.setOutTime(outTime);
-
-            // Etape #4 : Vérifie si le client est régulier
-            int nbTicket = ticketDAO.getNbTicket(vehicleRegNumber);
-            boolean discount = nbTicket > 1;
-
-            // Calcul du prix du ticket
-            fareCalculatorService.calculateFare(ticket, discount);
-
-            if (ticketDAO.updateTicket(ticket)) {
-                ParkingSpot parkingSpot = ticket.getParkingSpot();
-                parkingSpot.setAvailable(true);
-                parkingSpotDAO.updateParking(parkingSpot);
+            boolean isClosed;
+            try (UnitOfWork unitOfWork = beginUnitOfWork()) {
+                ticket = (unitOfWork != null) ? unitOfWork.getTicket(vehicleRegNumber) : ticketStore.getTicket(vehicleRegNumber);
+                isClosed = (unitOfWork != null) ? closeTicket(unitOfWork, ticket, outTime) : closeTicket(ticket, outTime);
+            }
+            if (isClosed) {
                 System.out.println("Please pay the parking fare : " + ticket.getPrice());
                 System.out.println("Recorded out-time for vehicle number : " + ticket.getVehicleRegNumber() + " is : " + outTime);
             } else {
                 System.out.println("Unable to update ticket information. Error occurred");
+                printIfSwitchedOffline();
             }
         } catch (Exception e) {
+            EXIT_ERRORS.increment();
             logger.error("Unable to process exiting vehicle", e);
         }
     }
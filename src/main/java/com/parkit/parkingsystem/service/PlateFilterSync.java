@@ -0,0 +1,54 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.dao.TicketDAO;
+
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tient à jour le filtre des plaques de TicketDAO : ajoute périodiquement les plaques des tickets enregistrés
+ * par les autres guichets, puis sauvegarde le filtre, une dernière fois à l'arrêt.
+ * Entre deux passages, un véhicule venu par un autre guichet peut encore être vu comme nouveau à celui-ci.
+ */
+public class PlateFilterSync {
+
+    private final TicketDAO ticketDAO;
+    private final Path file;
+    private final ScheduledExecutorService scheduler;
+
+    public PlateFilterSync(TicketDAO ticketDAO, Path file, long periodSeconds) {
+        if (periodSeconds <= 0) {
+            throw new IllegalArgumentException("Plate filter sync period must be positive : " + periodSeconds);
+        }
+        this.ticketDAO = ticketDAO;
+        this.file = file;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "plate-filter-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::sync, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Le filtre est sauvegardé même si la base n'a pas pu être lue : il reprendra au dernier ticket lu.
+     *
+     * @return false si la base n'a pas pu être lue ou le fichier écrit
+     */
+    public boolean sync() {
+        boolean isRefreshed = ticketDAO.refreshPlateFilter();
+        return ticketDAO.savePlateFilter(file) && isRefreshed;
+    }
+
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ticketDAO.savePlateFilter(file);
+    }
+}
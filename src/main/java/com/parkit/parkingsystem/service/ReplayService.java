@@ -0,0 +1,221 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotStore;
+import com.parkit.parkingsystem.dao.InMemoryTicketStore;
+import com.parkit.parkingsystem.dao.JdbcUnitOfWork;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotStore;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Rejoue sans console un fichier d'événements d'entrée et de sortie, ligne par ligne :
+ * la mémoire utilisée ne dépend pas de la taille du fichier.
+ * <p>
+ * Une ligne par événement, les lignes vides et celles commençant par # sont ignorées :
+ * <pre>
+ * 2024-03-04T08:15:00,IN,AB-123-CD,CAR
+ * 2024-03-04T09:40:12,OUT,AB-123-CD
+ * </pre>
+ * L'horodatage (heure locale, format ISO-8601) sert d'heure d'entrée ou de sortie du ticket.
+ */
+public class ReplayService {
+
+    private static final Logger logger = LogManager.getLogger("ReplayService");
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private final ParkingService parkingService;
+    private final ParkingSpotStore parkingSpotStore;
+
+    public ReplayService(ParkingService parkingService, ParkingSpotStore parkingSpotStore) {
+        this.parkingService = parkingService;
+        this.parkingSpotStore = parkingSpotStore;
+    }
+
+    /**
+     * Point d'entrée de App --replay : rejoue le fichier sur la base configurée et affiche le rapport.
+     * Avec -Dstorage=memory, le fichier est rejoué sans base sur un parking en mémoire
+     * (-Dmemory.car.spots, -Dmemory.bike.spots), pour mesurer le service seul.
+     */
+    public static void replayFile(String fileName) {
+        logger.info("Replaying events from {}", fileName);
+        if ("memory".equals(System.getProperty("storage"))) {
+            InMemoryParkingSpotStore parkingSpotStore = InMemoryParkingSpotStore.withLot(
+                    Integer.getInteger("memory.car.spots", 3), Integer.getInteger("memory.bike.spots", 2));
+            replayFile(fileName, new ReplayService(new ParkingService(null, parkingSpotStore, new InMemoryTicketStore()), parkingSpotStore));
+            return;
+        }
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.reconcileFreeSpots();
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.loadOpenTickets();
+        try {
+            ParkingService parkingService = new ParkingService(null, parkingSpotDAO, ticketDAO);
+            parkingService.setUnitOfWorkFactory(JdbcUnitOfWork.factory(parkingSpotDAO, ticketDAO));
+            replayFile(fileName, new ReplayService(parkingService, parkingSpotDAO));
+        } finally {
+            parkingSpotDAO.dataBaseConfig.closePool();
+        }
+    }
+
+    private static void replayFile(String fileName, ReplayService replayService) {
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(fileName), StandardCharsets.UTF_8)) {
+            System.out.println(replayService.replay(reader));
+        } catch (IOException e) {
+            logger.error("Unable to read event file {}", fileName, e);
+        }
+    }
+
+    public Report replay(BufferedReader reader) throws IOException {
+        Report report = new Report();
+        long start = System.nanoTime();
+        String line;
+        long lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.charAt(0) == '#') {
+                continue;
+            }
+            report.events++;
+            try {
+                replayEvent(line, report);
+            } catch (IllegalArgumentException | DateTimeException e) {
+                report.malformed++;
+                logger.error("Malformed event at line {} : {}", lineNumber, line);
+            } catch (Exception e) {
+                // place introuvable, parking complet... : l'événement est compté et le rejeu continue
+                report.rejected++;
+                logger.debug("Event rejected at line {} : {}", lineNumber, e.getMessage());
+            }
+        }
+        report.elapsedNanos = System.nanoTime() - start;
+        readLotState(report);
+        return report;
+    }
+
+    private void replayEvent(String line, Report report) throws Exception {
+        int first = line.indexOf(',');
+        int second = (first < 0) ? -1 : line.indexOf(',', first + 1);
+        if (second < 0) {
+            throw new IllegalArgumentException("Expected timestamp,direction,plate[,type]");
+        }
+        int third = line.indexOf(',', second + 1);
+        Date time = Date.from(LocalDateTime.parse(line.substring(0, first).trim()).atZone(ZONE).toInstant());
+        String direction = line.substring(first + 1, second).trim();
+        String vehicleRegNumber = line.substring(second + 1, (third < 0) ? line.length() : third).trim();
+        if ("IN".equalsIgnoreCase(direction)) {
+            if (third < 0) {
+                throw new IllegalArgumentException("Missing vehicle type");
+            }
+            ParkingType parkingType = ParkingType.valueOf(line.substring(third + 1).trim().toUpperCase());
+            parkingService.enterVehicle(parkingType, vehicleRegNumber, time);
+            report.entries++;
+        } else if ("OUT".equalsIgnoreCase(direction)) {
+            Ticket ticket = parkingService.exitVehicle(vehicleRegNumber, time);
+            report.exits++;
+            report.revenueInCents += Math.round(ticket.getPrice() * 100);
+        } else {
+            throw new IllegalArgumentException("Unknown direction " + direction);
+        }
+    }
+
+    private void readLotState(Report report) {
+        List<ParkingSpot> parkingSpots = parkingSpotStore.getAllParkingSpots();
+        if (parkingSpots == null) {
+            return;
+        }
+        for (ParkingSpot parkingSpot : parkingSpots) {
+            int type = parkingSpot.getParkingType().ordinal();
+            report.totalSpots[type]++;
+            if (parkingSpot.isAvailable()) {
+                report.availableSpots[type]++;
+            }
+        }
+    }
+
+    /**
+     * Compteurs du rejeu et état du parking à la fin.
+     */
+    public static final class Report {
+        private long events;
+        private long entries;
+        private long exits;
+        private long rejected;
+        private long malformed;
+        private long revenueInCents;
+        private long elapsedNanos;
+        private final int[] totalSpots = new int[ParkingType.values().length];
+        private final int[] availableSpots = new int[ParkingType.values().length];
+
+        public long getEvents() {
+            return events;
+        }
+
+        public long getEntries() {
+            return entries;
+        }
+
+        public long getExits() {
+            return exits;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public long getMalformed() {
+            return malformed;
+        }
+
+        public long getRevenueInCents() {
+            return revenueInCents;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getEventsPerSecond() {
+            return (elapsedNanos == 0) ? 0 : events * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        public int getTotalSpots(ParkingType parkingType) {
+            return totalSpots[parkingType.ordinal()];
+        }
+
+        public int getAvailableSpots(ParkingType parkingType) {
+            return availableSpots[parkingType.ordinal()];
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("Replayed %d events in %d ms (%.0f events/s)%n", events, elapsedNanos / 1_000_000, getEventsPerSecond()));
+            sb.append(String.format("Entries : %d, exits : %d, rejected : %d, malformed : %d%n", entries, exits, rejected, malformed));
+            sb.append(String.format("Revenue : %d.%02d%n", revenueInCents / 100, revenueInCents % 100));
+            for (ParkingType parkingType : ParkingType.values()) {
+                int type = parkingType.ordinal();
+                sb.append(String.format("%s : %d occupied, %d available out of %d%n", parkingType,
+                        totalSpots[type] - availableSpots[type], availableSpots[type], totalSpots[type]));
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.dao.TicketArchiveDAO;
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.Metrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Archive périodiquement les tickets sortis depuis plus de maxAgeDays jours, pour garder la table ticket petite.
+ * Chaque passage déplace les tickets par petits lots, une transaction courte par lot, avec une pause entre deux lots :
+ * le débit d'archivage est borné et les guichets gardent la base pour eux.
+ * Les compteurs de passages (vehicle_visit) ne sont pas touchés ; l'historique lit aussi la table ticket_archive.
+ */
+public class TicketArchiver {
+
+    private static final Logger logger = LogManager.getLogger("TicketArchiver");
+
+    private static final Counter ARCHIVED = Metrics.counter("TicketArchiver.archived");
+
+    private final TicketArchiveDAO ticketArchiveDAO;
+    private final long maxAgeMillis;
+    private final int batchSize;
+    private final long pauseMillis;
+    private final ScheduledExecutorService scheduler;
+    private volatile boolean closed;
+
+    public TicketArchiver(TicketArchiveDAO ticketArchiveDAO, long maxAgeDays, int batchSize, long pauseMillis, long periodSeconds) {
+        if (maxAgeDays <= 0) {
+            throw new IllegalArgumentException("Archive age must be positive : " + maxAgeDays);
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Archive batch size must be positive : " + batchSize);
+        }
+        if (pauseMillis < 0) {
+            throw new IllegalArgumentException("Archive pause must not be negative : " + pauseMillis);
+        }
+        if (periodSeconds <= 0) {
+            throw new IllegalArgumentException("Archive period must be positive : " + periodSeconds);
+        }
+        this.ticketArchiveDAO = ticketArchiveDAO;
+        this.maxAgeMillis = TimeUnit.DAYS.toMillis(maxAgeDays);
+        this.batchSize = batchSize;
+        this.pauseMillis = pauseMillis;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ticket-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::archive, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Archive lot après lot jusqu'à ce qu'il ne reste plus de ticket assez ancien.
+     * Une erreur arrête le passage ; les tickets restants seront archivés au suivant.
+     *
+     * @return le nombre de tickets archivés pendant ce passage
+     */
+    public int archive() {
+        long closedBefore = System.currentTimeMillis() - maxAgeMillis;
+        int nbArchived = 0;
+        try {
+            while (!closed) {
+                int nbBatch = ticketArchiveDAO.archiveBatch(closedBefore, batchSize);
+                if (nbBatch < 0) {
+                    break;
+                }
+                nbArchived += nbBatch;
+                ARCHIVED.add(nbBatch);
+                if (nbBatch < batchSize) {
+                    break;
+                }
+                if (pauseMillis > 0) {
+                    Thread.sleep(pauseMillis);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.error("Unable to archive tickets", e);
+        }
+        if (nbArchived > 0) {
+            logger.info("{} tickets archived", nbArchived);
+        }
+        return nbArchived;
+    }
+
+    public void close() {
+        closed = true;
+        scheduler.shutdownNow();
+    }
+}
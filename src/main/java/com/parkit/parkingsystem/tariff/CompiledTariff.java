@@ -0,0 +1,225 @@
+package com.parkit.parkingsystem.tariff;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+
+/**
+ * Tarif par plages horaires compilé par {@link TariffSchedule#compile(ZoneId)} : le prix d'un stationnement,
+ * quelle que soit sa durée, est calculé en temps constant avec des tables précalculées :
+ * <ul>
+ * <li>le coût cumulé depuis minuit de chaque minute de la journée, en semaine et le week-end ;</li>
+ * <li>le coût plafonné de chaque jour de la semaine, cumulé sur deux semaines, et celui d'une semaine entière.</li>
+ * </ul>
+ * Le premier et le dernier jour (partiels) sont lus dans la première table, les jours entiers entre les deux
+ * dans la seconde. Les coûts sont en centimes x millisecondes / heure, pour rester exacts jusqu'à l'arrondi final.
+ * <p>
+ * Les jours et les plages sont ceux de l'heure locale du fuseau, mais seul le temps réellement passé est facturé :
+ * un stationnement qui traverse un changement d'heure est découpé à chaque changement. L'heure rejouée à l'automne
+ * est facturée deux fois, l'heure sautée au printemps ne l'est pas ; le maximum journalier porte sur le jour local entier.
+ */
+public final class CompiledTariff implements Tariff {
+
+    static final int MINUTES_PER_DAY = 24 * 60;
+    static final int WEEKDAY = 0;
+    static final int WEEKEND = 1;
+
+    private static final long MILLIS_PER_MINUTE = 60_000;
+    private static final long MILLIS_PER_DAY = 24 * 60 * MILLIS_PER_MINUTE;
+    private static final long MILLIS_PER_HOUR = 60 * MILLIS_PER_MINUTE;
+
+    private final String name;
+    private final ZoneRules zoneRules;
+    // dernière période sans changement d'heure utilisée, la seule pour un fuseau à décalage fixe
+    private OffsetPeriod lastPeriod;
+    // [type][WEEKDAY|WEEKEND][minute]
+    private final long[][][] minuteRates;
+    // [type][WEEKDAY|WEEKEND][minute 0..1440] : coût de minuit au début de la minute
+    private final long[][][] cumulativeCosts;
+    // [type] : maximum par jour, Long.MAX_VALUE sans maximum
+    private final long[] dailyMaxCosts;
+    // [type][0..14] : coût plafonné des jours entiers, cumulé depuis un lundi
+    private final long[][] fullDayCosts;
+    private final long freeMillis;
+    private final int discountPercent;
+
+    CompiledTariff(String name, ZoneId zone, long[][][] minuteRates, long[] dailyMaxCents, int freeMinutes, int discountPercent) {
+        this.name = name;
+        this.zoneRules = zone.getRules();
+        this.lastPeriod = zoneRules.isFixedOffset() ? new OffsetPeriod(Long.MIN_VALUE, Long.MAX_VALUE, zoneRules.getOffset(Instant.EPOCH)) : null;
+        this.minuteRates = minuteRates;
+        this.freeMillis = freeMinutes * MILLIS_PER_MINUTE;
+        this.discountPercent = discountPercent;
+        int nbTypes = minuteRates.length;
+        this.cumulativeCosts = new long[nbTypes][2][MINUTES_PER_DAY + 1];
+        this.dailyMaxCosts = new long[nbTypes];
+        this.fullDayCosts = new long[nbTypes][15];
+        for (int type = 0; type < nbTypes; type++) {
+            for (int dayKind = WEEKDAY; dayKind <= WEEKEND; dayKind++) {
+                for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+                    cumulativeCosts[type][dayKind][minute + 1] = cumulativeCosts[type][dayKind][minute]
+                            + minuteRates[type][dayKind][minute] * MILLIS_PER_MINUTE;
+                }
+            }
+            dailyMaxCosts[type] = (dailyMaxCents[type] == 0) ? Long.MAX_VALUE : dailyMaxCents[type] * MILLIS_PER_HOUR;
+            for (int day = 0; day < 14; day++) {
+                long dayCost = cumulativeCosts[type][dayKind(day % 7)][MINUTES_PER_DAY];
+                fullDayCosts[type][day + 1] = fullDayCosts[type][day] + Math.min(dayCost, dailyMaxCosts[type]);
+            }
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long fareInCents(long inTimeMillis, long outTimeMillis, int parkingType, boolean discount) {
+        if (outTimeMillis < inTimeMillis) {
+            throw new IllegalArgumentException("Out time provided is incorrect : " + outTimeMillis + " < In time " + inTimeMillis);
+        }
+        if (parkingType < 0 || parkingType >= minuteRates.length) {
+            throw new IllegalArgumentException("Unknown Parking Type");
+        }
+        if (outTimeMillis - inTimeMillis <= freeMillis) {
+            return 0;
+        }
+        DayCosts dayCosts = new DayCosts(dailyMaxCosts[parkingType]);
+        long segmentIn = inTimeMillis;
+        while (true) {
+            // le décalage est constant sur le segment : les durées locales y sont les durées réelles
+            OffsetPeriod period = periodOf(segmentIn);
+            long segmentOut = Math.min(outTimeMillis, period.endMillis);
+            addCost(dayCosts, parkingType, segmentIn + period.offsetMillis, segmentOut + period.offsetMillis);
+            if (segmentOut == outTimeMillis) {
+                break;
+            }
+            segmentIn = segmentOut;
+        }
+        long cost = Math.max(0, dayCosts.total());
+        // arrondi au centime (demi supérieur), après la remise
+        long scale = MILLIS_PER_HOUR;
+        if (discount) {
+            cost *= 100 - discountPercent;
+            scale *= 100;
+        }
+        return (cost + scale / 2) / scale;
+    }
+
+    private void addCost(DayCosts dayCosts, int parkingType, long localIn, long localOut) {
+        long dayIn = Math.floorDiv(localIn, MILLIS_PER_DAY);
+        long dayOut = Math.floorDiv(localOut, MILLIS_PER_DAY);
+        long inOfDay = localIn - dayIn * MILLIS_PER_DAY;
+        long outOfDay = localOut - dayOut * MILLIS_PER_DAY;
+        if (dayIn == dayOut) {
+            dayCosts.add(dayIn, costSinceMidnight(parkingType, dayIn, outOfDay) - costSinceMidnight(parkingType, dayIn, inOfDay));
+        } else {
+            dayCosts.add(dayIn, costSinceMidnight(parkingType, dayIn, MILLIS_PER_DAY) - costSinceMidnight(parkingType, dayIn, inOfDay));
+            dayCosts.addFullDays(fullDaysCost(parkingType, dayIn + 1, dayOut - dayIn - 1));
+            dayCosts.add(dayOut, costSinceMidnight(parkingType, dayOut, outOfDay));
+        }
+    }
+
+    private OffsetPeriod periodOf(long epochMillis) {
+        OffsetPeriod period = lastPeriod;
+        if (period != null && epochMillis >= period.startMillis && epochMillis < period.endMillis) {
+            return period;
+        }
+        Instant instant = Instant.ofEpochMilli(epochMillis);
+        // previousTransition est strictement antérieur : un changement à l'instant même ouvre la période
+        ZoneOffsetTransition previous = zoneRules.previousTransition(instant.plusMillis(1));
+        ZoneOffsetTransition next = zoneRules.nextTransition(instant);
+        period = new OffsetPeriod((previous == null) ? Long.MIN_VALUE : previous.toEpochSecond() * 1000,
+                (next == null) ? Long.MAX_VALUE : next.toEpochSecond() * 1000, zoneRules.getOffset(instant));
+        // objet immuable : partagé sans synchronisation entre les threads d'une simulation
+        lastPeriod = period;
+        return period;
+    }
+
+    /**
+     * @param millisOfDay de 0 à MILLIS_PER_DAY inclus
+     */
+    private long costSinceMidnight(int parkingType, long epochDay, long millisOfDay) {
+        int dayKind = dayKind(dayOfWeek(epochDay));
+        int minute = (int) (millisOfDay / MILLIS_PER_MINUTE);
+        long cost = cumulativeCosts[parkingType][dayKind][minute];
+        if (minute < MINUTES_PER_DAY) {
+            cost += minuteRates[parkingType][dayKind][minute] * (millisOfDay - minute * MILLIS_PER_MINUTE);
+        }
+        return cost;
+    }
+
+    private long fullDaysCost(int parkingType, long firstEpochDay, long nbDays) {
+        int firstDayOfWeek = dayOfWeek(firstEpochDay);
+        long[] costs = fullDayCosts[parkingType];
+        return (nbDays / 7) * costs[7] + costs[firstDayOfWeek + (int) (nbDays % 7)] - costs[firstDayOfWeek];
+    }
+
+    /**
+     * @return 0 pour lundi ... 6 pour dimanche (le 1er janvier 1970 est un jeudi)
+     */
+    private static int dayOfWeek(long epochDay) {
+        return (int) Math.floorMod(epochDay + 3, 7L);
+    }
+
+    private static int dayKind(int dayOfWeek) {
+        return (dayOfWeek >= 5) ? WEEKEND : WEEKDAY;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (schedule)";
+    }
+
+    /**
+     * Intervalle [startMillis, endMillis[ de temps réel sur lequel le fuseau garde le même décalage.
+     */
+    private static final class OffsetPeriod {
+
+        final long startMillis;
+        final long endMillis;
+        final long offsetMillis;
+
+        OffsetPeriod(long startMillis, long endMillis, ZoneOffset offset) {
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+            this.offsetMillis = offset.getTotalSeconds() * 1000L;
+        }
+    }
+
+    /**
+     * Somme des coûts plafonnés par jour local. Les segments arrivent dans l'ordre : les morceaux d'un même jour
+     * (de part et d'autre d'un changement d'heure) se suivent et sont additionnés avant d'être plafonnés.
+     */
+    private static final class DayCosts {
+
+        private final long dailyMax;
+        private long total;
+        private long currentDay = Long.MIN_VALUE;
+        private long currentDayCost;
+
+        DayCosts(long dailyMax) {
+            this.dailyMax = dailyMax;
+        }
+
+        void add(long epochDay, long cost) {
+            if (epochDay != currentDay) {
+                total += Math.min(dailyMax, currentDayCost);
+                currentDay = epochDay;
+                currentDayCost = 0;
+            }
+            currentDayCost += cost;
+        }
+
+        void addFullDays(long cost) {
+            total += cost;
+        }
+
+        long total() {
+            return total + Math.min(dailyMax, currentDayCost);
+        }
+    }
+}
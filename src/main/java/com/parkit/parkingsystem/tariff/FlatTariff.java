@@ -0,0 +1,105 @@
+package com.parkit.parkingsystem.tariff;
+
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.TreeSet;
+
+/**
+ * Tarif horaire par type de place, avec une durée gratuite et une remise en pourcentage : la règle de {@link Fare}.
+ * La durée est arrondie au centième d'heure, le prix est arrondi au centime (demi supérieur) une seule fois, à la fin.
+ * <p>
+ * Des tarifs candidats peuvent être décrits dans un fichier de propriétés, les valeurs absentes sont celles de Fare :
+ * <pre>
+ * tariff.plus20.car.cents.per.hour=180
+ * tariff.plus20.bike.cents.per.hour=120
+ * tariff.plus20.free.minutes=20
+ * tariff.plus20.discount.percent=10
+ * </pre>
+ */
+public class FlatTariff implements Tariff {
+
+    private static final long MILLIS_PER_CENTI_HOUR = 36_000;
+
+    public static final FlatTariff CURRENT = new FlatTariff("current", Fare.CAR_RATE_CENTS_PER_HOUR,
+            Fare.BIKE_RATE_CENTS_PER_HOUR, Fare.FREE_DURATION_MINUTES, Fare.DISCOUNT_PERCENT);
+
+    private final String name;
+    // Tarif horaire en centimes, indexé par ParkingType.ordinal()
+    private final long[] rateCentsPerHour = new long[ParkingType.values().length];
+    private final int freeMinutes;
+    private final long freeCentiHours;
+    private final int discountPercent;
+
+    public FlatTariff(String name, long carRateCentsPerHour, long bikeRateCentsPerHour, int freeMinutes, int discountPercent) {
+        if (carRateCentsPerHour < 0 || bikeRateCentsPerHour < 0 || freeMinutes < 0 || discountPercent < 0 || discountPercent > 100) {
+            throw new IllegalArgumentException("Invalid tariff " + name);
+        }
+        this.name = name;
+        this.rateCentsPerHour[ParkingType.CAR.ordinal()] = carRateCentsPerHour;
+        this.rateCentsPerHour[ParkingType.BIKE.ordinal()] = bikeRateCentsPerHour;
+        this.freeMinutes = freeMinutes;
+        this.freeCentiHours = freeMinutes * 100L / 60;
+        this.discountPercent = discountPercent;
+    }
+
+    /**
+     * @return les tarifs du fichier, dans l'ordre de leurs noms
+     */
+    public static List<Tariff> load(Properties properties) {
+        TreeSet<String> names = new TreeSet<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith("tariff.") && key.indexOf('.', "tariff.".length()) > 0) {
+                names.add(key.substring("tariff.".length(), key.indexOf('.', "tariff.".length())));
+            }
+        }
+        List<Tariff> tariffs = new ArrayList<>();
+        for (String name : names) {
+            String prefix = "tariff." + name + ".";
+            tariffs.add(new FlatTariff(name,
+                    Long.parseLong(properties.getProperty(prefix + "car.cents.per.hour", String.valueOf(Fare.CAR_RATE_CENTS_PER_HOUR)).trim()),
+                    Long.parseLong(properties.getProperty(prefix + "bike.cents.per.hour", String.valueOf(Fare.BIKE_RATE_CENTS_PER_HOUR)).trim()),
+                    Integer.parseInt(properties.getProperty(prefix + "free.minutes", String.valueOf(Fare.FREE_DURATION_MINUTES)).trim()),
+                    Integer.parseInt(properties.getProperty(prefix + "discount.percent", String.valueOf(Fare.DISCOUNT_PERCENT)).trim())));
+        }
+        return tariffs;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long fareInCents(long inTimeMillis, long outTimeMillis, int parkingType, boolean discount) {
+        if (outTimeMillis < inTimeMillis) {
+            throw new IllegalArgumentException("Out time provided is incorrect : " + outTimeMillis + " < In time " + inTimeMillis);
+        }
+        if (parkingType < 0 || parkingType >= rateCentsPerHour.length) {
+            throw new IllegalArgumentException("Unknown Parking Type");
+        }
+        // durée en centièmes d'heure, arrondi au plus proche (demi supérieur)
+        long centiHours = (outTimeMillis - inTimeMillis + MILLIS_PER_CENTI_HOUR / 2) / MILLIS_PER_CENTI_HOUR;
+        if (centiHours <= freeCentiHours) {
+            return 0;
+        }
+        // prix en centièmes de centime, puis en dix-millièmes de centime avec la remise
+        long price = centiHours * rateCentsPerHour[parkingType];
+        long scale = 100;
+        if (discount) {
+            price *= 100 - discountPercent;
+            scale *= 100;
+        }
+        return (price + scale / 2) / scale;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%s (car %d c/h, bike %d c/h, free %d min, discount %d%%)", name,
+                rateCentsPerHour[ParkingType.CAR.ordinal()], rateCentsPerHour[ParkingType.BIKE.ordinal()], freeMinutes, discountPercent);
+    }
+}
@@ -0,0 +1,18 @@
+package com.parkit.parkingsystem.tariff;
+
+/**
+ * Règle de calcul du prix d'un stationnement, en centimes.
+ * Une implémentation est sans état modifiable : elle peut être partagée entre threads.
+ */
+public interface Tariff {
+
+    String getName();
+
+    /**
+     * @param parkingType ParkingType.ordinal() de la place
+     * @param discount    remise des véhicules déjà venus
+     * @return le prix en centimes
+     * @throws IllegalArgumentException si la sortie précède l'entrée ou si le type de place est inconnu
+     */
+    long fareInCents(long inTimeMillis, long outTimeMillis, int parkingType, boolean discount);
+}
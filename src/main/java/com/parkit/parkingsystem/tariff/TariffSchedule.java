@@ -0,0 +1,163 @@
+package com.parkit.parkingsystem.tariff;
+
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Description d'un tarif par plages horaires : pour chaque type de place, des tarifs horaires qui changent
+ * dans la journée, différents en semaine et le week-end, et un montant maximum par jour calendaire.
+ * Une plage commence à son heure et dure jusqu'au début de la suivante ; la dernière plage de la journée
+ * continue après minuit jusqu'à la première.
+ * Le schedule ne calcule rien : {@link #compile(ZoneId)} le transforme en tables de prix.
+ * <p>
+ * Configuration par fichier de propriétés, les types sans plage gardent le tarif de {@link Fare} :
+ * <pre>
+ * schedule.std.free.minutes=30
+ * schedule.std.discount.percent=5
+ * schedule.std.car.weekday=07:00=200,19:00=100
+ * schedule.std.car.weekend=00:00=80
+ * schedule.std.car.daily.max.cents=1500
+ * schedule.std.bike.weekday=00:00=100
+ * </pre>
+ */
+public class TariffSchedule {
+
+    private static final ParkingType[] TYPES = ParkingType.values();
+
+    private final String name;
+    private final int freeMinutes;
+    private final int discountPercent;
+    // [ParkingType.ordinal()] : minute du début de la plage -> tarif horaire en centimes
+    private final List<TreeMap<Integer, Long>> weekdayBands = new ArrayList<>();
+    private final List<TreeMap<Integer, Long>> weekendBands = new ArrayList<>();
+    // 0 : pas de maximum
+    private final long[] dailyMaxCents = new long[TYPES.length];
+
+    public TariffSchedule(String name, int freeMinutes, int discountPercent) {
+        if (freeMinutes < 0 || discountPercent < 0 || discountPercent > 100) {
+            throw new IllegalArgumentException("Invalid tariff " + name);
+        }
+        this.name = name;
+        this.freeMinutes = freeMinutes;
+        this.discountPercent = discountPercent;
+        for (int type = 0; type < TYPES.length; type++) {
+            weekdayBands.add(new TreeMap<>());
+            weekendBands.add(new TreeMap<>());
+        }
+    }
+
+    /**
+     * @return les schedules du fichier, dans l'ordre de leurs noms
+     */
+    public static List<TariffSchedule> load(Properties properties) {
+        TreeSet<String> names = new TreeSet<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith("schedule.") && key.indexOf('.', "schedule.".length()) > 0) {
+                names.add(key.substring("schedule.".length(), key.indexOf('.', "schedule.".length())));
+            }
+        }
+        List<TariffSchedule> schedules = new ArrayList<>();
+        for (String name : names) {
+            String prefix = "schedule." + name + ".";
+            TariffSchedule schedule = new TariffSchedule(name,
+                    Integer.parseInt(properties.getProperty(prefix + "free.minutes", String.valueOf(Fare.FREE_DURATION_MINUTES)).trim()),
+                    Integer.parseInt(properties.getProperty(prefix + "discount.percent", String.valueOf(Fare.DISCOUNT_PERCENT)).trim()));
+            for (ParkingType parkingType : TYPES) {
+                String typePrefix = prefix + parkingType.name().toLowerCase(Locale.ROOT) + ".";
+                parseBands(schedule, parkingType, false, properties.getProperty(typePrefix + "weekday"));
+                parseBands(schedule, parkingType, true, properties.getProperty(typePrefix + "weekend"));
+                String dailyMax = properties.getProperty(typePrefix + "daily.max.cents");
+                if (dailyMax != null) {
+                    schedule.setDailyMaxCents(parkingType, Long.parseLong(dailyMax.trim()));
+                }
+            }
+            schedules.add(schedule);
+        }
+        return schedules;
+    }
+
+    /**
+     * @param bands "07:00=200,19:00=100" : heure de début = tarif horaire en centimes
+     */
+    private static void parseBands(TariffSchedule schedule, ParkingType parkingType, boolean weekend, String bands) {
+        if (bands == null) {
+            return;
+        }
+        for (String band : bands.split(",")) {
+            int separator = band.lastIndexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid band '" + band + "' in tariff " + schedule.name + ", expected HH:mm=cents");
+            }
+            schedule.addBand(parkingType, weekend, LocalTime.parse(band.substring(0, separator).trim()),
+                    Long.parseLong(band.substring(separator + 1).trim()));
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Ajoute une plage, à la minute près.
+     */
+    public TariffSchedule addBand(ParkingType parkingType, boolean weekend, LocalTime start, long centsPerHour) {
+        if (centsPerHour < 0 || start.getSecond() != 0 || start.getNano() != 0) {
+            throw new IllegalArgumentException("Invalid band " + start + "=" + centsPerHour + " in tariff " + name);
+        }
+        (weekend ? weekendBands : weekdayBands).get(parkingType.ordinal()).put(start.getHour() * 60 + start.getMinute(), centsPerHour);
+        return this;
+    }
+
+    /**
+     * @param dailyMaxCents montant maximum facturé par jour calendaire, 0 pour aucun maximum
+     */
+    public TariffSchedule setDailyMaxCents(ParkingType parkingType, long dailyMaxCents) {
+        if (dailyMaxCents < 0) {
+            throw new IllegalArgumentException("Invalid daily maximum " + dailyMaxCents + " in tariff " + name);
+        }
+        this.dailyMaxCents[parkingType.ordinal()] = dailyMaxCents;
+        return this;
+    }
+
+    /**
+     * Calcule le tarif horaire de chaque minute de la semaine. Un type sans plage garde le tarif de Fare ;
+     * le week-end sans plage reprend la semaine.
+     *
+     * @param zone fuseau des heures des plages
+     */
+    public CompiledTariff compile(ZoneId zone) {
+        long[][][] minuteRates = new long[TYPES.length][2][CompiledTariff.MINUTES_PER_DAY];
+        for (int type = 0; type < TYPES.length; type++) {
+            TreeMap<Integer, Long> weekday = weekdayBands.get(type);
+            if (weekday.isEmpty()) {
+                weekday = new TreeMap<>();
+                weekday.put(0, (TYPES[type] == ParkingType.CAR) ? Fare.CAR_RATE_CENTS_PER_HOUR : Fare.BIKE_RATE_CENTS_PER_HOUR);
+            }
+            TreeMap<Integer, Long> weekend = weekendBands.get(type).isEmpty() ? weekday : weekendBands.get(type);
+            fillMinuteRates(weekday, minuteRates[type][CompiledTariff.WEEKDAY]);
+            fillMinuteRates(weekend, minuteRates[type][CompiledTariff.WEEKEND]);
+        }
+        return new CompiledTariff(name, zone, minuteRates, dailyMaxCents.clone(), freeMinutes, discountPercent);
+    }
+
+    private static void fillMinuteRates(TreeMap<Integer, Long> bands, long[] minuteRates) {
+        // avant la première plage : la dernière de la veille
+        long rate = bands.lastEntry().getValue();
+        for (int minute = 0; minute < minuteRates.length; minute++) {
+            Long bandRate = bands.get(minute);
+            if (bandRate != null) {
+                rate = bandRate;
+            }
+            minuteRates[minute] = rate;
+        }
+    }
+}
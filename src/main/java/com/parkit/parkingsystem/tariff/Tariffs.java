@@ -0,0 +1,49 @@
+package com.parkit.parkingsystem.tariff;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Lecture d'un fichier de tarifs : tarifs simples ({@link FlatTariff}) et tarifs par plages horaires
+ * ({@link TariffSchedule}), compilés dans le fuseau donné.
+ */
+public final class Tariffs {
+
+    private Tariffs() {
+    }
+
+    public static List<Tariff> load(Path file, ZoneId zone) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Properties properties = new Properties();
+            properties.load(reader);
+            return load(properties, zone);
+        }
+    }
+
+    public static List<Tariff> load(Properties properties, ZoneId zone) {
+        List<Tariff> tariffs = new ArrayList<>(FlatTariff.load(properties));
+        for (TariffSchedule schedule : TariffSchedule.load(properties)) {
+            tariffs.add(schedule.compile(zone));
+        }
+        return tariffs;
+    }
+
+    /**
+     * @throws IllegalArgumentException si aucun tarif ne porte ce nom
+     */
+    public static Tariff find(List<Tariff> tariffs, String name) {
+        for (Tariff tariff : tariffs) {
+            if (tariff.getName().equals(name)) {
+                return tariff;
+            }
+        }
+        throw new IllegalArgumentException("Unknown tariff : " + name);
+    }
+}
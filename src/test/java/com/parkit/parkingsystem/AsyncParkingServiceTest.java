@@ -0,0 +1,103 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.InMemoryDataBaseTestConfig;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.AsyncParkingService;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncParkingServiceTest {
+
+    private static final int NB_CAR_SPOTS = 20;
+
+    private static InMemoryDataBaseTestConfig dataBaseConfig;
+
+    private AsyncParkingService asyncParkingService;
+
+    @BeforeAll
+    public static void setUp() {
+        dataBaseConfig = new InMemoryDataBaseTestConfig("async");
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        dataBaseConfig.closePool();
+    }
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        dataBaseConfig.createParkingLot(NB_CAR_SPOTS, 2);
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        asyncParkingService = new AsyncParkingService(new ParkingService(null, parkingSpotDAO, ticketDAO));
+    }
+
+    @AfterEach
+    public void tearDownPerTest() {
+        asyncParkingService.close();
+    }
+
+    @Test
+    public void concurrentEntriesFillTheLotOnce() throws Exception {
+        // WHEN : plus de voitures que de places, toutes en même temps
+        List<CompletableFuture<Ticket>> entries = new ArrayList<>();
+        for (int i = 0; i < NB_CAR_SPOTS + 10; i++) {
+            entries.add(asyncParkingService.enterVehicle(ParkingType.CAR, "CAR" + i));
+        }
+
+        // THEN : une place distincte par véhicule entré, les autres sont refusés
+        Set<Integer> spots = new HashSet<>();
+        int nbRejected = 0;
+        for (CompletableFuture<Ticket> entry : entries) {
+            try {
+                Ticket ticket = entry.get();
+                assertTrue(spots.add(ticket.getParkingSpot().getId()));
+                assertTrue(ticket.getId() > 0);
+            } catch (ExecutionException e) {
+                nbRejected++;
+            }
+        }
+        assertEquals(NB_CAR_SPOTS, spots.size());
+        assertEquals(10, nbRejected);
+        assertEquals(2, dataBaseConfig.countAvailableSpots());
+    }
+
+    @Test
+    public void exitReleasesSpotAndPricesTicket() throws Exception {
+        // GIVEN
+        asyncParkingService.enterVehicle(ParkingType.BIKE, "ABCDEF").get();
+
+        // WHEN
+        Ticket ticket = asyncParkingService.exitVehicle("ABCDEF").get();
+
+        // THEN
+        assertNotNull(ticket.getOutTime());
+        assertEquals(0, ticket.getPrice());
+        assertEquals(NB_CAR_SPOTS + 2, dataBaseConfig.countAvailableSpots());
+    }
+
+    @Test
+    public void exitWithoutTicketCompletesExceptionally() {
+        CompletableFuture<Ticket> exit = asyncParkingService.exitVehicle("UNKNOWN");
+
+        assertThrows(ExecutionException.class, exit::get);
+    }
+}
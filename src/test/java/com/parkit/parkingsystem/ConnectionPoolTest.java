@@ -0,0 +1,90 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.ConnectionPool;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ConnectionPoolTest {
+
+    private final List<Connection> physicalConnections = new ArrayList<>();
+
+    private ConnectionPool newPool(int maxSize, long validationIdleMillis) {
+        return new ConnectionPool("jdbc:test", "user", "password", maxSize, 50, validationIdleMillis, 1) {
+            @Override
+            protected Connection openPhysicalConnection() throws SQLException {
+                Connection con = mock(Connection.class);
+                lenient().when(con.getAutoCommit()).thenReturn(true);
+                lenient().when(con.isValid(anyInt())).thenReturn(true);
+                physicalConnections.add(con);
+                return con;
+            }
+        };
+    }
+
+    @Test
+    public void closeReturnsConnectionToPool() throws Exception {
+        // GIVEN
+        ConnectionPool pool = newPool(2, 30000);
+
+        // WHEN
+        pool.borrow().close();
+        pool.borrow().close();
+
+        // THEN
+        assertEquals(1, physicalConnections.size());
+        verify(physicalConnections.get(0), never()).close();
+        assertEquals(2, pool.getStats().getBorrowed());
+        assertEquals(1, pool.getStats().getIdle());
+        assertEquals(0, pool.getStats().getActive());
+    }
+
+    @Test
+    public void borrowTimesOutWhenPoolIsExhausted() throws Exception {
+        // GIVEN
+        ConnectionPool pool = newPool(1, 30000);
+        Connection con = pool.borrow();
+
+        // WHEN / THEN
+        assertThrows(SQLException.class, pool::borrow);
+        assertEquals(1, pool.getStats().getTimeouts());
+        con.close();
+        assertNotNull(pool.borrow());
+    }
+
+    @Test
+    public void invalidIdleConnectionIsReplaced() throws Exception {
+        // GIVEN : validation systématique
+        ConnectionPool pool = newPool(1, -1);
+        pool.borrow().close();
+        when(physicalConnections.get(0).isValid(anyInt())).thenReturn(false);
+
+        // WHEN
+        pool.borrow();
+
+        // THEN
+        assertEquals(2, physicalConnections.size());
+        verify(physicalConnections.get(0)).close();
+        assertEquals(1, pool.getStats().getInvalidated());
+    }
+
+    @Test
+    public void releasedConnectionCannotBeUsed() throws Exception {
+        // GIVEN
+        ConnectionPool pool = newPool(1, 30000);
+        Connection con = pool.borrow();
+
+        // WHEN
+        con.close();
+
+        // THEN
+        assertTrue(con.isClosed());
+        assertThrows(SQLException.class, () -> con.prepareStatement("select 1"));
+    }
+}
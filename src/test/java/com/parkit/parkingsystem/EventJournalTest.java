@@ -0,0 +1,112 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.journal.EventJournal;
+import com.parkit.parkingsystem.journal.JournalEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventJournalTest {
+
+    private Path file;
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        file = Files.createTempFile("parking", ".journal");
+        Files.delete(file);
+    }
+
+    @AfterEach
+    public void tearDownPerTest() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void replayResumesAfterCheckpointOnReopen() throws Exception {
+        // GIVEN
+        List<String> replayed = new ArrayList<>();
+        try (EventJournal journal = new EventJournal(file, 10)) {
+            assertEquals(1, journal.append(JournalEvent.entry("AAA", 1, ParkingType.CAR, 1000)));
+            journal.append(JournalEvent.entry("BBB", 2, ParkingType.CAR, 2000));
+            journal.append(JournalEvent.exit("AAA", 1, ParkingType.CAR, 1000, 3000, 150));
+
+            // WHEN : le deuxième événement échoue
+            assertFalse(journal.replay(event -> {
+                if (event.getVehicleRegNumber().equals("BBB")) {
+                    throw new Exception("DB down");
+                }
+                replayed.add(event.getVehicleRegNumber());
+            }));
+            assertEquals(1, journal.getCheckpoint());
+        }
+
+        // THEN : après réouverture, le rejeu reprend au deuxième événement, dans l'ordre
+        try (EventJournal journal = new EventJournal(file, 10)) {
+            assertEquals(2, journal.getPendingCount());
+            List<JournalEvent> events = new ArrayList<>();
+            assertTrue(journal.replay(events::add));
+            assertEquals("BBB", events.get(0).getVehicleRegNumber());
+            assertEquals(JournalEvent.Type.EXIT, events.get(1).getType());
+            assertEquals(1000, events.get(1).getInTime());
+            assertEquals(3000, events.get(1).getOutTime());
+            assertEquals(150, events.get(1).getPriceInCents());
+            assertTrue(journal.clear());
+        }
+        assertEquals(List.of("AAA"), replayed);
+    }
+
+    @Test
+    public void sequencesContinueAfterClear() throws Exception {
+        // GIVEN
+        try (EventJournal journal = new EventJournal(file, 2)) {
+            journal.append(JournalEvent.entry("AAA", 1, ParkingType.CAR, 1000));
+            journal.append(JournalEvent.entry("BBB", 2, ParkingType.BIKE, 2000));
+            assertThrows(IllegalStateException.class, () -> journal.append(JournalEvent.entry("CCC", 3, ParkingType.CAR, 3000)));
+            assertFalse(journal.clear());
+
+            // WHEN
+            journal.replay(event -> {
+            });
+            assertTrue(journal.clear());
+
+            // THEN : la place libérée est réutilisée, la séquence continue
+            assertEquals(3, journal.append(JournalEvent.entry("CCC", 3, ParkingType.CAR, 3000)));
+        }
+        try (EventJournal journal = new EventJournal(file, 2)) {
+            assertEquals(3, journal.getLastSequence());
+            assertEquals(1, journal.getPendingCount());
+        }
+    }
+
+    @Test
+    public void longestPlateInLastSlotIsReplayedIntact() throws Exception {
+        // GIVEN : une plaque de 25 octets, la plus longue acceptée, dans la dernière case du journal
+        String longestPlate = "ABCDEFGHIJKLMNOPQRSTUVWXY";
+        try (EventJournal journal = new EventJournal(file, 2)) {
+            journal.append(JournalEvent.entry("AAA", 1, ParkingType.CAR, 1000));
+            journal.append(JournalEvent.exit(longestPlate, 2, ParkingType.CAR, 1000, 2000, 150));
+            assertThrows(IllegalArgumentException.class,
+                    () -> journal.append(JournalEvent.entry(longestPlate + "Z", 3, ParkingType.CAR, 3000)));
+        }
+
+        // WHEN
+        List<JournalEvent> events = new ArrayList<>();
+        try (EventJournal journal = new EventJournal(file, 2)) {
+            assertTrue(journal.replay(events::add));
+        }
+
+        // THEN
+        assertEquals(2, events.size());
+        assertEquals("AAA", events.get(0).getVehicleRegNumber());
+        assertEquals(longestPlate, events.get(1).getVehicleRegNumber());
+        assertEquals(150, events.get(1).getPriceInCents());
+    }
+}
@@ -11,6 +11,8 @@ import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.Date;
 
 public class FareCalculatorServiceTest {
@@ -213,4 +215,80 @@ public class FareCalculatorServiceTest {
         // THEN
         assertEquals((Fare.BIKE_RATE_PER_HOUR * 0.95), ticket.getPrice());
     }
+
+    /**
+     * Calcul en centimes : 45 minutes de voiture, 3/4 du tarif horaire arrondi au centime
+     */
+    @Test
+    public void calculateFareInCentsCarWithLessThanOneHourParkingTime() {
+        long outTime = System.currentTimeMillis();
+        long inTime = outTime - (45 * 60 * 1000);
+
+        long fare = fareCalculatorService.calculateFareInCents(inTime, outTime, ParkingType.CAR, false);
+
+        assertEquals(113, fare);
+    }
+
+    @Test
+    public void calculateFareInCentsWithLessThan30minutesParkingTime() {
+        long outTime = System.currentTimeMillis();
+        long inTime = outTime - (30 * 60 * 1000);
+
+        assertEquals(0, fareCalculatorService.calculateFareInCents(inTime, outTime, ParkingType.CAR, true));
+    }
+
+    @Test
+    public void calculateFareInCentsWithFutureInTime() {
+        long outTime = System.currentTimeMillis();
+        long inTime = outTime + (60 * 60 * 1000);
+
+        assertThrows(IllegalArgumentException.class, () -> fareCalculatorService.calculateFareInCents(inTime, outTime, ParkingType.BIKE, false));
+    }
+
+    /**
+     * Le calcul en centimes applique les règles en décimal exact (sans la dérive du double, au plus un centime d'écart
+     * avec calculateFare), pour toutes les durées jusqu'à 3 jours
+     */
+    @Test
+    public void calculateFaresMatchesFareRules() {
+        // GIVEN : une durée toutes les 36 secondes (la précision du calcul), les deux types, avec et sans remise
+        int nbDurations = 3 * 24 * 100;
+        int length = nbDurations * 4;
+        long[] inTimes = new long[length];
+        long[] outTimes = new long[length];
+        byte[] parkingTypes = new byte[length];
+        boolean[] discounts = new boolean[length];
+        long[] fares = new long[length];
+        long outTime = System.currentTimeMillis();
+        for (int i = 0; i < length; i++) {
+            outTimes[i] = outTime;
+            inTimes[i] = outTime - (i / 4) * 36_000L - (i % 7) * 1000L;
+            parkingTypes[i] = (byte) ((i & 1) == 0 ? ParkingType.CAR : ParkingType.BIKE).ordinal();
+            discounts[i] = (i & 2) != 0;
+        }
+
+        // WHEN
+        fareCalculatorService.calculateFares(inTimes, outTimes, parkingTypes, discounts, fares);
+
+        // THEN
+        for (int i = 0; i < length; i++) {
+            ParkingType parkingType = ParkingType.values()[parkingTypes[i]];
+            BigDecimal duration = BigDecimal.valueOf(outTimes[i] - inTimes[i]).divide(BigDecimal.valueOf(3_600_000), 2, RoundingMode.HALF_UP);
+            BigDecimal price = BigDecimal.ZERO;
+            if (duration.compareTo(new BigDecimal("0.5")) > 0) {
+                price = duration.multiply(BigDecimal.valueOf(parkingType == ParkingType.CAR ? Fare.CAR_RATE_PER_HOUR : Fare.BIKE_RATE_PER_HOUR));
+                if (discounts[i]) {
+                    price = price.multiply(new BigDecimal("0.95"));
+                }
+            }
+            long expected = price.setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValueExact();
+            assertEquals(expected, fares[i], "duration " + (outTimes[i] - inTimes[i]) + "ms");
+
+            ticket.setInTime(new Date(inTimes[i]));
+            ticket.setOutTime(new Date(outTimes[i]));
+            ticket.setParkingSpot(new ParkingSpot(1, parkingType, false));
+            fareCalculatorService.calculateFare(ticket, discounts[i]);
+            assertEquals(fares[i], ticket.getPrice() * 100, 1);
+        }
+    }
 }
@@ -0,0 +1,101 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.cache.FreeSpotAllocator;
+import com.parkit.parkingsystem.cache.OccupancyCounters;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FreeSpotAllocatorTest {
+
+    private FreeSpotAllocator freeSpotAllocator;
+
+    @BeforeEach
+    public void setUpPerTest() {
+        freeSpotAllocator = new FreeSpotAllocator();
+        freeSpotAllocator.load(Arrays.asList(
+                new ParkingSpot(1, ParkingType.CAR, false),
+                new ParkingSpot(2, ParkingType.CAR, true),
+                new ParkingSpot(3, ParkingType.CAR, true),
+                new ParkingSpot(4, ParkingType.BIKE, true),
+                new ParkingSpot(5, ParkingType.BIKE, true)));
+    }
+
+    @Test
+    public void nextAvailableReturnsLowestFreeSpotOfType() {
+        assertEquals(2, freeSpotAllocator.nextAvailable(ParkingType.CAR));
+        assertEquals(4, freeSpotAllocator.nextAvailable(ParkingType.BIKE));
+        assertEquals(2, freeSpotAllocator.getAvailableCount(ParkingType.CAR));
+    }
+
+    @Test
+    public void updateKeepsIndexInSync() {
+        // WHEN
+        freeSpotAllocator.update(new ParkingSpot(2, ParkingType.CAR, false));
+        freeSpotAllocator.update(new ParkingSpot(3, ParkingType.CAR, false));
+
+        // THEN
+        assertEquals(0, freeSpotAllocator.nextAvailable(ParkingType.CAR));
+
+        // WHEN
+        freeSpotAllocator.update(new ParkingSpot(1, ParkingType.CAR, true));
+
+        // THEN
+        assertEquals(1, freeSpotAllocator.nextAvailable(ParkingType.CAR));
+        assertEquals(1, freeSpotAllocator.getAvailableCount(ParkingType.CAR));
+    }
+
+    @Test
+    public void nextAvailableOnLargeLot() {
+        // GIVEN : 100 000 places, seules les dernières sont libres
+        List<ParkingSpot> parkingSpots = new ArrayList<>();
+        for (int number = 1; number <= 100_000; number++) {
+            parkingSpots.add(new ParkingSpot(number, ParkingType.CAR, number > 99_990));
+        }
+        freeSpotAllocator.load(parkingSpots);
+
+        // THEN
+        assertEquals(99_991, freeSpotAllocator.nextAvailable(ParkingType.CAR));
+        assertEquals(10, freeSpotAllocator.getAvailableCount(ParkingType.CAR));
+        assertEquals(0, freeSpotAllocator.nextAvailable(ParkingType.BIKE));
+    }
+
+    @Test
+    public void occupancyCountersFollowConcurrentEntriesAndExits() {
+        // GIVEN
+        OccupancyCounters occupancyCounters = freeSpotAllocator.getOccupancyCounters();
+        assertArrayEquals(new int[]{2, 1}, occupancyCounters.get(ParkingType.CAR));
+        assertArrayEquals(new int[]{2, 0}, occupancyCounters.get(ParkingType.BIKE));
+
+        // WHEN : 4 guichets prennent et rendent les places de moto pendant qu'un panneau lit les compteurs
+        CompletableFuture<?>[] gates = new CompletableFuture<?>[4];
+        for (int g = 0; g < gates.length; g++) {
+            gates[g] = CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    int number = freeSpotAllocator.claimNext(ParkingType.BIKE);
+                    if (number > 0) {
+                        freeSpotAllocator.update(new ParkingSpot(number, ParkingType.BIKE, true));
+                    }
+                }
+            });
+        }
+        while (!CompletableFuture.allOf(gates).isDone()) {
+            int[] bikes = occupancyCounters.get(ParkingType.BIKE);
+            assertEquals(2, bikes[0] + bikes[1]);
+        }
+        freeSpotAllocator.claimNext(ParkingType.CAR);
+
+        // THEN
+        assertArrayEquals(new int[]{2, 0}, occupancyCounters.get(ParkingType.BIKE));
+        assertEquals(1, occupancyCounters.getFreeCount(ParkingType.CAR));
+        assertEquals(2, occupancyCounters.getOccupiedCount(ParkingType.CAR));
+    }
+}
@@ -0,0 +1,108 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotStore;
+import com.parkit.parkingsystem.dao.InMemoryTicketStore;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.InMemoryDataBaseTestConfig;
+import com.parkit.parkingsystem.service.LoadProfile;
+import com.parkit.parkingsystem.service.LoadTestService;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoadTestServiceTest {
+
+    private static InMemoryDataBaseTestConfig dataBaseConfig;
+
+    @BeforeAll
+    public static void setUp() {
+        dataBaseConfig = new InMemoryDataBaseTestConfig("load");
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        dataBaseConfig.closePool();
+    }
+
+    @Test
+    public void unpacedLoadOnMemoryLotNeverGivesASpotTwice() throws Exception {
+        // GIVEN : un petit parking, pour qu'il soit souvent plein
+        InMemoryParkingSpotStore parkingSpotStore = InMemoryParkingSpotStore.withLot(20, 5);
+        LoadTestService loadTestService = new LoadTestService(new ParkingService(null, parkingSpotStore, new InMemoryTicketStore()), parkingSpotStore);
+        LoadProfile profile = new LoadProfile().setGates(4).setDurationMillis(0).setOperations(20_000)
+                .setRates(600, 400).setPaced(false).setBikeShare(0.3).setReturningShare(0.5);
+
+        // WHEN
+        LoadTestService.Report report = loadTestService.run(profile);
+
+        // THEN
+        assertEquals(20_000, report.getOperations());
+        assertEquals(report.getEntries() + report.getRejectedEntries() + report.getFailedEntries(), report.getEntryLatency().getCount());
+        assertEquals(report.getExits(), report.getExitLatency().getCount());
+        assertTrue(report.getRejectedEntries() > 0);
+        assertEquals(0, report.getFailedEntries());
+        assertTrue(report.getReturningEntries() > 0);
+        assertEquals(0, report.getFailedExits());
+        assertEquals(0, report.getDoubleAllocations());
+        assertEquals(0, report.getClaimConflicts());
+        assertEquals(report.getEntries() - report.getExits(), report.getDrained());
+        assertTrue(report.getEntryLatency().get999thPercentileMicros() >= report.getEntryLatency().get50thPercentileMicros());
+        // THEN : le parking est rendu vide
+        assertEquals(20, parkingSpotStore.getOccupancyCounters().getFreeCount(ParkingType.CAR));
+        assertEquals(5, parkingSpotStore.getOccupancyCounters().getFreeCount(ParkingType.BIKE));
+    }
+
+    @Test
+    public void pacedLoadOnDatabaseKeepsTheRequestedRate() throws Exception {
+        // GIVEN
+        dataBaseConfig.createParkingLot(10, 5);
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        LoadTestService loadTestService = new LoadTestService(new ParkingService(null, parkingSpotDAO, ticketDAO), parkingSpotDAO);
+        LoadProfile profile = new LoadProfile().setGates(2).setDurationMillis(0).setOperations(100).setRates(250, 250);
+
+        // WHEN
+        LoadTestService.Report report = loadTestService.run(profile);
+
+        // THEN : 100 opérations à 500/s durent au moins 200 ms
+        assertEquals(100, report.getOperations());
+        assertTrue(report.getElapsedNanos() >= TimeUnit.MILLISECONDS.toNanos(190));
+        assertTrue(report.getOperationsPerSecond() <= 550);
+        assertEquals(0, report.getDoubleAllocations());
+        assertEquals(0, report.getFailedExits());
+        assertEquals(15, dataBaseConfig.countAvailableSpots());
+        assertTrue(report.toString().contains("Entry latency : p50="));
+    }
+
+    @Test
+    public void platesOfManyGatesFitInDatabase() throws Exception {
+        // GIVEN : des numéros de guichet à deux chiffres et plusieurs centaines de véhicules par guichet
+        dataBaseConfig.createParkingLot(40, 10);
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        LoadTestService loadTestService = new LoadTestService(new ParkingService(null, parkingSpotDAO, ticketDAO), parkingSpotDAO);
+        LoadProfile profile = new LoadProfile().setGates(12).setDurationMillis(0).setOperations(6_000)
+                .setRates(500, 500).setPaced(false).setReturningShare(0);
+
+        // WHEN
+        LoadTestService.Report report = loadTestService.run(profile);
+
+        // THEN : aucune entrée en échec, seulement des refus faute de place
+        assertEquals(6_000, report.getOperations());
+        assertEquals(0, report.getFailedEntries());
+        assertEquals(0, report.getFailedExits());
+        assertTrue(report.getEntries() > 12 * 100);
+        assertEquals(50, dataBaseConfig.countAvailableSpots());
+    }
+}
@@ -0,0 +1,240 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.LotDataBaseConfig;
+import com.parkit.parkingsystem.config.ShardResolver;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.LotTransferDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.InMemoryDataBaseTestConfig;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.LotMigrationService;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Deux parkings dans la base "a", puis le parking 2 déplacé dans la base "b".
+ */
+public class LotMigrationServiceTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+
+    private static InMemoryDataBaseTestConfig shardA;
+    private static InMemoryDataBaseTestConfig shardB;
+
+    private ShardResolver shardResolver;
+    private ParkingSpotDAO parkingSpotDAO1;
+    private TicketDAO ticketDAO1;
+    private ParkingSpotDAO parkingSpotDAO2;
+    private TicketDAO ticketDAO2;
+
+    @BeforeAll
+    public static void setUp() {
+        shardA = new InMemoryDataBaseTestConfig("shardA");
+        shardB = new InMemoryDataBaseTestConfig("shardB");
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        shardA.closePool();
+        shardB.closePool();
+    }
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        shardA.createParkingLot(2, 1);
+        shardA.addParkingLot(2, 1, 1);
+        shardB.createParkingLot(0, 0);
+        shardResolver = new ShardResolver();
+        shardResolver.setFreezeCheckMillis(50);
+        shardResolver.addShard("a", shardA);
+        shardResolver.addShard("b", shardB);
+        shardResolver.assignLot(1, "a");
+        shardResolver.assignLot(2, "a");
+        parkingSpotDAO1 = new ParkingSpotDAO();
+        parkingSpotDAO1.dataBaseConfig = shardResolver.forLot(1);
+        ticketDAO1 = new TicketDAO();
+        ticketDAO1.dataBaseConfig = shardResolver.forLot(1);
+        parkingSpotDAO2 = new ParkingSpotDAO();
+        parkingSpotDAO2.dataBaseConfig = shardResolver.forLot(2);
+        ticketDAO2 = new TicketDAO();
+        ticketDAO2.dataBaseConfig = shardResolver.forLot(2);
+    }
+
+    @Test
+    public void lotsAreIsolatedAndALotMovesWithItsTickets() throws Exception {
+        // GIVEN : le même véhicule dans les deux parkings, chacun avec ses numéros de places
+        long now = System.currentTimeMillis();
+        ParkingService lot1 = new ParkingService(null, parkingSpotDAO1, ticketDAO1);
+        ParkingService lot2 = new ParkingService(null, parkingSpotDAO2, ticketDAO2);
+        assertEquals(1, lot1.enterVehicle(ParkingType.CAR, "AAA", new Date(now - HOUR)).getParkingSpot().getId());
+        assertEquals(1, lot2.enterVehicle(ParkingType.CAR, "AAA", new Date(now - 2 * HOUR)).getParkingSpot().getId());
+        assertThrows(Exception.class, () -> lot2.enterVehicle(ParkingType.CAR, "BBB", new Date(now)));
+        lot2.enterVehicle(ParkingType.BIKE, "CCC", new Date(now - HOUR));
+        lot2.exitVehicle("CCC", new Date(now));
+
+        // WHEN
+        assertTrue(new LotMigrationService(shardResolver).moveLot(2, "b", parkingSpotDAO2, ticketDAO2));
+
+        // THEN : les données du parking 2 ont changé de base
+        assertEquals("b", shardResolver.getShardName(2));
+        assertArrayEquals(new int[]{0, 0, 0}, shardA.countLotRows(2));
+        assertArrayEquals(new int[]{2, 2, 2}, shardB.countLotRows(2));
+        assertArrayEquals(new int[]{3, 1, 1}, shardA.countLotRows(1));
+
+        // THEN : les deux parkings continuent de fonctionner
+        Ticket aaaLot2 = lot2.exitVehicle("AAA", new Date(now));
+        assertEquals(3.0, aaaLot2.getPrice());
+        ticketDAO2.visitCounterCache.clear();
+        assertEquals(1, ticketDAO2.getNbTicket("AAA"));
+        assertNotNull(lot2.enterVehicle(ParkingType.BIKE, "CCC", new Date(now)));
+        assertEquals(2, ticketDAO2.getNbTicket("CCC"));
+        assertEquals(1.5, lot1.exitVehicle("AAA", new Date(now)).getPrice());
+    }
+
+    @Test
+    public void lotFrozenInDataBaseRefusesGatesOfOtherProcesses() throws Exception {
+        // GIVEN : un autre processus sert les parkings 1 et 2 depuis la base "a", et relit le gel à chaque emprunt
+        ShardResolver otherProcess = new ShardResolver();
+        otherProcess.setFreezeCheckMillis(0);
+        otherProcess.addShard("a", shardA);
+        otherProcess.assignLot(1, "a");
+        otherProcess.assignLot(2, "a");
+        LotTransferDAO lotTransferDAO = new LotTransferDAO();
+        assertTrue(lotTransferDAO.freezeLot(shardA, 2));
+        assertFalse(lotTransferDAO.freezeLot(shardA, 2));
+
+        // WHEN
+        SQLException exception = assertThrows(SQLException.class, () -> otherProcess.forLot(2).getConnection());
+
+        // THEN : seul le parking gelé est refusé, jusqu'au dégel
+        assertTrue(exception.getMessage().contains("moving"));
+        Connection con = otherProcess.forLot(1).getConnection();
+        otherProcess.forLot(1).closeConnection(con);
+        assertTrue(lotTransferDAO.unfreezeLot(shardA, 2));
+        con = otherProcess.forLot(2).getConnection();
+        otherProcess.forLot(2).closeConnection(con);
+    }
+
+    @Test
+    public void freezeIsReadOncePerCheckPeriod() throws Exception {
+        // GIVEN : un autre processus qui relit le gel toutes les minutes
+        ShardResolver otherProcess = new ShardResolver();
+        otherProcess.setFreezeCheckMillis(60_000);
+        otherProcess.addShard("a", shardA);
+        otherProcess.assignLot(2, "a");
+        Connection con = otherProcess.forLot(2).getConnection();
+        otherProcess.forLot(2).closeConnection(con);
+        LotTransferDAO lotTransferDAO = new LotTransferDAO();
+        assertTrue(lotTransferDAO.freezeLot(shardA, 2));
+
+        // WHEN : emprunt pendant la période, sans relire la base
+        con = otherProcess.forLot(2).getConnection();
+        otherProcess.forLot(2).closeConnection(con);
+
+        // THEN : une fois la période écoulée, le gel est vu
+        otherProcess.setFreezeCheckMillis(0);
+        assertThrows(SQLException.class, () -> otherProcess.forLot(2).getConnection());
+        assertTrue(lotTransferDAO.unfreezeLot(shardA, 2));
+    }
+
+    @Test
+    public void movedLotStaysFrozenInSourceShard() throws Exception {
+        // GIVEN : un autre processus, qui a déjà lu le parking non gelé
+        ShardResolver otherProcess = new ShardResolver();
+        otherProcess.setFreezeCheckMillis(50);
+        otherProcess.addShard("a", shardA);
+        otherProcess.assignLot(2, "a");
+        Connection con = otherProcess.forLot(2).getConnection();
+        otherProcess.forLot(2).closeConnection(con);
+
+        // WHEN
+        assertTrue(new LotMigrationService(shardResolver).moveLot(2, "b", parkingSpotDAO2, ticketDAO2));
+
+        // THEN : le processus qui n'a pas pris la nouvelle affectation n'écrit plus dans la base d'origine
+        assertThrows(SQLException.class, () -> otherProcess.forLot(2).getConnection());
+        con = shardResolver.forLot(2).getConnection();
+        shardResolver.forLot(2).closeConnection(con);
+
+        // THEN : le parking peut revenir dans la base d'origine, qui le dégèle
+        assertTrue(new LotMigrationService(shardResolver).moveLot(2, "a", parkingSpotDAO2, ticketDAO2));
+        Thread.sleep(50);
+        con = otherProcess.forLot(2).getConnection();
+        otherProcess.forLot(2).closeConnection(con);
+    }
+
+    @Test
+    public void lotWrittenDuringCopyIsNotDeleted() throws Exception {
+        // GIVEN : un guichet d'un autre processus, qui avait sa connexion avant le gel, enregistre un ticket pendant la copie
+        LotTransferDAO lotTransferDAO = new LotTransferDAO() {
+            @Override
+            public boolean copyLot(DataBaseConfig source, DataBaseConfig target, int lotId) {
+                boolean isCopied = super.copyLot(source, target, lotId);
+                try (Connection con = shardA.getConnection();
+                     PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET)) {
+                    ps.setInt(1, lotId);
+                    ps.setInt(2, 1);
+                    ps.setString(3, "LATE");
+                    ps.setDouble(4, 0);
+                    ps.setTimestamp(5, new Timestamp(System.currentTimeMillis()));
+                    ps.setTimestamp(6, null);
+                    ps.execute();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                return isCopied;
+            }
+        };
+
+        // WHEN
+        boolean isMoved = new LotMigrationService(shardResolver, lotTransferDAO).moveLot(2, "b", parkingSpotDAO2, ticketDAO2);
+
+        // THEN : le parking reste dans la base d'origine, avec le ticket, et n'y est plus gelé
+        assertFalse(isMoved);
+        assertEquals("a", shardResolver.getShardName(2));
+        assertArrayEquals(new int[]{2, 1, 0}, shardA.countLotRows(2));
+        assertFalse(shardResolver.forLot(2).isFrozen());
+        Connection con = shardResolver.forLot(2).getConnection();
+        shardResolver.forLot(2).closeConnection(con);
+    }
+
+    @Test
+    public void frozenLotRefusesConnectionsFromOtherThreads() throws Exception {
+        // GIVEN
+        LotDataBaseConfig lot2 = shardResolver.forLot(2);
+        assertTrue(lot2.freeze(1000));
+
+        // WHEN
+        CompletableFuture<Connection> otherGate = CompletableFuture.supplyAsync(() -> {
+            try {
+                return lot2.getConnection();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        });
+
+        // THEN
+        CompletionException exception = assertThrows(CompletionException.class, otherGate::join);
+        assertTrue(exception.getCause() instanceof SQLException);
+        assertTrue(parkingSpotDAO1.reconcileFreeSpots());
+        Connection con = lot2.getConnection();
+        lot2.closeConnection(con);
+        lot2.unfreeze();
+        assertFalse(lot2.isFrozen());
+    }
+}
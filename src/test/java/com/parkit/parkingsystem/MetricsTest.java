@@ -0,0 +1,97 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.InMemoryDataBaseTestConfig;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsTest {
+
+    private static InMemoryDataBaseTestConfig dataBaseConfig;
+
+    @BeforeAll
+    public static void setUp() throws Exception {
+        dataBaseConfig = new InMemoryDataBaseTestConfig("metrics");
+        dataBaseConfig.createParkingLot(1, 1);
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        dataBaseConfig.closePool();
+    }
+
+    @Test
+    public void percentilesStayWithinBucketPrecision() {
+        // GIVEN : 1 à 10 000 µs, uniformément
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        for (long micros = 1; micros <= 10_000; micros++) {
+            histogram.record(micros * 1000);
+        }
+
+        // THEN : erreur relative bornée par la largeur d'un seau (12,5 %)
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(5_000.5, histogram.getMeanMicros(), 0.01);
+        assertEquals(5_000, histogram.get50thPercentileMicros(), 5_000 * 0.125);
+        assertEquals(9_900, histogram.get99thPercentileMicros(), 9_900 * 0.125);
+        assertEquals(10_000, histogram.getMaxMicros());
+        assertTrue(histogram.get999thPercentileMicros() <= histogram.getMaxMicros());
+    }
+
+    @Test
+    public void concurrentRecordsAreNotLost() throws Exception {
+        // GIVEN
+        LatencyHistogram histogram = new LatencyHistogram("concurrent");
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    histogram.record(i);
+                }
+            }));
+        }
+
+        // WHEN
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // THEN
+        assertEquals(400_000, histogram.getCount());
+        assertEquals(99_999 / 1000.0, histogram.getMaxMicros());
+    }
+
+    @Test
+    public void daoCallsAndPoolAreExposedOverJmx() throws Exception {
+        // GIVEN
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        long before = Metrics.histogram("TicketDAO.getNbTicket").getCount();
+
+        // WHEN
+        ticketDAO.getNbTicket("ABCDEF");
+
+        // THEN
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName latency = new ObjectName("com.parkit.parkingsystem:type=Latency,name=\"TicketDAO.getNbTicket\"");
+        assertEquals(before + 1, server.getAttribute(latency, "Count"));
+        ObjectName acquire = new ObjectName("com.parkit.parkingsystem:type=Latency,name=\"ConnectionPool.acquire\"");
+        assertTrue((Long) server.getAttribute(acquire, "Count") > 0);
+        ObjectName pool = server.queryNames(new ObjectName("com.parkit.parkingsystem:type=ConnectionPool,*"), null).stream()
+                .filter(name -> name.getKeyProperty("name").contains("mem:metrics"))
+                .findFirst().orElseThrow(AssertionError::new);
+        assertEquals(16, server.getAttribute(pool, "MaxSize"));
+        assertTrue(Metrics.dump().contains("TicketDAO.getNbTicket"));
+    }
+}
@@ -0,0 +1,64 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.cache.OccupancyCounters;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.integration.config.InMemoryDataBaseTestConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.service.OccupancyReconciler;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OccupancyReconcilerTest {
+
+    private static InMemoryDataBaseTestConfig dataBaseConfig;
+
+    private ParkingSpotDAO parkingSpotDAO;
+
+    @BeforeAll
+    public static void setUp() {
+        dataBaseConfig = new InMemoryDataBaseTestConfig("occupancy");
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        dataBaseConfig.closePool();
+    }
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        dataBaseConfig.createParkingLot(3, 2);
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.reconcileFreeSpots();
+    }
+
+    @Test
+    public void reconcileCatchesUpWithOtherGates() {
+        // GIVEN : une entrée par ce guichet, une par un autre processus
+        OccupancyCounters occupancyCounters = parkingSpotDAO.freeSpotAllocator.getOccupancyCounters();
+        assertNotNull(parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR));
+        ParkingSpotDAO otherGate = new ParkingSpotDAO();
+        otherGate.dataBaseConfig = dataBaseConfig;
+        assertTrue(otherGate.updateParking(new ParkingSpot(4, ParkingType.BIKE, false)));
+        assertArrayEquals(new int[]{2, 1}, occupancyCounters.get(ParkingType.CAR));
+        assertArrayEquals(new int[]{2, 0}, occupancyCounters.get(ParkingType.BIKE));
+
+        // WHEN
+        OccupancyReconciler occupancyReconciler = new OccupancyReconciler(parkingSpotDAO, 3600);
+        try {
+            assertTrue(occupancyReconciler.reconcile());
+        } finally {
+            occupancyReconciler.close();
+        }
+
+        // THEN
+        assertArrayEquals(new int[]{2, 1}, occupancyCounters.get(ParkingType.CAR));
+        assertArrayEquals(new int[]{1, 1}, occupancyCounters.get(ParkingType.BIKE));
+        assertEquals(5, parkingSpotDAO.freeSpotAllocator.nextAvailable(ParkingType.BIKE));
+    }
+}
@@ -0,0 +1,106 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.cache.OffHeapTicketTable;
+import com.parkit.parkingsystem.cache.OpenTicketIndex;
+import com.parkit.parkingsystem.cache.PlateCodec;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.InMemoryDataBaseTestConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OffHeapTicketTableTest {
+
+    private static InMemoryDataBaseTestConfig dataBaseConfig;
+
+    @BeforeAll
+    public static void setUp() {
+        dataBaseConfig = new InMemoryDataBaseTestConfig("offheap");
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        dataBaseConfig.closePool();
+    }
+
+    @Test
+    public void tableBehavesLikeHashMap() {
+        // GIVEN : une petite table, qui doit grandir
+        SplittableRandom random = new SplittableRandom(11);
+        OffHeapTicketTable table = new OffHeapTicketTable(16);
+        Map<Long, Ticket> expected = new HashMap<>();
+
+        // WHEN
+        for (int i = 0; i < 100_000; i++) {
+            String plate = "AB-" + random.nextInt(20_000);
+            long code = PlateCodec.encode(plate);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(code) != null, table.remove(code));
+            } else {
+                Ticket ticket = newTicket(plate, 1 + random.nextInt(200_000), random.nextBoolean() ? ParkingType.CAR : ParkingType.BIKE);
+                ticket.setId(i);
+                table.put(code, ticket);
+                expected.put(code, ticket);
+            }
+        }
+
+        // THEN
+        assertEquals(expected.size(), table.size());
+        for (Map.Entry<Long, Ticket> entry : expected.entrySet()) {
+            Ticket ticket = table.get(entry.getKey());
+            assertEquals(entry.getValue().getId(), ticket.getId());
+            assertEquals(entry.getValue().getVehicleRegNumber(), ticket.getVehicleRegNumber());
+            assertEquals(entry.getValue().getParkingSpot().getId(), ticket.getParkingSpot().getId());
+            assertEquals(entry.getValue().getParkingSpot().getParkingType(), ticket.getParkingSpot().getParkingType());
+            assertEquals(entry.getValue().getInTime().getTime(), ticket.getInTime().getTime());
+            assertNull(ticket.getOutTime());
+        }
+        assertNull(table.get(PlateCodec.encode("CD-1")));
+    }
+
+    @Test
+    public void ticketDaoWorksWithOffHeapIndex() throws Exception {
+        // GIVEN
+        dataBaseConfig.createParkingLot(3, 2);
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO.openTicketIndex = OpenTicketIndex.offHeap(5);
+        Ticket bike = newTicket("AB-123-CD", 4, ParkingType.BIKE);
+        Ticket car = newTicket("AB 123 CD", 1, ParkingType.CAR);
+
+        // WHEN
+        assertTrue(ticketDAO.saveTicket(bike));
+        assertTrue(ticketDAO.saveTicket(car));
+        car.setOutTime(new Date());
+        assertTrue(ticketDAO.updateTicket(car));
+
+        // THEN : la plaque non codable est gardée dans le tas
+        assertTrue(ticketDAO.openTicketIndex.isOffHeap());
+        assertEquals(1, ticketDAO.openTicketIndex.size());
+        Ticket openTicket = ticketDAO.openTicketIndex.get("AB-123-CD");
+        assertEquals(bike.getId(), openTicket.getId());
+        assertEquals(ParkingType.BIKE, openTicket.getParkingSpot().getParkingType());
+        assertNull(ticketDAO.openTicketIndex.get("AB 123 CD"));
+        assertTrue(ticketDAO.loadOpenTickets());
+        assertEquals(1, ticketDAO.openTicketIndex.size());
+        assertEquals(4, ticketDAO.getTicket("AB-123-CD").getParkingSpot().getId());
+    }
+
+    private static Ticket newTicket(String vehicleRegNumber, int parkingNumber, ParkingType parkingType) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(parkingNumber, parkingType, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date(1_700_000_000_000L + parkingNumber));
+        return ticket;
+    }
+}
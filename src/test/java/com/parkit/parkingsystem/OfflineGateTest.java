@@ -0,0 +1,221 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.InMemoryDataBaseTestConfig;
+import com.parkit.parkingsystem.journal.EventJournal;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.OfflineGate;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Coupure de la base pendant l'activité des guichets, puis rejeu du journal à son retour.
+ */
+public class OfflineGateTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+
+    private static UnreliableDataBaseConfig dataBaseConfig;
+
+    private Path journalFile;
+    private EventJournal journal;
+    private ParkingSpotDAO parkingSpotDAO;
+    private TicketDAO ticketDAO;
+    private OfflineGate offlineGate;
+    private ParkingService parkingService;
+
+    @BeforeAll
+    public static void setUp() {
+        dataBaseConfig = new UnreliableDataBaseConfig();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        dataBaseConfig.closePool();
+    }
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        dataBaseConfig.down = false;
+        dataBaseConfig.createParkingLot(3, 1);
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.reconcileFreeSpots();
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO.loadOpenTickets();
+        journalFile = Files.createTempFile("offline", ".journal");
+        Files.delete(journalFile);
+        journal = new EventJournal(journalFile, 100);
+        offlineGate = new OfflineGate(journal, parkingSpotDAO, ticketDAO);
+        parkingService = new ParkingService(null, parkingSpotDAO, ticketDAO);
+        parkingService.setOfflineGate(offlineGate);
+    }
+
+    @AfterEach
+    public void tearDownPerTest() throws Exception {
+        journal.close();
+        Files.deleteIfExists(journalFile);
+    }
+
+    @Test
+    public void gatesKeepRunningOfflineAndJournalIsReplayed() throws Exception {
+        // GIVEN
+        long now = System.currentTimeMillis();
+        parkingService.enterVehicle(ParkingType.CAR, "AAA", new Date(now - 2 * HOUR));
+
+        // WHEN : la base tombe
+        dataBaseConfig.down = true;
+        Ticket bbb = parkingService.enterVehicle(ParkingType.CAR, "BBB", new Date(now - HOUR));
+        Ticket aaa = parkingService.exitVehicle("AAA", new Date(now));
+        parkingService.enterVehicle(ParkingType.BIKE, "CCC", new Date(now));
+
+        // THEN : traité localement
+        assertTrue(offlineGate.isOffline());
+        assertEquals(3, journal.getPendingCount());
+        assertEquals(3.0, aaa.getPrice());
+        assertNotEquals(aaa.getParkingSpot().getId(), 0);
+        assertThrows(Exception.class, () -> parkingService.enterVehicle(ParkingType.BIKE, "DDD", new Date(now)));
+
+        // WHEN : la base revient
+        dataBaseConfig.down = false;
+        assertTrue(offlineGate.goOnline());
+
+        // THEN
+        assertFalse(offlineGate.isOffline());
+        assertEquals(0, journal.getPendingCount());
+        assertEquals(2, dataBaseConfig.countAvailableSpots());
+        TicketDAO directTicketDAO = newTicketDAO();
+        Ticket aaaInDB = directTicketDAO.getTicket("AAA");
+        assertNotNull(aaaInDB.getOutTime());
+        assertEquals(3.0, aaaInDB.getPrice());
+        assertEquals(bbb.getParkingSpot().getId(), directTicketDAO.getTicket("BBB").getParkingSpot().getId());
+        assertNull(directTicketDAO.getTicket("BBB").getOutTime());
+        assertEquals(1, directTicketDAO.getNbTicket("CCC"));
+
+        // THEN : de retour en ligne
+        Ticket bbbOut = parkingService.exitVehicle("BBB", new Date(now));
+        assertEquals(1.5, bbbOut.getPrice());
+    }
+
+    @Test
+    public void replayingTheSameEventsTwiceIsIdempotent() throws Exception {
+        // GIVEN : des événements journalisés hors ligne
+        long now = System.currentTimeMillis();
+        dataBaseConfig.down = true;
+        parkingService.enterVehicle(ParkingType.CAR, "AAA", new Date(now - HOUR));
+        parkingService.exitVehicle("AAA", new Date(now));
+        parkingService.enterVehicle(ParkingType.CAR, "BBB", new Date(now));
+        // copie du journal avant rejeu, comme si le checkpoint n'avait pas été écrit
+        journal.force();
+        Path copy = Files.createTempFile("offline-copy", ".journal");
+        Files.copy(journalFile, copy, StandardCopyOption.REPLACE_EXISTING);
+        dataBaseConfig.down = false;
+        assertTrue(offlineGate.goOnline());
+
+        // WHEN
+        try (EventJournal replayedAgain = new EventJournal(copy, 100)) {
+            OfflineGate restartedGate = new OfflineGate(replayedAgain, parkingSpotDAO, ticketDAO);
+            assertTrue(restartedGate.isOffline());
+            assertTrue(restartedGate.goOnline());
+        } finally {
+            Files.deleteIfExists(copy);
+        }
+
+        // THEN : rien n'est écrit deux fois
+        TicketDAO directTicketDAO = newTicketDAO();
+        assertEquals(1, directTicketDAO.getNbTicket("AAA"));
+        assertEquals(1, directTicketDAO.getNbTicket("BBB"));
+        assertNotNull(directTicketDAO.getTicket("AAA").getOutTime());
+        assertEquals(3, dataBaseConfig.countAvailableSpots());
+    }
+
+    @Test
+    public void spotTakenByAnotherGateWhileOfflineIsReassignedAtReplay() throws Exception {
+        // GIVEN : une entrée hors ligne sur la place 1, puis un autre guichet, resté en ligne, prend la même place
+        long now = System.currentTimeMillis();
+        dataBaseConfig.down = true;
+        Ticket bbb = parkingService.enterVehicle(ParkingType.CAR, "BBB", new Date(now - HOUR));
+        dataBaseConfig.down = false;
+        ParkingSpotDAO otherParkingSpotDAO = new ParkingSpotDAO();
+        otherParkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        ParkingService otherGate = new ParkingService(null, otherParkingSpotDAO, newTicketDAO());
+        Ticket ccc = otherGate.enterVehicle(ParkingType.CAR, "CCC", new Date(now));
+        assertEquals(bbb.getParkingSpot().getId(), ccc.getParkingSpot().getId());
+
+        // WHEN
+        assertTrue(offlineGate.goOnline());
+
+        // THEN : une place par ticket en cours
+        TicketDAO directTicketDAO = newTicketDAO();
+        int bbbSpot = directTicketDAO.getTicket("BBB").getParkingSpot().getId();
+        assertNotEquals(ccc.getParkingSpot().getId(), bbbSpot);
+        assertEquals(ccc.getParkingSpot().getId(), directTicketDAO.getTicket("CCC").getParkingSpot().getId());
+        assertEquals(2, dataBaseConfig.countAvailableSpots());
+        assertEquals(bbbSpot, parkingService.exitVehicle("BBB", new Date(now)).getParkingSpot().getId());
+        assertEquals(3, dataBaseConfig.countAvailableSpots());
+    }
+
+    @Test
+    public void exitReplayedHalfwayReleasesItsSpot() throws Exception {
+        // GIVEN : une sortie hors ligne dont un premier rejeu a clôturé le ticket sans libérer la place
+        long now = System.currentTimeMillis();
+        parkingService.enterVehicle(ParkingType.CAR, "AAA", new Date(now - HOUR));
+        dataBaseConfig.down = true;
+        parkingService.exitVehicle("AAA", new Date(now));
+        dataBaseConfig.down = false;
+        TicketDAO directTicketDAO = newTicketDAO();
+        Ticket aaa = directTicketDAO.getTicket("AAA");
+        aaa.setOutTime(new Date(now));
+        aaa.setPrice(1.5);
+        assertTrue(directTicketDAO.updateTicket(aaa));
+        assertEquals(3, dataBaseConfig.countAvailableSpots());
+
+        // WHEN
+        assertTrue(offlineGate.goOnline());
+
+        // THEN
+        assertEquals(4, dataBaseConfig.countAvailableSpots());
+        assertEquals(1.5, newTicketDAO().getTicket("AAA").getPrice());
+    }
+
+    private static TicketDAO newTicketDAO() {
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        return ticketDAO;
+    }
+
+    /**
+     * Base H2 que l'on peut couper : plus aucune connexion n'est obtenue tant que down est vrai.
+     */
+    private static class UnreliableDataBaseConfig extends InMemoryDataBaseTestConfig {
+        private volatile boolean down;
+
+        private UnreliableDataBaseConfig() {
+            super("offline");
+        }
+
+        @Override
+        public Connection getConnection() throws ClassNotFoundException, SQLException {
+            if (down) {
+                throw new SQLException("Communications link failure");
+            }
+            return super.getConnection();
+        }
+    }
+}
@@ -109,12 +109,10 @@ public class ParkingServiceTest {
         // GIVEN
         // Mock input reader, renvoie "1" pour le type de véhicule CAR
         when(inputReaderUtil.readSelection()).thenReturn(1);
-        // Mock input reader, renvoie "1" pour le numéro du parking disponible
-        when(parkingSpotDAO.getNextAvailableSlot(any(ParkingType.class))).thenReturn(1);
+        // Mock la réservation atomique, renvoie la place n°1 déjà réservée
+        when(parkingSpotDAO.claimNextAvailableSlot(any(ParkingType.class))).thenReturn(new ParkingSpot(1, ParkingType.CAR, false));
         // Mock input reader, renvoie "ABCDEF" pour le numéro d'immatriculation
         when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
-        // Mock la méthode updateParking, renvoi True pour indiquer la mise à jour de la BD
-        when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
         // Mock la méthode saveTicket
         when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
         // Mock la méthode getNbTicket
@@ -124,8 +122,9 @@ public class ParkingServiceTest {
         parkingService.processIncomingVehicle();
 
         // THEN
-        verify(parkingSpotDAO, Mockito.times(1)).getNextAvailableSlot(any(ParkingType.class));
-        verify(parkingSpotDAO, Mockito.times(1)).updateParking(any(ParkingSpot.class));
+        // La place est réservée par claimNextAvailableSlot, sans updateParking séparé
+        verify(parkingSpotDAO, Mockito.times(1)).claimNextAvailableSlot(any(ParkingType.class));
+        verify(parkingSpotDAO, Mockito.times(0)).updateParking(any(ParkingSpot.class));
         verify(ticketDAO, Mockito.times(1)).saveTicket(any(Ticket.class));
         verify(ticketDAO, Mockito.times(1)).getNbTicket(anyString());
     }
@@ -145,19 +144,40 @@ public class ParkingServiceTest {
         when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
         // Mock input reader, renvoie "1" pour le type de véhicule CAR
         when(inputReaderUtil.readSelection()).thenReturn(1);
-        // Mock input reader, renvoie "1" pour le numéro du parking disponible
-        when(parkingSpotDAO.getNextAvailableSlot(any(ParkingType.class))).thenReturn(1);
+        // Mock la réservation atomique, renvoie la place n°1 déjà réservée
+        when(parkingSpotDAO.claimNextAvailableSlot(any(ParkingType.class))).thenReturn(new ParkingSpot(1, ParkingType.CAR, false));
 
         // WHEN
         parkingService.processIncomingVehicle();
 
         // THEN
-        verify(parkingSpotDAO, Mockito.times(1)).getNextAvailableSlot(any(ParkingType.class));
-        verify(parkingSpotDAO, Mockito.times(1)).updateParking(any(ParkingSpot.class));
+        verify(parkingSpotDAO, Mockito.times(1)).claimNextAvailableSlot(any(ParkingType.class));
+        verify(parkingSpotDAO, Mockito.times(0)).updateParking(any(ParkingSpot.class));
         verify(ticketDAO, Mockito.times(1)).saveTicket(any(Ticket.class));
         verify(ticketDAO, Mockito.times(1)).getNbTicket(anyString());
     }
 
+    /**
+     * Test de processIncomingVehicle : si le ticket ne peut pas être enregistré, la place réservée est libérée
+     */
+    @Test
+    public void processIncomingVehicleReleasesSpotWhenTicketNotSaved() throws Exception {
+        // GIVEN
+        when(inputReaderUtil.readSelection()).thenReturn(1);
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
+        ParkingSpot parkingSpot = new ParkingSpot(1, ParkingType.CAR, false);
+        when(parkingSpotDAO.claimNextAvailableSlot(any(ParkingType.class))).thenReturn(parkingSpot);
+        when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(false);
+        when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
+
+        // WHEN
+        parkingService.processIncomingVehicle();
+
+        // THEN
+        verify(parkingSpotDAO, Mockito.times(1)).updateParking(parkingSpot);
+        assertTrue(parkingSpot.isAvailable());
+    }
+
     /**
      * Etape #5 : Test de la méthode getNextParkingNumberIfAvailable
      */
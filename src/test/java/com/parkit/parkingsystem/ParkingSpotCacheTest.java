@@ -0,0 +1,78 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.cache.ParkingSpotCache;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.integration.config.InMemoryDataBaseTestConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParkingSpotCacheTest {
+
+    private static InMemoryDataBaseTestConfig dataBaseConfig;
+
+    private ParkingSpotDAO parkingSpotDAO;
+
+    @BeforeAll
+    public static void setUp() {
+        dataBaseConfig = new InMemoryDataBaseTestConfig("spotcache");
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        dataBaseConfig.closePool();
+    }
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        dataBaseConfig.createParkingLot(3, 2);
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.parkingSpotCache = new ParkingSpotCache(2);
+    }
+
+    @Test
+    public void readThroughCacheFollowsWrites() {
+        // GIVEN
+        ParkingSpot parkingSpot = parkingSpotDAO.getParkingSpotById(4);
+        assertEquals(ParkingType.BIKE, parkingSpot.getParkingType());
+        parkingSpot.setAvailable(false);
+        assertTrue(parkingSpotDAO.getParkingSpotById(4).isAvailable());
+
+        // WHEN
+        assertTrue(parkingSpotDAO.updateParking(parkingSpot));
+        ParkingSpot claimedParkingSpot = parkingSpotDAO.claimNextAvailableSlot(ParkingType.BIKE);
+
+        // THEN : lu dans le cache, à jour
+        assertFalse(parkingSpotDAO.getParkingSpotById(4).isAvailable());
+        assertEquals(5, claimedParkingSpot.getId());
+        assertFalse(parkingSpotDAO.getParkingSpotById(5).isAvailable());
+        assertEquals(2, parkingSpotDAO.parkingSpotCache.size());
+        // 4 lectures : la place 5 n'était pas en cache avant sa réservation
+        assertEquals(0.5, parkingSpotDAO.parkingSpotCache.getHitRate(), 1e-9);
+        assertNull(parkingSpotDAO.getParkingSpotById(99));
+    }
+
+    @Test
+    public void warmingLoadsUpToCapacityAndReadsRaceWithWrites() {
+        // WHEN
+        assertTrue(parkingSpotDAO.warmParkingSpotCache());
+
+        // THEN : borné à 2 places
+        assertEquals(2, parkingSpotDAO.parkingSpotCache.size());
+        assertNotNull(parkingSpotDAO.parkingSpotCache.get(1));
+        assertNull(parkingSpotDAO.parkingSpotCache.get(3));
+
+        // THEN : une lecture commencée avant une écriture n'est pas mise en cache
+        ParkingSpotCache parkingSpotCache = new ParkingSpotCache(10);
+        long readVersion = parkingSpotCache.getVersion();
+        parkingSpotCache.update(3, false);
+        parkingSpotCache.put(new ParkingSpot(3, ParkingType.CAR, true), readVersion);
+        assertNull(parkingSpotCache.get(3));
+    }
+}
@@ -0,0 +1,130 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.integration.config.InMemoryDataBaseTestConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Plusieurs guichets réservent des places en parallèle : aucune place ne doit être attribuée deux fois.
+ */
+public class ParkingSpotClaimTest {
+
+    private static final int NB_SPOTS = 2000;
+
+    private static InMemoryDataBaseTestConfig dataBaseConfig;
+
+    @BeforeAll
+    public static void setUp() {
+        dataBaseConfig = new InMemoryDataBaseTestConfig("claim");
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        dataBaseConfig.closePool();
+    }
+
+    @Test
+    public void concurrentGatesNeverDoubleBook() throws Exception {
+        for (int nbGates : new int[]{1, 2, 4, 8}) {
+            // GIVEN : un seul processus, les guichets partagent le même DAO
+            dataBaseConfig.createParkingLot(NB_SPOTS, 0);
+            ParkingSpotDAO parkingSpotDAO = newParkingSpotDAO();
+            List<ParkingSpotDAO> gates = new ArrayList<>();
+            for (int i = 0; i < nbGates; i++) {
+                gates.add(parkingSpotDAO);
+            }
+
+            // WHEN
+            long start = System.nanoTime();
+            AtomicIntegerArray claims = claimAll(gates);
+            long elapsed = System.nanoTime() - start;
+
+            // THEN
+            assertEachSpotClaimedOnce(claims);
+            System.out.println(nbGates + " gate(s) : " + (NB_SPOTS * 1_000_000_000L / elapsed) + " claims/s");
+        }
+    }
+
+    @Test
+    public void gatesWithStaleIndexesNeverDoubleBook() throws Exception {
+        // GIVEN : chaque guichet a son propre DAO, comme des processus séparés ;
+        // les index en mémoire proposent les mêmes places et seul l'update conditionnel tranche
+        dataBaseConfig.createParkingLot(NB_SPOTS, 0);
+        List<ParkingSpotDAO> gates = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            ParkingSpotDAO parkingSpotDAO = newParkingSpotDAO();
+            parkingSpotDAO.reconcileFreeSpots();
+            gates.add(parkingSpotDAO);
+        }
+
+        // WHEN
+        AtomicIntegerArray claims = claimAll(gates);
+
+        // THEN
+        assertEachSpotClaimedOnce(claims);
+        long conflicts = 0;
+        for (ParkingSpotDAO gate : gates) {
+            conflicts += gate.getClaimConflicts();
+        }
+        assertTrue(conflicts > 0);
+    }
+
+    private static ParkingSpotDAO newParkingSpotDAO() {
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        return parkingSpotDAO;
+    }
+
+    /**
+     * Chaque guichet réserve des places jusqu'à ce que le parking soit complet.
+     *
+     * @return le nombre de fois où chaque place a été attribuée
+     */
+    private static AtomicIntegerArray claimAll(List<ParkingSpotDAO> gates) throws Exception {
+        AtomicIntegerArray claims = new AtomicIntegerArray(NB_SPOTS + 1);
+        CountDownLatch startSignal = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(gates.size());
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (ParkingSpotDAO gate : gates) {
+                futures.add(executor.submit((Callable<Void>) () -> {
+                    startSignal.await();
+                    ParkingSpot parkingSpot;
+                    while ((parkingSpot = gate.claimNextAvailableSlot(ParkingType.CAR)) != null) {
+                        claims.incrementAndGet(parkingSpot.getId());
+                    }
+                    return null;
+                }));
+            }
+            startSignal.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return claims;
+    }
+
+    private static void assertEachSpotClaimedOnce(AtomicIntegerArray claims) throws Exception {
+        for (int number = 1; number <= NB_SPOTS; number++) {
+            assertEquals(1, claims.get(number), "parking spot " + number);
+        }
+        assertEquals(0, dataBaseConfig.countAvailableSpots());
+    }
+}
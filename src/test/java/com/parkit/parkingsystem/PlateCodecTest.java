@@ -0,0 +1,101 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.cache.LongIntHashMap;
+import com.parkit.parkingsystem.cache.LongObjectHashMap;
+import com.parkit.parkingsystem.cache.PlateCodec;
+import com.parkit.parkingsystem.cache.PlateMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PlateCodecTest {
+
+    @Test
+    public void platesAreEncodedWithoutLoss() {
+        // GIVEN
+        String[] plates = {"AB-123-CD", "A", "A0", "0", "zz-999-zz", "ABCDEFGHIJ", "----------", "abcdef"};
+        Set<Long> codes = new HashSet<>();
+
+        for (String plate : plates) {
+            // WHEN
+            long code = PlateCodec.encode(plate);
+
+            // THEN
+            assertTrue(code >= 0, plate);
+            assertEquals(plate, PlateCodec.decode(code));
+            assertTrue(codes.add(code), plate);
+        }
+    }
+
+    @Test
+    public void typedPlatesAreNormalized() {
+        assertEquals("AB-123-CD", PlateCodec.normalize(" ab-123-Cd "));
+        assertEquals("AB 123 CD", PlateCodec.normalize("ab 123 cd"));
+        assertNull(PlateCodec.normalize(null));
+    }
+
+    @Test
+    public void platesOutsideTheAlphabetAreNotEncodable() {
+        assertEquals(PlateCodec.NOT_ENCODABLE, PlateCodec.encode("AB 123 CD"));
+        assertEquals(PlateCodec.NOT_ENCODABLE, PlateCodec.encode("ÉTÉ-12"));
+        assertEquals(PlateCodec.NOT_ENCODABLE, PlateCodec.encode("ABCDEFGHIJK"));
+    }
+
+    @Test
+    public void primitiveMapsBehaveLikeHashMap() {
+        // GIVEN : peu de clés différentes pour beaucoup de suppressions
+        SplittableRandom random = new SplittableRandom(7);
+        LongObjectHashMap<String> objects = new LongObjectHashMap<>();
+        LongIntHashMap counters = new LongIntHashMap();
+        Map<Long, String> expectedObjects = new HashMap<>();
+        Map<Long, Integer> expectedCounters = new HashMap<>();
+
+        // WHEN
+        for (int i = 0; i < 200_000; i++) {
+            long key = PlateCodec.encode("CAR-" + random.nextInt(5000));
+            switch (random.nextInt(3)) {
+                case 0:
+                    assertEquals(expectedObjects.put(key, "T" + i), objects.put(key, "T" + i));
+                    assertEquals(expectedCounters.merge(key, 1, Integer::sum).intValue(), counters.addTo(key, 1));
+                    break;
+                case 1:
+                    assertEquals(expectedObjects.remove(key), objects.remove(key));
+                    assertEquals(expectedCounters.remove(key) != null, counters.remove(key));
+                    break;
+                default:
+                    assertEquals(expectedObjects.get(key), objects.get(key));
+                    assertEquals(expectedCounters.getOrDefault(key, 0).intValue(), counters.get(key, 0));
+            }
+        }
+
+        // THEN
+        assertEquals(expectedObjects.size(), objects.size());
+        assertEquals(expectedCounters.size(), counters.size());
+        for (Map.Entry<Long, String> entry : expectedObjects.entrySet()) {
+            assertEquals(entry.getValue(), objects.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void plateMapKeepsPlatesThatCannotBeEncoded() {
+        // GIVEN
+        PlateMap<String> plateMap = new PlateMap<>();
+
+        // WHEN
+        plateMap.put("AB-123-CD", "encoded");
+        plateMap.put("AB 123 CD", "kept as a string");
+
+        // THEN
+        assertEquals(2, plateMap.size());
+        assertEquals("encoded", plateMap.get("AB-123-CD"));
+        assertEquals("kept as a string", plateMap.remove("AB 123 CD"));
+        assertNull(plateMap.get("AB 123 CD"));
+        assertEquals(1, plateMap.size());
+    }
+}
@@ -0,0 +1,201 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.cache.PlateBloomFilter;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.InMemoryDataBaseTestConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PlateFilterTest {
+
+    private static InMemoryDataBaseTestConfig dataBaseConfig;
+
+    private Path file;
+
+    @BeforeAll
+    public static void setUp() {
+        dataBaseConfig = new InMemoryDataBaseTestConfig("platefilter");
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        dataBaseConfig.closePool();
+    }
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        dataBaseConfig.createParkingLot(3, 2);
+        file = Files.createTempFile("plates", ".filter");
+        Files.delete(file);
+    }
+
+    @AfterEach
+    public void tearDownPerTest() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void firstTimeVisitorIsCountedWithoutQuery() {
+        // GIVEN
+        TicketDAO ticketDAO = newTicketDAO();
+        assertTrue(ticketDAO.saveTicket(newTicket("ABCDEF")));
+        ticketDAO = newTicketDAO();
+        assertTrue(ticketDAO.loadPlateFilter(file));
+        long borrowed = dataBaseConfig.getPoolStats().getBorrowed();
+
+        // WHEN
+        int nbNewTicket = ticketDAO.getNbTicket("GHIJK");
+
+        // THEN
+        assertEquals(0, nbNewTicket);
+        assertEquals(borrowed, dataBaseConfig.getPoolStats().getBorrowed());
+        assertEquals(1, ticketDAO.getNbTicket("ABCDEF"));
+    }
+
+    @Test
+    public void savedFilterIsCompletedWithTicketsFromOtherGates() throws Exception {
+        // GIVEN : le filtre est sauvegardé, puis un autre guichet enregistre un ticket
+        TicketDAO ticketDAO = newTicketDAO();
+        assertTrue(ticketDAO.loadPlateFilter(file));
+        assertTrue(ticketDAO.saveTicket(newTicket("ABCDEF")));
+        assertTrue(ticketDAO.savePlateFilter(file));
+        assertTrue(Files.exists(file));
+        assertTrue(newTicketDAO().saveTicket(newTicket("GHIJK")));
+
+        // WHEN : redémarrage
+        TicketDAO restartedTicketDAO = newTicketDAO();
+        assertTrue(restartedTicketDAO.loadPlateFilter(file));
+
+        // THEN
+        assertTrue(restartedTicketDAO.getPlateFilter().mightContain("ABCDEF"));
+        assertTrue(restartedTicketDAO.getPlateFilter().mightContain("GHIJK"));
+        assertEquals(1, restartedTicketDAO.getNbTicket("GHIJK"));
+    }
+
+    @Test
+    public void filterIsRebuiltWhenDataBaseIsBehindIt() throws Exception {
+        // GIVEN : le filtre est sauvegardé après le ticket 5000, puis la base est restaurée et les ID repartent de 1
+        restartTicketIds(5_000);
+        TicketDAO ticketDAO = newTicketDAO();
+        assertTrue(ticketDAO.loadPlateFilter(file));
+        assertTrue(ticketDAO.saveTicket(newTicket("ABCDEF")));
+        assertTrue(ticketDAO.refreshPlateFilter());
+        assertTrue(ticketDAO.savePlateFilter(file));
+        dataBaseConfig.createParkingLot(3, 2);
+        restartTicketIds(1);
+        assertTrue(newTicketDAO().saveTicket(newTicket("GHIJK")));
+
+        // WHEN : redémarrage
+        TicketDAO restartedTicketDAO = newTicketDAO();
+        assertTrue(restartedTicketDAO.loadPlateFilter(file));
+
+        // THEN
+        assertTrue(restartedTicketDAO.getPlateFilter().mightContain("GHIJK"));
+        assertEquals(1, restartedTicketDAO.getPlateFilter().getHighestTicketId());
+        assertEquals(1, restartedTicketDAO.getNbTicket("GHIJK"));
+    }
+
+    @Test
+    public void runningFilterIsRebuiltWhenDataBaseIsBehindIt() throws Exception {
+        // GIVEN
+        restartTicketIds(5_000);
+        TicketDAO ticketDAO = newTicketDAO();
+        assertTrue(ticketDAO.loadPlateFilter(file));
+        assertTrue(ticketDAO.saveTicket(newTicket("ABCDEF")));
+        assertTrue(ticketDAO.refreshPlateFilter());
+        assertEquals(5_000, ticketDAO.getPlateFilter().getHighestTicketId());
+        dataBaseConfig.createParkingLot(3, 2);
+        restartTicketIds(1);
+        assertTrue(newTicketDAO().saveTicket(newTicket("GHIJK")));
+
+        // WHEN
+        assertTrue(ticketDAO.refreshPlateFilter());
+
+        // THEN
+        assertTrue(ticketDAO.getPlateFilter().mightContain("GHIJK"));
+        assertEquals(1, ticketDAO.getNbTicket("GHIJK"));
+    }
+
+    @Test
+    public void plateTypedInAnotherCaseIsTheSameVehicle() throws Exception {
+        // GIVEN : une plaque enregistrée en minuscules avant la normalisation des saisies
+        TicketDAO ticketDAO = newTicketDAO();
+        assertTrue(ticketDAO.saveTicket(newTicket("ab-123")));
+        ticketDAO = newTicketDAO();
+        assertTrue(ticketDAO.loadPlateFilter(file));
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        ParkingService parkingService = new ParkingService(null, parkingSpotDAO, ticketDAO);
+
+        // WHEN
+        Ticket ticket = parkingService.enterVehicle(ParkingType.CAR, " Cd-456 ", new Date());
+        Ticket closedTicket = parkingService.exitVehicle("cd-456", new Date());
+
+        // THEN
+        assertTrue(ticketDAO.getPlateFilter().mightContain("AB-123"));
+        assertEquals("CD-456", ticket.getVehicleRegNumber());
+        assertEquals(ticket.getId(), closedTicket.getId());
+        assertNotNull(newTicketDAO().getTicket("CD-456").getOutTime());
+    }
+
+    @Test
+    public void filterHasNoFalseNegativeAndFewFalsePositives() {
+        // GIVEN
+        PlateBloomFilter filter = new PlateBloomFilter(100_000, 0.01);
+        for (int i = 0; i < 100_000; i++) {
+            filter.add("AB-" + i);
+        }
+
+        // WHEN
+        int nbFalsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            assertTrue(filter.mightContain("AB-" + i));
+            if (filter.mightContain("CD-" + i)) {
+                nbFalsePositives++;
+            }
+        }
+
+        // THEN
+        assertTrue(nbFalsePositives < 2_000, "false positives : " + nbFalsePositives);
+        assertFalse(filter.isSaturated());
+    }
+
+    private static void restartTicketIds(int id) throws Exception {
+        Connection con = dataBaseConfig.getConnection();
+        try (Statement st = con.createStatement()) {
+            st.execute("alter table ticket alter column ID restart with " + id);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private TicketDAO newTicketDAO() {
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        return ticketDAO;
+    }
+
+    private static Ticket newTicket(String vehicleRegNumber) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date());
+        return ticket;
+    }
+}
@@ -0,0 +1,75 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.InMemoryDataBaseTestConfig;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.service.ReplayService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReplayServiceTest {
+
+    private static InMemoryDataBaseTestConfig dataBaseConfig;
+
+    private ReplayService replayService;
+
+    @BeforeAll
+    public static void setUp() {
+        dataBaseConfig = new InMemoryDataBaseTestConfig("replay");
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        dataBaseConfig.closePool();
+    }
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        dataBaseConfig.createParkingLot(2, 1);
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        replayService = new ReplayService(new ParkingService(null, parkingSpotDAO, ticketDAO), parkingSpotDAO);
+    }
+
+    @Test
+    public void replayCountsEventsAndReportsLotState() throws Exception {
+        // GIVEN
+        String events = "# timestamp,direction,plate,type\n"
+                + "2024-03-04T08:00:00,IN,AAA,CAR\n"
+                + "2024-03-04T08:05:00,IN,BBB,CAR\n"
+                + "2024-03-04T08:10:00,IN,CCC,CAR\n"
+                + "2024-03-04T08:12:00,IN,DDD,BIKE\n"
+                + "\n"
+                + "2024-03-04T09:00:00,OUT,AAA\n"
+                + "2024-03-04T09:01:00,IN,CCC,CAR\n"
+                + "2024-03-04T09:02:00,OUT,ZZZ\n"
+                + "not an event\n"
+                + "2024-03-04T09:03:00,IN,EEE,TRUCK\n";
+
+        // WHEN
+        ReplayService.Report report = replayService.replay(new BufferedReader(new StringReader(events)));
+
+        // THEN : CCC refusé une fois (parking complet), ZZZ n'a pas de ticket
+        assertEquals(9, report.getEvents());
+        assertEquals(4, report.getEntries());
+        assertEquals(1, report.getExits());
+        assertEquals(2, report.getRejected());
+        assertEquals(2, report.getMalformed());
+        assertEquals(150, report.getRevenueInCents());
+        assertEquals(2, report.getTotalSpots(ParkingType.CAR));
+        assertEquals(0, report.getAvailableSpots(ParkingType.CAR));
+        assertEquals(0, report.getAvailableSpots(ParkingType.BIKE));
+        assertTrue(report.getEventsPerSecond() > 0);
+    }
+}
@@ -0,0 +1,124 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotStore;
+import com.parkit.parkingsystem.dao.InMemoryTicketStore;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotStore;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketStore;
+import com.parkit.parkingsystem.integration.config.InMemoryDataBaseTestConfig;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StorageBackendTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private static InMemoryDataBaseTestConfig dataBaseConfig;
+
+    @BeforeAll
+    public static void setUp() {
+        dataBaseConfig = new InMemoryDataBaseTestConfig("storage");
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        dataBaseConfig.closePool();
+    }
+
+    @Test
+    public void memoryBackendBehavesLikeTheDatabase() throws Exception {
+        // GIVEN
+        dataBaseConfig.createParkingLot(3, 2);
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+
+        // WHEN
+        List<String> database = runScenario(parkingSpotDAO, ticketDAO);
+        List<String> memory = runScenario(InMemoryParkingSpotStore.withLot(3, 2), new InMemoryTicketStore());
+
+        // THEN
+        assertEquals(database, memory);
+    }
+
+    @Test
+    public void concurrentEntriesInMemoryNeverShareASpot() throws Exception {
+        // GIVEN
+        InMemoryParkingSpotStore parkingSpotStore = InMemoryParkingSpotStore.withLot(50, 0);
+        ParkingService parkingService = new ParkingService(null, parkingSpotStore, new InMemoryTicketStore());
+
+        // WHEN : 60 voitures pour 50 places, sur 4 guichets
+        List<CompletableFuture<List<Integer>>> gates = new ArrayList<>();
+        for (int g = 0; g < 4; g++) {
+            int gate = g;
+            gates.add(CompletableFuture.supplyAsync(() -> {
+                List<Integer> parkingNumbers = new ArrayList<>();
+                for (int i = 0; i < 15; i++) {
+                    try {
+                        parkingNumbers.add(parkingService.enterVehicle(ParkingType.CAR, "G" + gate + "-" + i, new Date()).getParkingSpot().getId());
+                    } catch (Exception e) {
+                        // parking plein
+                    }
+                }
+                return parkingNumbers;
+            }));
+        }
+        Set<Integer> parkingNumbers = new HashSet<>();
+        int nbEntries = 0;
+        for (CompletableFuture<List<Integer>> gate : gates) {
+            nbEntries += gate.get().size();
+            parkingNumbers.addAll(gate.get());
+        }
+
+        // THEN
+        assertEquals(50, nbEntries);
+        assertEquals(50, parkingNumbers.size());
+        assertEquals(0, parkingSpotStore.getNextAvailableSlot(ParkingType.CAR));
+        assertEquals(50, parkingSpotStore.getOccupancyCounters().getOccupiedCount(ParkingType.CAR));
+    }
+
+    /**
+     * Deux passages de la même voiture et un passage de moto ; renvoie ce que voit le client à chaque étape.
+     */
+    private static List<String> runScenario(ParkingSpotStore parkingSpotStore, TicketStore ticketStore) throws Exception {
+        ParkingService parkingService = new ParkingService(null, parkingSpotStore, ticketStore);
+        Date start = new Date(System.currentTimeMillis() - 10 * HOUR);
+        List<String> steps = new ArrayList<>();
+
+        steps.add(entry(parkingService.enterVehicle(ParkingType.CAR, "ABCDEF", start)));
+        steps.add(entry(parkingService.enterVehicle(ParkingType.BIKE, "MOTO", start)));
+        steps.add(exit(parkingService.exitVehicle("ABCDEF", new Date(start.getTime() + 2 * HOUR))));
+        steps.add(entry(parkingService.enterVehicle(ParkingType.CAR, "ABCDEF", new Date(start.getTime() + 3 * HOUR))));
+        steps.add(exit(parkingService.exitVehicle("ABCDEF", new Date(start.getTime() + 5 * HOUR))));
+        steps.add(exit(parkingService.exitVehicle("MOTO", new Date(start.getTime() + 6 * HOUR))));
+        assertThrows(Exception.class, () -> parkingService.exitVehicle("INCONNU", new Date()));
+
+        steps.add("car spot " + parkingSpotStore.getNextAvailableSlot(ParkingType.CAR)
+                + ", bike spot " + parkingSpotStore.getNextAvailableSlot(ParkingType.BIKE)
+                + ", visits " + ticketStore.getNbTicket("ABCDEF") + "/" + ticketStore.getNbTicket("MOTO"));
+        return steps;
+    }
+
+    private static String entry(Ticket ticket) {
+        return "in " + ticket.getVehicleRegNumber() + " spot " + ticket.getParkingSpot().getId();
+    }
+
+    private static String exit(Ticket ticket) {
+        return "out " + ticket.getVehicleRegNumber() + " spot " + ticket.getParkingSpot().getId() + " price " + ticket.getPrice();
+    }
+}
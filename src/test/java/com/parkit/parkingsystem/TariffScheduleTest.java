@@ -0,0 +1,205 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.tariff.FlatTariff;
+import com.parkit.parkingsystem.tariff.Tariff;
+import com.parkit.parkingsystem.tariff.TariffSchedule;
+import com.parkit.parkingsystem.tariff.Tariffs;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.Properties;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TariffScheduleTest {
+
+    // lundi
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2024, 3, 4, 0, 0);
+
+    private static final int CAR = ParkingType.CAR.ordinal();
+
+    private static final ZoneId PARIS = ZoneId.of("Europe/Paris");
+
+    @Test
+    public void scheduleAppliesBandsWeekendRatesAndDailyMaximum() throws Exception {
+        // GIVEN
+        Properties properties = new Properties();
+        properties.load(new StringReader("schedule.std.car.weekday=07:00=200,19:00=100\n"
+                + "schedule.std.car.weekend=00:00=80\n"
+                + "schedule.std.car.daily.max.cents=1500\n"));
+        Tariff tariff = Tariffs.find(Tariffs.load(properties, ZoneOffset.UTC), "std");
+
+        // THEN
+        assertEquals(400, fare(tariff, MONDAY.plusHours(8), MONDAY.plusHours(10), false));
+        assertEquals(300, fare(tariff, MONDAY.plusHours(18), MONDAY.plusHours(20), false));
+        // la plage de 19:00 continue jusqu'à 07:00 ; remise de 5% sur 1,50
+        assertEquals(143, fare(tariff, MONDAY.plusMinutes(6 * 60 + 30), MONDAY.plusMinutes(7 * 60 + 30), true));
+        assertEquals(0, fare(tariff, MONDAY.plusHours(8), MONDAY.plusMinutes(8 * 60 + 20), false));
+        // vendredi 18:00 -> lundi 09:00 : 7,00 + 2 jours de week-end au maximum + 11,00
+        LocalDateTime friday = MONDAY.plusDays(4);
+        assertEquals(700 + 1500 + 1500 + 1100, fare(tariff, friday.plusHours(18), friday.plusDays(3).plusHours(9), false));
+        // les motos gardent le tarif de Fare
+        assertEquals(FlatTariff.CURRENT.fareInCents(millis(MONDAY), millis(MONDAY.plusHours(3)), ParkingType.BIKE.ordinal(), false),
+                tariff.fareInCents(millis(MONDAY), millis(MONDAY.plusHours(3)), ParkingType.BIKE.ordinal(), false));
+    }
+
+    @Test
+    public void compiledTariffMatchesMinuteByMinuteWalk() {
+        // GIVEN
+        TariffSchedule schedule = new TariffSchedule("walk", 0, 0)
+                .addBand(ParkingType.CAR, false, LocalTime.of(7, 30), 240)
+                .addBand(ParkingType.CAR, false, LocalTime.of(12, 0), 180)
+                .addBand(ParkingType.CAR, false, LocalTime.of(20, 15), 60)
+                .addBand(ParkingType.CAR, true, LocalTime.of(10, 0), 90)
+                .addBand(ParkingType.CAR, true, LocalTime.of(18, 0), 30)
+                .setDailyMaxCents(ParkingType.CAR, 2000);
+        Tariff tariff = schedule.compile(ZoneOffset.UTC);
+        Random random = new Random(17);
+
+        for (int i = 0; i < 200; i++) {
+            LocalDateTime inTime = MONDAY.plusMinutes(random.nextInt(14 * 24 * 60));
+            LocalDateTime outTime = inTime.plusMinutes(random.nextInt((i < 100 ? 2 : 60) * 24 * 60));
+
+            // WHEN
+            long fare = tariff.fareInCents(millis(inTime), millis(outTime), CAR, false);
+
+            // THEN : somme des minutes, jour par jour, chaque jour plafonné à 20,00
+            long expected = 0;
+            long dayCost = 0;
+            for (LocalDateTime minute = inTime; minute.isBefore(outTime); minute = minute.plusMinutes(1)) {
+                if (minute.getHour() == 0 && minute.getMinute() == 0) {
+                    expected += Math.min(dayCost, 2000 * 60);
+                    dayCost = 0;
+                }
+                dayCost += walkRate(minute);
+            }
+            expected += Math.min(dayCost, 2000 * 60);
+            assertEquals((expected + 30) / 60, fare, inTime + " -> " + outTime);
+        }
+    }
+
+    @Test
+    public void fareCalculatorServiceUsesSchedule() {
+        // GIVEN : une seule plage au tarif de Fare
+        TariffSchedule schedule = new TariffSchedule("flat", 30, 5)
+                .addBand(ParkingType.CAR, false, LocalTime.MIDNIGHT, 150)
+                .addBand(ParkingType.BIKE, false, LocalTime.MIDNIGHT, 100);
+        FareCalculatorService fareCalculatorService = new FareCalculatorService(schedule.compile(ZoneOffset.UTC));
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setInTime(new Date(millis(MONDAY.plusHours(10))));
+        ticket.setOutTime(new Date(millis(MONDAY.plusHours(11).plusMinutes(45))));
+
+        // WHEN
+        fareCalculatorService.calculateFare(ticket, true);
+
+        // THEN
+        assertEquals(2.49, ticket.getPrice());
+        for (int minutes = 0; minutes < 3 * 24 * 60; minutes += 7) {
+            for (ParkingType parkingType : ParkingType.values()) {
+                long inTime = millis(MONDAY);
+                long outTime = inTime + minutes * 60_000L;
+                assertEquals(FlatTariff.CURRENT.fareInCents(inTime, outTime, parkingType.ordinal(), minutes % 2 == 0),
+                        fareCalculatorService.calculateFareInCents(inTime, outTime, parkingType, minutes % 2 == 0), 1);
+            }
+        }
+    }
+
+    @Test
+    public void dstChangesAreBilledInRealTime() {
+        // GIVEN : une seule plage au tarif de Fare, à Paris
+        Tariff tariff = new TariffSchedule("flat", 30, 5)
+                .addBand(ParkingType.CAR, false, LocalTime.MIDNIGHT, 150)
+                .addBand(ParkingType.CAR, true, LocalTime.MIDNIGHT, 150)
+                .compile(PARIS);
+        // 02:40 (+02:00) -> 02:15 (+01:00) le 25 octobre 2026 : 35 minutes
+        long autumnIn = Instant.parse("2026-10-25T00:40:00Z").toEpochMilli();
+        long autumnOut = Instant.parse("2026-10-25T01:15:00Z").toEpochMilli();
+        // 01:30 (+01:00) -> 03:30 (+02:00) le 29 mars 2026 : une heure
+        long springIn = Instant.parse("2026-03-29T00:30:00Z").toEpochMilli();
+        long springOut = Instant.parse("2026-03-29T01:30:00Z").toEpochMilli();
+
+        // THEN : 35 minutes à 1,50 de l'heure, 87,5 centimes
+        assertEquals(88, tariff.fareInCents(autumnIn, autumnOut, CAR, false));
+        assertEquals(150, tariff.fareInCents(springIn, springOut, CAR, false));
+        // et sur une journée réelle de part et d'autre de chaque changement
+        long autumnDayIn = Instant.parse("2026-10-24T12:00:00Z").toEpochMilli();
+        long springDayIn = Instant.parse("2026-03-28T12:00:00Z").toEpochMilli();
+        assertEquals(FlatTariff.CURRENT.fareInCents(autumnDayIn, autumnOut, CAR, false), tariff.fareInCents(autumnDayIn, autumnOut, CAR, false), 1);
+        assertEquals(FlatTariff.CURRENT.fareInCents(springDayIn, springOut, CAR, false), tariff.fareInCents(springDayIn, springOut, CAR, false), 1);
+    }
+
+    @Test
+    public void compiledTariffMatchesRealMinuteWalkAcrossDstChanges() {
+        // GIVEN
+        TariffSchedule schedule = new TariffSchedule("walk", 0, 0)
+                .addBand(ParkingType.CAR, false, LocalTime.of(7, 30), 240)
+                .addBand(ParkingType.CAR, false, LocalTime.of(12, 0), 180)
+                .addBand(ParkingType.CAR, false, LocalTime.of(20, 15), 60)
+                .addBand(ParkingType.CAR, true, LocalTime.of(10, 0), 90)
+                .addBand(ParkingType.CAR, true, LocalTime.of(18, 0), 30)
+                .setDailyMaxCents(ParkingType.CAR, 2000);
+        Tariff tariff = schedule.compile(PARIS);
+        Random random = new Random(23);
+        Instant[] changes = {Instant.parse("2026-03-29T01:00:00Z"), Instant.parse("2026-10-25T01:00:00Z")};
+
+        for (int i = 0; i < 200; i++) {
+            Instant inTime = changes[i % 2].plusSeconds(60L * (random.nextInt(2 * 24 * 60) - 24 * 60));
+            Instant outTime = inTime.plusSeconds(60L * random.nextInt((i < 100 ? 1 : 3) * 24 * 60));
+
+            // WHEN
+            long fare = tariff.fareInCents(inTime.toEpochMilli(), outTime.toEpochMilli(), CAR, false);
+
+            // THEN : chaque minute réelle au tarif de sa minute locale, chaque jour local plafonné à 20,00
+            long expected = 0;
+            long dayCost = 0;
+            LocalDate day = null;
+            for (Instant minute = inTime; minute.isBefore(outTime); minute = minute.plusSeconds(60)) {
+                LocalDateTime localMinute = LocalDateTime.ofInstant(minute, PARIS);
+                if (!localMinute.toLocalDate().equals(day)) {
+                    expected += Math.min(dayCost, 2000 * 60);
+                    dayCost = 0;
+                    day = localMinute.toLocalDate();
+                }
+                dayCost += walkRate(localMinute);
+            }
+            expected += Math.min(dayCost, 2000 * 60);
+            assertEquals((expected + 30) / 60, fare, inTime + " -> " + outTime);
+        }
+    }
+
+    /**
+     * @return le tarif de la minute, en centimes par heure
+     */
+    private static long walkRate(LocalDateTime minute) {
+        int minuteOfDay = minute.getHour() * 60 + minute.getMinute();
+        if (minute.getDayOfWeek() == DayOfWeek.SATURDAY || minute.getDayOfWeek() == DayOfWeek.SUNDAY) {
+            return (minuteOfDay >= 10 * 60 && minuteOfDay < 18 * 60) ? 90 : 30;
+        }
+        if (minuteOfDay >= 7 * 60 + 30 && minuteOfDay < 12 * 60) {
+            return 240;
+        }
+        return (minuteOfDay >= 12 * 60 && minuteOfDay < 20 * 60 + 15) ? 180 : 60;
+    }
+
+    private static long fare(Tariff tariff, LocalDateTime inTime, LocalDateTime outTime, boolean discount) {
+        return tariff.fareInCents(millis(inTime), millis(outTime), CAR, discount);
+    }
+
+    private static long millis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
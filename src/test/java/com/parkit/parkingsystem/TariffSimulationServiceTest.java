@@ -0,0 +1,157 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketHistoryDAO;
+import com.parkit.parkingsystem.integration.config.InMemoryDataBaseTestConfig;
+import com.parkit.parkingsystem.report.TariffSimulation;
+import com.parkit.parkingsystem.report.TariffSimulationService;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.tariff.FlatTariff;
+import com.parkit.parkingsystem.tariff.Tariff;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TariffSimulationServiceTest {
+
+    private static final LocalDate DAY1 = LocalDate.of(2024, 3, 4);
+    private static final LocalDate DAY2 = LocalDate.of(2024, 3, 5);
+
+    private static InMemoryDataBaseTestConfig dataBaseConfig;
+
+    private ParkingSpotDAO parkingSpotDAO;
+    private TicketHistoryDAO ticketHistoryDAO;
+
+    @BeforeAll
+    public static void setUp() {
+        dataBaseConfig = new InMemoryDataBaseTestConfig("simulation");
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        dataBaseConfig.closePool();
+    }
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        dataBaseConfig.createParkingLot(3, 1);
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        ticketHistoryDAO = new TicketHistoryDAO();
+        ticketHistoryDAO.dataBaseConfig = dataBaseConfig;
+    }
+
+    @Test
+    public void candidateTariffIsComparedToCurrentTariff() throws Exception {
+        // GIVEN
+        Connection con = dataBaseConfig.getConnection();
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET)) {
+            addTicket(ps, 1, "AAA", DAY1.atTime(8, 0), DAY1.atTime(10, 0));
+            // deuxième passage : remise
+            addTicket(ps, 2, "AAA", DAY1.atTime(12, 0), DAY1.atTime(13, 0));
+            addTicket(ps, 4, "BBB", DAY1.atTime(9, 0), DAY1.atTime(10, 30));
+            addTicket(ps, 3, "CCC", DAY2.atTime(9, 0), DAY2.atTime(9, 20));
+            addTicket(ps, 1, "DDD", DAY2.atTime(9, 0), null);
+            // premier passage avant la période : le second a la remise
+            addTicket(ps, 3, "EEE", DAY1.minusDays(1).atTime(9, 0), DAY1.minusDays(1).atTime(10, 0));
+            addTicket(ps, 3, "EEE", DAY2.atTime(10, 0), DAY2.atTime(12, 0));
+            ps.executeBatch();
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        Properties properties = new Properties();
+        properties.load(new StringReader("tariff.plus.car.cents.per.hour=200\n"
+                + "tariff.plus.free.minutes=15\n"
+                + "tariff.plus.discount.percent=10\n"));
+        List<Tariff> candidates = FlatTariff.load(properties);
+
+        // WHEN
+        TariffSimulation simulation = new TariffSimulationService(parkingSpotDAO, ticketHistoryDAO, 2).simulate(DAY1, DAY2, candidates);
+
+        // THEN
+        assertEquals(5, simulation.getTicketCount());
+        assertEquals("current", simulation.getTariffs().get(0).getName());
+        assertEquals(300 + 143 + 0 + 285, simulation.getRevenueInCents(0, ParkingType.CAR));
+        assertEquals(150, simulation.getRevenueInCents(0, ParkingType.BIKE));
+        assertEquals(400 + 180 + 66 + 360, simulation.getRevenueInCents(1, ParkingType.CAR));
+        assertEquals(150, simulation.getRevenueInCents(1, ParkingType.BIKE));
+        assertEquals(278, simulation.getDeltaInCents(1));
+        StringBuilder csv = new StringBuilder();
+        simulation.writeCsv(csv);
+        assertEquals("tariff,car_revenue,bike_revenue,total_revenue,delta,delta_percent\n"
+                + "current,7.28,1.50,8.78,0.00,0.00\n"
+                + "plus,10.06,1.50,11.56,2.78,31.66\n", csv.toString());
+    }
+
+    @Test
+    public void parallelSimulationMatchesFareCalculatorService() throws Exception {
+        // GIVEN : 50 véhicules, 80 passages chacun
+        int nbTickets = 4_000;
+        long[] inTimes = new long[nbTickets];
+        long[] outTimes = new long[nbTickets];
+        byte[] parkingTypes = new byte[nbTickets];
+        boolean[] discounts = new boolean[nbTickets];
+        Connection con = dataBaseConfig.getConnection();
+        con.setAutoCommit(false);
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET)) {
+            for (int i = 0; i < nbTickets; i++) {
+                LocalDateTime inTime = DAY1.atStartOfDay().plusMinutes(i / 50 * 15);
+                LocalDateTime outTime = inTime.plusMinutes(10 + i % 97);
+                int parkingNumber = 1 + i % 4;
+                addTicket(ps, parkingNumber, "V" + (i % 50), inTime, outTime);
+                inTimes[i] = inTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                outTimes[i] = outTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                parkingTypes[i] = (byte) (parkingNumber == 4 ? ParkingType.BIKE : ParkingType.CAR).ordinal();
+                discounts[i] = i >= 50;
+            }
+            ps.executeBatch();
+            con.commit();
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        long[] fares = new long[nbTickets];
+        new FareCalculatorService().calculateFares(inTimes, outTimes, parkingTypes, discounts, fares);
+        long expectedRevenue = 0;
+        for (long fare : fares) {
+            expectedRevenue += fare;
+        }
+        List<Tariff> candidates = Collections.singletonList(new FlatTariff("cheap", 100, 50, 60, 0));
+
+        // WHEN
+        TariffSimulation sequential = new TariffSimulationService(parkingSpotDAO, ticketHistoryDAO, 1).simulate(DAY1, DAY2, candidates);
+        TariffSimulation parallel = new TariffSimulationService(parkingSpotDAO, ticketHistoryDAO, 4).simulate(DAY1, DAY2, candidates);
+
+        // THEN
+        assertEquals(nbTickets, parallel.getTicketCount());
+        assertEquals(expectedRevenue, parallel.getRevenueInCents(0));
+        assertEquals(sequential.getRevenueInCents(1, ParkingType.CAR), parallel.getRevenueInCents(1, ParkingType.CAR));
+        assertEquals(sequential.getRevenueInCents(1, ParkingType.BIKE), parallel.getRevenueInCents(1, ParkingType.BIKE));
+        assertTrue(parallel.getDeltaInCents(1) < 0);
+    }
+
+    private static void addTicket(PreparedStatement ps, int parkingNumber, String vehicleRegNumber, LocalDateTime inTime, LocalDateTime outTime) throws Exception {
+        ps.setInt(1, DBConstants.DEFAULT_LOT_ID);
+        ps.setInt(2, parkingNumber);
+        ps.setString(3, vehicleRegNumber);
+        ps.setDouble(4, 0);
+        ps.setTimestamp(5, Timestamp.valueOf(inTime));
+        ps.setTimestamp(6, (outTime == null) ? null : Timestamp.valueOf(outTime));
+        ps.addBatch();
+    }
+}
@@ -0,0 +1,124 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketArchiveDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketHistoryDAO;
+import com.parkit.parkingsystem.integration.config.InMemoryDataBaseTestConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.TicketArchiver;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TicketArchiverTest {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    private static InMemoryDataBaseTestConfig dataBaseConfig;
+
+    private TicketDAO ticketDAO;
+    private TicketArchiveDAO ticketArchiveDAO;
+    private TicketHistoryDAO ticketHistoryDAO;
+    private long now;
+
+    @BeforeAll
+    public static void setUp() {
+        dataBaseConfig = new InMemoryDataBaseTestConfig("archive");
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        dataBaseConfig.closePool();
+    }
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        dataBaseConfig.createParkingLot(3, 2);
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        ticketArchiveDAO = new TicketArchiveDAO();
+        ticketArchiveDAO.dataBaseConfig = dataBaseConfig;
+        ticketHistoryDAO = new TicketHistoryDAO();
+        ticketHistoryDAO.dataBaseConfig = dataBaseConfig;
+        now = System.currentTimeMillis();
+    }
+
+    @Test
+    public void oldClosedTicketsAreArchivedAndStillVisible() throws Exception {
+        // GIVEN
+        saveTicket("OLD", 1, 100, 99);
+        saveTicket("OLD", 1, 95, 94);
+        saveTicket("OLD", 1, 92, 91);
+        saveTicket("RECENT", 2, 3, 2);
+        saveTicket("PARKED", 3, 100, -1);
+        TicketArchiver ticketArchiver = new TicketArchiver(ticketArchiveDAO, 30, 2, 0, 3600);
+
+        // WHEN
+        int nbArchived;
+        int nbArchivedAgain;
+        try {
+            nbArchived = ticketArchiver.archive();
+            nbArchivedAgain = ticketArchiver.archive();
+        } finally {
+            ticketArchiver.close();
+        }
+
+        // THEN : seuls les tickets sortis depuis plus de 30 jours quittent la table ticket
+        assertEquals(3, nbArchived);
+        assertEquals(0, nbArchivedAgain);
+        assertEquals(2, dataBaseConfig.countLotRows(dataBaseConfig.getLotId())[1]);
+        AtomicInteger nbScanned = new AtomicInteger();
+        assertTrue(ticketHistoryDAO.scanTickets(now - 101 * DAY, now, (parkingNumber, inTime, outTime, price) -> nbScanned.incrementAndGet()));
+        assertEquals(5, nbScanned.get());
+        TicketDAO restartedTicketDAO = new TicketDAO();
+        restartedTicketDAO.dataBaseConfig = dataBaseConfig;
+        restartedTicketDAO.loadOpenTickets();
+        Ticket lastTicket = restartedTicketDAO.getTicket("OLD");
+        assertNotNull(lastTicket);
+        assertEquals(now - 92 * DAY, lastTicket.getInTime().getTime(), 1000);
+        assertEquals(ParkingType.CAR, lastTicket.getParkingSpot().getParkingType());
+        assertEquals(3, restartedTicketDAO.getNbTicket("OLD"));
+        assertNotNull(restartedTicketDAO.getTicket("RECENT").getOutTime());
+        assertNull(restartedTicketDAO.getTicket("PARKED").getOutTime());
+    }
+
+    @Test
+    public void historyByVehicleMergesArchivedAndCurrentTickets() throws Exception {
+        // GIVEN
+        saveTicket("ABCDEF", 1, 60, 59);
+        saveTicket("ABCDEF", 2, 1, 0);
+        saveTicket("GHIJK", 4, 40, 39);
+        assertEquals(2, ticketArchiveDAO.archiveBatch(now - 30 * DAY, 10));
+
+        // WHEN
+        List<String> visits = new ArrayList<>();
+        assertTrue(ticketHistoryDAO.scanTicketsByVehicle(now, (vehicleRegNumber, parkingNumber, inTime, outTime) ->
+                visits.add(vehicleRegNumber + "@" + parkingNumber)));
+
+        // THEN
+        assertEquals(List.of("ABCDEF@1", "ABCDEF@2", "GHIJK@4"), visits);
+    }
+
+    /**
+     * Ticket entré il y a inDaysAgo jours et sorti il y a outDaysAgo jours, en cours si outDaysAgo est négatif.
+     */
+    private void saveTicket(String vehicleRegNumber, int parkingNumber, int inDaysAgo, int outDaysAgo) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(parkingNumber, parkingNumber <= 3 ? ParkingType.CAR : ParkingType.BIKE, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setPrice(outDaysAgo < 0 ? 0 : 1.5);
+        ticket.setInTime(new Date(now - inDaysAgo * DAY));
+        ticket.setOutTime(outDaysAgo < 0 ? null : new Date(now - outDaysAgo * DAY));
+        assertTrue(ticketDAO.saveTicket(ticket));
+    }
+}
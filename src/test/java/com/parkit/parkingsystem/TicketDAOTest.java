@@ -0,0 +1,108 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.InMemoryDataBaseTestConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TicketDAOTest {
+
+    private static InMemoryDataBaseTestConfig dataBaseConfig;
+
+    private TicketDAO ticketDAO;
+
+    @BeforeAll
+    public static void setUp() {
+        dataBaseConfig = new InMemoryDataBaseTestConfig("ticketdao");
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        dataBaseConfig.closePool();
+    }
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        dataBaseConfig.createParkingLot(3, 2);
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+    }
+
+    @Test
+    public void getNbTicketCountsSavedTickets() {
+        // GIVEN
+        assertEquals(0, ticketDAO.getNbTicket("ABCDEF"));
+
+        // WHEN
+        ticketDAO.saveTicket(newTicket("ABCDEF", 120));
+        ticketDAO.saveTicket(newTicket("ABCDEF", 60));
+
+        // THEN : le cache est tenu à jour, la base aussi
+        assertEquals(2, ticketDAO.getNbTicket("ABCDEF"));
+        ticketDAO.visitCounterCache.clear();
+        assertEquals(2, ticketDAO.getNbTicket("ABCDEF"));
+        assertEquals(0, ticketDAO.getNbTicket("GHIJKL"));
+    }
+
+    @Test
+    public void getNbTicketIsServedFromCache() {
+        // GIVEN
+        ticketDAO.saveTicket(newTicket("ABCDEF", 60));
+
+        // WHEN
+        ticketDAO.getNbTicket("ABCDEF");
+        ticketDAO.getNbTicket("ABCDEF");
+        ticketDAO.getNbTicket("ABCDEF");
+
+        // THEN : un seul accès en base pour trois lectures
+        assertEquals(2.0 / 3, ticketDAO.visitCounterCache.getHitRate(), 0.001);
+    }
+
+    @Test
+    public void openTicketIsServedFromIndexUntilExit() {
+        // GIVEN
+        Ticket ticket = newTicket("ABCDEF", 60);
+        ticketDAO.saveTicket(ticket);
+        assertTrue(ticket.getId() > 0);
+
+        // WHEN : index reconstruit comme au démarrage
+        TicketDAO restartedTicketDAO = new TicketDAO();
+        restartedTicketDAO.dataBaseConfig = dataBaseConfig;
+        assertTrue(restartedTicketDAO.loadOpenTickets());
+
+        // THEN
+        assertEquals(1, restartedTicketDAO.openTicketIndex.size());
+        Ticket openTicket = restartedTicketDAO.getTicket("ABCDEF");
+        assertEquals(ticket.getId(), openTicket.getId());
+        assertNull(openTicket.getOutTime());
+
+        // WHEN : sortie
+        openTicket.setOutTime(new Date());
+        openTicket.setPrice(1.5);
+        restartedTicketDAO.updateTicket(openTicket);
+
+        // THEN : le ticket clôturé est relu dans l'historique
+        assertEquals(0, restartedTicketDAO.openTicketIndex.size());
+        Ticket closedTicket = restartedTicketDAO.getTicket("ABCDEF");
+        assertEquals(ticket.getId(), closedTicket.getId());
+        assertNotNull(closedTicket.getOutTime());
+        assertEquals(1.5, closedTicket.getPrice());
+    }
+
+    static Ticket newTicket(String vehicleRegNumber, int minutes) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date(System.currentTimeMillis() - (minutes * 60 * 1000)));
+        return ticket;
+    }
+}
@@ -0,0 +1,128 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketHistoryDAO;
+import com.parkit.parkingsystem.integration.config.InMemoryDataBaseTestConfig;
+import com.parkit.parkingsystem.report.TicketReport;
+import com.parkit.parkingsystem.report.TicketReportService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TicketReportServiceTest {
+
+    private static final LocalDate DAY1 = LocalDate.of(2024, 3, 4);
+    private static final LocalDate DAY2 = LocalDate.of(2024, 3, 5);
+
+    private static InMemoryDataBaseTestConfig dataBaseConfig;
+
+    private ParkingSpotDAO parkingSpotDAO;
+    private TicketHistoryDAO ticketHistoryDAO;
+
+    @BeforeAll
+    public static void setUp() {
+        dataBaseConfig = new InMemoryDataBaseTestConfig("report");
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        dataBaseConfig.closePool();
+    }
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        dataBaseConfig.createParkingLot(3, 1);
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        ticketHistoryDAO = new TicketHistoryDAO();
+        ticketHistoryDAO.dataBaseConfig = dataBaseConfig;
+    }
+
+    @Test
+    public void reportComputesRevenueDwellTimeAndPeakOccupancy() throws Exception {
+        // GIVEN
+        Connection con = dataBaseConfig.getConnection();
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET)) {
+            addTicket(ps, 1, DAY1.atTime(8, 0), DAY1.atTime(10, 0), 3.0);
+            addTicket(ps, 2, DAY1.atTime(9, 0), DAY2.atTime(9, 0), 36.0);
+            addTicket(ps, 4, DAY1.atTime(9, 30), DAY1.atTime(10, 30), 1.0);
+            addTicket(ps, 1, DAY2.atTime(8, 0), null, 0);
+            // entré la veille de la période, sorti pendant
+            addTicket(ps, 3, DAY1.minusDays(1).atTime(20, 0), DAY1.atTime(8, 30), 18.75);
+            // hors période
+            addTicket(ps, 3, DAY1.minusDays(1).atTime(10, 0), DAY1.minusDays(1).atTime(11, 0), 1.5);
+            addTicket(ps, 2, DAY2.plusDays(1).atTime(10, 0), null, 0);
+            ps.executeBatch();
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+
+        // WHEN
+        TicketReport report = new TicketReportService(parkingSpotDAO, ticketHistoryDAO, 2).build(DAY1, DAY2);
+
+        // THEN
+        assertEquals(5, report.getTicketCount());
+        assertEquals(2175, report.getRevenueInCents(DAY1, ParkingType.CAR));
+        assertEquals(100, report.getRevenueInCents(DAY1, ParkingType.BIKE));
+        assertEquals(3600, report.getRevenueInCents(DAY2, ParkingType.CAR));
+        assertEquals(5875, report.getRevenueInCents());
+        assertEquals(3, report.getClosedTickets(ParkingType.CAR));
+        assertEquals((120 + 1440 + 750) / 3.0, report.getAverageDwellMinutes(ParkingType.CAR), 1e-9);
+        assertEquals(60, report.getAverageDwellMinutes(ParkingType.BIKE), 1e-9);
+        assertEquals(2, report.getPeakOccupancy(ParkingType.CAR));
+        assertEquals(DAY1.atTime(8, 0), report.getPeakOccupancyTime(ParkingType.CAR));
+        assertEquals(3, report.getPeakOccupancy());
+        assertEquals(DAY1.atTime(9, 30), report.getPeakOccupancyTime());
+        assertTrue(report.toString().matches("(?s).*2024-03-04 +21\\.75 +1\\.00 +22\\.75\\R.*"));
+    }
+
+    @Test
+    public void parallelFoldMatchesSingleThread() throws Exception {
+        // GIVEN : plus de tickets que n'en contiennent les paquets en circulation en séquentiel
+        Connection con = dataBaseConfig.getConnection();
+        con.setAutoCommit(false);
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET)) {
+            for (int i = 0; i < 9_000; i++) {
+                LocalDateTime inTime = DAY1.atStartOfDay().plusMinutes(i % 2000);
+                addTicket(ps, 1 + i % 4, inTime, inTime.plusMinutes(30 + i % 90), (i % 7) * 0.75);
+            }
+            ps.executeBatch();
+            con.commit();
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+
+        // WHEN
+        TicketReport sequential = new TicketReportService(parkingSpotDAO, ticketHistoryDAO, 1).build(DAY1, DAY2);
+        TicketReport parallel = new TicketReportService(parkingSpotDAO, ticketHistoryDAO, 4).build(DAY1, DAY2);
+
+        // THEN
+        assertEquals(9_000, parallel.getTicketCount());
+        assertEquals(sequential.getRevenueInCents(DAY1, ParkingType.CAR), parallel.getRevenueInCents(DAY1, ParkingType.CAR));
+        assertEquals(sequential.getRevenueInCents(DAY2, ParkingType.BIKE), parallel.getRevenueInCents(DAY2, ParkingType.BIKE));
+        assertEquals(sequential.getAverageDwellMinutes(), parallel.getAverageDwellMinutes(), 1e-9);
+        assertEquals(sequential.getPeakOccupancy(), parallel.getPeakOccupancy());
+        assertEquals(sequential.getPeakOccupancyTime(), parallel.getPeakOccupancyTime());
+    }
+
+    private static void addTicket(PreparedStatement ps, int parkingNumber, LocalDateTime inTime, LocalDateTime outTime, double price) throws Exception {
+        ps.setInt(1, DBConstants.DEFAULT_LOT_ID);
+        ps.setInt(2, parkingNumber);
+        ps.setString(3, "REPORT");
+        ps.setDouble(4, price);
+        ps.setTimestamp(5, Timestamp.valueOf(inTime));
+        ps.setTimestamp(6, (outTime == null) ? null : Timestamp.valueOf(outTime));
+        ps.addBatch();
+    }
+}
@@ -0,0 +1,279 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketFlushListener;
+import com.parkit.parkingsystem.dao.TicketWriteBehindQueue;
+import com.parkit.parkingsystem.integration.config.InMemoryDataBaseTestConfig;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TicketWriteBehindTest {
+
+    private static InMemoryDataBaseTestConfig dataBaseConfig;
+
+    private TicketDAO ticketDAO;
+    private TicketDAO directTicketDAO;
+    private final List<Ticket> flushedTickets = new ArrayList<>();
+    private final List<Exception> flushErrors = new ArrayList<>();
+    private final List<Ticket> rejectedTickets = new ArrayList<>();
+
+    @BeforeAll
+    public static void setUp() {
+        dataBaseConfig = new InMemoryDataBaseTestConfig("writebehind");
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        dataBaseConfig.closePool();
+    }
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        dataBaseConfig.createParkingLot(3, 2);
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        // flush uniquement à la demande : gros lot, intervalle long
+        ticketDAO.enableWriteBehind(1000, 60_000, new TicketFlushListener() {
+            @Override
+            public void onFlush(List<Ticket> tickets, Exception error) {
+                flushedTickets.addAll(tickets);
+                if (error != null) {
+                    flushErrors.add(error);
+                }
+            }
+
+            @Override
+            public void onReject(List<Ticket> tickets, Exception error) {
+                rejectedTickets.addAll(tickets);
+            }
+        });
+        directTicketDAO = new TicketDAO();
+        directTicketDAO.dataBaseConfig = dataBaseConfig;
+    }
+
+    @AfterEach
+    public void tearDownPerTest() {
+        ticketDAO.disableWriteBehind();
+    }
+
+    @Test
+    public void queuedTicketIsVisibleBeforeFlush() {
+        // WHEN
+        assertTrue(ticketDAO.saveTicket(TicketDAOTest.newTicket("ABCDEF", 60)));
+
+        // THEN
+        assertNull(directTicketDAO.getTicket("ABCDEF"));
+        Ticket ticket = ticketDAO.getTicket("ABCDEF");
+        assertNotNull(ticket);
+        assertEquals(1, ticket.getParkingSpot().getId());
+        assertNull(ticket.getOutTime());
+        assertEquals(1, ticketDAO.getNbTicket("ABCDEF"));
+    }
+
+    @Test
+    public void exitBeforeFlushIsCoalescedIntoInsert() {
+        // GIVEN
+        Ticket ticket = TicketDAOTest.newTicket("ABCDEF", 60);
+        ticketDAO.saveTicket(ticket);
+
+        // WHEN : sortie traitée à partir du ticket en attente, sans ID
+        Ticket queuedTicket = ticketDAO.getTicket("ABCDEF");
+        queuedTicket.setOutTime(new Date());
+        queuedTicket.setPrice(1.5);
+        assertTrue(ticketDAO.updateTicket(queuedTicket));
+        ticketDAO.flushWriteBehind();
+
+        // THEN
+        Ticket ticketInDB = directTicketDAO.getTicket("ABCDEF");
+        assertNotNull(ticketInDB.getOutTime());
+        assertEquals(1.5, ticketInDB.getPrice());
+        assertEquals(ticketInDB.getId(), ticket.getId());
+        assertEquals(1, flushedTickets.size());
+        assertTrue(flushErrors.isEmpty());
+        assertEquals(1, ticketDAO.getNbTicket("ABCDEF"));
+    }
+
+    @Test
+    public void updateAfterFlushUsesGeneratedId() {
+        // GIVEN
+        ticketDAO.saveTicket(TicketDAOTest.newTicket("ABCDEF", 60));
+        Ticket queuedTicket = ticketDAO.getTicket("ABCDEF");
+        ticketDAO.flushWriteBehind();
+
+        // WHEN : le ticket lu avant le flush n'a pas d'ID
+        queuedTicket.setOutTime(new Date());
+        queuedTicket.setPrice(1.5);
+        assertTrue(ticketDAO.updateTicket(queuedTicket));
+        assertNull(directTicketDAO.getTicket("ABCDEF").getOutTime());
+        assertNotNull(ticketDAO.getTicket("ABCDEF").getOutTime());
+        ticketDAO.flushWriteBehind();
+
+        // THEN
+        Ticket ticketInDB = directTicketDAO.getTicket("ABCDEF");
+        assertNotNull(ticketInDB.getOutTime());
+        assertEquals(1.5, ticketInDB.getPrice());
+        assertEquals(2, flushedTickets.size());
+    }
+
+    @Test
+    public void disableWriteBehindFlushesQueue() {
+        // GIVEN
+        for (String vehicleRegNumber : new String[]{"AAA", "BBB", "CCC"}) {
+            ticketDAO.saveTicket(TicketDAOTest.newTicket(vehicleRegNumber, 30));
+        }
+
+        // WHEN
+        ticketDAO.disableWriteBehind();
+
+        // THEN
+        assertEquals(1, directTicketDAO.getNbTicket("AAA"));
+        assertEquals(1, directTicketDAO.getNbTicket("BBB"));
+        assertEquals(1, directTicketDAO.getNbTicket("CCC"));
+    }
+
+    @Test
+    public void writeRejectedByDataBaseIsDiscardedWithoutBlockingQueue() {
+        // GIVEN : une plaque trop longue pour la colonne, dont la sortie est aussi en file
+        assertTrue(ticketDAO.saveTicket(TicketDAOTest.newTicket("AAA", 60)));
+        Ticket poison = TicketDAOTest.newTicket("ABCDEFGHIJKL", 60);
+        assertTrue(ticketDAO.saveTicket(poison));
+        assertTrue(ticketDAO.saveTicket(TicketDAOTest.newTicket("BBB", 60)));
+        Ticket poisonExit = ticketDAO.getTicket("ABCDEFGHIJKL");
+        poisonExit.setOutTime(new Date());
+        assertTrue(ticketDAO.updateTicket(poisonExit));
+        assertTrue(ticketDAO.saveTicket(TicketDAOTest.newTicket("CCC", 60)));
+
+        // WHEN
+        ticketDAO.flushWriteBehind();
+        ticketDAO.flushWriteBehind();
+
+        // THEN : les autres écritures passent, l'écriture refusée n'est pas retentée
+        assertEquals(1, directTicketDAO.getNbTicket("AAA"));
+        assertEquals(1, directTicketDAO.getNbTicket("BBB"));
+        assertEquals(1, directTicketDAO.getNbTicket("CCC"));
+        assertEquals(1, rejectedTickets.size());
+        assertEquals("ABCDEFGHIJKL", rejectedTickets.get(0).getVehicleRegNumber());
+        assertTrue(flushErrors.isEmpty());
+        assertNull(ticketDAO.getTicket("ABCDEFGHIJKL"));
+        assertEquals(0, ticketDAO.getNbTicket("ABCDEFGHIJKL"));
+    }
+
+    @Test
+    public void insertCommittedWhileCountingIsCountedOnce() throws Exception {
+        // GIVEN : une insertion en attente
+        TicketWriteBehindQueue queue = new TicketWriteBehindQueue(dataBaseConfig, 1000, 60_000, null);
+        try {
+            queue.enqueueInsert(TicketDAOTest.newTicket("ABCDEF", 60));
+            Thread flusher = new Thread(queue::flush);
+
+            // WHEN : un flush démarre entre la lecture en base et celle de la file
+            int nbVisit = queue.countVisits("ABCDEF", () -> {
+                int committed = directTicketDAO.getNbTicket("ABCDEF");
+                flusher.start();
+                flusher.join(500);
+                return committed;
+            });
+            flusher.join();
+
+            // THEN
+            assertEquals(1, nbVisit);
+            directTicketDAO.visitCounterCache.clear();
+            assertEquals(1, directTicketDAO.getNbTicket("ABCDEF"));
+        } finally {
+            queue.close();
+        }
+    }
+
+    @Test
+    public void queueIsBoundedWhileDataBaseIsDown() {
+        // GIVEN : lots de 2, base coupée
+        DownDataBaseConfig downDataBaseConfig = new DownDataBaseConfig();
+        TicketDAO downTicketDAO = newDownTicketDAO(downDataBaseConfig, null, null);
+        try {
+            // WHEN : chaque lot plein part en flush, échoue et reste en file
+            int nbSaved = 0;
+            while (nbSaved < 100 && downTicketDAO.saveTicket(TicketDAOTest.newTicket("A" + nbSaved, 60))) {
+                nbSaved++;
+            }
+
+            // THEN : la file est bornée à 10 lots, puis se vide quand la base revient
+            assertEquals(20, nbSaved);
+            downDataBaseConfig.down = false;
+            downTicketDAO.flushWriteBehind();
+            assertEquals(1, directTicketDAO.getNbTicket("A19"));
+            assertTrue(downTicketDAO.saveTicket(TicketDAOTest.newTicket("B", 60)));
+        } finally {
+            downTicketDAO.disableWriteBehind();
+        }
+    }
+
+    @Test
+    public void failedFlushIsRetriedByNextWrite() throws Exception {
+        // GIVEN : un flush en échec laisse 2 tickets en file, puis un troisième arrive
+        DownDataBaseConfig downDataBaseConfig = new DownDataBaseConfig();
+        CountDownLatch failed = new CountDownLatch(1);
+        CountDownLatch flushed = new CountDownLatch(1);
+        TicketDAO downTicketDAO = newDownTicketDAO(downDataBaseConfig, failed, flushed);
+        try {
+            downTicketDAO.saveTicket(TicketDAOTest.newTicket("AAA", 60));
+            downTicketDAO.saveTicket(TicketDAOTest.newTicket("BBB", 60));
+            assertTrue(failed.await(10, TimeUnit.SECONDS));
+            downTicketDAO.saveTicket(TicketDAOTest.newTicket("CCC", 60));
+
+            // WHEN : la base revient, la file dépasse toujours batchSize
+            downDataBaseConfig.down = false;
+            downTicketDAO.saveTicket(TicketDAOTest.newTicket("DDD", 60));
+
+            // THEN : flush sans attendre l'intervalle
+            assertTrue(flushed.await(10, TimeUnit.SECONDS));
+            assertEquals(1, directTicketDAO.getNbTicket("DDD"));
+        } finally {
+            downTicketDAO.disableWriteBehind();
+        }
+    }
+
+    private static TicketDAO newDownTicketDAO(DownDataBaseConfig downDataBaseConfig, CountDownLatch failed, CountDownLatch flushed) {
+        TicketDAO downTicketDAO = new TicketDAO();
+        downTicketDAO.dataBaseConfig = downDataBaseConfig;
+        downTicketDAO.enableWriteBehind(2, 60_000, (tickets, error) -> {
+            CountDownLatch latch = (error == null) ? flushed : failed;
+            if (latch != null) {
+                latch.countDown();
+            }
+        });
+        return downTicketDAO;
+    }
+
+    /**
+     * Même base H2, coupée tant que down est vrai.
+     */
+    private static class DownDataBaseConfig extends InMemoryDataBaseTestConfig {
+        private volatile boolean down = true;
+
+        private DownDataBaseConfig() {
+            super("writebehind");
+        }
+
+        @Override
+        public Connection getConnection() throws ClassNotFoundException, SQLException {
+            if (down) {
+                throw new SQLException("Communications link failure");
+            }
+            return super.getConnection();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.JdbcUnitOfWork;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.UnitOfWork;
+import com.parkit.parkingsystem.integration.config.InMemoryDataBaseTestConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UnitOfWorkTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private static InMemoryDataBaseTestConfig dataBaseConfig;
+
+    private ParkingSpotDAO parkingSpotDAO;
+    private TicketDAO ticketDAO;
+
+    @BeforeAll
+    public static void setUp() {
+        dataBaseConfig = new InMemoryDataBaseTestConfig("unitofwork");
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        dataBaseConfig.closePool();
+    }
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        dataBaseConfig.createParkingLot(3, 2);
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.reconcileFreeSpots();
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO.loadOpenTickets();
+    }
+
+    @Test
+    public void entryAndExitUseOneConnectionEach() throws Exception {
+        // GIVEN
+        ParkingService parkingService = new ParkingService(null, parkingSpotDAO, ticketDAO);
+        parkingService.setUnitOfWorkFactory(JdbcUnitOfWork.factory(parkingSpotDAO, ticketDAO));
+        Date inTime = new Date(System.currentTimeMillis() - 2 * HOUR);
+        long borrowed = dataBaseConfig.getPoolStats().getBorrowed();
+
+        // WHEN
+        Ticket ticket = parkingService.enterVehicle(ParkingType.CAR, "ABCDEF", inTime);
+        long entryBorrowed = dataBaseConfig.getPoolStats().getBorrowed() - borrowed;
+        Ticket closedTicket = parkingService.exitVehicle("ABCDEF", new Date(inTime.getTime() + HOUR));
+        long exitBorrowed = dataBaseConfig.getPoolStats().getBorrowed() - borrowed - entryBorrowed;
+
+        // THEN
+        assertEquals(1, entryBorrowed);
+        assertEquals(1, exitBorrowed);
+        assertEquals(1, ticket.getParkingSpot().getId());
+        assertTrue(ticket.getId() > 0);
+        assertEquals(1.5, closedTicket.getPrice(), 1e-9);
+        assertEquals(5, dataBaseConfig.countAvailableSpots());
+        assertEquals(1, parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR));
+        assertEquals(1, ticketDAO.getNbTicket("ABCDEF"));
+        // relu en base, hors des index
+        ticketDAO.loadOpenTickets();
+        assertNotNull(ticketDAO.getTicket("ABCDEF").getOutTime());
+    }
+
+    @Test
+    public void failedUnitLeavesNothingBehind() throws Exception {
+        // GIVEN
+        ParkingSpot parkingSpot;
+        try (UnitOfWork unitOfWork = new JdbcUnitOfWork(parkingSpotDAO, ticketDAO)) {
+            parkingSpot = unitOfWork.claimNextAvailableSlot(ParkingType.CAR);
+            Ticket ticket = new Ticket();
+            ticket.setParkingSpot(parkingSpot);
+            ticket.setVehicleRegNumber("GHIJK");
+            ticket.setInTime(new Date());
+            assertTrue(unitOfWork.saveTicket(ticket));
+
+            // WHEN : la place 99 n'existe pas
+            assertFalse(unitOfWork.updateParking(new ParkingSpot(99, ParkingType.CAR, true)));
+
+            // THEN
+            assertFalse(unitOfWork.commit());
+        }
+        assertEquals(1, parkingSpot.getId());
+        assertEquals(5, dataBaseConfig.countAvailableSpots());
+        assertEquals(1, parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR));
+        assertTrue(parkingSpotDAO.getParkingSpotById(1).isAvailable());
+        assertNull(ticketDAO.getTicket("GHIJK"));
+        assertEquals(0, ticketDAO.getNbTicket("GHIJK"));
+    }
+
+    @Test
+    public void unitClosedWithoutCommitIsRolledBack() throws Exception {
+        // WHEN
+        try (UnitOfWork unitOfWork = new JdbcUnitOfWork(parkingSpotDAO, ticketDAO)) {
+            assertEquals(4, unitOfWork.claimNextAvailableSlot(ParkingType.BIKE).getId());
+        }
+
+        // THEN
+        assertEquals(5, dataBaseConfig.countAvailableSpots());
+        assertEquals(4, parkingSpotDAO.claimNextAvailableSlot(ParkingType.BIKE).getId());
+    }
+}
@@ -53,6 +53,9 @@ public class ParkingDataBaseIT {
         parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
         // Reset Test Database : delete Tickets, Parking all Available
         dataBasePrepareService.clearDataBaseEntries();
+        // La base a été modifiée directement : on recharge les index des places libres et des tickets en cours
+        parkingSpotDAO.reconcileFreeSpots();
+        ticketDAO.loadOpenTickets();
     }
 
     @AfterAll
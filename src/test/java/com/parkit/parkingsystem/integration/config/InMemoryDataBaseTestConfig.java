@@ -0,0 +1,117 @@
+package com.parkit.parkingsystem.integration.config;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Base H2 en mémoire (mode MySQL) : permet de tester les DAO sans serveur MySQL.
+ */
+public class InMemoryDataBaseTestConfig extends DataBaseConfig {
+
+    private final String dataBaseName;
+
+    public InMemoryDataBaseTestConfig(String dataBaseName) {
+        this.dataBaseName = dataBaseName;
+    }
+
+    @Override
+    protected String getDriverClassName() {
+        return "org.h2.Driver";
+    }
+
+    @Override
+    protected String getUrl() {
+        return "jdbc:h2:mem:" + dataBaseName + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    }
+
+    @Override
+    protected String getUser() {
+        return "sa";
+    }
+
+    @Override
+    protected String getPassword() {
+        return "";
+    }
+
+    @Override
+    protected int getPoolMaxSize() {
+        return 16;
+    }
+
+    /**
+     * Crée le schéma si besoin, vide les tickets et recrée un parking de places toutes libres :
+     * les places 1 à nbCarSpots pour les voitures, les suivantes pour les motos.
+     */
+    public void createParkingLot(int nbCarSpots, int nbBikeSpots) throws Exception {
+        Connection con = getConnection();
+        try (Statement st = con.createStatement()) {
+            st.execute("runscript from 'classpath:/h2/schema.sql'");
+            st.execute("delete from ticket");
+            st.execute("delete from ticket_archive");
+            st.execute("delete from vehicle_visit");
+            st.execute("delete from parking");
+            st.execute("delete from lot_freeze");
+        } finally {
+            closeConnection(con);
+        }
+        addParkingLot(getLotId(), nbCarSpots, nbBikeSpots);
+    }
+
+    /**
+     * Ajoute un parking de places libres dans la base, sans toucher aux autres parkings.
+     */
+    public void addParkingLot(int lotId, int nbCarSpots, int nbBikeSpots) throws Exception {
+        Connection con = getConnection();
+        try (PreparedStatement ps = con.prepareStatement("insert into parking(LOT_ID,PARKING_NUMBER,AVAILABLE,TYPE) values(?,?,true,?)")) {
+            for (int number = 1; number <= nbCarSpots + nbBikeSpots; number++) {
+                ps.setInt(1, lotId);
+                ps.setInt(2, number);
+                ps.setString(3, (number <= nbCarSpots ? ParkingType.CAR : ParkingType.BIKE).toString());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        } finally {
+            closeConnection(con);
+        }
+    }
+
+    /**
+     * Nombre de lignes du parking dans chaque table : places, tickets, passages.
+     */
+    public int[] countLotRows(int lotId) throws Exception {
+        Connection con = getConnection();
+        try {
+            int[] counts = new int[3];
+            String[] tables = {"parking", "ticket", "vehicle_visit"};
+            for (int i = 0; i < tables.length; i++) {
+                try (PreparedStatement ps = con.prepareStatement("select count(*) from " + tables[i] + " where LOT_ID = ?")) {
+                    ps.setInt(1, lotId);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        rs.next();
+                        counts[i] = rs.getInt(1);
+                    }
+                }
+            }
+            return counts;
+        } finally {
+            closeConnection(con);
+        }
+    }
+
+    public int countAvailableSpots() throws Exception {
+        Connection con = getConnection();
+        try (Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery("select count(*) from parking where AVAILABLE = true")) {
+            rs.next();
+            return rs.getInt(1);
+        } finally {
+            closeConnection(con);
+        }
+    }
+}
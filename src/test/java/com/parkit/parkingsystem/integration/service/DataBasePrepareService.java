@@ -3,6 +3,7 @@ package com.parkit.parkingsystem.integration.service;
 import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 
 public class DataBasePrepareService {
 
@@ -14,10 +15,19 @@ public class DataBasePrepareService {
             connection = dataBaseTestConfig.getConnection();
 
             //set parking entries to available
-            connection.prepareStatement("update parking set available = true").execute();
+            try (PreparedStatement ps = connection.prepareStatement("update parking set available = true")) {
+                ps.execute();
+            }
 
             //clear ticket entries;
-            connection.prepareStatement("truncate table ticket").execute();
+            try (PreparedStatement ps = connection.prepareStatement("truncate table ticket")) {
+                ps.execute();
+            }
+
+            //clear visit counters
+            try (PreparedStatement ps = connection.prepareStatement("truncate table vehicle_visit")) {
+                ps.execute();
+            }
 
         }catch(Exception e){
             e.printStackTrace();
@@ -0,0 +1,42 @@
+/* Schéma de Data.sql pour la base H2 en mémoire (mode MySQL) des tests DAO */
+create table if not exists parking(
+LOT_ID int NOT NULL,
+PARKING_NUMBER int NOT NULL,
+AVAILABLE bool NOT NULL,
+TYPE varchar(10) NOT NULL,
+PRIMARY KEY (LOT_ID, PARKING_NUMBER)
+);
+
+create table if not exists ticket(
+ ID int PRIMARY KEY AUTO_INCREMENT,
+ LOT_ID int NOT NULL,
+ PARKING_NUMBER int NOT NULL,
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ PRICE double,
+ IN_TIME DATETIME NOT NULL,
+ OUT_TIME DATETIME,
+ FOREIGN KEY (LOT_ID, PARKING_NUMBER)
+ REFERENCES parking(LOT_ID, PARKING_NUMBER));
+
+create table if not exists vehicle_visit(
+ LOT_ID int NOT NULL,
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ NB_VISIT int NOT NULL,
+ PRIMARY KEY (LOT_ID, VEHICLE_REG_NUMBER));
+
+create table if not exists lot_freeze(
+ LOT_ID int PRIMARY KEY);
+
+create table if not exists ticket_archive(
+ ID int PRIMARY KEY AUTO_INCREMENT,
+ LOT_ID int NOT NULL,
+ PARKING_NUMBER int NOT NULL,
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ PRICE double,
+ IN_TIME DATETIME NOT NULL,
+ OUT_TIME DATETIME NOT NULL);
+
+create index if not exists TICKET_VEHICLE_IN_TIME on ticket(LOT_ID, VEHICLE_REG_NUMBER, IN_TIME);
+create index if not exists TICKET_OUT_TIME on ticket(LOT_ID, OUT_TIME);
+create index if not exists TICKET_ARCHIVE_VEHICLE_IN_TIME on ticket_archive(LOT_ID, VEHICLE_REG_NUMBER, IN_TIME);
+create index if not exists TICKET_ARCHIVE_OUT_TIME on ticket_archive(LOT_ID, OUT_TIME);